@@ -0,0 +1,141 @@
+package com.egui.gabo.webflux.client;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link InstanceRegistry} reading the instances of a service from Eureka's
+ * REST API ({@code GET {serviceUrl}/apps/{SERVICE-ID}}), without the Eureka
+ * client library.
+ * <p>
+ * The first call waits for the registry; later calls answer the last list
+ * and refresh it in the background once it is older than the refresh
+ * interval, like the Eureka client does. The service URLs (Eureka's
+ * {@code defaultZone}) are tried in order. When no Eureka server answers a
+ * refresh, the last list is kept.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+public class EurekaInstanceRegistry implements InstanceRegistry {
+
+	/**
+	 * The instances and when they were read.
+	 */
+	private static final class Snapshot {
+
+		private final List<URI> instances;
+		private final long readAt = System.nanoTime();
+
+		private Snapshot(List<URI> instances) {
+			this.instances = instances;
+		}
+	}
+
+	private final WebClient webClient;
+	private final List<URI> serviceUrls;
+	private final String serviceId;
+	private final Duration refreshInterval;
+	private final boolean preferIpAddress;
+
+	private final AtomicBoolean refreshing = new AtomicBoolean();
+	private final Mono<List<URI>> firstRead;
+	private volatile Snapshot snapshot;
+
+	/**
+	 * @param webClient       the client the registry is read with
+	 * @param serviceUrls     the Eureka service URLs, e.g.
+	 *                        {@code http://localhost:8761/eureka}
+	 * @param serviceId       the registered application name, e.g.
+	 *                        {@code product-service-api}
+	 * @param refreshInterval how long a list of instances is used
+	 * @param preferIpAddress whether instances are called by IP address rather
+	 *                        than host name
+	 */
+	public EurekaInstanceRegistry(WebClient webClient, List<URI> serviceUrls, String serviceId,
+			Duration refreshInterval, boolean preferIpAddress) {
+		if (serviceUrls.isEmpty()) {
+			throw new IllegalArgumentException("At least one Eureka service URL is required");
+		}
+		this.webClient = webClient;
+		this.serviceUrls = List.copyOf(serviceUrls);
+		this.serviceId = serviceId.toUpperCase(Locale.ROOT);
+		this.refreshInterval = refreshInterval;
+		this.preferIpAddress = preferIpAddress;
+		// shared by the callers arriving while it runs, nothing is remembered after
+		this.firstRead = Mono.defer(this::read).cache(instances -> Duration.ZERO, e -> Duration.ZERO,
+				() -> Duration.ZERO);
+	}
+
+	@Override
+	public Mono<List<URI>> instances() {
+		Snapshot current = snapshot;
+		if (current == null) {
+			return firstRead;
+		}
+		if (System.nanoTime() - current.readAt > refreshInterval.toNanos() && refreshing.compareAndSet(false, true)) {
+			read().doFinally(signal -> refreshing.set(false)).subscribe(instances -> {
+			}, e -> {
+				// the last instances stay in use until a Eureka server answers
+			});
+		}
+		return Mono.just(current.instances);
+	}
+
+	private Mono<List<URI>> read() {
+		return Flux.fromIterable(serviceUrls)
+				.concatMap(url -> read(url).onErrorResume(e -> Mono.empty()), 1)
+				.next()
+				.switchIfEmpty(Mono.error(() -> new IllegalStateException(
+						"No Eureka server answered for " + serviceId + " at " + serviceUrls)))
+				.doOnNext(instances -> snapshot = new Snapshot(instances));
+	}
+
+	private Mono<List<URI>> read(URI serviceUrl) {
+		String base = serviceUrl.toString().endsWith("/") ? serviceUrl.toString() : serviceUrl + "/";
+		return webClient.get().uri(base + "apps/{serviceId}", serviceId)
+				.accept(MediaType.APPLICATION_JSON)
+				.retrieve()
+				.bodyToMono(JsonNode.class)
+				.map(this::instancesUp)
+				// unknown application: nothing registered under this name
+				.onErrorResume(WebClientResponseException.NotFound.class, e -> Mono.just(List.of()));
+	}
+
+	private List<URI> instancesUp(JsonNode root) {
+		JsonNode instance = root.path("application").path("instance");
+		// Eureka renders a single instance as an object rather than an array
+		List<JsonNode> nodes = new ArrayList<>();
+		if (instance.isArray()) {
+			instance.forEach(nodes::add);
+		} else if (instance.isObject()) {
+			nodes.add(instance);
+		}
+		List<URI> instances = new ArrayList<>();
+		for (JsonNode node : nodes) {
+			if (!"UP".equals(node.path("status").asText())) {
+				continue;
+			}
+			String host = preferIpAddress ? node.path("ipAddr").asText() : node.path("hostName").asText();
+			boolean secure = node.path("securePort").path("@enabled").asBoolean(false)
+					&& !node.path("port").path("@enabled").asBoolean(true);
+			int port = secure ? node.path("securePort").path("$").asInt() : node.path("port").path("$").asInt();
+			instances.add(URI.create((secure ? "https://" : "http://") + host + ":" + port));
+		}
+		return List.copyOf(instances);
+	}
+
+}
@@ -0,0 +1,30 @@
+package com.egui.gabo.webflux.client;
+
+import java.net.URI;
+import java.util.List;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Source of the product service instances requests are balanced over.
+ *
+ * @author Gabriel Eguiguren P.
+ */
+public interface InstanceRegistry {
+
+	/**
+	 * @return the base URIs ({@code http://host:port}) of the instances up,
+	 *         possibly empty
+	 */
+	Mono<List<URI>> instances();
+
+	/**
+	 * @param baseUris fixed instances, e.g. behind a load balancer already
+	 * @return a registry always answering these instances
+	 */
+	static InstanceRegistry of(URI... baseUris) {
+		List<URI> instances = List.of(baseUris);
+		return () -> Mono.just(instances);
+	}
+
+}
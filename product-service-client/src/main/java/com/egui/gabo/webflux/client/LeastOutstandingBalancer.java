@@ -0,0 +1,79 @@
+package com.egui.gabo.webflux.client;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Sends each request to the instance with the fewest requests in flight from
+ * this client, picking at random among equally loaded ones.
+ * <p>
+ * A slow or overloaded instance keeps its requests longer, so it gets fewer
+ * new ones without any latency bookkeeping.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+public class LeastOutstandingBalancer {
+
+	private final Map<URI, AtomicInteger> outstanding = new ConcurrentHashMap<>();
+
+	/**
+	 * @param instances the candidate instances, not empty
+	 * @param excluded  an instance not to pick unless it is the only one, may be
+	 *                  null
+	 * @return the least loaded instance
+	 */
+	public URI choose(List<URI> instances, URI excluded) {
+		URI chosen = null;
+		int lowest = Integer.MAX_VALUE;
+		int ties = 0;
+		for (URI instance : instances) {
+			if (instance.equals(excluded) && instances.size() > 1) {
+				continue;
+			}
+			int load = outstanding(instance);
+			if (load < lowest) {
+				chosen = instance;
+				lowest = load;
+				ties = 1;
+			} else if (load == lowest && ThreadLocalRandom.current().nextInt(++ties) == 0) {
+				// reservoir sampling: each of the tied instances is equally likely
+				chosen = instance;
+			}
+		}
+		return chosen;
+	}
+
+	/**
+	 * Counts the request as outstanding on the instance until it terminates or
+	 * is cancelled.
+	 *
+	 * @param instance the instance the request is sent to
+	 * @param request  the request to the instance
+	 * @return the response
+	 */
+	public <T> Mono<T> execute(URI instance, Function<URI, Mono<T>> request) {
+		return Mono.defer(() -> {
+			AtomicInteger counter = outstanding.computeIfAbsent(instance, key -> new AtomicInteger());
+			counter.incrementAndGet();
+			return request.apply(instance).doFinally(signal -> counter.decrementAndGet());
+		});
+	}
+
+	/**
+	 * @param instance an instance
+	 * @return the requests in flight to it
+	 */
+	public int outstanding(URI instance) {
+		AtomicInteger counter = outstanding.get(instance);
+		return counter == null ? 0 : counter.get();
+	}
+
+}
@@ -0,0 +1,101 @@
+package com.egui.gabo.webflux.client;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Small local cache of recently read values, each kept for a fixed time.
+ * <p>
+ * Bounded in size: when full, expired entries are dropped first, then
+ * arbitrary ones. Meant for hot keys read many times per TTL, not as a copy
+ * of the catalog.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+public class NearCache<K, V> {
+
+	/**
+	 * A cached value and when it expires.
+	 */
+	private static final class Entry<V> {
+
+		private final V value;
+		private final long expiresAt;
+
+		private Entry(V value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+	private final long ttlNanos;
+	private final int maxSize;
+
+	/**
+	 * @param ttl     how long a value is served
+	 * @param maxSize the most values held
+	 */
+	public NearCache(Duration ttl, int maxSize) {
+		this.ttlNanos = ttl.toNanos();
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * @param key the key
+	 * @return the value, or null if absent or expired
+	 */
+	public V get(K key) {
+		Entry<V> entry = entries.get(key);
+		if (entry == null) {
+			return null;
+		}
+		if (System.nanoTime() - entry.expiresAt > 0) {
+			entries.remove(key, entry);
+			return null;
+		}
+		return entry.value;
+	}
+
+	/**
+	 * @param key   the key
+	 * @param value the value, served until the TTL elapses
+	 */
+	public void put(K key, V value) {
+		if (ttlNanos <= 0 || maxSize <= 0) {
+			return;
+		}
+		if (entries.size() >= maxSize && !entries.containsKey(key)) {
+			evict();
+		}
+		entries.put(key, new Entry<>(value, System.nanoTime() + ttlNanos));
+	}
+
+	/**
+	 * @param key the key whose value is no longer served
+	 */
+	public void invalidate(K key) {
+		entries.remove(key);
+	}
+
+	/**
+	 * @return the number of values held, expired ones included
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	private void evict() {
+		long now = System.nanoTime();
+		entries.values().removeIf(entry -> now - entry.expiresAt > 0);
+		Iterator<K> keys = entries.keySet().iterator();
+		while (entries.size() >= maxSize && keys.hasNext()) {
+			keys.next();
+			keys.remove();
+		}
+	}
+
+}
@@ -0,0 +1,331 @@
+package com.egui.gabo.webflux.client;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.egui.gabo.webflux.client.model.Product;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive client of the product service for other services.
+ * <p>
+ * Reads of single products are answered from a short lived near cache when
+ * possible; the others made within a few milliseconds of each other are
+ * grouped into one call to {@code GET /api/v2/products/batch}. Calls go to
+ * the instance with the fewest calls in flight, found through Eureka or a
+ * fixed list, and can be hedged on a second instance when the first is slow.
+ * </p>
+ * <p>
+ * Metrics: {@code product.client.requests} (timer, tags {@code instance} and
+ * {@code outcome}), {@code product.client.batch.size},
+ * {@code product.client.cache} (tag {@code result}: hit or miss) and
+ * {@code product.client.hedged}.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+public class ProductServiceClient {
+
+	/**
+	 * The largest batch the service accepts.
+	 */
+	public static final int MAX_BATCH_SIZE = 100;
+
+	private final InstanceRegistry registry;
+	private final WebClient webClient;
+	private final Duration hedgeAfter;
+	private final MeterRegistry meterRegistry;
+
+	private final LeastOutstandingBalancer balancer = new LeastOutstandingBalancer();
+	private final NearCache<String, Product> cache;
+	private final RequestBatcher<String, Product> batcher;
+
+	private final DistributionSummary batchSize;
+	private final Counter cacheHits;
+	private final Counter cacheMisses;
+	private final Counter hedged;
+
+	private ProductServiceClient(Builder builder) {
+		this.webClient = builder.webClientBuilder.build();
+		this.registry = builder.registry != null ? builder.registry
+				: new EurekaInstanceRegistry(webClient, builder.serviceUrls, builder.serviceId, builder.registryRefresh,
+						builder.preferIpAddress);
+		this.hedgeAfter = builder.hedgeAfter;
+		this.meterRegistry = builder.meterRegistry;
+		this.cache = new NearCache<>(builder.cacheTtl, builder.cacheMaxSize);
+		this.batcher = new RequestBatcher<>(this::fetch, builder.batchWindow, builder.maxBatchSize);
+		this.batchSize = DistributionSummary.builder("product.client.batch.size")
+				.description("Product ids per batch call")
+				.register(meterRegistry);
+		this.cacheHits = Counter.builder("product.client.cache").tag("result", "hit").register(meterRegistry);
+		this.cacheMisses = Counter.builder("product.client.cache").tag("result", "miss").register(meterRegistry);
+		this.hedged = Counter.builder("product.client.hedged")
+				.description("Batch calls repeated on a second instance")
+				.register(meterRegistry);
+	}
+
+	/**
+	 * @return a builder of a client
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * @param id the product id
+	 * @return the product, empty if it does not exist
+	 */
+	public Mono<Product> getProduct(String id) {
+		return Mono.defer(() -> {
+			Product cached = cache.get(id);
+			if (cached != null) {
+				cacheHits.increment();
+				return Mono.just(cached);
+			}
+			cacheMisses.increment();
+			return batcher.load(id);
+		});
+	}
+
+	/**
+	 * @param ids the product ids
+	 * @return the existing products, in the order of the ids, each once
+	 */
+	public Flux<Product> getProducts(Collection<String> ids) {
+		return Flux.fromIterable(new LinkedHashSet<>(ids)).flatMapSequential(this::getProduct);
+	}
+
+	/**
+	 * @param id a product id whose cached copy is no longer to be served, e.g.
+	 *           after updating it
+	 */
+	public void invalidate(String id) {
+		cache.invalidate(id);
+	}
+
+	private Mono<Map<String, Product>> fetch(Set<String> ids) {
+		batchSize.record(ids.size());
+		return registry.instances().flatMap(instances -> {
+			if (instances.isEmpty()) {
+				return Mono.error(new IllegalStateException("No instance of the product service is up"));
+			}
+			URI primary = balancer.choose(instances, null);
+			Mono<List<Product>> call = call(primary, ids);
+			if (hedgeAfter != null && instances.size() > 1) {
+				Mono<List<Product>> hedge = Mono.delay(hedgeAfter).then(Mono.defer(() -> {
+					hedged.increment();
+					return call(balancer.choose(instances, primary), ids);
+				}));
+				// the first answer wins, the other call is cancelled
+				call = Mono.firstWithValue(call, hedge);
+			}
+			return call;
+		}).map(products -> {
+			products.forEach(product -> cache.put(product.getId(), product));
+			return products.stream().collect(Collectors.toMap(Product::getId, Function.identity(), (a, b) -> a));
+		});
+	}
+
+	private Mono<List<Product>> call(URI instance, Set<String> ids) {
+		return balancer.execute(instance, uri -> {
+			Timer.Sample sample = Timer.start(meterRegistry);
+			return webClient.get()
+					.uri(uri + "/api/v2/products/batch?ids={ids}", String.join(",", ids))
+					.accept(MediaType.APPLICATION_JSON)
+					.retrieve()
+					.bodyToFlux(Product.class)
+					.collectList()
+					// recorded before the products are handed over
+					.doOnSuccess(products -> stop(sample, uri, "success"))
+					.doOnError(e -> stop(sample, uri, "error"))
+					.doOnCancel(() -> stop(sample, uri, "cancelled"));
+		});
+	}
+
+	private void stop(Timer.Sample sample, URI instance, String outcome) {
+		sample.stop(Timer.builder("product.client.requests")
+				.description("Batch calls to the product service")
+				.tag("instance", instance.getAuthority())
+				.tag("outcome", outcome)
+				.register(meterRegistry));
+	}
+
+	/**
+	 * Options of a {@link ProductServiceClient}.
+	 */
+	public static class Builder {
+
+		private InstanceRegistry registry;
+		private List<URI> serviceUrls = List.of(URI.create("http://localhost:8761/eureka"));
+		private String serviceId = "product-service-api";
+		private Duration registryRefresh = Duration.ofSeconds(30);
+		private boolean preferIpAddress;
+		private WebClient.Builder webClientBuilder = WebClient.builder();
+		private MeterRegistry meterRegistry = Metrics.globalRegistry;
+		private Duration batchWindow = Duration.ofMillis(2);
+		private int maxBatchSize = MAX_BATCH_SIZE;
+		private Duration cacheTtl = Duration.ofSeconds(1);
+		private int cacheMaxSize = 10_000;
+		private Duration hedgeAfter;
+
+		private Builder() {
+		}
+
+		/**
+		 * @param serviceUrls the Eureka service URLs, by default
+		 *                    {@code http://localhost:8761/eureka}
+		 * @return this builder
+		 */
+		public Builder eureka(String... serviceUrls) {
+			this.serviceUrls = Arrays.stream(serviceUrls).map(URI::create).toList();
+			this.registry = null;
+			return this;
+		}
+
+		/**
+		 * @param serviceId the application name the service registers with, by
+		 *                  default {@code product-service-api}
+		 * @return this builder
+		 */
+		public Builder serviceId(String serviceId) {
+			this.serviceId = serviceId;
+			return this;
+		}
+
+		/**
+		 * @param registryRefresh how long a list of instances read from Eureka is
+		 *                        used, 30 seconds by default
+		 * @return this builder
+		 */
+		public Builder registryRefresh(Duration registryRefresh) {
+			this.registryRefresh = registryRefresh;
+			return this;
+		}
+
+		/**
+		 * @param preferIpAddress whether instances read from Eureka are called by
+		 *                        IP address rather than host name
+		 * @return this builder
+		 */
+		public Builder preferIpAddress(boolean preferIpAddress) {
+			this.preferIpAddress = preferIpAddress;
+			return this;
+		}
+
+		/**
+		 * @param baseUris fixed instances to use instead of Eureka
+		 * @return this builder
+		 */
+		public Builder instances(URI... baseUris) {
+			return registry(InstanceRegistry.of(baseUris));
+		}
+
+		/**
+		 * @param registry the source of instances to use instead of Eureka
+		 * @return this builder
+		 */
+		public Builder registry(InstanceRegistry registry) {
+			this.registry = registry;
+			return this;
+		}
+
+		/**
+		 * @param webClientBuilder the builder of the client calls are made with,
+		 *                         e.g. the one configured by Spring Boot
+		 * @return this builder
+		 */
+		public Builder webClientBuilder(WebClient.Builder webClientBuilder) {
+			this.webClientBuilder = webClientBuilder;
+			return this;
+		}
+
+		/**
+		 * @param meterRegistry where the metrics are registered, the global
+		 *                      registry by default
+		 * @return this builder
+		 */
+		public Builder meterRegistry(MeterRegistry meterRegistry) {
+			this.meterRegistry = meterRegistry;
+			return this;
+		}
+
+		/**
+		 * @param batchWindow how long a batch waits for more ids, 2 ms by default
+		 * @return this builder
+		 */
+		public Builder batchWindow(Duration batchWindow) {
+			this.batchWindow = batchWindow;
+			return this;
+		}
+
+		/**
+		 * @param maxBatchSize the most ids per call, at most
+		 *                     {@value ProductServiceClient#MAX_BATCH_SIZE}
+		 * @return this builder
+		 */
+		public Builder maxBatchSize(int maxBatchSize) {
+			if (maxBatchSize < 1 || maxBatchSize > MAX_BATCH_SIZE) {
+				throw new IllegalArgumentException("The batch size must be between 1 and " + MAX_BATCH_SIZE);
+			}
+			this.maxBatchSize = maxBatchSize;
+			return this;
+		}
+
+		/**
+		 * @param cacheTtl how long a product read is served again, 1 second by
+		 *                 default, zero to disable the near cache
+		 * @return this builder
+		 */
+		public Builder cacheTtl(Duration cacheTtl) {
+			this.cacheTtl = cacheTtl;
+			return this;
+		}
+
+		/**
+		 * @param cacheMaxSize the most products in the near cache, 10000 by
+		 *                     default
+		 * @return this builder
+		 */
+		public Builder cacheMaxSize(int cacheMaxSize) {
+			this.cacheMaxSize = cacheMaxSize;
+			return this;
+		}
+
+		/**
+		 * @param hedgeAfter how long a call waits before being sent to a second
+		 *                   instance too, null (the default) to never hedge
+		 * @return this builder
+		 */
+		public Builder hedgeAfter(Duration hedgeAfter) {
+			this.hedgeAfter = hedgeAfter;
+			return this;
+		}
+
+		/**
+		 * @return the client
+		 */
+		public ProductServiceClient build() {
+			return new ProductServiceClient(this);
+		}
+
+	}
+
+}
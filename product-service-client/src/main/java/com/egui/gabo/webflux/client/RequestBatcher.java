@@ -0,0 +1,99 @@
+package com.egui.gabo.webflux.client;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Collects the keys requested within a short window and loads them with one
+ * call.
+ * <p>
+ * A batch is sent when the window after its first key elapses or when it
+ * reaches the maximum size, whichever comes first. A key requested twice in
+ * the same batch is loaded once. A key missing from the loaded map completes
+ * empty; when the load fails, every key of the batch fails with it.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+public class RequestBatcher<K, V> {
+
+	private final Function<Set<K>, Mono<Map<K, V>>> loader;
+	private final Duration window;
+	private final int maxBatchSize;
+
+	private final Object lock = new Object();
+	private Map<K, Sinks.One<V>> pending;
+
+	/**
+	 * @param loader       loads the values of a batch of keys
+	 * @param window       how long a batch waits for more keys
+	 * @param maxBatchSize the most keys per batch
+	 */
+	public RequestBatcher(Function<Set<K>, Mono<Map<K, V>>> loader, Duration window, int maxBatchSize) {
+		if (maxBatchSize < 1) {
+			throw new IllegalArgumentException("The maximum batch size must be at least 1");
+		}
+		this.loader = loader;
+		this.window = window;
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	/**
+	 * @param key the key to load with the next batch
+	 * @return the value, empty if the loader has none for the key
+	 */
+	public Mono<V> load(K key) {
+		return Mono.defer(() -> {
+			Sinks.One<V> sink;
+			Map<K, Sinks.One<V>> full = null;
+			synchronized (lock) {
+				if (pending == null) {
+					Map<K, Sinks.One<V>> batch = new LinkedHashMap<>();
+					pending = batch;
+					Schedulers.parallel().schedule(() -> flushIfPending(batch), window.toNanos(), TimeUnit.NANOSECONDS);
+				}
+				sink = pending.computeIfAbsent(key, k -> Sinks.one());
+				if (pending.size() >= maxBatchSize) {
+					full = pending;
+					pending = null;
+				}
+			}
+			if (full != null) {
+				flush(full);
+			}
+			return sink.asMono();
+		});
+	}
+
+	private void flushIfPending(Map<K, Sinks.One<V>> batch) {
+		synchronized (lock) {
+			// already sent because it filled up before the window elapsed
+			if (pending != batch) {
+				return;
+			}
+			pending = null;
+		}
+		flush(batch);
+	}
+
+	private void flush(Map<K, Sinks.One<V>> batch) {
+		Mono.defer(() -> loader.apply(batch.keySet())).subscribe(values -> batch.forEach((key, sink) -> {
+			V value = values.get(key);
+			if (value == null) {
+				sink.tryEmitEmpty();
+			} else {
+				sink.tryEmitValue(value);
+			}
+		}), e -> batch.values().forEach(sink -> sink.tryEmitError(e)),
+				() -> batch.values().forEach(Sinks.One::tryEmitEmpty));
+	}
+
+}
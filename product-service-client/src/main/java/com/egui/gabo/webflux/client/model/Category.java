@@ -0,0 +1,33 @@
+package com.egui.gabo.webflux.client.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * A product category as returned by the product service.
+ *
+ * @author Gabriel Eguiguren P.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class Category {
+
+	private String id;
+
+	private String name;
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+}
@@ -0,0 +1,80 @@
+package com.egui.gabo.webflux.client.model;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * A product as returned by the product service; fields added by newer
+ * versions of the service are ignored.
+ *
+ * @author Gabriel Eguiguren P.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class Product {
+
+	private String id;
+
+	private String name;
+
+	private BigDecimal price;
+
+	private Instant createAt;
+
+	private Category category;
+
+	private String picture;
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public BigDecimal getPrice() {
+		return price;
+	}
+
+	public void setPrice(BigDecimal price) {
+		this.price = price;
+	}
+
+	public Instant getCreateAt() {
+		return createAt;
+	}
+
+	public void setCreateAt(Instant createAt) {
+		this.createAt = createAt;
+	}
+
+	public Category getCategory() {
+		return category;
+	}
+
+	public void setCategory(Category category) {
+		this.category = category;
+	}
+
+	/**
+	 * @return the picture name, served at {@code /api/v2/pictures/{name}}
+	 */
+	public String getPicture() {
+		return picture;
+	}
+
+	public void setPicture(String picture) {
+		this.picture = picture;
+	}
+
+}
@@ -0,0 +1,228 @@
+package com.egui.gabo.webflux.client;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.egui.gabo.webflux.client.model.Product;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.test.StepVerifier;
+
+/**
+ * Unit tests for @ProductServiceClient, against stub product service and
+ * Eureka servers
+ *
+ * @author Gabriel Eguiguren P.
+ */
+class ProductServiceClientUnitTests {
+
+	private final List<DisposableServer> servers = new ArrayList<>();
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@AfterEach
+	void stopServers() {
+		servers.forEach(DisposableServer::disposeNow);
+	}
+
+	/**
+	 * Starts a product service answering the batch endpoint for the ids "p…",
+	 * after the delay, and counting the calls.
+	 */
+	private URI productService(Duration delay, AtomicInteger calls) {
+		DisposableServer server = HttpServer.create().port(0).route(routes -> routes.get("/api/v2/products/batch",
+				(request, response) -> {
+					calls.incrementAndGet();
+					String ids = URI.create(request.uri()).getQuery().substring("ids=".length());
+					String body = List.of(ids.split(",")).stream()
+							.filter(id -> id.startsWith("p"))
+							.map(id -> "{\"id\":\"" + id + "\",\"name\":\"Product " + id + "\",\"price\":19.99,"
+									+ "\"createAt\":\"2024-05-01T10:15:30.000+00:00\","
+									+ "\"category\":{\"id\":\"c1\",\"name\":\"Electronics\"},\"stock\":3}")
+							.collect(Collectors.joining(",", "[", "]"));
+					return response.header("Content-Type", "application/json")
+							.sendString(Mono.just(body).delayElement(delay));
+				})).bindNow();
+		servers.add(server);
+		return URI.create("http://localhost:" + server.port());
+	}
+
+	private URI eureka(String body) {
+		DisposableServer server = HttpServer.create().port(0)
+				.route(routes -> routes.get("/eureka/apps/PRODUCT-SERVICE-API",
+						(request, response) -> response.header("Content-Type", "application/json")
+								.sendString(Mono.just(body))))
+				.bindNow();
+		servers.add(server);
+		return URI.create("http://localhost:" + server.port() + "/eureka");
+	}
+
+	private static String instance(int port, String status) {
+		return "{\"hostName\":\"localhost\",\"ipAddr\":\"127.0.0.1\",\"status\":\"" + status + "\","
+				+ "\"port\":{\"$\":" + port + ",\"@enabled\":\"true\"},"
+				+ "\"securePort\":{\"$\":443,\"@enabled\":\"false\"}}";
+	}
+
+	@Test
+	void batchesConcurrentReads() {
+		AtomicInteger calls = new AtomicInteger();
+		ProductServiceClient client = ProductServiceClient.builder()
+				.instances(productService(Duration.ZERO, calls))
+				.batchWindow(Duration.ofMillis(50))
+				.meterRegistry(meterRegistry)
+				.build();
+
+		StepVerifier.create(Flux.merge(client.getProduct("p1"), client.getProduct("p2"), client.getProduct("p1"),
+				client.getProduct("missing")).map(Product::getId).collectSortedList())
+				.expectNext(List.of("p1", "p1", "p2"))
+				.verifyComplete();
+		Assertions.assertEquals(1, calls.get());
+		Assertions.assertEquals(3, meterRegistry.get("product.client.batch.size").summary().totalAmount());
+	}
+
+	@Test
+	void splitsBatchesAtTheMaximumSize() {
+		AtomicInteger calls = new AtomicInteger();
+		ProductServiceClient client = ProductServiceClient.builder()
+				.instances(productService(Duration.ZERO, calls))
+				.batchWindow(Duration.ofSeconds(10))
+				.maxBatchSize(2)
+				.meterRegistry(meterRegistry)
+				.build();
+
+		StepVerifier.create(client.getProducts(List.of("p1", "p2", "p3", "p4")).map(Product::getId))
+				.expectNext("p1", "p2", "p3", "p4")
+				.thenCancel()
+				.verify(Duration.ofSeconds(5));
+		Assertions.assertEquals(2, calls.get());
+	}
+
+	@Test
+	void readsTheProductFields() {
+		ProductServiceClient client = ProductServiceClient.builder()
+				.instances(productService(Duration.ZERO, new AtomicInteger()))
+				.meterRegistry(meterRegistry)
+				.build();
+
+		Product product = client.getProduct("p1").block(Duration.ofSeconds(5));
+		Assertions.assertEquals("Product p1", product.getName());
+		Assertions.assertEquals("19.99", product.getPrice().toPlainString());
+		Assertions.assertEquals(Instant.parse("2024-05-01T10:15:30Z"), product.getCreateAt());
+		Assertions.assertEquals("Electronics", product.getCategory().getName());
+	}
+
+	@Test
+	void servesRepeatedReadsFromTheNearCache() throws InterruptedException {
+		AtomicInteger calls = new AtomicInteger();
+		ProductServiceClient client = ProductServiceClient.builder()
+				.instances(productService(Duration.ZERO, calls))
+				.cacheTtl(Duration.ofMillis(200))
+				.meterRegistry(meterRegistry)
+				.build();
+
+		client.getProduct("p1").block(Duration.ofSeconds(5));
+		client.getProduct("p1").block(Duration.ofSeconds(5));
+		Assertions.assertEquals(1, calls.get());
+		Assertions.assertEquals(1, meterRegistry.get("product.client.cache").tag("result", "hit").counter().count());
+
+		Thread.sleep(300);
+		client.getProduct("p1").block(Duration.ofSeconds(5));
+		Assertions.assertEquals(2, calls.get());
+	}
+
+	@Test
+	void hedgesSlowCallsOnAnotherInstance() {
+		URI slow = productService(Duration.ofSeconds(3), new AtomicInteger());
+		URI fast = productService(Duration.ZERO, new AtomicInteger());
+		ProductServiceClient client = ProductServiceClient.builder()
+				.registry(() -> Mono.just(List.of(slow, fast)))
+				.hedgeAfter(Duration.ofMillis(100))
+				.meterRegistry(meterRegistry)
+				.build();
+
+		// whichever instance is picked first, the answer comes within the hedge delay
+		for (int i = 0; i < 4; i++) {
+			StepVerifier.create(client.getProduct("p" + i).map(Product::getId))
+					.expectNext("p" + i)
+					.expectComplete()
+					.verify(Duration.ofSeconds(2));
+		}
+	}
+
+	@Test
+	void sendsCallsToTheLeastBusyInstance() {
+		LeastOutstandingBalancer balancer = new LeastOutstandingBalancer();
+		URI first = URI.create("http://first:8080");
+		URI second = URI.create("http://second:8080");
+
+		var pending = balancer.execute(first, uri -> Mono.never()).subscribe();
+		Assertions.assertEquals(1, balancer.outstanding(first));
+		for (int i = 0; i < 10; i++) {
+			Assertions.assertEquals(second, balancer.choose(List.of(first, second), null));
+		}
+		Assertions.assertEquals(second, balancer.choose(List.of(first, second), first));
+		Assertions.assertEquals(first, balancer.choose(List.of(first), first));
+
+		pending.dispose();
+		Assertions.assertEquals(0, balancer.outstanding(first));
+	}
+
+	@Test
+	void readsTheInstancesUpFromEureka() {
+		URI unreachable = URI.create("http://localhost:1/eureka");
+		URI eureka = eureka("{\"application\":{\"name\":\"PRODUCT-SERVICE-API\",\"instance\":["
+				+ instance(8081, "UP") + "," + instance(8082, "DOWN") + "]}}");
+		EurekaInstanceRegistry registry = new EurekaInstanceRegistry(WebClient.create(), List.of(unreachable, eureka),
+				"product-service-api", Duration.ofSeconds(30), false);
+
+		StepVerifier.create(registry.instances())
+				.expectNext(List.of(URI.create("http://localhost:8081")))
+				.verifyComplete();
+	}
+
+	@Test
+	void readsASingleInstanceFromEureka() {
+		URI eureka = eureka("{\"application\":{\"name\":\"PRODUCT-SERVICE-API\",\"instance\":"
+				+ instance(8081, "UP") + "}}");
+		EurekaInstanceRegistry registry = new EurekaInstanceRegistry(WebClient.create(), List.of(eureka),
+				"product-service-api", Duration.ofSeconds(30), true);
+
+		StepVerifier.create(registry.instances())
+				.expectNext(List.of(URI.create("http://127.0.0.1:8081")))
+				.verifyComplete();
+	}
+
+	@Test
+	void callsTheInstancesFoundInEureka() {
+		URI service = productService(Duration.ZERO, new AtomicInteger());
+		URI eureka = eureka("{\"application\":{\"name\":\"PRODUCT-SERVICE-API\",\"instance\":"
+				+ instance(service.getPort(), "UP") + "}}");
+		ProductServiceClient client = ProductServiceClient.builder()
+				.eureka(eureka.toString())
+				.batchWindow(Duration.ofMillis(50))
+				.meterRegistry(meterRegistry)
+				.build();
+
+		StepVerifier.create(client.getProducts(List.of("p1", "missing", "p2")).map(Product::getId))
+				.expectNext("p1", "p2")
+				.verifyComplete();
+		Map<String, Double> outcomes = meterRegistry.get("product.client.requests").timers().stream()
+				.collect(Collectors.toMap(timer -> timer.getId().getTag("outcome"), timer -> (double) timer.count()));
+		Assertions.assertEquals(Map.of("success", 1.0), outcomes);
+	}
+
+}
@@ -8,7 +8,10 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.web.reactive.function.server.RouterFunction;
 import org.springframework.web.reactive.function.server.ServerResponse;
 
+import com.egui.gabo.webflux.api.handler.CategoryHandler;
+import com.egui.gabo.webflux.api.handler.PictureHandler;
 import com.egui.gabo.webflux.api.handler.ProductHandler;
+import com.egui.gabo.webflux.api.handler.SearchHandler;
 
 /**
  * Configuration class for Functional WebFlux Endpoints.
@@ -36,23 +39,38 @@ public class RouterFunctionConfig {
 	 * in the {@link ProductHandler}.
 	 * </p>
 	 * 
-	 * @param handler the handler component containing the logic for processing
-	 *                requests.
+	 * @param handler         the handler component containing the logic for
+	 *                        processing requests.
+	 * @param searchHandler   the handler for the in-memory discovery endpoints.
+	 * @param categoryHandler the handler for the category endpoints.
+	 * @param pictureHandler  the handler for the product pictures.
 	 * @return a {@link RouterFunction} that contains all the route mappings.
 	 */
 	@Bean
-	RouterFunction<ServerResponse> routes(ProductHandler handler) {
+	RouterFunction<ServerResponse> routes(ProductHandler handler, SearchHandler searchHandler,
+			CategoryHandler categoryHandler, PictureHandler pictureHandler) {
 
 		// Example of a simple route lambda: route(GET("/api/v2/products"), request ->
 		// handler.listProduct(request));
 
 		// Chained routes definition
+		// fixed paths must be declared before "/api/v2/products/{id}"
 		return route(GET("/api/v2/products"), handler::listProduct) 
+				.andRoute(GET("/api/v2/products/changes"), handler::productChanges) 
+				.andRoute(GET("/api/v2/products/suggest"), searchHandler::suggest) 
+				.andRoute(GET("/api/v2/products/search"), searchHandler::search) 
+				.andRoute(GET("/api/v2/products/facets"), handler::facets) 
+				.andRoute(GET("/api/v2/products/batch"), handler::batchProducts) 
 				.andRoute(GET("/api/v2/products/{id}"), handler::seeProduct) 
 				.andRoute(POST("/api/v2/products"), handler::createProduct) 
 				.andRoute(PUT("/api/v2/products/{id}"), handler::updateProduct) 
+				.andRoute(PUT("/api/v2/products/{id}/price"), handler::updatePrice) 
 				.andRoute(DELETE("/api/v2/products/{id}"), handler::deleteProduct) 
 				.andRoute(POST("/api/v2/products/upload/{id}"), handler::uploadImage) 
-				.andRoute(POST("/api/v2/products/createWithPic"), handler::createProductWithImage); 
+				.andRoute(POST("/api/v2/products/createWithPic"), handler::createProductWithImage) 
+				.andRoute(GET("/api/v2/categories/stats"), categoryHandler::listStats) 
+				.andRoute(GET("/api/v2/categories/{id}/products"), categoryHandler::listProducts) 
+				.andRoute(GET("/api/v2/categories/{id}/stats"), categoryHandler::seeStats) 
+				.andRoute(GET("/api/v2/pictures/{name}"), pictureHandler::seePicture); 
 	}
 }
@@ -0,0 +1,42 @@
+package com.egui.gabo.webflux.api.blocking;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.Environment;
+
+/**
+ * Installs the blocking call detection when
+ * {@code config.blocking-detection.enabled=true}, before the web server and
+ * the Mongo client start their threads.
+ * <p>
+ * Meant for load tests and staging: instrumented JDK methods get slower.
+ * With {@code config.blocking-detection.fail=false} blocking calls are only
+ * logged, otherwise they also fail the request that made them.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+public class BlockingCallDetectionInstaller implements ApplicationListener<ApplicationEnvironmentPreparedEvent> {
+
+	private static final Logger log = LoggerFactory.getLogger(BlockingCallDetectionInstaller.class);
+
+	@Override
+	public void onApplicationEvent(ApplicationEnvironmentPreparedEvent event) {
+		Environment environment = event.getEnvironment();
+		if (!environment.getProperty("config.blocking-detection.enabled", Boolean.class, false)) {
+			return;
+		}
+		boolean fail = environment.getProperty("config.blocking-detection.fail", Boolean.class, false);
+		try {
+			BlockingCallDetector.install(fail);
+			log.warn("Blocking call detection installed ({})", fail ? "blocking calls fail" : "blocking calls are logged");
+		} catch (RuntimeException e) {
+			// JDK 13+ refuses the retransformation without -XX:+AllowRedefinitionToAddDeleteMethods
+			log.error("Blocking call detection could not be installed, "
+					+ "start the JVM with -XX:+AllowRedefinitionToAddDeleteMethods", e);
+		}
+	}
+
+}
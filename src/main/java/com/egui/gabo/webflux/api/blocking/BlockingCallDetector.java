@@ -0,0 +1,185 @@
+package com.egui.gabo.webflux.api.blocking;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.egui.gabo.webflux.api.search.InvertedIndex;
+
+import io.micrometer.context.ContextRegistry;
+import reactor.blockhound.BlockHound;
+import reactor.blockhound.BlockingMethod;
+import reactor.blockhound.BlockingOperationError;
+import reactor.blockhound.integration.BlockHoundIntegration;
+import reactor.core.publisher.Hooks;
+
+/**
+ * Reports blocking calls made on non-blocking threads (Netty event loops,
+ * Reactor's parallel scheduler) with the request route and the application
+ * frame that made them.
+ * <p>
+ * A BlockHound integration, picked up through {@code META-INF/services}
+ * whenever BlockHound is installed: at runtime with
+ * {@code config.blocking-detection.enabled=true} (see
+ * {@link BlockingCallDetectionInstaller}), in tests with {@code mvn -Pblockhound}
+ * (see the README). Both need {@code -XX:+AllowRedefinitionToAddDeleteMethods}
+ * on JDK 13+.
+ * </p>
+ * <p>
+ * The route is held in a thread local that Reactor restores on every
+ * operator from the subscriber context ({@link BlockingRouteFilter} puts it
+ * there), so it is known on whichever thread the call runs. Violations are
+ * kept until {@link #drainViolations()} and, in fail mode, also thrown as
+ * {@link BlockingOperationError} like plain BlockHound does.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+public class BlockingCallDetector implements BlockHoundIntegration {
+
+	private static final Logger log = LoggerFactory.getLogger(BlockingCallDetector.class);
+
+	static final String ROUTE_KEY = "blocking-detection.route";
+
+	private static final String APPLICATION_PACKAGE = "com.egui.gabo.webflux.api.";
+
+	private static final int MAX_KEPT = 1000;
+
+	private static final ThreadLocal<String> ROUTE = new ThreadLocal<>();
+
+	private static final Queue<Violation> violations = new ConcurrentLinkedQueue<>();
+
+	private static volatile boolean installed;
+
+	private static volatile boolean fail = true;
+
+	/**
+	 * A blocking call seen on a non-blocking thread.
+	 */
+	public static final class Violation {
+
+		private final BlockingMethod method;
+		private final String thread;
+		private final String route;
+		private final Throwable stack;
+
+		Violation(BlockingMethod method, String thread, String route, Throwable stack) {
+			this.method = method;
+			this.thread = thread;
+			this.route = route;
+			this.stack = stack;
+		}
+
+		public BlockingMethod getMethod() {
+			return method;
+		}
+
+		public String getThread() {
+			return thread;
+		}
+
+		/**
+		 * @return the request ({@code GET /api/v2/products}), or null when the
+		 *         call was not made for a request
+		 */
+		public String getRoute() {
+			return route;
+		}
+
+		/**
+		 * @return the innermost frame of this application, or null
+		 */
+		public StackTraceElement getCaller() {
+			for (StackTraceElement frame : stack.getStackTrace()) {
+				if (frame.getClassName().startsWith(APPLICATION_PACKAGE)
+						&& !frame.getClassName().startsWith(BlockingCallDetector.class.getPackageName())) {
+					return frame;
+				}
+			}
+			return null;
+		}
+
+		public Throwable getStack() {
+			return stack;
+		}
+
+		@Override
+		public String toString() {
+			return "Blocking call " + method + " on " + thread + " for " + (route == null ? "no request" : route)
+					+ " at " + getCaller();
+		}
+	}
+
+	/**
+	 * Installs BlockHound with this and the other registered integrations.
+	 *
+	 * @param failOnViolation whether blocking calls throw
+	 *                        {@link BlockingOperationError} besides being
+	 *                        reported
+	 */
+	public static synchronized void install(boolean failOnViolation) {
+		fail = failOnViolation;
+		if (!installed) {
+			BlockHound.install();
+		}
+	}
+
+	/**
+	 * @return whether BlockHound was installed with this integration
+	 */
+	public static boolean isInstalled() {
+		return installed;
+	}
+
+	/**
+	 * @return the violations seen since the last call, oldest first
+	 */
+	public static List<Violation> drainViolations() {
+		List<Violation> drained = new ArrayList<>();
+		for (Violation violation; (violation = violations.poll()) != null;) {
+			drained.add(violation);
+		}
+		return drained;
+	}
+
+	@Override
+	public void applyTo(BlockHound.Builder builder) {
+		// reads /dev/urandom, which never blocks once the kernel pool is seeded
+		builder.allowBlockingCallsInside("java.util.UUID", "randomUUID");
+		// waits for the search index lock only cover short in-memory sections, like a monitor
+		for (String method : List.of("put", "remove", "renameCategory", "size", "search")) {
+			builder.allowBlockingCallsInside(InvertedIndex.class.getName(), method);
+		}
+		builder.blockingMethodCallback(BlockingCallDetector::report);
+
+		ContextRegistry.getInstance().registerThreadLocalAccessor(ROUTE_KEY, ROUTE::get, ROUTE::set, ROUTE::remove);
+		Hooks.enableAutomaticContextPropagation();
+		installed = true;
+	}
+
+	/**
+	 * Applied after the library integrations, so this callback is the one
+	 * kept.
+	 */
+	@Override
+	public int getPriority() {
+		return Integer.MAX_VALUE;
+	}
+
+	private static void report(BlockingMethod method) {
+		Violation violation = new Violation(method, Thread.currentThread().getName(), ROUTE.get(),
+				new Throwable("Blocking call stack"));
+		if (violations.size() < MAX_KEPT) {
+			violations.add(violation);
+		}
+		log.error(violation.toString(), violation.getStack());
+		if (fail) {
+			throw new BlockingOperationError(method);
+		}
+	}
+
+}
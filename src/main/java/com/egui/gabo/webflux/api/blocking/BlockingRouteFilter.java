@@ -0,0 +1,32 @@
+package com.egui.gabo.webflux.api.blocking;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Puts the route of each request into the subscriber context while the
+ * blocking call detection is installed, so {@link BlockingCallDetector} can
+ * tell which request a blocking call was made for.
+ *
+ * @author Gabriel Eguiguren P.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class BlockingRouteFilter implements WebFilter {
+
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+		if (!BlockingCallDetector.isInstalled()) {
+			return chain.filter(exchange);
+		}
+		String route = exchange.getRequest().getMethod() + " " + exchange.getRequest().getPath().value();
+		return chain.filter(exchange).contextWrite(context -> context.put(BlockingCallDetector.ROUTE_KEY, route));
+	}
+
+}
@@ -0,0 +1,126 @@
+package com.egui.gabo.webflux.api.catalog;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import org.springframework.stereotype.Component;
+
+import com.egui.gabo.webflux.api.models.document.Category;
+import com.egui.gabo.webflux.api.models.document.Product;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Resets {@code products} and {@code categories} to seed data on startup.
+ * <p>
+ * The steps run strictly in sequence: both collections are dropped, the
+ * product indexes are recreated, then the data is inserted. The runner blocks
+ * until the last insert is acknowledged, so the in-memory views rebuilt when
+ * the application is ready (search, suggest, facets, category stats) see the
+ * complete catalog.
+ * </p>
+ * <p>
+ * By default the eight sample products are inserted. With
+ * {@code config.seed.products} above zero (e.g. the {@code synthetic}
+ * profile) a {@link SyntheticCatalog} of that size is generated instead and
+ * streamed to Mongo as unordered bulk inserts of
+ * {@code config.seed.batch-size} documents, {@code config.seed.concurrency}
+ * at a time. The time the seeding adds to startup is logged. Disable with
+ * {@code config.seed.enabled=false} to keep existing data.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+@Component
+@ConditionalOnProperty(name = "config.seed.enabled", havingValue = "true", matchIfMissing = true)
+public class CatalogSeeder implements CommandLineRunner {
+
+	private static final Logger log = LoggerFactory.getLogger(CatalogSeeder.class);
+
+	@Value("${config.seed.products:0}")
+	private long products;
+
+	@Value("${config.seed.categories:50}")
+	private int categories;
+
+	@Value("${config.seed.batch-size:5000}")
+	private int batchSize;
+
+	@Value("${config.seed.concurrency:4}")
+	private int concurrency;
+
+	@Value("${config.seed.random-seed:42}")
+	private long randomSeed;
+
+	@Autowired
+	private ReactiveMongoTemplate mongoTemplate;
+
+	@Override
+	public void run(String... args) {
+		long start = System.nanoTime();
+		Long inserted = mongoTemplate.dropCollection(Product.class)
+				.then(mongoTemplate.dropCollection(Category.class))
+				.then(createIndexes())
+				.then(products > 0 ? seedSynthetic() : seedSample())
+				.block();
+		long millis = (System.nanoTime() - start) / 1_000_000;
+		log.info("Seeded {} products in {} ms ({} products/s)", inserted, millis,
+				millis == 0 ? inserted : inserted * 1000 / millis);
+	}
+
+	/**
+	 * Recreates the indexes declared on {@link Product}, which the drop
+	 * removed along with the collection.
+	 */
+	private Mono<Void> createIndexes() {
+		ReactiveIndexOperations indexOps = mongoTemplate.indexOps(Product.class);
+		IndexResolver resolver = IndexResolver.create(mongoTemplate.getConverter().getMappingContext());
+		return Flux.fromIterable(resolver.resolveIndexFor(Product.class))
+				.concatMap(indexOps::createIndex)
+				.then();
+	}
+
+	private Mono<Long> seedSample() {
+		Category cat1 = new Category("Electronic");
+		Category cat2 = new Category("Computers");
+		Instant now = Instant.now();
+		List<Product> sample = List.of(new Product("TV LG 4k 52in", 500.99, cat1),
+				new Product("Camara Sony", 500.99, cat1),
+				new Product("Apple watch", 200.99, cat1),
+				new Product("Laptop Lenovo", 700.99, cat2),
+				new Product("Webcam Logitech", 199.99, cat1),
+				new Product("Camara Nikon", 500.99, cat1),
+				new Product("TV Haisen 4k 52", 600.99, cat1),
+				new Product("Laptop Mac Book Pro", 1600.99, cat2));
+		sample.forEach(product -> product.setCreateAt(now));
+
+		// categories first: inserting them assigns the ids the products embed
+		return mongoTemplate.insertAll(List.of(cat1, cat2))
+				.thenMany(mongoTemplate.insertAll(sample))
+				.count();
+	}
+
+	private Mono<Long> seedSynthetic() {
+		SyntheticCatalog catalog = new SyntheticCatalog(randomSeed, categories, Instant.now());
+		log.info("Generating {} synthetic products in {} categories", products, categories);
+		return mongoTemplate.insertAll(catalog.getCategories())
+				.thenMany(Flux.range(0, Math.toIntExact(products))
+						.map(i -> catalog.nextProduct())
+						.buffer(batchSize)
+						.flatMap(batch -> mongoTemplate.bulkOps(BulkMode.UNORDERED, Product.class).insert(batch)
+								.execute(), concurrency))
+				.reduce(0L, (count, result) -> count + result.getInsertedCount());
+	}
+
+}
@@ -0,0 +1,360 @@
+package com.egui.gabo.webflux.api.catalog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.egui.gabo.webflux.api.events.CatalogChangeListener;
+import com.egui.gabo.webflux.api.models.document.Category;
+import com.egui.gabo.webflux.api.models.document.Product;
+import com.egui.gabo.webflux.api.models.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Pre-encoded JSON (and gzip) snapshot of the full product list.
+ * <p>
+ * Every product is serialized once, when it is loaded or changed, and kept as
+ * bytes. The list body is the concatenation of those bytes and is only rebuilt
+ * when the collection version moved since the last request, so serving the
+ * unfiltered list costs no Jackson work and no Mongo round-trip.
+ * </p>
+ * <p>
+ * The rebuild runs on the bounded elastic scheduler, one at a time, and the
+ * previous snapshot is served until it is done; the gzip body of a snapshot is
+ * only compressed for the first request that accepts it.
+ * </p>
+ * <p>
+ * Products saved or deleted while the catalog is first loaded are skipped by
+ * the scan, which may hold an older version of them.
+ * </p>
+ * <p>
+ * A category rename re-encodes only the products of that category, patching
+ * the name in their JSON; renames made while loading also apply to the
+ * products the scan reads afterwards.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+@Component
+public class CatalogSnapshot implements CatalogChangeListener {
+
+	/**
+	 * Immutable, encoded view of the catalog at a given version.
+	 */
+	public static final class Encoded {
+
+		private final long version;
+		private final String etag;
+		private final byte[] json;
+		private final Mono<byte[]> gzip;
+
+		Encoded(long version, String etag, byte[] json) {
+			this.version = version;
+			this.etag = etag;
+			this.json = json;
+			this.gzip = Mono.fromCallable(() -> CatalogSnapshot.gzip(json)).subscribeOn(Schedulers.boundedElastic())
+					.cache();
+		}
+
+		public long getVersion() {
+			return version;
+		}
+
+		public String getEtag() {
+			return etag;
+		}
+
+		public byte[] getJson() {
+			return json;
+		}
+
+		/**
+		 * @return the gzip body, compressed off the event loop on first use
+		 */
+		public Mono<byte[]> getGzip() {
+			return gzip;
+		}
+	}
+
+	private static final Logger log = LoggerFactory.getLogger(CatalogSnapshot.class);
+
+	private static final byte[] EMPTY_LIST = { '[', ']' };
+
+	@Autowired
+	private ProductRepository productDao;
+
+	@Autowired
+	private ObjectMapper mapper;
+
+	// ObjectId hex strings sort by creation time, matching the natural order of findAll()
+	private final Map<String, byte[]> documents = new ConcurrentSkipListMap<>();
+
+	private final AtomicLong version = new AtomicLong();
+
+	// distinguishes versions of different instances/restarts in the ETag
+	private final long epoch = System.currentTimeMillis();
+
+	private volatile Encoded encoded;
+
+	// the rebuild in progress, if any (guarded by this)
+	private Mono<Encoded> encoding;
+
+	private volatile Mono<Void> loading;
+
+	private volatile boolean loaded;
+
+	// products saved or deleted while the catalog is loaded: the scan has an older version
+	private final Set<String> changedWhileLoading = new HashSet<>();
+
+	// category id of each product, and the names renamed while loading (guarded like changedWhileLoading)
+	private final Map<String, String> categoryIds = new HashMap<>();
+
+	private final Map<String, String> renamedWhileLoading = new HashMap<>();
+
+	/**
+	 * Returns the current snapshot, loading the catalog from Mongo on first use.
+	 * When the catalog changed since the last snapshot, a rebuild starts in the
+	 * background and the last snapshot is returned meanwhile.
+	 *
+	 * @return a Mono with the encoded catalog
+	 */
+	public Mono<Encoded> current() {
+		return load().then(Mono.defer(() -> {
+			Encoded current = encoded;
+			if (current == null) {
+				return rebuild(); // nothing to serve yet
+			}
+			if (current.getVersion() != version.get()) {
+				rebuild().subscribe(null, e -> log.warn("Could not encode the catalog snapshot", e));
+			}
+			return Mono.just(current);
+		}));
+	}
+
+	/**
+	 * @return the last encoded snapshot, or null if none was built yet
+	 */
+	public Encoded lastEncoded() {
+		return encoded;
+	}
+
+	@Override
+	public void productSaved(Product product) {
+		byte[] json = toJson(product);
+		synchronized (changedWhileLoading) {
+			put(product, json);
+			if (!loaded) {
+				changedWhileLoading.add(product.getId());
+			}
+		}
+		version.incrementAndGet();
+	}
+
+	@Override
+	public void productDeleted(String id) {
+		synchronized (changedWhileLoading) {
+			documents.remove(id);
+			categoryIds.remove(id);
+			if (!loaded) {
+				changedWhileLoading.add(id);
+			}
+		}
+		version.incrementAndGet();
+	}
+
+	@Override
+	public void categoryRenamed(Category category) {
+		synchronized (changedWhileLoading) {
+			categoryIds.forEach((productId, categoryId) -> {
+				if (categoryId.equals(category.getId())) {
+					documents.computeIfPresent(productId, (id, json) -> withCategoryName(json, category.getName()));
+				}
+			});
+			if (!loaded) {
+				renamedWhileLoading.put(category.getId(), category.getName());
+			}
+		}
+		version.incrementAndGet();
+	}
+
+	private void put(Product product, byte[] json) {
+		documents.put(product.getId(), json);
+		if (product.getCategory() != null && product.getCategory().getId() != null) {
+			categoryIds.put(product.getId(), product.getCategory().getId());
+		} else {
+			categoryIds.remove(product.getId());
+		}
+	}
+
+	private Mono<Void> load() {
+		Mono<Void> mono = loading;
+		if (mono == null) {
+			synchronized (this) {
+				if (loading == null) {
+					loading = productDao.exportAll()
+							.doOnNext(product -> {
+								byte[] json = toJson(product);
+								synchronized (changedWhileLoading) {
+									// neither resurrect a deleted product nor overwrite a newer version
+									if (!changedWhileLoading.contains(product.getId())) {
+										String renamed = product.getCategory() == null ? null
+												: renamedWhileLoading.get(product.getCategory().getId());
+										put(product, renamed == null ? json : withCategoryName(json, renamed));
+									}
+								}
+							})
+							.then(Mono.fromRunnable(() -> {
+								synchronized (changedWhileLoading) {
+									loaded = true;
+									changedWhileLoading.clear();
+									renamedWhileLoading.clear();
+								}
+								version.incrementAndGet();
+							}))
+							.doOnError(e -> loading = null) // retry on the next request
+							.then()
+							.cache();
+				}
+				mono = loading;
+			}
+		}
+		return mono;
+	}
+
+	/**
+	 * Whether the Accept-Encoding values allow a gzip body: {@code gzip}, or
+	 * else {@code *}, listed without a zero quality.
+	 *
+	 * @param acceptEncoding the Accept-Encoding header values
+	 * @return true if the gzip body can be sent
+	 */
+	public static boolean acceptsGzip(List<String> acceptEncoding) {
+		Double gzip = null;
+		Double any = null;
+		for (String value : acceptEncoding) {
+			for (String coding : value.split(",")) {
+				String[] parts = coding.split(";");
+				String name = parts[0].trim();
+				if (name.equalsIgnoreCase("gzip")) {
+					gzip = quality(parts);
+				} else if (name.equals("*")) {
+					any = quality(parts);
+				}
+			}
+		}
+		// an explicit gzip;q=0 wins over *
+		return gzip != null ? gzip > 0 : any != null && any > 0;
+	}
+
+	private static double quality(String[] parts) {
+		for (int i = 1; i < parts.length; i++) {
+			String parameter = parts[i].trim();
+			if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+				try {
+					return Double.parseDouble(parameter.substring(2).trim());
+				} catch (NumberFormatException e) {
+					return 0;
+				}
+			}
+		}
+		return 1;
+	}
+
+	/**
+	 * Joins the rebuild in progress or starts one off the event loop.
+	 */
+	private synchronized Mono<Encoded> rebuild() {
+		if (encoding == null) {
+			encoding = Mono.fromCallable(this::encode)
+					.subscribeOn(Schedulers.boundedElastic())
+					.doFinally(signal -> {
+						synchronized (this) {
+							encoding = null;
+						}
+					})
+					.cache();
+		}
+		return encoding;
+	}
+
+	private Encoded encode() {
+		Encoded current = encoded;
+		long building = version.get();
+		if (current != null && current.getVersion() == building) {
+			return current;
+		}
+		current = new Encoded(building, "\"" + epoch + "-" + building + "\"", concat());
+		encoded = current;
+		return current;
+	}
+
+	private byte[] concat() {
+		if (documents.isEmpty()) {
+			return EMPTY_LIST;
+		}
+		byte[][] parts = documents.values().toArray(new byte[0][]);
+		int size = 1 + parts.length; // brackets and separators
+		for (byte[] part : parts) {
+			size += part.length;
+		}
+		byte[] out = new byte[size];
+		int pos = 0;
+		out[pos++] = '[';
+		for (int i = 0; i < parts.length; i++) {
+			if (i > 0) {
+				out[pos++] = ',';
+			}
+			System.arraycopy(parts[i], 0, out, pos, parts[i].length);
+			pos += parts[i].length;
+		}
+		out[pos] = ']';
+		return out;
+	}
+
+	private static byte[] gzip(byte[] json) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, json.length / 4));
+		try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+			gzip.write(json);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return out.toByteArray();
+	}
+
+	private byte[] withCategoryName(byte[] json, String name) {
+		try {
+			ObjectNode product = (ObjectNode) mapper.readTree(json);
+			((ObjectNode) product.get("category")).put("name", name);
+			return mapper.writeValueAsBytes(product);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private byte[] toJson(Product product) {
+		try {
+			return mapper.writeValueAsBytes(product);
+		} catch (JsonProcessingException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
@@ -0,0 +1,235 @@
+package com.egui.gabo.webflux.api.catalog;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import com.egui.gabo.webflux.api.events.CatalogChangeListener;
+import com.egui.gabo.webflux.api.models.document.Category;
+import com.egui.gabo.webflux.api.models.repository.CategorieRepository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * All categories, held in memory by id and by name.
+ * <p>
+ * The set is small and rarely changes, so it is loaded completely when the
+ * application is ready (or on first use) and then follows category writes
+ * through {@link CatalogChangeListener}, including those of other instances
+ * when change streams are enabled. A periodic reload
+ * ({@code config.category-cache.refresh-interval}) picks up writes that
+ * bypass the service. Lookups never go to Mongo once loaded.
+ * </p>
+ * <p>
+ * Product writes {@link #resolve(Category) resolve} their category here: the
+ * client only has to name it (by id, or by name), and the copy embedded in
+ * the product is always the stored one.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+@Component
+public class CategoryCache implements CatalogChangeListener {
+
+	private static final Logger log = LoggerFactory.getLogger(CategoryCache.class);
+
+	/**
+	 * Signals that a product refers to a category that does not exist.
+	 */
+	public static class UnknownCategoryException extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		public UnknownCategoryException(String message) {
+			super(message);
+		}
+	}
+
+	/**
+	 * Immutable maps, replaced as a whole on every change.
+	 */
+	private static final class Entries {
+
+		private final Map<String, Category> byId;
+		private final Map<String, Category> byName;
+
+		Entries(Map<String, Category> byId) {
+			this.byId = byId;
+			this.byName = new HashMap<>(byId.size() * 2);
+			byId.values().forEach(category -> byName.put(category.getName(), category));
+		}
+	}
+
+	@Autowired
+	private CategorieRepository categorieDao;
+
+	private volatile Entries entries = new Entries(Map.of());
+
+	private volatile boolean loaded;
+
+	private volatile Mono<Void> loading;
+
+	// bumped by every event, so a reload does not overwrite newer changes
+	private long changes;
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void onReady() {
+		load().subscribe(null, e -> log.warn("Could not load the categories, retrying on first use", e));
+	}
+
+	@Scheduled(fixedDelayString = "${config.category-cache.refresh-interval:PT5M}",
+			initialDelayString = "${config.category-cache.refresh-interval:PT5M}")
+	public void refresh() {
+		long seen;
+		synchronized (this) {
+			seen = changes;
+		}
+		categorieDao.findAll().collectList().subscribe(all -> {
+			synchronized (this) {
+				if (changes == seen) {
+					replaceAll(all);
+				}
+			}
+		}, e -> log.warn("Could not reload the categories", e));
+	}
+
+	/**
+	 * Replaces the cached categories with a complete list.
+	 *
+	 * @param all every stored category
+	 */
+	public synchronized void replaceAll(Collection<Category> all) {
+		Map<String, Category> byId = new HashMap<>(all.size() * 2);
+		all.forEach(category -> byId.put(category.getId(), copy(category)));
+		entries = new Entries(byId);
+		loaded = true;
+	}
+
+	/**
+	 * Resolves the category a product refers to: by id when given, otherwise
+	 * by name.
+	 *
+	 * @param requested the category as sent by the client
+	 * @return a copy of the stored category, or an error with
+	 *         {@link UnknownCategoryException} when there is none
+	 */
+	public Mono<Category> resolve(Category requested) {
+		Mono<Category> resolved = Mono.fromCallable(() -> resolveNow(requested));
+		return loaded ? resolved : load().then(resolved);
+	}
+
+	private Category resolveNow(Category requested) {
+		if (requested == null || !StringUtils.hasText(requested.getId()) && !StringUtils.hasText(requested.getName())) {
+			throw new UnknownCategoryException("The field category must not be empty");
+		}
+		Entries current = entries;
+		if (StringUtils.hasText(requested.getId())) {
+			Category category = current.byId.get(requested.getId());
+			if (category == null) {
+				throw new UnknownCategoryException("The field category.id does not match any category");
+			}
+			return copy(category);
+		}
+		Category category = current.byName.get(requested.getName());
+		if (category == null) {
+			throw new UnknownCategoryException("The field category.name does not match any category");
+		}
+		return copy(category);
+	}
+
+	/**
+	 * @param id the category id
+	 * @return the cached category (not a copy), or null if unknown or not yet
+	 *         loaded
+	 */
+	public Category get(String id) {
+		return id == null ? null : entries.byId.get(id);
+	}
+
+	/**
+	 * @return copies of all categories
+	 */
+	public Flux<Category> findAll() {
+		Flux<Category> all = Flux.defer(() -> Flux.fromIterable(entries.byId.values()).map(CategoryCache::copy));
+		return loaded ? all : load().thenMany(all);
+	}
+
+	/**
+	 * @param id the category id
+	 * @return a copy of the category, or empty if unknown
+	 */
+	public Mono<Category> findById(String id) {
+		Mono<Category> category = Mono.fromSupplier(() -> get(id)).map(CategoryCache::copy);
+		return loaded ? category : load().then(category);
+	}
+
+	/**
+	 * @param name the category name
+	 * @return a copy of the category, or empty if unknown
+	 */
+	public Mono<Category> findByName(String name) {
+		Mono<Category> category = Mono.fromSupplier(() -> entries.byName.get(name)).map(CategoryCache::copy);
+		return loaded ? category : load().then(category);
+	}
+
+	@Override
+	public synchronized void categorySaved(Category category) {
+		Map<String, Category> byId = new HashMap<>(entries.byId);
+		byId.put(category.getId(), copy(category));
+		entries = new Entries(byId);
+		changes++;
+	}
+
+	@Override
+	public synchronized void categoryDeleted(String id) {
+		Map<String, Category> byId = new HashMap<>(entries.byId);
+		byId.remove(id);
+		entries = new Entries(byId);
+		changes++;
+	}
+
+	private Mono<Void> load() {
+		Mono<Void> mono = loading;
+		if (mono == null) {
+			synchronized (this) {
+				if (loading == null) {
+					loading = categorieDao.findAll()
+							.collectList()
+							.doOnNext(this::loadAll)
+							.doOnError(e -> loading = null) // retry on the next request
+							.then()
+							.cache();
+				}
+				mono = loading;
+			}
+		}
+		return mono;
+	}
+
+	private synchronized void loadAll(Collection<Category> all) {
+		// events received while loading are newer than the query result
+		Map<String, Category> byId = new HashMap<>(all.size() * 2);
+		all.forEach(category -> byId.put(category.getId(), copy(category)));
+		byId.putAll(entries.byId);
+		entries = new Entries(byId);
+		loaded = true;
+		log.info("Loaded {} categories", byId.size());
+	}
+
+	private static Category copy(Category category) {
+		Category copy = new Category(category.getName());
+		copy.setId(category.getId());
+		return copy;
+	}
+
+}
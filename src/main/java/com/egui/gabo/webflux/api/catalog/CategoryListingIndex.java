@@ -0,0 +1,297 @@
+package com.egui.gabo.webflux.api.catalog;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.egui.gabo.webflux.api.models.document.Product;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Materialized product listings per category.
+ * <p>
+ * Each category keeps its products as small id/name/price tuples in three
+ * sorted arrays, one per {@link Order}, so a page is a binary search for the
+ * cursor followed by a slice. Saving or deleting a product moves its tuple
+ * with a binary search and an array copy per order; the main collection is
+ * never read to answer a page.
+ * </p>
+ * <p>
+ * All operations are synchronized; they are in-memory and never block.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+public class CategoryListingIndex {
+
+	/**
+	 * Orders a listing can be read in; ties are broken by id.
+	 */
+	public enum Order {
+
+		ID("id", Comparator.comparing(Item::getId)),
+		PRICE("price", Comparator.comparingLong(Item::getPriceMinor).thenComparing(Item::getId)),
+		NAME("name", Comparator.comparing(Item::getName, String.CASE_INSENSITIVE_ORDER).thenComparing(Item::getId));
+
+		private final String param;
+
+		private final Comparator<Item> comparator;
+
+		Order(String param, Comparator<Item> comparator) {
+			this.param = param;
+			this.comparator = comparator;
+		}
+
+		/**
+		 * @param value the {@code sort} query parameter, null for the default
+		 * @return the order
+		 * @throws IllegalArgumentException if the value is not an order
+		 */
+		public static Order parse(String value) {
+			if (value == null) {
+				return ID;
+			}
+			for (Order order : values()) {
+				if (order.param.equalsIgnoreCase(value)) {
+					return order;
+				}
+			}
+			throw new IllegalArgumentException("sort must be one of id, price, name");
+		}
+	}
+
+	/**
+	 * A product as listed: id, name and price.
+	 */
+	public static final class Item {
+
+		private final String id;
+
+		private final String name;
+
+		private final long priceMinor;
+
+		private final String categoryId;
+
+		Item(String id, String name, long priceMinor, String categoryId) {
+			this.id = id;
+			this.name = name == null ? "" : name;
+			this.priceMinor = priceMinor;
+			this.categoryId = categoryId;
+		}
+
+		public String getId() {
+			return id;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return the price in major units, or null without price
+		 */
+		public Double getPrice() {
+			return priceMinor == Product.NO_PRICE ? null : Product.toMajor(priceMinor);
+		}
+
+		@JsonIgnore
+		public long getPriceMinor() {
+			return priceMinor;
+		}
+	}
+
+	/**
+	 * A page of a listing.
+	 */
+	public static final class Page {
+
+		private final List<Item> items;
+
+		private final int total;
+
+		private final String nextCursor;
+
+		Page(List<Item> items, int total, String nextCursor) {
+			this.items = items;
+			this.total = total;
+			this.nextCursor = nextCursor;
+		}
+
+		public List<Item> getItems() {
+			return items;
+		}
+
+		/**
+		 * @return the number of products in the category
+		 */
+		public int getTotal() {
+			return total;
+		}
+
+		/**
+		 * @return the cursor of the next page, or null on the last one
+		 */
+		public String getNextCursor() {
+			return nextCursor;
+		}
+	}
+
+	/**
+	 * The products of one category, sorted in every {@link Order}.
+	 */
+	private static final class Listing {
+
+		private final Item[][] sorted = new Item[Order.values().length][8];
+
+		private int size;
+
+		void add(Item item) {
+			for (Order order : Order.values()) {
+				Item[] items = sorted[order.ordinal()];
+				int position = -Arrays.binarySearch(items, 0, size, item, order.comparator) - 1;
+				if (size == items.length) {
+					items = sorted[order.ordinal()] = Arrays.copyOf(items, size * 2);
+				}
+				System.arraycopy(items, position, items, position + 1, size - position);
+				items[position] = item;
+			}
+			size++;
+		}
+
+		void remove(Item item) {
+			for (Order order : Order.values()) {
+				Item[] items = sorted[order.ordinal()];
+				int position = Arrays.binarySearch(items, 0, size, item, order.comparator);
+				System.arraycopy(items, position + 1, items, position, size - position - 1);
+				items[size - 1] = null;
+			}
+			size--;
+		}
+	}
+
+	private final Map<String, Item> items = new HashMap<>();
+
+	private final Map<String, Listing> listings = new HashMap<>();
+
+	/**
+	 * Lists (or re-lists) a product under its category.
+	 *
+	 * @param product the product, with id, name, price and category
+	 */
+	public synchronized void put(Product product) {
+		remove(product.getId());
+		if (product.getCategory() == null || product.getCategory().getId() == null) {
+			return;
+		}
+		Item item = new Item(product.getId(), product.getName(), product.getPriceMinor(),
+				product.getCategory().getId());
+		listings.computeIfAbsent(item.categoryId, c -> new Listing()).add(item);
+		items.put(item.id, item);
+	}
+
+	/**
+	 * Removes a product from its listing.
+	 *
+	 * @param id the product id
+	 */
+	public synchronized void remove(String id) {
+		Item item = items.remove(id);
+		if (item == null) {
+			return;
+		}
+		Listing listing = listings.get(item.categoryId);
+		listing.remove(item);
+		if (listing.size == 0) {
+			listings.remove(item.categoryId);
+		}
+	}
+
+	public synchronized int size() {
+		return items.size();
+	}
+
+	/**
+	 * Reads a page of a category listing.
+	 *
+	 * @param categoryId the category id
+	 * @param order      the order of the listing
+	 * @param descending whether the order is reversed
+	 * @param after      the cursor returned with the previous page, or null for
+	 *                   the first page
+	 * @param size       the maximum number of products
+	 * @return the page, empty for a category without products
+	 * @throws IllegalArgumentException if the cursor is malformed
+	 */
+	public Page page(String categoryId, Order order, boolean descending, String after, int size) {
+		Item last = after == null ? null : decodeCursor(order, after);
+		synchronized (this) {
+			Listing listing = listings.get(categoryId);
+			if (listing == null) {
+				return new Page(List.of(), 0, null);
+			}
+			Item[] sorted = listing.sorted[order.ordinal()];
+			// the cursor splits the listing into the items before and after it
+			int split = 0;
+			boolean listed = false;
+			if (last != null) {
+				int found = Arrays.binarySearch(sorted, 0, listing.size, last, order.comparator);
+				listed = found >= 0;
+				split = listed ? found : -found - 1;
+			}
+			List<Item> page = new ArrayList<>(Math.min(size, listing.size));
+			boolean more;
+			if (descending) {
+				int to = last == null ? listing.size : split;
+				for (int i = to - 1; i >= 0 && page.size() < size; i--) {
+					page.add(sorted[i]);
+				}
+				more = to > page.size();
+			} else {
+				int from = listed ? split + 1 : split;
+				for (int i = from; i < listing.size && page.size() < size; i++) {
+					page.add(sorted[i]);
+				}
+				more = from + page.size() < listing.size;
+			}
+			String next = more && !page.isEmpty() ? cursorAfter(order, page.get(page.size() - 1)) : null;
+			return new Page(page, listing.size, next);
+		}
+	}
+
+	/**
+	 * Encodes the position of an item, to be sent back as {@code after}.
+	 */
+	static String cursorAfter(Order order, Item last) {
+		String value = switch (order) {
+		case ID -> "";
+		case PRICE -> String.valueOf(last.priceMinor);
+		case NAME -> last.name;
+		};
+		return Base64.getUrlEncoder().withoutPadding()
+				.encodeToString((value + "|" + last.id).getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static Item decodeCursor(Order order, String after) {
+		try {
+			String decoded = new String(Base64.getUrlDecoder().decode(after), StandardCharsets.UTF_8);
+			int separator = decoded.lastIndexOf('|');
+			String value = decoded.substring(0, separator);
+			String id = decoded.substring(separator + 1);
+			return switch (order) {
+			case ID -> new Item(id, null, 0, null);
+			case PRICE -> new Item(id, null, Long.parseLong(value), null);
+			case NAME -> new Item(id, value, 0, null);
+			};
+		} catch (IllegalArgumentException | StringIndexOutOfBoundsException e) {
+			throw new IllegalArgumentException("after is not a valid cursor for sort " + order.name().toLowerCase(Locale.ROOT));
+		}
+	}
+
+}
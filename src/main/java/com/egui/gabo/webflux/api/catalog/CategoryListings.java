@@ -0,0 +1,156 @@
+package com.egui.gabo.webflux.api.catalog;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.egui.gabo.webflux.api.events.CatalogChangeListener;
+import com.egui.gabo.webflux.api.models.document.Product;
+import com.egui.gabo.webflux.api.models.repository.ProductRepository;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Product listings per category, served from a {@link CategoryListingIndex}.
+ * <p>
+ * The index is built from Mongo when the application is ready (or on first
+ * use) and then follows product writes through {@link CatalogChangeListener},
+ * including those of other instances when change streams are enabled. A
+ * periodic rebuild ({@code config.category-listings.rebuild-interval}) picks
+ * up writes that bypass the service: it fills a new index on the side,
+ * applies the changes made meanwhile to both and swaps it in once complete,
+ * so pages keep being served during the rebuild.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+@Component
+public class CategoryListings implements CatalogChangeListener {
+
+	private static final Logger log = LoggerFactory.getLogger(CategoryListings.class);
+
+	@Autowired
+	private ProductRepository productDao;
+
+	private volatile CategoryListingIndex index = new CategoryListingIndex();
+
+	private volatile boolean loaded;
+
+	private volatile Mono<Void> loading;
+
+	// the index being rebuilt, and the products changed since it started
+	private CategoryListingIndex building;
+
+	private final Set<String> changedWhileBuilding = new HashSet<>();
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void onReady() {
+		load().subscribe(null, e -> log.warn("Could not build the category listings, retrying on first use", e));
+	}
+
+	@Scheduled(fixedDelayString = "${config.category-listings.rebuild-interval:PT30M}",
+			initialDelayString = "${config.category-listings.rebuild-interval:PT30M}")
+	public void refresh() {
+		if (loaded) {
+			rebuild().subscribe(null, e -> log.warn("Could not rebuild the category listings", e));
+		}
+	}
+
+	/**
+	 * Reads a page of the products of a category.
+	 *
+	 * @param categoryId the category id
+	 * @param order      the order of the listing
+	 * @param descending whether the order is reversed
+	 * @param after      the cursor returned with the previous page, or null
+	 * @param size       the maximum number of products
+	 * @return the page, or an error with {@link IllegalArgumentException} for a
+	 *         malformed cursor
+	 */
+	public Mono<CategoryListingIndex.Page> page(String categoryId, CategoryListingIndex.Order order,
+			boolean descending, String after, int size) {
+		Mono<CategoryListingIndex.Page> page = Mono
+				.fromCallable(() -> index.page(categoryId, order, descending, after, size));
+		return loaded ? page : load().then(page);
+	}
+
+	private Mono<Void> load() {
+		Mono<Void> current = loading;
+		if (current == null) {
+			current = rebuild().doOnSuccess(done -> loaded = true).doOnError(e -> loading = null).cache();
+			loading = current;
+		}
+		return current;
+	}
+
+	/**
+	 * Builds a new index from every product stored in Mongo and replaces the
+	 * current one with it.
+	 *
+	 * @return a Mono that completes when the new index is in use
+	 */
+	public Mono<Void> rebuild() {
+		return Mono.defer(() -> {
+			long start = System.nanoTime();
+			CategoryListingIndex fresh = new CategoryListingIndex();
+			synchronized (this) {
+				if (building != null) {
+					return Mono.empty();
+				}
+				building = fresh;
+				changedWhileBuilding.clear();
+			}
+			return productDao.exportAll()
+					.doOnNext(product -> {
+						synchronized (this) {
+							// the change event carried a newer version than the scan
+							if (!changedWhileBuilding.contains(product.getId())) {
+								fresh.put(product);
+							}
+						}
+					})
+					.then(Mono.fromRunnable(() -> {
+						synchronized (this) {
+							index = fresh;
+							building = null;
+							changedWhileBuilding.clear();
+						}
+						log.info("Category listings built with {} products in {} ms", fresh.size(),
+								(System.nanoTime() - start) / 1_000_000);
+					}))
+					.doOnError(e -> {
+						synchronized (this) {
+							building = null;
+							changedWhileBuilding.clear();
+						}
+					})
+					.then();
+		});
+	}
+
+	@Override
+	public synchronized void productSaved(Product product) {
+		index.put(product);
+		if (building != null) {
+			building.put(product);
+			changedWhileBuilding.add(product.getId());
+		}
+	}
+
+	@Override
+	public synchronized void productDeleted(String id) {
+		index.remove(id);
+		if (building != null) {
+			building.remove(id);
+			changedWhileBuilding.add(id);
+		}
+	}
+
+}
@@ -0,0 +1,261 @@
+package com.egui.gabo.webflux.api.catalog;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.GroupOperation;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.egui.gabo.webflux.api.models.document.CategoryStats;
+import com.egui.gabo.webflux.api.models.document.Product;
+import com.egui.gabo.webflux.api.resilience.Deadline;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Keeps the per-category product count and min/avg/max price in
+ * {@code category_stats}.
+ * <p>
+ * Every product write applies an atomic {@code $inc} of count and price sum
+ * (plus {@code $min}/{@code $max} on insert). Removing a product cannot lower
+ * a maximum or raise a minimum, so when the removed price was the category
+ * min or max that category is recomputed with an aggregation. A periodic full
+ * recompute ({@code config.category-stats.recompute-interval}) corrects the
+ * drift left by concurrent writes and by writes that bypass the service.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+@Component
+public class CategoryStatsTracker {
+
+	private static final Logger log = LoggerFactory.getLogger(CategoryStatsTracker.class);
+
+	@Autowired
+	private ReactiveMongoTemplate mongoTemplate;
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void onReady() {
+		recomputeAll().subscribe();
+	}
+
+	/**
+	 * @return the stats of every category with products
+	 */
+	public Flux<CategoryStats> findAll() {
+		return Flux.deferContextual(ctx -> mongoTemplate.find(Deadline.applyTo(new Query(), ctx), CategoryStats.class));
+	}
+
+	/**
+	 * @param categoryId the category id
+	 * @return the stats of the category, or empty if it has no products
+	 */
+	public Mono<CategoryStats> findById(String categoryId) {
+		return Mono.deferContextual(ctx -> mongoTemplate
+				.findOne(Deadline.applyTo(Query.query(where("id").is(categoryId)), ctx), CategoryStats.class));
+	}
+
+	/**
+	 * Applies a product insert or update to the stats.
+	 *
+	 * @param previous the stored product before the write, or null on insert
+	 * @param saved    the product as saved
+	 * @return a Mono that completes once the stats are updated; failures are
+	 *         logged and left to the periodic recompute
+	 */
+	public Mono<Void> productSaved(Product previous, Product saved) {
+		if (previous != null && Objects.equals(categoryId(previous), categoryId(saved))
+				&& previous.getPriceMinor() == saved.getPriceMinor()) {
+			return Mono.empty(); // name or picture change
+		}
+		Mono<Void> removal = previous == null ? Mono.empty() : decrement(previous);
+		return removal.then(increment(saved)).onErrorResume(this::logFailure);
+	}
+
+	/**
+	 * Applies a batch of new products to the stats with one upsert per
+	 * category, sent as a single unordered bulk write.
+	 *
+	 * @param inserted the products as inserted
+	 * @return a Mono that completes once the stats are updated; failures are
+	 *         logged and left to the periodic recompute
+	 */
+	public Mono<Void> productsInserted(Collection<Product> inserted) {
+		Map<String, Increment> increments = new LinkedHashMap<>();
+		for (Product product : inserted) {
+			String categoryId = categoryId(product);
+			if (categoryId != null) {
+				increments.computeIfAbsent(categoryId, id -> new Increment()).add(product);
+			}
+		}
+		if (increments.isEmpty()) {
+			return Mono.empty();
+		}
+		ReactiveBulkOperations bulk = mongoTemplate.bulkOps(BulkMode.UNORDERED, CategoryStats.class);
+		increments.forEach((id, increment) -> bulk.upsert(Query.query(where("id").is(id)), increment.toUpdate()));
+		return bulk.execute().then().onErrorResume(this::logFailure);
+	}
+
+	/**
+	 * Removes a deleted product from the stats.
+	 *
+	 * @param deleted the product as it was stored
+	 * @return a Mono that completes once the stats are updated
+	 */
+	public Mono<Void> productDeleted(Product deleted) {
+		return decrement(deleted).onErrorResume(this::logFailure);
+	}
+
+	private Mono<Void> increment(Product product) {
+		String categoryId = categoryId(product);
+		if (categoryId == null) {
+			return Mono.empty();
+		}
+		Increment increment = new Increment();
+		increment.add(product);
+		return mongoTemplate.upsert(Query.query(where("id").is(categoryId)), increment.toUpdate(),
+				CategoryStats.class).then();
+	}
+
+	private Mono<Void> decrement(Product product) {
+		String categoryId = categoryId(product);
+		if (categoryId == null) {
+			return Mono.empty();
+		}
+		boolean priced = product.hasPrice();
+		long price = product.getPriceMinor();
+		Update update = new Update().inc("count", -1).currentDate("updateAt");
+		if (priced) {
+			update.inc("sumMinor", -price);
+		}
+		return mongoTemplate
+				.findAndModify(Query.query(where("id").is(categoryId)), update,
+						FindAndModifyOptions.options().returnNew(true), CategoryStats.class)
+				.filter(stats -> stats.getCount() <= 0 || !priced || Objects.equals(price, stats.getMinMinor())
+						|| Objects.equals(price, stats.getMaxMinor()))
+				.flatMap(stats -> recompute(categoryId));
+	}
+
+	/**
+	 * Recomputes the stats of one category from {@code products}.
+	 *
+	 * @param categoryId the category id
+	 * @return a Mono that completes once the stats are replaced (or removed)
+	 */
+	public Mono<Void> recompute(String categoryId) {
+		TypedAggregation<Product> aggregation = newAggregation(Product.class,
+				match(where("category.id").is(categoryId)), groupByCategory());
+		return mongoTemplate.aggregate(aggregation, Document.class)
+				.next()
+				.flatMap(result -> mongoTemplate.save(toStats(result)).then())
+				.switchIfEmpty(Mono.defer(() -> mongoTemplate
+						.remove(Query.query(where("id").is(categoryId)), CategoryStats.class).then()));
+	}
+
+	/**
+	 * Recomputes the stats of every category from {@code products} and removes
+	 * the stats of categories left without products.
+	 *
+	 * @return a Mono that completes once the stats are replaced
+	 */
+	@Scheduled(fixedDelayString = "${config.category-stats.recompute-interval:PT10M}",
+			initialDelayString = "${config.category-stats.recompute-interval:PT10M}")
+	public Mono<Void> recomputeAll() {
+		long start = System.nanoTime();
+		Set<String> seen = new HashSet<>();
+		return mongoTemplate.aggregate(newAggregation(Product.class, groupByCategory()), Document.class)
+				.filter(result -> result.get("_id") != null) // products without category
+				.map(this::toStats)
+				.doOnNext(stats -> seen.add(stats.getId()))
+				.concatMap(mongoTemplate::save)
+				.then(Mono.defer(() -> mongoTemplate
+						.remove(Query.query(where("id").nin(seen)), CategoryStats.class)))
+				.doOnSuccess(done -> log.info("Category stats recomputed for {} categories in {} ms", seen.size(),
+						(System.nanoTime() - start) / 1_000_000))
+				.then()
+				.onErrorResume(this::logFailure);
+	}
+
+	private static GroupOperation groupByCategory() {
+		return group("category.id").first("category.name").as("name").count().as("count")
+				.sum("priceMinor").as("sum").min("priceMinor").as("min").max("priceMinor").as("max");
+	}
+
+	private CategoryStats toStats(Document result) {
+		Number sum = (Number) result.get("sum");
+		Number min = (Number) result.get("min");
+		Number max = (Number) result.get("max");
+		return new CategoryStats(result.get("_id").toString(), result.getString("name"),
+				((Number) result.get("count")).longValue(), sum == null ? 0 : sum.longValue(),
+				min == null ? null : min.longValue(), max == null ? null : max.longValue());
+	}
+
+	private static String categoryId(Product product) {
+		return product.getCategory() == null ? null : product.getCategory().getId();
+	}
+
+	private Mono<Void> logFailure(Throwable e) {
+		log.warn("Could not update category stats, the next recompute will correct them", e);
+		return Mono.empty();
+	}
+
+	/**
+	 * Stats delta of products added to one category.
+	 */
+	private static final class Increment {
+
+		private String name;
+
+		private long count;
+
+		private long sum;
+
+		private long min = Long.MAX_VALUE;
+
+		private long max = Long.MIN_VALUE;
+
+		void add(Product product) {
+			name = product.getCategory().getName();
+			count++;
+			if (product.hasPrice()) {
+				long price = product.getPriceMinor();
+				sum += price;
+				min = Math.min(min, price);
+				max = Math.max(max, price);
+			}
+		}
+
+		Update toUpdate() {
+			Update update = new Update().inc("count", count).set("name", name).currentDate("updateAt");
+			if (min <= max) {
+				update.inc("sumMinor", sum).min("minMinor", min).max("maxMinor", max);
+			}
+			return update;
+		}
+	}
+
+}
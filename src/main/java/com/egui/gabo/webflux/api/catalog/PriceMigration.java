@@ -0,0 +1,89 @@
+package com.egui.gabo.webflux.api.catalog;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.schema.JsonSchemaObject.Type;
+import org.springframework.stereotype.Component;
+
+import com.egui.gabo.webflux.api.models.document.Product;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Rewrites product prices stored as decimals (the former {@code Double}
+ * field) as int64 minor units, and drops null prices, so range filters, sorts
+ * and the stats aggregation compare one numeric type.
+ * <p>
+ * Runs once per start, before the application is ready (and so before the
+ * in-memory views and category stats are rebuilt from Mongo); it only matches
+ * documents still in the old format, so it is a no-op once done. A failure is
+ * logged and retried on the next start: until then {@link Product} still reads
+ * the old values correctly.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+@Component
+public class PriceMigration {
+
+	private static final Logger log = LoggerFactory.getLogger(PriceMigration.class);
+
+	private static final String COLLECTION = "products";
+
+	private static final Duration TIMEOUT = Duration.ofMinutes(5);
+
+	// {$set: {price: {$toLong: {$round: [{$multiply: ["$price", 100]}, 0]}}}}
+	private static final Document TO_MINOR = new Document("$set", new Document("price", new Document("$toLong",
+			new Document("$round", List.of(new Document("$multiply", List.of("$price", 100)), 0)))));
+
+	@Autowired
+	private ReactiveMongoTemplate mongoTemplate;
+
+	@Value("${config.migration.price-minor.enabled:true}")
+	private boolean enabled;
+
+	@EventListener(ApplicationStartedEvent.class)
+	public void onStarted() {
+		if (!enabled) {
+			return;
+		}
+		try {
+			migrate().block(TIMEOUT);
+		} catch (RuntimeException e) {
+			log.warn("Price migration failed, will retry on next start: {}", e.toString());
+		}
+	}
+
+	/**
+	 * @return a Mono that completes once every legacy price is converted
+	 */
+	public Mono<Void> migrate() {
+		Query decimals = Query.query(where("price").type(Type.doubleType(), Type.bigDecimalType()));
+		Query nulls = Query.query(where("price").type(Type.nullType()));
+		AggregationUpdate toMinor = AggregationUpdate.from(List.of(context -> TO_MINOR));
+		return mongoTemplate.updateMulti(decimals, toMinor, COLLECTION)
+				.zipWith(mongoTemplate.updateMulti(nulls, new Update().unset("price"), COLLECTION))
+				.doOnNext(result -> {
+					long converted = result.getT1().getModifiedCount() + result.getT2().getModifiedCount();
+					if (converted > 0) {
+						log.info("Migrated {} product prices to minor units", converted);
+					}
+				})
+				.then();
+	}
+
+}
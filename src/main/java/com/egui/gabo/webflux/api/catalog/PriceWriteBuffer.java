@@ -0,0 +1,199 @@
+package com.egui.gabo.webflux.api.catalog;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import com.egui.gabo.webflux.api.events.CatalogEvents;
+import com.egui.gabo.webflux.api.models.document.Product;
+import com.egui.gabo.webflux.api.models.repository.ProductRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Write-behind buffer for high-frequency price updates.
+ * <p>
+ * Updates are coalesced per product id (last write wins) and flushed to Mongo
+ * as one unordered bulk of {@code $set} operations every
+ * {@code config.price-buffer.flush-interval}, or as soon as
+ * {@code config.price-buffer.flush-size} products are pending. An accepted
+ * price is therefore durable after at most one flush interval; a failed flush
+ * puts its prices back unless a newer one arrived meanwhile. The updates never
+ * upsert, so the price of an unknown product id is dropped by the flush.
+ * </p>
+ * <p>
+ * After each flush the updated products are read back and published as
+ * catalog changes, and the stats of their categories are recomputed. A full
+ * product update arriving while a price is pending is overwritten by the
+ * flush.
+ * </p>
+ * <p>
+ * Metrics: {@code products.price.buffer.depth} (pending products),
+ * {@code products.price.flush} (flush latency) and
+ * {@code products.price.flushed} (products written).
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+@Component
+public class PriceWriteBuffer {
+
+	private static final Logger log = LoggerFactory.getLogger(PriceWriteBuffer.class);
+
+	private static final Duration SHUTDOWN_FLUSH_TIMEOUT = Duration.ofSeconds(10);
+
+	@Value("${config.price-buffer.flush-interval:PT1S}")
+	private Duration flushInterval;
+
+	@Value("${config.price-buffer.flush-size:500}")
+	private int flushSize;
+
+	@Autowired
+	private ReactiveMongoTemplate mongoTemplate;
+
+	@Autowired
+	private ProductRepository productDao;
+
+	@Autowired
+	private CatalogEvents events;
+
+	@Autowired
+	private CategoryStatsTracker categoryStats;
+
+	@Autowired
+	private MeterRegistry registry;
+
+	private final Map<String, Long> pending = new ConcurrentHashMap<>();
+
+	private final Sinks.Many<Boolean> sizeTrigger = Sinks.many().multicast().directBestEffort();
+
+	private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+	private Timer flushTimer;
+
+	private Counter flushed;
+
+	private Disposable flushing;
+
+	@PostConstruct
+	void start() {
+		Gauge.builder("products.price.buffer.depth", pending, Map::size)
+				.description("Products with a buffered price update").register(registry);
+		flushTimer = Timer.builder("products.price.flush").description("Time to write a batch of buffered prices")
+				.register(registry);
+		flushed = Counter.builder("products.price.flushed").description("Buffered prices written to Mongo")
+				.register(registry);
+
+		flushing = Flux.merge(Flux.interval(flushInterval).map(tick -> true), sizeTrigger.asFlux())
+				.onBackpressureDrop()
+				.concatMap(tick -> flush(), 1)
+				.subscribe();
+	}
+
+	@PreDestroy
+	void stop() {
+		flushing.dispose();
+		flush().block(SHUTDOWN_FLUSH_TIMEOUT);
+	}
+
+	/**
+	 * Buffers a price update, replacing any pending one for the same product.
+	 *
+	 * @param id         the product id
+	 * @param priceMinor the new price, in minor units
+	 */
+	public void submit(String id, long priceMinor) {
+		pending.put(id, priceMinor);
+		if (pending.size() >= flushSize && flushRequested.compareAndSet(false, true)) {
+			sizeTrigger.tryEmitNext(true);
+		}
+	}
+
+	/**
+	 * @return the number of products with a pending price
+	 */
+	public int getDepth() {
+		return pending.size();
+	}
+
+	/**
+	 * Writes every pending price.
+	 *
+	 * @return a Mono that completes once the batch is written and published
+	 */
+	public Mono<Void> flush() {
+		flushRequested.set(false);
+		if (pending.isEmpty()) {
+			return Mono.empty();
+		}
+
+		Map<String, Long> batch = new HashMap<>();
+		for (String id : pending.keySet()) {
+			Long price = pending.remove(id);
+			if (price != null) {
+				batch.put(id, price);
+			}
+		}
+
+		ReactiveBulkOperations bulk = mongoTemplate.bulkOps(BulkMode.UNORDERED, Product.class);
+		batch.forEach((id, price) -> bulk.updateOne(Query.query(where("id").is(id)), Update.update("priceMinor", price)));
+
+		long start = System.nanoTime();
+		return bulk.execute()
+				.doOnNext(result -> {
+					flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+					flushed.increment(result.getModifiedCount());
+					log.debug("Flushed {} buffered prices ({} of unknown products dropped)", batch.size(),
+							batch.size() - result.getMatchedCount());
+				})
+				.flatMap(result -> publish(batch.keySet()).onErrorResume(e -> {
+					log.warn("Could not publish {} flushed prices", batch.size(), e);
+					return Mono.empty();
+				}))
+				.onErrorResume(e -> {
+					log.warn("Could not flush {} buffered prices, retrying with the next flush", batch.size(), e);
+					batch.forEach(pending::putIfAbsent); // keep newer prices that arrived meanwhile
+					return Mono.empty();
+				});
+	}
+
+	private Mono<Void> publish(Set<String> ids) {
+		Set<String> categoryIds = new LinkedHashSet<>();
+		return productDao.findAllById(ids)
+				.doOnNext(events::productSaved)
+				.doOnNext(product -> {
+					if (product.getCategory() != null && product.getCategory().getId() != null) {
+						categoryIds.add(product.getCategory().getId());
+					}
+				})
+				.then(Mono.defer(() -> Flux.fromIterable(categoryIds).concatMap(categoryStats::recompute).then()));
+	}
+
+}
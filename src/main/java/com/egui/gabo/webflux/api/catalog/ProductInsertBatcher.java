@@ -0,0 +1,258 @@
+package com.egui.gabo.webflux.api.catalog;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+
+import com.egui.gabo.webflux.api.models.document.Product;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+/**
+ * Opt-in micro-batcher for inserts of new products.
+ * <p>
+ * Concurrent {@link #insert(Product)} calls are collected for up to
+ * {@code config.insert-batcher.max-wait} or
+ * {@code config.insert-batcher.max-size} products and written with one
+ * unordered bulk insert, at most {@code config.insert-batcher.concurrency}
+ * batches at a time. Ids are assigned before the write, so each caller gets
+ * its own product back, or its own error: a duplicate key or validation
+ * failure of one document does not fail the rest of the batch. The category
+ * stats of a batch are updated with one upsert per category.
+ * </p>
+ * <p>
+ * Metrics: {@code products.insert.batch.size} (products per batch),
+ * {@code products.insert.batch.wait} (time a product waited for its batch,
+ * the latency added by batching) and {@code products.insert.batch} (bulk
+ * write latency).
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+@Component
+public class ProductInsertBatcher {
+
+	private static final Logger log = LoggerFactory.getLogger(ProductInsertBatcher.class);
+
+	private static final int DUPLICATE_KEY = 11000;
+
+	@Value("${config.insert-batcher.enabled:false}")
+	private boolean enabled;
+
+	@Value("${config.insert-batcher.max-size:256}")
+	private int maxSize;
+
+	@Value("${config.insert-batcher.max-wait:PT0.002S}")
+	private Duration maxWait;
+
+	@Value("${config.insert-batcher.concurrency:4}")
+	private int concurrency;
+
+	@Value("${config.insert-batcher.shutdown-timeout:PT10S}")
+	private Duration shutdownTimeout;
+
+	@Autowired
+	private ReactiveMongoTemplate mongoTemplate;
+
+	@Autowired
+	private CategoryStatsTracker categoryStats;
+
+	@Autowired
+	private MeterRegistry registry;
+
+	private FluxSink<PendingInsert> queue;
+
+	// completes once every queued product was written
+	private Mono<Void> drained;
+
+	private volatile boolean stopped;
+
+	private DistributionSummary batchSize;
+
+	private Timer batchWait;
+
+	private Timer batchWrite;
+
+	/**
+	 * A product waiting for its batch, with the caller to complete.
+	 */
+	private record PendingInsert(Product product, MonoSink<Product> caller, long enqueuedAt) {
+	}
+
+	@PostConstruct
+	void start() {
+		if (!enabled) {
+			return;
+		}
+		batchSize = DistributionSummary.builder("products.insert.batch.size")
+				.description("Products written per batched insert").register(registry);
+		batchWait = Timer.builder("products.insert.batch.wait")
+				.description("Time a new product waited for its insert batch").register(registry);
+		batchWrite = Timer.builder("products.insert.batch").description("Time to write a batch of new products")
+				.register(registry);
+
+		drained = Flux.<PendingInsert>create(sink -> queue = sink)
+				.bufferTimeout(maxSize, maxWait, true)
+				.flatMap(this::write, concurrency)
+				.then()
+				.cache();
+		drained.subscribe();
+	}
+
+	/**
+	 * Stops taking products and waits, up to
+	 * {@code config.insert-batcher.shutdown-timeout}, for the queued ones and
+	 * the last partial batch to be written, so their callers get an answer
+	 * before Mongo is closed.
+	 */
+	@PreDestroy
+	void stop() {
+		if (queue == null) {
+			return;
+		}
+		synchronized (this) {
+			stopped = true;
+			queue.complete();
+		}
+		try {
+			drained.block(shutdownTimeout);
+		} catch (IllegalStateException e) {
+			log.warn("Pending product inserts not written within {}", shutdownTimeout);
+		}
+	}
+
+	/**
+	 * @return true if new products should go through {@link #insert(Product)}
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Queues a new product for the next batch, assigning its id.
+	 *
+	 * @param product a product without id
+	 * @return a Mono with the inserted product, or the error of its write
+	 */
+	public Mono<Product> insert(Product product) {
+		return Mono.create(caller -> {
+			// checked and queued under the lock of stop(), so no product reaches the completed queue
+			synchronized (this) {
+				if (stopped) {
+					caller.error(new IllegalStateException("The application is shutting down"));
+					return;
+				}
+				if (product.getId() == null) {
+					product.setId(new ObjectId().toHexString());
+				}
+				queue.next(new PendingInsert(product, caller, System.nanoTime()));
+			}
+		});
+	}
+
+	private Mono<Void> write(List<PendingInsert> batch) {
+		long start = System.nanoTime();
+		List<Product> products = new ArrayList<>(batch.size());
+		for (PendingInsert pending : batch) {
+			batchWait.record(start - pending.enqueuedAt(), TimeUnit.NANOSECONDS);
+			products.add(pending.product());
+		}
+		batchSize.record(batch.size());
+
+		return mongoTemplate.bulkOps(BulkMode.UNORDERED, Product.class)
+				.insert(products)
+				.execute()
+				.then(Mono.fromCallable(() -> new BulkWriteError[batch.size()]))
+				.onErrorResume(e -> failedWrites(e, batch.size()))
+				.flatMap(errors -> {
+					batchWrite.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+					List<Product> inserted = new ArrayList<>(batch.size());
+					for (int i = 0; i < batch.size(); i++) {
+						if (errors[i] == null) {
+							inserted.add(batch.get(i).product());
+						}
+					}
+					// the products are stored: a failed stats update must not fail their callers
+					return categoryStats.productsInserted(inserted)
+							.onErrorResume(e -> {
+								log.warn("Could not update the category stats of {} inserted products",
+										inserted.size(), e);
+								return Mono.empty();
+							})
+							.thenReturn(errors);
+				})
+				.doOnNext(errors -> {
+					for (int i = 0; i < batch.size(); i++) {
+						PendingInsert pending = batch.get(i);
+						if (errors[i] == null) {
+							pending.caller().success(pending.product());
+						} else {
+							pending.caller().error(translate(errors[i]));
+						}
+					}
+				})
+				.onErrorResume(e -> {
+					log.warn("Could not insert a batch of {} products", batch.size(), e);
+					batch.forEach(pending -> pending.caller().error(e));
+					return Mono.empty();
+				})
+				.then();
+	}
+
+	/**
+	 * Maps the per-document errors of a failed bulk insert to the batch
+	 * positions, or fails the whole batch if the error is not a bulk write one.
+	 */
+	private static Mono<BulkWriteError[]> failedWrites(Throwable e, int size) {
+		List<BulkWriteError> writeErrors = writeErrors(e);
+		if (writeErrors == null || writeErrors.isEmpty()) {
+			return Mono.error(e); // not a per-document failure, e.g. a write concern error
+		}
+		BulkWriteError[] errors = new BulkWriteError[size];
+		for (BulkWriteError error : writeErrors) {
+			errors[error.getIndex()] = error;
+		}
+		return Mono.just(errors);
+	}
+
+	private static List<BulkWriteError> writeErrors(Throwable e) {
+		for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+			if (cause instanceof BulkOperationException bulk) {
+				return bulk.getErrors();
+			}
+			if (cause instanceof MongoBulkWriteException bulk) {
+				return bulk.getWriteErrors();
+			}
+		}
+		return null;
+	}
+
+	private static RuntimeException translate(BulkWriteError error) {
+		return error.getCode() == DUPLICATE_KEY ? new DuplicateKeyException(error.getMessage())
+				: new DataIntegrityViolationException(error.getMessage());
+	}
+
+}
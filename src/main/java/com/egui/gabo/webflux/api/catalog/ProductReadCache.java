@@ -0,0 +1,104 @@
+package com.egui.gabo.webflux.api.catalog;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.egui.gabo.webflux.api.events.CatalogChangeListener;
+import com.egui.gabo.webflux.api.models.document.Category;
+import com.egui.gabo.webflux.api.models.document.Product;
+import com.egui.gabo.webflux.api.resilience.CircuitBreaker;
+import com.egui.gabo.webflux.api.resilience.StaleWhileRevalidate;
+import com.egui.gabo.webflux.api.resilience.StaleWhileRevalidate.Result;
+
+import jakarta.annotation.PostConstruct;
+import reactor.core.publisher.Mono;
+
+/**
+ * Stale-while-revalidate caches for product reads of the functional
+ * endpoints.
+ * <p>
+ * Detail and list reads share one {@link CircuitBreaker}, since both hit the
+ * same database. Local and remote writes keep the cached details fresh and
+ * drop cached lists; a category rename drops both.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+@Component
+public class ProductReadCache implements CatalogChangeListener {
+
+	@Value("${config.swr.latency-budget-ms:250}")
+	private long latencyBudgetMillis;
+
+	@Value("${config.swr.max-entries:10000}")
+	private int maxEntries;
+
+	@Value("${config.swr.breaker.failure-threshold:5}")
+	private int failureThreshold;
+
+	@Value("${config.swr.breaker.open-ms:5000}")
+	private long openMillis;
+
+	private CircuitBreaker breaker;
+
+	private StaleWhileRevalidate<String, Product> details;
+
+	private StaleWhileRevalidate<String, List<Product>> lists;
+
+	@PostConstruct
+	void init() {
+		breaker = new CircuitBreaker(failureThreshold, openMillis);
+		Duration budget = Duration.ofMillis(latencyBudgetMillis);
+		details = new StaleWhileRevalidate<>(budget, breaker, maxEntries);
+		lists = new StaleWhileRevalidate<>(budget, breaker, 64);
+	}
+
+	/**
+	 * Reads a product by id through the detail cache.
+	 *
+	 * @param id     the product id
+	 * @param source the backing query
+	 * @return the fresh or stale product, empty if not found
+	 */
+	public Mono<Result<Product>> detail(String id, Mono<Product> source) {
+		return details.get(id, source);
+	}
+
+	/**
+	 * Reads a product list through the list cache.
+	 *
+	 * @param key    identifies the list, e.g. its query string
+	 * @param source the backing query
+	 * @return the fresh or stale list
+	 */
+	public Mono<Result<List<Product>>> list(String key, Mono<List<Product>> source) {
+		return lists.get(key, source);
+	}
+
+	@Override
+	public void productSaved(Product product) {
+		details.put(product.getId(), product);
+		lists.clear();
+	}
+
+	@Override
+	public void productDeleted(String id) {
+		details.evict(id);
+		lists.clear();
+	}
+
+	@Override
+	public void categoryRenamed(Category category) {
+		// renames are rare: the cached details are refetched rather than tracked per category
+		details.clear();
+		lists.clear();
+	}
+
+	public CircuitBreaker getBreaker() {
+		return breaker;
+	}
+
+}
@@ -0,0 +1,129 @@
+package com.egui.gabo.webflux.api.catalog;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.bson.types.ObjectId;
+
+import com.egui.gabo.webflux.api.models.document.Category;
+import com.egui.gabo.webflux.api.models.document.Product;
+
+/**
+ * Deterministic generator of a large synthetic catalog for performance tests.
+ * <p>
+ * Category popularity follows a Zipf distribution (a few categories hold most
+ * products), prices a log-normal one (median {@value #MEDIAN_PRICE}, mostly
+ * ending in .99) and creation times are skewed towards the last weeks of a
+ * two-year window. Names combine brand, item, variant and model number, so
+ * they share prefixes and words like real ones. The same seed always yields
+ * the same catalog, ids aside: those are fresh ObjectIds, assigned up front
+ * so products can be bulk inserted.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+public class SyntheticCatalog {
+
+	private static final String[] CATEGORY_NAMES = { "Electronic", "Computers", "Phones", "Audio", "Cameras",
+			"Gaming", "Home", "Kitchen", "Garden", "Tools", "Sports", "Toys", "Books", "Music", "Office", "Health",
+			"Beauty", "Fashion", "Shoes", "Automotive" };
+
+	private static final String[] BRANDS = { "Sony", "LG", "Samsung", "Apple", "Lenovo", "Logitech", "Nikon",
+			"Canon", "Philips", "Bosch", "Xiaomi", "Asus", "Acer", "HP", "Dell", "JBL", "Garmin", "Makita", "Lego",
+			"Nike" };
+
+	private static final String[] ITEMS = { "TV", "Laptop", "Camara", "Watch", "Webcam", "Monitor", "Speaker",
+			"Headphones", "Tablet", "Phone", "Keyboard", "Mouse", "Router", "Printer", "Drill", "Blender", "Console",
+			"Lamp", "Backpack", "Sneakers" };
+
+	private static final String[] VARIANTS = { "4k", "Pro", "Max", "Mini", "Lite", "Plus", "Ultra", "Air", "HD",
+			"Wireless", "52in", "Gen 2", "Slim", "Eco", "X" };
+
+	private static final double MEDIAN_PRICE = 40.0;
+
+	private static final double PRICE_SIGMA = 1.1;
+
+	private static final long MAX_PRICE_MINOR = 2_000_000; // 20000.00
+
+	private static final Duration AGE_WINDOW = Duration.ofDays(730);
+
+	private final SplittableRandom random;
+
+	private final Instant now;
+
+	private final List<Category> categories;
+
+	// cumulative Zipf weights of the categories, by rank
+	private final double[] popularity;
+
+	/**
+	 * @param seed       the random seed
+	 * @param categories the number of categories
+	 * @param now        the newest creation time
+	 */
+	public SyntheticCatalog(long seed, int categories, Instant now) {
+		this.random = new SplittableRandom(seed);
+		this.now = now;
+		this.categories = new ArrayList<>(categories);
+		this.popularity = new double[categories];
+		double total = 0;
+		for (int i = 0; i < categories; i++) {
+			String name = CATEGORY_NAMES[i % CATEGORY_NAMES.length];
+			if (i >= CATEGORY_NAMES.length) {
+				name += " " + (i / CATEGORY_NAMES.length + 1);
+			}
+			Category category = new Category(name);
+			category.setId(new ObjectId().toHexString());
+			this.categories.add(category);
+			total += 1.0 / (i + 1);
+			popularity[i] = total;
+		}
+		for (int i = 0; i < categories; i++) {
+			popularity[i] /= total;
+		}
+	}
+
+	/**
+	 * @return the categories, most popular first
+	 */
+	public List<Category> getCategories() {
+		return categories;
+	}
+
+	/**
+	 * Generates the next product. Not thread-safe.
+	 *
+	 * @return a new product with id, category, price and creation time
+	 */
+	public Product nextProduct() {
+		Product product = new Product();
+		product.setId(new ObjectId().toHexString());
+		product.setName(pick(BRANDS) + " " + pick(ITEMS) + " " + pick(VARIANTS) + " " + (100 + random.nextInt(9900)));
+		product.setPriceMinor(nextPriceMinor());
+		product.setCreateAt(now.minusMillis((long) (AGE_WINDOW.toMillis() * Math.pow(random.nextDouble(), 3))));
+		product.setCategory(categories.get(nextCategory()));
+		return product;
+	}
+
+	private String pick(String[] values) {
+		return values[random.nextInt(values.length)];
+	}
+
+	private int nextCategory() {
+		int index = Arrays.binarySearch(popularity, random.nextDouble());
+		return Math.min(index < 0 ? -index - 1 : index, popularity.length - 1);
+	}
+
+	private long nextPriceMinor() {
+		double price = MEDIAN_PRICE * Math.exp(PRICE_SIGMA * random.nextGaussian());
+		long units = Math.max(1, Math.round(price));
+		// most retail prices end in .99
+		long minor = random.nextInt(10) < 7 ? units * 100 - 1 : units * 100 + random.nextInt(100) - 50;
+		return Math.min(Math.max(minor, 99), MAX_PRICE_MINOR);
+	}
+
+}
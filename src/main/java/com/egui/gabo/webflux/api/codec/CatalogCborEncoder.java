@@ -0,0 +1,50 @@
+package com.egui.gabo.webflux.api.codec;
+
+import java.util.List;
+import java.util.Map;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.util.MimeType;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@code application/cbor} encoder that can write response bodies.
+ * <p>
+ * Spring's {@link Jackson2CborEncoder} only encodes single values and fails
+ * on {@link #encode}, which is what the HTTP message writers call, even for
+ * a {@link Mono}. Here a {@link Mono} is written as its value and a
+ * {@link Flux} is collected and written as one CBOR array, the same shape as
+ * the JSON and Smile bodies.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+public class CatalogCborEncoder extends Jackson2CborEncoder {
+
+	public CatalogCborEncoder(ObjectMapper mapper) {
+		super(mapper, MediaType.APPLICATION_CBOR);
+	}
+
+	@Override
+	public Flux<DataBuffer> encode(Publisher<?> input, DataBufferFactory bufferFactory, ResolvableType elementType,
+			MimeType mimeType, Map<String, Object> hints) {
+		if (input instanceof Mono) {
+			return Mono.from(input).map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints))
+					.flux();
+		}
+		ResolvableType listType = ResolvableType.forClassWithGenerics(List.class, elementType);
+		return Flux.from(input).collectList()
+				.map(values -> encodeValue(values, bufferFactory, listType, mimeType, hints))
+				.flux();
+	}
+
+}
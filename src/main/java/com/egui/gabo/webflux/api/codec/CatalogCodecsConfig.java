@@ -0,0 +1,78 @@
+package com.egui.gabo.webflux.api.codec;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Registers the binary codecs offered next to JSON for service-to-service
+ * callers: {@code application/cbor}, {@code application/x-jackson-smile} and
+ * {@code application/x-protobuf} (see {@link CatalogProtobufEncoder}).
+ * <p>
+ * CBOR and Smile mappers are built from the same Spring Boot
+ * {@link Jackson2ObjectMapperBuilder} as the JSON one, so they share its
+ * modules and settings. Annotated controllers pick the codec from the Accept
+ * header; functional handlers do it with {@link ContentNegotiation}. Bodies
+ * without a content type, and callers accepting anything, get JSON. CBOR and
+ * Smile bodies go through {@link CatalogCborEncoder} and
+ * {@link CatalogSmileEncoder}, which can write {@link reactor.core.publisher.Flux}
+ * bodies.
+ * </p>
+ * <p>
+ * Unless {@code config.codecs.streaming-json.enabled=false}, plain
+ * {@code application/json} products and categories go through
+ * {@link CatalogJsonEncoder} and {@link CatalogJsonDecoder}; being typed
+ * codecs, they are consulted before the generic Jackson ones, which keep
+ * handling every other type.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+@Configuration
+public class CatalogCodecsConfig {
+
+	@Value("${config.codecs.streaming-json.enabled:true}")
+	private boolean streamingJson;
+
+	@Bean
+	CodecCustomizer binaryCodecsCustomizer(Jackson2ObjectMapperBuilder builder) {
+		ObjectMapper json = builder.build();
+		ObjectMapper cbor = builder.createXmlMapper(false).factory(new CBORFactory()).build();
+		ObjectMapper smile = builder.createXmlMapper(false).factory(new SmileFactory()).build();
+
+		return configurer -> {
+			// custom codecs come before the default JSON one: register JSON first so it
+			// stays the default for bodies without a content type or for Accept */*
+			configurer.customCodecs().register(new Jackson2JsonEncoder(json));
+			// Smile is a default codec once jackson-dataformat-smile is present, CBOR is not.
+			// Without explicit mime types Jackson codecs take the JSON ones
+			configurer.defaultCodecs()
+					.jackson2SmileEncoder(new CatalogSmileEncoder(smile));
+			configurer.defaultCodecs()
+					.jackson2SmileDecoder(new Jackson2SmileDecoder(smile, ContentNegotiation.APPLICATION_SMILE));
+			configurer.customCodecs().register(new CatalogCborEncoder(cbor));
+			configurer.customCodecs().register(new Jackson2CborDecoder(cbor, MediaType.APPLICATION_CBOR));
+			configurer.customCodecs().register(new CatalogProtobufEncoder());
+			if (streamingJson) {
+				CatalogJsonDecoder decoder = new CatalogJsonDecoder();
+				configurer.customCodecs().register(new CatalogJsonEncoder());
+				configurer.customCodecs().registerWithDefaultConfig(decoder, config -> {
+					if (config.maxInMemorySize() != null) {
+						decoder.setMaxInMemorySize(config.maxInMemorySize());
+					}
+				});
+			}
+		};
+	}
+
+}
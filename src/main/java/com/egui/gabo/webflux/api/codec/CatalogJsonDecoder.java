@@ -0,0 +1,235 @@
+package com.egui.gabo.webflux.api.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.ParseException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageDecoder;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.util.MimeType;
+
+import com.egui.gabo.webflux.api.models.document.Category;
+import com.egui.gabo.webflux.api.models.document.Product;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.util.StdDateFormat;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Streaming {@code application/json} decoder for products and categories,
+ * the counterpart of {@link CatalogJsonEncoder}.
+ * <p>
+ * Reads the body with a bare Jackson {@link JsonParser} (no data binding):
+ * field names come back canonicalized, so matching them allocates nothing.
+ * It accepts what Spring Boot's default {@code ObjectMapper} accepts for these
+ * types: unknown properties are skipped, prices may be quoted, dates may be
+ * epoch millis or any {@link StdDateFormat} string. Bean validation still
+ * runs on the decoded value.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+public class CatalogJsonDecoder implements HttpMessageDecoder<Object> {
+
+	private static final JsonFactory FACTORY = new JsonFactory();
+
+	private int maxInMemorySize = 256 * 1024;
+
+	/**
+	 * @param maxInMemorySize the maximum body size, -1 for unlimited
+	 */
+	public void setMaxInMemorySize(int maxInMemorySize) {
+		this.maxInMemorySize = maxInMemorySize;
+	}
+
+	@Override
+	public boolean canDecode(ResolvableType elementType, MimeType mimeType) {
+		if (mimeType != null && !MediaType.APPLICATION_JSON.isCompatibleWith(mimeType)) {
+			return false;
+		}
+		Class<?> type = elementType.toClass();
+		if (Collection.class.isAssignableFrom(type)) {
+			type = elementType.asCollection().resolveGeneric(0);
+		}
+		return type == Product.class || type == Category.class;
+	}
+
+	@Override
+	public Flux<Object> decode(Publisher<DataBuffer> input, ResolvableType elementType, MimeType mimeType,
+			Map<String, Object> hints) {
+		return DataBufferUtils.join(input, maxInMemorySize)
+				.flatMapIterable(buffer -> read(buffer, elementType.toClass(), true));
+	}
+
+	@Override
+	public Mono<Object> decodeToMono(Publisher<DataBuffer> input, ResolvableType elementType, MimeType mimeType,
+			Map<String, Object> hints) {
+		return DataBufferUtils.join(input, maxInMemorySize)
+				.map(buffer -> decode(buffer, elementType, mimeType, hints));
+	}
+
+	@Override
+	public Object decode(DataBuffer buffer, ResolvableType targetType, MimeType mimeType, Map<String, Object> hints) {
+		Class<?> type = targetType.toClass();
+		if (Collection.class.isAssignableFrom(type)) {
+			return read(buffer, targetType.asCollection().resolveGeneric(0), true);
+		}
+		List<Object> values = read(buffer, type, false);
+		return values.isEmpty() ? null : values.get(0);
+	}
+
+	@Override
+	public List<MimeType> getDecodableMimeTypes() {
+		return List.of(MediaType.APPLICATION_JSON);
+	}
+
+	@Override
+	public Map<String, Object> getDecodeHints(ResolvableType actualType, ResolvableType elementType,
+			ServerHttpRequest request, ServerHttpResponse response) {
+		return Map.of();
+	}
+
+	/**
+	 * Reads a single object, or an array of them when {@code allowArray}, and
+	 * releases the buffer.
+	 */
+	private static List<Object> read(DataBuffer buffer, Class<?> type, boolean allowArray) {
+		try (InputStream in = buffer.asInputStream(true); JsonParser parser = FACTORY.createParser(in)) {
+			JsonToken token = parser.nextToken();
+			List<Object> values = new ArrayList<>();
+			if (token == null || token == JsonToken.VALUE_NULL) {
+				return values;
+			}
+			if (token == JsonToken.START_ARRAY && allowArray) {
+				while (parser.nextToken() != JsonToken.END_ARRAY) {
+					values.add(readValue(parser, type));
+				}
+			} else {
+				values.add(readValue(parser, type));
+			}
+			return values;
+		} catch (IOException | IllegalArgumentException | ArithmeticException e) {
+			throw new DecodingException("JSON decoding error: " + e.getMessage(), e);
+		}
+	}
+
+	private static Object readValue(JsonParser parser, Class<?> type) throws IOException {
+		if (parser.currentToken() == JsonToken.VALUE_NULL) {
+			return null;
+		}
+		return type == Category.class ? readCategory(parser) : readProduct(parser);
+	}
+
+	static Product readProduct(JsonParser parser) throws IOException {
+		expectObject(parser, "Product");
+		Product product = new Product();
+		String field;
+		while ((field = parser.nextFieldName()) != null) {
+			JsonToken value = parser.nextToken();
+			switch (field) {
+			case "id" -> product.setId(text(parser));
+			case "name" -> product.setName(text(parser));
+			case "price" -> product.setPriceMinor(priceMinor(parser));
+			case "createAt" -> product.setCreateAt(instant(parser));
+			case "category" -> product.setCategory(value == JsonToken.VALUE_NULL ? null : readCategory(parser));
+			case "picture" -> product.setPicture(text(parser));
+			default -> parser.skipChildren();
+			}
+		}
+		return product;
+	}
+
+	static Category readCategory(JsonParser parser) throws IOException {
+		expectObject(parser, "Category");
+		Category category = new Category();
+		String field;
+		while ((field = parser.nextFieldName()) != null) {
+			parser.nextToken();
+			switch (field) {
+			case "id" -> category.setId(text(parser));
+			case "name" -> category.setName(text(parser));
+			default -> parser.skipChildren();
+			}
+		}
+		return category;
+	}
+
+	private static void expectObject(JsonParser parser, String type) throws IOException {
+		if (parser.currentToken() != JsonToken.START_OBJECT) {
+			throw new IllegalArgumentException("expected a " + type + " object but found " + parser.currentToken());
+		}
+	}
+
+	private static String text(JsonParser parser) throws IOException {
+		JsonToken token = parser.currentToken();
+		if (token == JsonToken.VALUE_NULL) {
+			return null;
+		}
+		if (!token.isScalarValue()) {
+			throw new IllegalArgumentException("expected a string for " + parser.currentName());
+		}
+		return parser.getText();
+	}
+
+	/**
+	 * Reads a decimal price straight into minor units, rounding half up like
+	 * {@link Product#setPrice(Double)}.
+	 */
+	private static long priceMinor(JsonParser parser) throws IOException {
+		JsonToken token = parser.currentToken();
+		if (token == JsonToken.VALUE_NULL) {
+			return Product.NO_PRICE;
+		}
+		if (token == JsonToken.VALUE_NUMBER_INT) {
+			return Math.multiplyExact(parser.getLongValue(), 100);
+		}
+		if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+			return Product.toMinor(parser.getDecimalValue(), RoundingMode.HALF_UP);
+		}
+		if (token == JsonToken.VALUE_STRING) {
+			String text = parser.getText().trim();
+			return text.isEmpty() ? Product.NO_PRICE : Product.toMinor(new BigDecimal(text), RoundingMode.HALF_UP);
+		}
+		throw new IllegalArgumentException("expected a number for " + parser.currentName());
+	}
+
+	private static Instant instant(JsonParser parser) throws IOException {
+		JsonToken token = parser.currentToken();
+		if (token == JsonToken.VALUE_NULL) {
+			return null;
+		}
+		if (token == JsonToken.VALUE_NUMBER_INT) {
+			return Instant.ofEpochMilli(parser.getLongValue());
+		}
+		if (token == JsonToken.VALUE_STRING) {
+			String text = parser.getText().trim();
+			if (text.isEmpty()) {
+				return null;
+			}
+			try {
+				return new StdDateFormat().parse(text).toInstant();
+			} catch (ParseException e) {
+				throw new IllegalArgumentException("cannot parse date \"" + text + "\"", e);
+			}
+		}
+		throw new IllegalArgumentException("expected a date for " + parser.currentName());
+	}
+
+}
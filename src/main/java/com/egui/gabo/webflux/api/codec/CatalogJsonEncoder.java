@@ -0,0 +1,183 @@
+package com.egui.gabo.webflux.api.codec;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageEncoder;
+import org.springframework.util.MimeType;
+
+import com.egui.gabo.webflux.api.models.document.Category;
+import com.egui.gabo.webflux.api.models.document.Product;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Hand-written {@code application/json} encoder for products and categories
+ * that writes into buffers from the response's (pooled) buffer factory.
+ * <p>
+ * Field names are pre-encoded once and values go through
+ * {@link JsonBufferWriter}, so, unlike the reflective Jackson encoder, a
+ * product costs no serializer lookups, no boxed or intermediate values and no
+ * copy from a Jackson buffer: the price is written from its minor units and
+ * the creation time from its epoch millis. The output is byte-identical to
+ * Spring Boot's default {@code ObjectMapper}: same property order, nulls
+ * included, same date format.
+ * </p>
+ * <p>
+ * A {@link Flux} body is written as a JSON array with one buffer per element
+ * (the separator included), so long lists are flushed as they are read.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+public class CatalogJsonEncoder implements HttpMessageEncoder<Object> {
+
+	private static final byte[] PRODUCT_ID = JsonBufferWriter.fieldName('{', "id");
+	private static final byte[] PRODUCT_NAME = JsonBufferWriter.fieldName(',', "name");
+	private static final byte[] PRODUCT_PRICE = JsonBufferWriter.fieldName(',', "price");
+	private static final byte[] PRODUCT_CREATE_AT = JsonBufferWriter.fieldName(',', "createAt");
+	private static final byte[] PRODUCT_CATEGORY = JsonBufferWriter.fieldName(',', "category");
+	private static final byte[] PRODUCT_PICTURE = JsonBufferWriter.fieldName(',', "picture");
+	private static final byte[] CATEGORY_ID = JsonBufferWriter.fieldName('{', "id");
+	private static final byte[] CATEGORY_NAME = JsonBufferWriter.fieldName(',', "name");
+
+	// typical encoded sizes, so buffers rarely have to grow
+	private static final int PRODUCT_SIZE_HINT = 192;
+	private static final int CATEGORY_SIZE_HINT = 64;
+
+	@Override
+	public boolean canEncode(ResolvableType elementType, MimeType mimeType) {
+		if (mimeType != null && !MediaType.APPLICATION_JSON.isCompatibleWith(mimeType)) {
+			return false;
+		}
+		Class<?> type = elementType.toClass();
+		if (Collection.class.isAssignableFrom(type)) {
+			type = elementType.asCollection().resolveGeneric(0);
+		}
+		return type != null && (Product.class.isAssignableFrom(type) || Category.class.isAssignableFrom(type));
+	}
+
+	@Override
+	public Flux<DataBuffer> encode(Publisher<?> input, DataBufferFactory bufferFactory, ResolvableType elementType,
+			MimeType mimeType, Map<String, Object> hints) {
+		if (input instanceof Mono) {
+			return Mono.from(input).map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints))
+					.flux();
+		}
+		return Flux.defer(() -> {
+			boolean[] first = { true };
+			return Flux.from(input)
+					.map(value -> {
+						DataBuffer buffer = bufferFactory.allocateBuffer(sizeHint(value) + 1);
+						buffer.write((byte) (first[0] ? '[' : ','));
+						first[0] = false;
+						return write(buffer, value);
+					})
+					.concatWith(Mono.fromSupplier(() -> bufferFactory.wrap(first[0] ? new byte[] { '[', ']' }
+							: new byte[] { ']' })));
+		}).doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+	}
+
+	@Override
+	public DataBuffer encodeValue(Object value, DataBufferFactory bufferFactory, ResolvableType valueType,
+			MimeType mimeType, Map<String, Object> hints) {
+		if (value instanceof Collection<?> values) {
+			int capacity = 2 + values.size() * (values.isEmpty() ? 0 : sizeHint(values.iterator().next()) + 1);
+			DataBuffer buffer = bufferFactory.allocateBuffer(capacity);
+			buffer.write((byte) '[');
+			boolean first = true;
+			for (Object element : values) {
+				if (!first) {
+					buffer.write((byte) ',');
+				}
+				first = false;
+				write(buffer, element);
+			}
+			return buffer.write((byte) ']');
+		}
+		return write(bufferFactory.allocateBuffer(sizeHint(value)), value);
+	}
+
+	@Override
+	public List<MimeType> getEncodableMimeTypes() {
+		return List.of(MediaType.APPLICATION_JSON);
+	}
+
+	@Override
+	public List<MediaType> getStreamingMediaTypes() {
+		return List.of();
+	}
+
+	private static int sizeHint(Object value) {
+		return value instanceof Category ? CATEGORY_SIZE_HINT : PRODUCT_SIZE_HINT;
+	}
+
+	private static DataBuffer write(DataBuffer buffer, Object value) {
+		try {
+			if (value instanceof Product product) {
+				write(buffer, product);
+			} else if (value instanceof Category category) {
+				write(buffer, category);
+			} else {
+				throw new IllegalArgumentException("Cannot encode " + value.getClass().getName() + " as JSON");
+			}
+			return buffer;
+		} catch (RuntimeException e) {
+			DataBufferUtils.release(buffer);
+			throw e;
+		}
+	}
+
+	/**
+	 * Appends a product as a JSON object.
+	 *
+	 * @param buffer  the buffer to write to
+	 * @param product the product
+	 */
+	public static void write(DataBuffer buffer, Product product) {
+		buffer.write(PRODUCT_ID);
+		JsonBufferWriter.writeString(buffer, product.getId());
+		buffer.write(PRODUCT_NAME);
+		JsonBufferWriter.writeString(buffer, product.getName());
+		buffer.write(PRODUCT_PRICE);
+		if (product.hasPrice()) {
+			JsonBufferWriter.writeMinorUnits(buffer, product.getPriceMinor());
+		} else {
+			JsonBufferWriter.writeNull(buffer);
+		}
+		buffer.write(PRODUCT_CREATE_AT);
+		JsonBufferWriter.writeDate(buffer, product.getCreateAt());
+		buffer.write(PRODUCT_CATEGORY);
+		if (product.getCategory() == null) {
+			JsonBufferWriter.writeNull(buffer);
+		} else {
+			write(buffer, product.getCategory());
+		}
+		buffer.write(PRODUCT_PICTURE);
+		JsonBufferWriter.writeString(buffer, product.getPicture());
+		buffer.write((byte) '}');
+	}
+
+	/**
+	 * Appends a category as a JSON object.
+	 *
+	 * @param buffer   the buffer to write to
+	 * @param category the category
+	 */
+	public static void write(DataBuffer buffer, Category category) {
+		buffer.write(CATEGORY_ID);
+		JsonBufferWriter.writeString(buffer, category.getId());
+		buffer.write(CATEGORY_NAME);
+		JsonBufferWriter.writeString(buffer, category.getName());
+		buffer.write((byte) '}');
+	}
+
+}
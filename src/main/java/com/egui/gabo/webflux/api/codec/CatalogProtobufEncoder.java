@@ -0,0 +1,128 @@
+package com.egui.gabo.webflux.api.codec;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageEncoder;
+import org.springframework.util.MimeType;
+
+import com.egui.gabo.webflux.api.models.document.Category;
+import com.egui.gabo.webflux.api.models.document.Product;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Encodes products and categories as {@code application/x-protobuf}, following
+ * the schema in {@code src/main/proto/catalog.proto}, without generated
+ * classes.
+ * <p>
+ * A single value is written as a {@code Product} or {@code Category}
+ * message. Collections and streamed {@link Flux} bodies are written as
+ * repeated field 1 entries, i.e. as a {@code ProductList} or
+ * {@code CategoryList}, so a stream can be flushed element by element.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+public class CatalogProtobufEncoder implements HttpMessageEncoder<Object> {
+
+	public static final MediaType APPLICATION_PROTOBUF = new MediaType("application", "x-protobuf");
+
+	private static final int LIST_ENTRY = 1;
+
+	@Override
+	public boolean canEncode(ResolvableType elementType, MimeType mimeType) {
+		// only when negotiated: as a custom codec it comes before the JSON ones
+		if (mimeType == null || !APPLICATION_PROTOBUF.isCompatibleWith(mimeType)) {
+			return false;
+		}
+		Class<?> type = elementType.toClass();
+		if (Collection.class.isAssignableFrom(type)) {
+			type = elementType.asCollection().resolveGeneric(0);
+		}
+		return type != null && (Product.class.isAssignableFrom(type) || Category.class.isAssignableFrom(type));
+	}
+
+	@Override
+	public Flux<DataBuffer> encode(Publisher<?> input, DataBufferFactory bufferFactory, ResolvableType elementType,
+			MimeType mimeType, Map<String, Object> hints) {
+		if (input instanceof Mono) {
+			return Mono.from(input).map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints))
+					.flux();
+		}
+		return Flux.from(input).map(value -> bufferFactory.wrap(listEntry(value)));
+	}
+
+	@Override
+	public DataBuffer encodeValue(Object value, DataBufferFactory bufferFactory, ResolvableType valueType,
+			MimeType mimeType, Map<String, Object> hints) {
+		if (value instanceof Collection<?> values) {
+			ProtoWriter writer = new ProtoWriter(values.size() * 96);
+			for (Object element : values) {
+				writer.bytes(LIST_ENTRY, message(element));
+			}
+			return bufferFactory.wrap(writer.toByteArray());
+		}
+		return bufferFactory.wrap(message(value));
+	}
+
+	@Override
+	public List<MimeType> getEncodableMimeTypes() {
+		return List.of(APPLICATION_PROTOBUF);
+	}
+
+	@Override
+	public List<MediaType> getStreamingMediaTypes() {
+		return List.of(APPLICATION_PROTOBUF);
+	}
+
+	private static byte[] listEntry(Object value) {
+		return new ProtoWriter(128).bytes(LIST_ENTRY, message(value)).toByteArray();
+	}
+
+	private static byte[] message(Object value) {
+		if (value instanceof Product product) {
+			return encode(product);
+		}
+		if (value instanceof Category category) {
+			return encode(category);
+		}
+		throw new IllegalArgumentException("Cannot encode " + value.getClass().getName() + " as protobuf");
+	}
+
+	/**
+	 * @param product the product
+	 * @return the {@code Product} message bytes
+	 */
+	public static byte[] encode(Product product) {
+		ProtoWriter writer = new ProtoWriter(104)
+				.string(1, product.getId())
+				.string(2, product.getName())
+				.float64(3, product.hasPrice() ? Product.toMajor(product.getPriceMinor()) : 0)
+				.int64(4, product.getCreateAt() == null ? 0 : product.getCreateAtMillis());
+		if (product.getCategory() != null) {
+			writer.bytes(5, encode(product.getCategory()));
+		}
+		writer.string(6, product.getPicture());
+		if (product.hasPrice()) {
+			writer.int64Present(7, product.getPriceMinor());
+		}
+		return writer.toByteArray();
+	}
+
+	/**
+	 * @param category the category
+	 * @return the {@code Category} message bytes
+	 */
+	public static byte[] encode(Category category) {
+		return new ProtoWriter(48).string(1, category.getId()).string(2, category.getName()).toByteArray();
+	}
+
+}
@@ -0,0 +1,48 @@
+package com.egui.gabo.webflux.api.codec;
+
+import java.util.List;
+import java.util.Map;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.util.MimeType;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * {@code application/x-jackson-smile} encoder that writes a {@link Flux} body
+ * as one Smile array.
+ * <p>
+ * Spring's {@link Jackson2SmileEncoder} joins the elements of a non-streaming
+ * {@link Flux} with the JSON {@code [ , ]} bytes, which no Smile parser
+ * reads back. Here the elements are collected and encoded as a single value,
+ * as {@link CatalogCborEncoder} does; {@link Flux} bodies sent as
+ * {@code application/stream+x-jackson-smile} are still streamed.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+public class CatalogSmileEncoder extends Jackson2SmileEncoder {
+
+	public CatalogSmileEncoder(ObjectMapper mapper) {
+		super(mapper, ContentNegotiation.APPLICATION_SMILE);
+	}
+
+	@Override
+	public Flux<DataBuffer> encode(Publisher<?> input, DataBufferFactory bufferFactory, ResolvableType elementType,
+			MimeType mimeType, Map<String, Object> hints) {
+		if (!(input instanceof Flux) || getStreamingMediaTypes().stream().anyMatch(type -> type.isCompatibleWith(mimeType))) {
+			return super.encode(input, bufferFactory, elementType, mimeType, hints);
+		}
+		ResolvableType listType = ResolvableType.forClassWithGenerics(List.class, elementType);
+		return Flux.from(input).collectList()
+				.map(values -> encodeValue(values, bufferFactory, listType, mimeType, hints))
+				.flux();
+	}
+
+}
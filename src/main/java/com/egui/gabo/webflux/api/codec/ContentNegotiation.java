@@ -0,0 +1,65 @@
+package com.egui.gabo.webflux.api.codec;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.reactive.function.server.ServerRequest;
+
+/**
+ * Picks the response media type of functional endpoints from the Accept
+ * header, since {@code ServerResponse} bodies are written with the first codec
+ * matching their content type rather than the one the client asked for.
+ *
+ * @author Gabriel Eguiguren P.
+ */
+public final class ContentNegotiation {
+
+	public static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+
+	/** Media types any body can be written as, preferred first. */
+	public static final List<MediaType> JACKSON = List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR,
+			APPLICATION_SMILE);
+
+	/** Media types product and category bodies can be written as, preferred first. */
+	public static final List<MediaType> CATALOG = List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR,
+			APPLICATION_SMILE, CatalogProtobufEncoder.APPLICATION_PROTOBUF);
+
+	private ContentNegotiation() {
+	}
+
+	/**
+	 * @param request the incoming server request
+	 * @return the media type, among {@link #CATALOG}, the client prefers for a
+	 *         product or category body
+	 */
+	public static MediaType negotiate(ServerRequest request) {
+		return negotiate(request, CATALOG);
+	}
+
+	/**
+	 * @param request    the incoming server request
+	 * @param producible the media types the body can be written as
+	 * @return the producible media type the client prefers, JSON when it
+	 *         accepts anything or nothing producible
+	 */
+	public static MediaType negotiate(ServerRequest request, List<MediaType> producible) {
+		List<MediaType> accept = request.headers().accept();
+		if (accept.isEmpty()) {
+			return MediaType.APPLICATION_JSON;
+		}
+		// quality first, then specificity
+		List<MediaType> ordered = new ArrayList<>(accept);
+		MimeTypeUtils.sortBySpecificity(ordered);
+		for (MediaType acceptable : ordered) {
+			for (MediaType candidate : producible) {
+				if (acceptable.isCompatibleWith(candidate)) {
+					return candidate;
+				}
+			}
+		}
+		return MediaType.APPLICATION_JSON;
+	}
+
+}
@@ -0,0 +1,238 @@
+package com.egui.gabo.webflux.api.codec;
+
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Date;
+
+import org.springframework.core.io.buffer.DataBuffer;
+
+import com.fasterxml.jackson.databind.util.StdDateFormat;
+
+/**
+ * Writes JSON values straight into a {@link DataBuffer}, byte for byte the way
+ * Spring Boot's default {@code ObjectMapper} does: strings escaped like
+ * Jackson (non-ASCII left as UTF-8), doubles as {@link Double#toString}, dates
+ * as ISO-8601 UTC with millis and a {@code +00:00} offset. Prices in minor
+ * units are written as the decimal {@link Double#toString} gives for them.
+ * <p>
+ * Strings without characters to escape are handed to
+ * {@link DataBuffer#write(CharSequence, java.nio.charset.Charset)}, which
+ * Netty buffers encode in place; longs, dates and integral doubles are written
+ * digit by digit, so the common values allocate nothing.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+final class JsonBufferWriter {
+
+	private static final byte[] NULL = { 'n', 'u', 'l', 'l' };
+
+	private static final byte[] UNICODE_ESCAPE = { 'u', '0', '0' };
+
+	private static final byte[] DOT_ZERO = { '.', '0' };
+
+	private static final byte[] UTC_OFFSET = { '+', '0', '0', ':', '0', '0', '"' };
+
+	private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+	private static final long MILLIS_PER_DAY = 86_400_000L;
+
+	// Double.toString switches to scientific notation from 10^7 on
+	private static final double PLAIN_DOUBLE_LIMIT = 1e7;
+
+	private static final long PLAIN_MINOR_LIMIT = 1_000_000_000L;
+
+	private JsonBufferWriter() {
+	}
+
+	/**
+	 * Pre-encodes a field name with its quotes and colon, optionally preceded by
+	 * a separator ({@code ,} or <code>{</code>).
+	 */
+	static byte[] fieldName(char prefix, String name) {
+		return (prefix + "\"" + name + "\":").getBytes(StandardCharsets.UTF_8);
+	}
+
+	static void writeNull(DataBuffer buffer) {
+		buffer.write(NULL);
+	}
+
+	static void writeString(DataBuffer buffer, String value) {
+		if (value == null) {
+			writeNull(buffer);
+			return;
+		}
+		buffer.write((byte) '"');
+		int escape = firstEscape(value);
+		if (escape < 0) {
+			buffer.write(value, StandardCharsets.UTF_8);
+		} else {
+			writeEscaped(buffer, value, escape);
+		}
+		buffer.write((byte) '"');
+	}
+
+	private static int firstEscape(String value) {
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c < 0x20 || c == '"' || c == '\\') {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static void writeEscaped(DataBuffer buffer, String value, int from) {
+		int start = 0;
+		for (int i = from; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c >= 0x20 && c != '"' && c != '\\') {
+				continue;
+			}
+			if (i > start) {
+				buffer.write(CharBuffer.wrap(value, start, i), StandardCharsets.UTF_8);
+			}
+			buffer.write((byte) '\\');
+			switch (c) {
+			case '"', '\\' -> buffer.write((byte) c);
+			case '\b' -> buffer.write((byte) 'b');
+			case '\f' -> buffer.write((byte) 'f');
+			case '\n' -> buffer.write((byte) 'n');
+			case '\r' -> buffer.write((byte) 'r');
+			case '\t' -> buffer.write((byte) 't');
+			default -> buffer.write(UNICODE_ESCAPE).write(HEX[c >> 4]).write(HEX[c & 0xF]);
+			}
+			start = i + 1;
+		}
+		if (start < value.length()) {
+			buffer.write(CharBuffer.wrap(value, start, value.length()), StandardCharsets.UTF_8);
+		}
+	}
+
+	static void writeNumber(DataBuffer buffer, Double value) {
+		if (value == null) {
+			writeNull(buffer);
+			return;
+		}
+		double d = value;
+		if (Double.isNaN(d) || Double.isInfinite(d)) {
+			// Jackson quotes non-numeric numbers by default
+			buffer.write((byte) '"');
+			buffer.write(Double.toString(d), StandardCharsets.US_ASCII);
+			buffer.write((byte) '"');
+		} else if (d == Math.rint(d) && Math.abs(d) < PLAIN_DOUBLE_LIMIT && !isNegativeZero(d)) {
+			writeLong(buffer, (long) d);
+			buffer.write(DOT_ZERO);
+		} else {
+			buffer.write(Double.toString(d), StandardCharsets.US_ASCII);
+		}
+	}
+
+	/**
+	 * Writes a price given in minor units (two decimals) in major units, e.g.
+	 * {@code 50099} as {@code 500.99} and {@code 1000} as {@code 10.0}.
+	 */
+	static void writeMinorUnits(DataBuffer buffer, long minor) {
+		if (minor <= -PLAIN_MINOR_LIMIT || minor >= PLAIN_MINOR_LIMIT) {
+			writeNumber(buffer, minor / 100.0); // scientific notation, as Double.toString
+			return;
+		}
+		if (minor < 0) {
+			buffer.write((byte) '-');
+			minor = -minor;
+		}
+		writeDigits(buffer, minor / 100, 1);
+		buffer.write((byte) '.');
+		long cents = minor % 100;
+		if (cents % 10 == 0) {
+			buffer.write((byte) ('0' + cents / 10));
+		} else {
+			writeDigits(buffer, cents, 2);
+		}
+	}
+
+	private static boolean isNegativeZero(double d) {
+		return d == 0 && Double.doubleToRawLongBits(d) != 0;
+	}
+
+	static void writeLong(DataBuffer buffer, long value) {
+		if (value == Long.MIN_VALUE) {
+			buffer.write(Long.toString(value), StandardCharsets.US_ASCII);
+			return;
+		}
+		if (value < 0) {
+			buffer.write((byte) '-');
+			value = -value;
+		}
+		writeDigits(buffer, value, 1);
+	}
+
+	/**
+	 * Writes a non-negative number, left-padded with zeros to {@code width}.
+	 */
+	private static void writeDigits(DataBuffer buffer, long value, int width) {
+		long divisor = 1;
+		int digits = 1;
+		while (digits < 19 && divisor * 10 <= value) {
+			divisor *= 10;
+			digits++;
+		}
+		for (; width > digits; width--) {
+			buffer.write((byte) '0');
+		}
+		for (; divisor > 0; divisor /= 10) {
+			buffer.write((byte) ('0' + (value / divisor) % 10));
+		}
+	}
+
+	/**
+	 * Writes a date as {@code "yyyy-MM-dd'T'HH:mm:ss.SSS+00:00"}, the format of
+	 * Jackson's {@link StdDateFormat} in UTC.
+	 */
+	static void writeDate(DataBuffer buffer, Instant value) {
+		if (value == null) {
+			writeNull(buffer);
+			return;
+		}
+		long millis = value.toEpochMilli();
+		long days = Math.floorDiv(millis, MILLIS_PER_DAY);
+		long millisOfDay = Math.floorMod(millis, MILLIS_PER_DAY);
+
+		// civil date from days since the epoch (H. Hinnant's algorithm)
+		long z = days + 719_468;
+		long era = Math.floorDiv(z, 146_097);
+		long dayOfEra = z - era * 146_097;
+		long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+		long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		long mp = (5 * dayOfYear + 2) / 153;
+		long day = dayOfYear - (153 * mp + 2) / 5 + 1;
+		long month = mp < 10 ? mp + 3 : mp - 9;
+		long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+		if (year < 0 || year > 9999) {
+			// rare enough to leave to Jackson, which has its own rules for them
+			buffer.write((byte) '"');
+			buffer.write(new StdDateFormat().format(new Date(millis)), StandardCharsets.US_ASCII);
+			buffer.write((byte) '"');
+			return;
+		}
+
+		buffer.write((byte) '"');
+		writeDigits(buffer, year, 4);
+		buffer.write((byte) '-');
+		writeDigits(buffer, month, 2);
+		buffer.write((byte) '-');
+		writeDigits(buffer, day, 2);
+		buffer.write((byte) 'T');
+		writeDigits(buffer, millisOfDay / 3_600_000, 2);
+		buffer.write((byte) ':');
+		writeDigits(buffer, millisOfDay / 60_000 % 60, 2);
+		buffer.write((byte) ':');
+		writeDigits(buffer, millisOfDay / 1000 % 60, 2);
+		buffer.write((byte) '.');
+		writeDigits(buffer, millisOfDay % 1000, 3);
+		buffer.write(UTC_OFFSET);
+	}
+
+}
@@ -0,0 +1,101 @@
+package com.egui.gabo.webflux.api.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Minimal protobuf wire-format writer for the handful of field types used by
+ * {@code src/main/proto/catalog.proto}.
+ * <p>
+ * Follows proto3 semantics: fields holding their default value (null, empty,
+ * zero) are not written, except {@code optional} fields.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+final class ProtoWriter {
+
+	private static final int VARINT = 0;
+	private static final int FIXED64 = 1;
+	private static final int LENGTH_DELIMITED = 2;
+
+	private byte[] buffer;
+	private int size;
+
+	ProtoWriter(int capacity) {
+		buffer = new byte[Math.max(16, capacity)];
+	}
+
+	ProtoWriter string(int field, String value) {
+		if (value != null && !value.isEmpty()) {
+			bytes(field, value.getBytes(StandardCharsets.UTF_8));
+		}
+		return this;
+	}
+
+	ProtoWriter float64(int field, double value) {
+		if (value != 0) {
+			tag(field, FIXED64);
+			long bits = Double.doubleToRawLongBits(value);
+			ensure(8);
+			for (int i = 0; i < 8; i++) {
+				buffer[size++] = (byte) (bits >>> (8 * i)); // little endian
+			}
+		}
+		return this;
+	}
+
+	ProtoWriter int64(int field, long value) {
+		if (value != 0) {
+			tag(field, VARINT);
+			varint(value);
+		}
+		return this;
+	}
+
+	/**
+	 * Writes an {@code optional int64} field, whose presence is significant,
+	 * even when it holds zero.
+	 */
+	ProtoWriter int64Present(int field, long value) {
+		tag(field, VARINT);
+		varint(value);
+		return this;
+	}
+
+	/**
+	 * Writes a length-delimited field: a nested message or a string.
+	 */
+	ProtoWriter bytes(int field, byte[] value) {
+		tag(field, LENGTH_DELIMITED);
+		varint(value.length);
+		ensure(value.length);
+		System.arraycopy(value, 0, buffer, size, value.length);
+		size += value.length;
+		return this;
+	}
+
+	byte[] toByteArray() {
+		return Arrays.copyOf(buffer, size);
+	}
+
+	private void tag(int field, int wireType) {
+		varint((field << 3) | wireType);
+	}
+
+	private void varint(long value) {
+		ensure(10);
+		while ((value & ~0x7FL) != 0) {
+			buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer[size++] = (byte) value;
+	}
+
+	private void ensure(int extra) {
+		if (size + extra > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+		}
+	}
+
+}
@@ -1,30 +1,45 @@
 package com.egui.gabo.webflux.api.controller;
 
-import java.io.File;
+import java.beans.PropertyEditorSupport;
 import java.net.URI;
-import java.util.Date;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.InitBinder;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.server.ResponseStatusException;
 
+import com.egui.gabo.webflux.api.catalog.CategoryCache.UnknownCategoryException;
+import com.egui.gabo.webflux.api.handler.ProductHandler;
+import com.egui.gabo.webflux.api.idempotency.IdempotencyStore;
+import com.egui.gabo.webflux.api.idempotency.IdempotencyStore.KeyInUseException;
 import com.egui.gabo.webflux.api.models.document.Product;
+import com.egui.gabo.webflux.api.picture.PictureUploads;
+import com.egui.gabo.webflux.api.service.ProductFilter;
 import com.egui.gabo.webflux.api.service.ProductService;
 
 import jakarta.validation.Valid;
@@ -46,27 +61,78 @@ import reactor.core.publisher.Mono;
 @RequestMapping("/api/products")
 public class ProductController {
 
-	// loads from application.properties
-	@Value("${config.upload.path}")
-	String uploadDirectory;
+	@Autowired
+	private PictureUploads uploads;
 
 	@Autowired
 	private ProductService productService;
 
+	@Autowired
+	private IdempotencyStore idempotency;
+
+	/**
+	 * Binds the optional 'createAt' form field of
+	 * {@link #saveProductWithPic(Product, FilePart, String)}: a
+	 * {@code yyyy-MM-dd} date (start of day, UTC) or an ISO-8601 instant.
+	 * 
+	 * @param binder the binder of the form-data product
+	 */
+	@InitBinder
+	public void initBinder(WebDataBinder binder) {
+		binder.registerCustomEditor(Instant.class, "createAt", new PropertyEditorSupport() {
+			@Override
+			public void setAsText(String text) {
+				if (text == null || text.isBlank()) {
+					setValue(null);
+					return;
+				}
+				try {
+					setValue(text.length() == 10 ? LocalDate.parse(text).atStartOfDay(ZoneOffset.UTC).toInstant()
+							: Instant.parse(text));
+				} catch (DateTimeParseException e) {
+					throw new IllegalArgumentException("createAt must be a yyyy-MM-dd date or an ISO-8601 instant", e);
+				}
+			}
+		});
+	}
+
 	/**
-	 * Retrieve all products.
+	 * Retrieve all products, or one keyset page of the products matching the
+	 * filters in the query.
 	 * <p>
 	 * Returns a {@link Flux} which represents a stream of 0 to N elements.
-	 * The response body will contain the list of products in JSON format.
+	 * The response body will contain the list of products in JSON format, or
+	 * CBOR, Smile or protobuf when the Accept header asks for it.
+	 * Accepts the same parameters as the v2 list (see {@link ProductFilter});
+	 * a full page carries the cursor of the next one in the X-Next-Cursor
+	 * header.
 	 * </p>
 	 * 
+	 * @param params the query parameters
 	 * @return Mono of ResponseEntity containing the Flux of products
 	 */
 	@GetMapping
-	public Mono<ResponseEntity<Flux<Product>>> listProducts() {
+	public Mono<ResponseEntity<Flux<Product>>> listProducts(@RequestParam MultiValueMap<String, String> params) {
 
-		// ResponseEntity.ok(productService.findAll()));
-		return Mono.just(ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(productService.findAll()));
+		ProductFilter filter;
+		try {
+			filter = ProductFilter.fromQueryParams(params);
+		} catch (IllegalArgumentException e) {
+			return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()));
+		}
+		if (filter.isEmpty()) {
+			// ResponseEntity.ok(productService.findAll()));
+			return Mono.just(ResponseEntity.ok().body(productService.findAll()));
+		}
+
+		// the page is collected to know whether it is full before writing the headers
+		return productService.findByFilter(filter).collectList().map(page -> {
+			ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+			if (page.size() == filter.getSize()) {
+				response.header(ProductHandler.NEXT_CURSOR_HEADER, filter.cursorAfter(page.get(page.size() - 1)));
+			}
+			return response.body(Flux.fromIterable(page));
+		});
 	}
 
 	/**
@@ -90,40 +156,64 @@ public class ProductController {
 	/**
 	 * Upload a picture for an existing product.
 	 * 
-	 * @param id   the product ID
-	 * @param file the file part from the multipart request
+	 * @param id             the product ID
+	 * @param file           the file part from the multipart request
+	 * @param idempotencyKey optional key making retries return the first result
 	 * @return Mono of ResponseEntity containing the updated product
 	 */
 	@PostMapping("/upload/{id}")
-	public Mono<ResponseEntity<Product>> uploadProductPicture(@PathVariable String id, @RequestPart FilePart file) {
-		return productService.findById(id).flatMap(p -> {
+	public Mono<ResponseEntity<Product>> uploadProductPicture(@PathVariable String id, @RequestPart FilePart file,
+			@RequestHeader(name = IdempotencyStore.KEY_HEADER, required = false) String idempotencyKey) {
+		Mono<Product> updated = productService.findById(id).flatMap(p -> {
+			String previous = p.getPicture();
 			p.setPicture(UUID.randomUUID().toString()
 					.concat(file.filename().replace(" ", "").replace(":", "").replace("\\", "")));
-			return file.transferTo(new File(uploadDirectory + p.getPicture())).then(productService.save(p));
-		}).map(p -> ResponseEntity.ok(p)).defaultIfEmpty(ResponseEntity.notFound().build());
+			return uploads.transferThen(file, p.getPicture(), productService.save(p))
+					.flatMap(saved -> uploads.discard(previous).thenReturn(saved));
+		});
+
+		return idempotency.execute("POST /api/products/upload/" + id, idempotencyKey, updated)
+				.map(outcome -> ResponseEntity.ok()
+						.header(IdempotencyStore.REPLAYED_HEADER, String.valueOf(outcome.isReplayed()))
+						.body(outcome.getProduct()))
+				.onErrorResume(KeyInUseException.class, e -> Mono.just(keyInUse()))
+				.onErrorMap(UnknownCategoryException.class, this::badRequest)
+				.defaultIfEmpty(ResponseEntity.notFound().build());
 
 	}
 
 	/**
 	 * Create a product with an image (Form Data).
 	 * 
-	 * @param product is provided as form-data type
-	 * @param file    the image file
+	 * @param product        is provided as form-data type
+	 * @param file           the image file
+	 * @param idempotencyKey optional key making retries return the first result
 	 * @return Mono of ResponseEntity containing the created product
 	 */
 	@PostMapping("/v1")
-	public Mono<ResponseEntity<Product>> saveProductWithPic(Product product, @RequestPart FilePart file) {
+	public Mono<ResponseEntity<Product>> saveProductWithPic(Product product, @RequestPart FilePart file,
+			@RequestHeader(name = IdempotencyStore.KEY_HEADER, required = false) String idempotencyKey) {
 
 		if (product.getCreateAt() == null) {
-			product.setCreateAt(new Date());
+			product.setCreateAt(Instant.now());
 		}
 
 		product.setPicture(UUID.randomUUID().toString()
 				.concat(file.filename().replace(" ", "").replace(":", "").replace("\\", "")));
 
-		return file.transferTo(new File(uploadDirectory + product.getPicture())).then(productService.save(product))
-				.map(prod -> ResponseEntity.created(URI.create("/api/products/".concat(prod.getId())))
-						.contentType(MediaType.APPLICATION_JSON).body(prod));
+		// resolved before the transfer, so an unknown category leaves no file behind
+		Mono<Product> created = productService.resolveCategory(product.getCategory()).flatMap(category -> {
+			product.setCategory(category);
+			return uploads.transferThen(file, product.getPicture(), productService.save(product));
+		});
+
+		return idempotency
+				.execute("POST /api/products/v1", idempotencyKey, created)
+				.map(outcome -> ResponseEntity.created(URI.create("/api/products/".concat(outcome.getProduct().getId())))
+						.header(IdempotencyStore.REPLAYED_HEADER, String.valueOf(outcome.isReplayed()))
+						.body(outcome.getProduct()))
+				.onErrorResume(KeyInUseException.class, e -> Mono.just(keyInUse()))
+				.onErrorMap(UnknownCategoryException.class, this::badRequest);
 	}
 
 	/**
@@ -133,29 +223,43 @@ public class ProductController {
 	 * If validation fails, returns a list of error messages with 400 Bad Request.
 	 * </p>
 	 * 
-	 * @param monoProduct is provided as JSON Request Body wrapped in Mono
+	 * @param monoProduct    is provided as JSON Request Body wrapped in Mono
+	 * @param idempotencyKey optional key making retries return the first result
 	 * @return Mono of ResponseEntity containing the created product or error
 	 *         details
 	 */
 	@PostMapping
-	public Mono<ResponseEntity<Map<String, Object>>> saveProduct(@Valid @RequestBody Mono<Product> monoProduct) {
+	public Mono<ResponseEntity<Map<String, Object>>> saveProduct(@Valid @RequestBody Mono<Product> monoProduct,
+			@RequestHeader(name = IdempotencyStore.KEY_HEADER, required = false) String idempotencyKey) {
 
 		Map<String, Object> response = new HashMap<>();
 
 		return monoProduct.flatMap(product -> {
 
 			if (product.getCreateAt() == null) {
-				product.setCreateAt(new Date());
+				product.setCreateAt(Instant.now());
 			}
 
-			return productService.save(product).map(prod -> {
-
-				response.put("product", prod);
-				response.put("status", HttpStatus.CREATED.value()); // extras
-				return ResponseEntity.created(URI.create("/api/products/".concat(prod.getId())))
-						.contentType(MediaType.APPLICATION_JSON)
-						.body(response);
-			});
+			return idempotency.execute("POST /api/products", idempotencyKey, productService.save(product))
+					.map(outcome -> {
+						Product prod = outcome.getProduct();
+						response.put("product", prod);
+						response.put("status", HttpStatus.CREATED.value()); // extras
+						return ResponseEntity.created(URI.create("/api/products/".concat(prod.getId())))
+								.header(IdempotencyStore.REPLAYED_HEADER, String.valueOf(outcome.isReplayed()))
+								.body(response);
+					})
+					.onErrorResume(KeyInUseException.class, e -> {
+						response.put("errors", List.of(e.getMessage()));
+						response.put("status", HttpStatus.CONFLICT.value()); // extras
+						return Mono.just(ResponseEntity.status(HttpStatus.CONFLICT).header(HttpHeaders.RETRY_AFTER, "1")
+								.body(response));
+					})
+					.onErrorResume(UnknownCategoryException.class, e -> {
+						response.put("errors", List.of(e.getMessage()));
+						response.put("status", HttpStatus.BAD_REQUEST.value()); // extras
+						return Mono.just(ResponseEntity.badRequest().body(response));
+					});
 		})
 				.onErrorResume(ex -> {
 					return Mono.just(ex).cast(WebExchangeBindException.class)
@@ -184,12 +288,14 @@ public class ProductController {
 
 		return productService.findById(id).flatMap(p -> {
 			p.setName(product.getName());
-			p.setPrice(product.getPrice());
+			p.setPriceMinor(product.getPriceMinor());
 			p.setCategory(product.getCategory());
 
 			return productService.save(p);
 		}).map(prod -> ResponseEntity.created(URI.create("/api/products/".concat(prod.getId())))
-				.contentType(MediaType.APPLICATION_JSON).body(prod)).defaultIfEmpty(ResponseEntity.notFound().build());
+				.body(prod))
+				.onErrorMap(UnknownCategoryException.class, this::badRequest)
+				.defaultIfEmpty(ResponseEntity.notFound().build());
 
 	}
 
@@ -203,8 +309,24 @@ public class ProductController {
 	public Mono<ResponseEntity<Object>> deleteProduct(@PathVariable String id) {
 
 		return productService.findById(id).flatMap(p -> {
-			return productService.delete(p).then(Mono.just(ResponseEntity.noContent().build()));
+			return productService.delete(p).then(uploads.discard(p.getPicture()))
+					.then(Mono.just(ResponseEntity.noContent().build()));
 		}).defaultIfEmpty(ResponseEntity.notFound().build());
 	}
 
+	/**
+	 * Response for a request whose Idempotency-Key is still being processed by
+	 * another instance.
+	 */
+	private static <T> ResponseEntity<T> keyInUse() {
+		return ResponseEntity.status(HttpStatus.CONFLICT).header(HttpHeaders.RETRY_AFTER, "1").build();
+	}
+
+	/**
+	 * Error answered with 400 Bad Request and the message as reason.
+	 */
+	private ResponseStatusException badRequest(RuntimeException e) {
+		return new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+	}
+
 }
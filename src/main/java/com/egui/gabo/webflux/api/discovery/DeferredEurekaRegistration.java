@@ -0,0 +1,101 @@
+package com.egui.gabo.webflux.api.discovery;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
+import org.springframework.cloud.netflix.eureka.CloudEurekaInstanceConfig;
+import org.springframework.cloud.netflix.eureka.serviceregistry.EurekaRegistration;
+import org.springframework.cloud.netflix.eureka.serviceregistry.EurekaServiceRegistry;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.netflix.appinfo.ApplicationInfoManager;
+import com.netflix.appinfo.HealthCheckHandler;
+import com.netflix.discovery.EurekaClient;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Registers the instance with Eureka after startup instead of during it.
+ * <p>
+ * Spring Cloud registers from a lifecycle callback of the context refresh,
+ * so startup waits for the Eureka client bootstrap (registry fetch and
+ * first register call, including their timeouts when the server is slow or
+ * down). With {@code config.eureka.deferred-registration=true} and
+ * {@code spring.cloud.service-registry.auto-registration.enabled=false} (both
+ * set by the {@code fast-start} profile) that work moves here: it starts on a
+ * background thread once the application is ready, while
+ * {@code /api/v2/products} is already served to clients that know the
+ * address (health checks, the load balancer warming the pod). The instance
+ * is still deregistered on shutdown.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+@Component
+@ConditionalOnProperty(name = "config.eureka.deferred-registration", havingValue = "true")
+public class DeferredEurekaRegistration {
+
+	private static final Logger log = LoggerFactory.getLogger(DeferredEurekaRegistration.class);
+
+	@Autowired
+	private CloudEurekaInstanceConfig instanceConfig;
+
+	@Autowired
+	private ObjectProvider<ApplicationInfoManager> applicationInfoManager;
+
+	@Autowired
+	private ObjectProvider<EurekaClient> eurekaClient;
+
+	@Autowired
+	private ObjectProvider<HealthCheckHandler> healthCheckHandler;
+
+	@Autowired
+	private EurekaServiceRegistry serviceRegistry;
+
+	private volatile int port;
+
+	private volatile EurekaRegistration registration;
+
+	@EventListener
+	public void onWebServerInitialized(WebServerInitializedEvent event) {
+		port = event.getWebServer().getPort();
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void onReady() {
+		Mono.fromRunnable(this::register)
+				.subscribeOn(Schedulers.boundedElastic())
+				.subscribe(null, e -> log.warn("Deferred Eureka registration failed", e));
+	}
+
+	private void register() {
+		long start = System.nanoTime();
+		EurekaRegistration registration = EurekaRegistration.builder(instanceConfig)
+				.with(applicationInfoManager.getObject())
+				.with(eurekaClient.getObject())
+				.with(healthCheckHandler)
+				.build();
+		if (port > 0) {
+			registration.setNonSecurePort(port);
+		}
+		serviceRegistry.register(registration);
+		this.registration = registration;
+		log.info("Registered with Eureka in {} ms, after the application was ready",
+				(System.nanoTime() - start) / 1_000_000);
+	}
+
+	@EventListener(ContextClosedEvent.class)
+	public void onClose() {
+		if (registration != null) {
+			serviceRegistry.deregister(registration);
+		}
+	}
+
+}
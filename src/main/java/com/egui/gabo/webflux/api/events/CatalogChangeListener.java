@@ -0,0 +1,62 @@
+package com.egui.gabo.webflux.api.events;
+
+import com.egui.gabo.webflux.api.models.document.Category;
+import com.egui.gabo.webflux.api.models.document.Product;
+
+/**
+ * Callback for components that keep derived, in-memory views of the catalog
+ * (snapshots, indexes, caches) and need to follow product and category writes.
+ * <p>
+ * Implementations are discovered as Spring beans and notified by
+ * {@link CatalogEvents}. Notifications run on the thread that completed the
+ * write, so implementations must be fast and non-blocking, and must tolerate
+ * receiving the same change more than once.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+public interface CatalogChangeListener {
+
+	/**
+	 * A product was created or updated.
+	 *
+	 * @param product the product as stored
+	 */
+	default void productSaved(Product product) {
+	}
+
+	/**
+	 * A product was deleted.
+	 *
+	 * @param id the id of the deleted product
+	 */
+	default void productDeleted(String id) {
+	}
+
+	/**
+	 * A category was created or updated.
+	 *
+	 * @param category the category as stored
+	 */
+	default void categorySaved(Category category) {
+	}
+
+	/**
+	 * A category was renamed and the copies embedded in its products were
+	 * updated in Mongo. Sent once for all those products, instead of a
+	 * {@link #productSaved(Product)} per product.
+	 *
+	 * @param category the category as stored, with its new name
+	 */
+	default void categoryRenamed(Category category) {
+	}
+
+	/**
+	 * A category was deleted.
+	 *
+	 * @param id the id of the deleted category
+	 */
+	default void categoryDeleted(String id) {
+	}
+
+}
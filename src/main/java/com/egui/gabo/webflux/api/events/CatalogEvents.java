@@ -0,0 +1,62 @@
+package com.egui.gabo.webflux.api.events;
+
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.egui.gabo.webflux.api.models.document.Category;
+import com.egui.gabo.webflux.api.models.document.Product;
+
+/**
+ * Fans out catalog changes to every {@link CatalogChangeListener} bean.
+ * <p>
+ * Listeners are resolved lazily on each publication, so listeners may depend
+ * on the service layer without creating a circular dependency. A failing
+ * listener is logged and does not affect the others or the write itself.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+@Component
+public class CatalogEvents {
+
+	private static final Logger log = LoggerFactory.getLogger(CatalogEvents.class);
+
+	@Autowired
+	private ObjectProvider<CatalogChangeListener> listeners;
+
+	public void productSaved(Product product) {
+		publish(listener -> listener.productSaved(product));
+	}
+
+	public void productDeleted(String id) {
+		publish(listener -> listener.productDeleted(id));
+	}
+
+	public void categorySaved(Category category) {
+		publish(listener -> listener.categorySaved(category));
+	}
+
+	public void categoryRenamed(Category category) {
+		publish(listener -> listener.categoryRenamed(category));
+	}
+
+	public void categoryDeleted(String id) {
+		publish(listener -> listener.categoryDeleted(id));
+	}
+
+	private void publish(Consumer<CatalogChangeListener> event) {
+		listeners.orderedStream().forEach(listener -> {
+			try {
+				event.accept(listener);
+			} catch (RuntimeException e) {
+				log.warn("Catalog listener {} failed", listener.getClass().getSimpleName(), e);
+			}
+		});
+	}
+
+}
@@ -0,0 +1,175 @@
+package com.egui.gabo.webflux.api.events;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+
+import com.egui.gabo.webflux.api.models.document.Category;
+import com.egui.gabo.webflux.api.models.document.ChangeStreamToken;
+import com.egui.gabo.webflux.api.models.document.Product;
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.model.changestream.FullDocument;
+
+import jakarta.annotation.PreDestroy;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+/**
+ * Consumes MongoDB change streams on {@code products} and {@code categories}
+ * and replays them to every {@link CatalogChangeListener}.
+ * <p>
+ * This makes local caches follow the writes of every instance registered in
+ * Eureka, not only this one. Resume tokens are persisted in
+ * {@code change_stream_tokens} (at most once per second per collection), so a
+ * restart resumes where it stopped; the few events replayed after a crash are
+ * harmless because listeners are idempotent.
+ * </p>
+ * <p>
+ * Change streams require a replica set or sharded cluster, so the watcher is
+ * only started when {@code config.changestream.enabled=true}.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+@Component
+@ConditionalOnProperty(name = "config.changestream.enabled", havingValue = "true")
+public class ChangeStreamWatcher {
+
+	private static final Logger log = LoggerFactory.getLogger(ChangeStreamWatcher.class);
+
+	// server error code when the resume token is no longer in the oplog
+	private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+
+	private static final Duration TOKEN_FLUSH_INTERVAL = Duration.ofSeconds(1);
+
+	@Autowired
+	private ReactiveMongoTemplate mongoTemplate;
+
+	@Autowired
+	private CatalogEvents events;
+
+	@Autowired
+	private ProductChangeFeed feed;
+
+	private final Map<String, BsonValue> lastTokens = new ConcurrentHashMap<>();
+
+	private final Disposable.Composite subscriptions = Disposables.composite();
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() {
+		subscriptions.add(watch("products", Product.class, this::onProduct));
+		subscriptions.add(watch("categories", Category.class, this::onCategory));
+	}
+
+	@PreDestroy
+	public void stop() {
+		subscriptions.dispose();
+	}
+
+	private <T> Disposable watch(String collection, Class<T> type,
+			Consumer<ChangeStreamEvent<T>> handler) {
+
+		// only the stream is retried: it resumes from the last token seen in memory
+		Flux<BsonValue> tokens = Flux.defer(() -> open(collection, type))
+				.doOnNext(handler)
+				.map(ChangeStreamEvent::getResumeToken)
+				.doOnNext(token -> lastTokens.put(collection, token))
+				.doOnError(this::isHistoryLost, e -> {
+					log.warn("Resume token of {} expired, restarting change stream from now", collection);
+					lastTokens.remove(collection);
+				})
+				.retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30))
+						.doBeforeRetry(signal -> log.warn("Change stream on {} failed, retrying: {}", collection,
+								signal.failure().toString())));
+
+		return loadToken(collection).thenMany(tokens)
+				.sample(TOKEN_FLUSH_INTERVAL)
+				.concatMap(token -> saveToken(collection, token))
+				.subscribe();
+	}
+
+	private <T> Flux<ChangeStreamEvent<T>> open(String collection, Class<T> type) {
+		ChangeStreamOptions.ChangeStreamOptionsBuilder options = ChangeStreamOptions.builder()
+				.fullDocumentLookup(FullDocument.UPDATE_LOOKUP);
+		BsonValue token = lastTokens.get(collection);
+		if (token != null) {
+			options.resumeAfter(token);
+		}
+		return mongoTemplate.changeStream(collection, options.build(), type);
+	}
+
+	private void onProduct(ChangeStreamEvent<Product> event) {
+		switch (event.getOperationType()) {
+		case INSERT, UPDATE, REPLACE -> {
+			Product product = event.getBody();
+			if (product != null) { // null when the document was deleted before the lookup
+				events.productSaved(product);
+				feed.emitRemote(ProductChangeEvent.saved(product));
+			}
+		}
+		case DELETE -> {
+			String id = documentId(event);
+			events.productDeleted(id);
+			feed.emitRemote(ProductChangeEvent.deleted(id));
+		}
+		default -> log.debug("Ignoring {} event on products", event.getOperationType());
+		}
+	}
+
+	private void onCategory(ChangeStreamEvent<Category> event) {
+		switch (event.getOperationType()) {
+		case INSERT, UPDATE, REPLACE -> {
+			if (event.getBody() != null) {
+				events.categorySaved(event.getBody());
+			}
+		}
+		case DELETE -> events.categoryDeleted(documentId(event));
+		default -> log.debug("Ignoring {} event on categories", event.getOperationType());
+		}
+	}
+
+	private static String documentId(ChangeStreamEvent<?> event) {
+		BsonValue id = event.getRaw().getDocumentKey().get("_id");
+		return id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.asString().getValue();
+	}
+
+	private boolean isHistoryLost(Throwable e) {
+		return e instanceof MongoCommandException command && command.getErrorCode() == CHANGE_STREAM_HISTORY_LOST;
+	}
+
+	private Mono<Void> loadToken(String collection) {
+		return mongoTemplate.findById(collection, ChangeStreamToken.class)
+				.doOnNext(saved -> lastTokens.put(collection, BsonDocument.parse(saved.getToken())))
+				.onErrorResume(e -> {
+					log.warn("Could not load resume token of {}", collection, e);
+					return Mono.empty();
+				})
+				.then();
+	}
+
+	private Mono<ChangeStreamToken> saveToken(String collection, BsonValue token) {
+		return mongoTemplate.save(new ChangeStreamToken(collection, token.asDocument().toJson()))
+				.onErrorResume(e -> {
+					log.warn("Could not persist resume token of {}", collection, e);
+					return Mono.empty();
+				});
+	}
+
+}
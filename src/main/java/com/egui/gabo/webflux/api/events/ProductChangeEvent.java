@@ -0,0 +1,51 @@
+package com.egui.gabo.webflux.api.events;
+
+import com.egui.gabo.webflux.api.models.document.Product;
+
+/**
+ * Product change published on the live change feed
+ * ({@code GET /api/v2/products/changes}).
+ *
+ * @author Gabriel Eguiguren P.
+ */
+public class ProductChangeEvent {
+
+	/** Kind of change. */
+	public enum Type {
+		SAVED, DELETED
+	}
+
+	private final Type type;
+	private final String id;
+	private final Product product;
+
+	public ProductChangeEvent(Type type, String id, Product product) {
+		this.type = type;
+		this.id = id;
+		this.product = product;
+	}
+
+	public static ProductChangeEvent saved(Product product) {
+		return new ProductChangeEvent(Type.SAVED, product.getId(), product);
+	}
+
+	public static ProductChangeEvent deleted(String id) {
+		return new ProductChangeEvent(Type.DELETED, id, null);
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * @return the product as stored, or null for deletions
+	 */
+	public Product getProduct() {
+		return product;
+	}
+
+}
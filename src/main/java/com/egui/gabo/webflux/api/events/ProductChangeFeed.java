@@ -0,0 +1,77 @@
+package com.egui.gabo.webflux.api.events;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+
+import com.egui.gabo.webflux.api.models.document.Product;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Hot stream of product changes for Server-Sent Events subscribers.
+ * <p>
+ * When change streams are enabled, the feed only relays events coming from
+ * {@link ChangeStreamWatcher}, which already include the writes of this
+ * instance, so subscribers see each change once. Otherwise it relays the local
+ * writes published through {@link CatalogEvents}.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+@Component
+public class ProductChangeFeed implements CatalogChangeListener {
+
+	private static final Duration HEARTBEAT = Duration.ofSeconds(15);
+
+	@Value("${config.changestream.enabled:false}")
+	private boolean changeStreamEnabled;
+
+	// slow subscribers drop events instead of holding back the writers
+	private final Sinks.Many<ProductChangeEvent> sink = Sinks.many().multicast().directBestEffort();
+
+	@Override
+	public void productSaved(Product product) {
+		if (!changeStreamEnabled) {
+			emit(ProductChangeEvent.saved(product));
+		}
+	}
+
+	@Override
+	public void productDeleted(String id) {
+		if (!changeStreamEnabled) {
+			emit(ProductChangeEvent.deleted(id));
+		}
+	}
+
+	/**
+	 * Relays a change observed on the Mongo change stream.
+	 *
+	 * @param event the change
+	 */
+	void emitRemote(ProductChangeEvent event) {
+		emit(event);
+	}
+
+	private void emit(ProductChangeEvent event) {
+		sink.emitNext(event, Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(10)));
+	}
+
+	/**
+	 * Returns the feed as Server-Sent Events, with periodic comments so idle
+	 * connections are not closed by proxies.
+	 *
+	 * @return an infinite Flux of events
+	 */
+	public Flux<ServerSentEvent<ProductChangeEvent>> stream() {
+		Flux<ServerSentEvent<ProductChangeEvent>> changes = sink.asFlux()
+				.map(event -> ServerSentEvent.builder(event).event(event.getType().name()).id(event.getId()).build());
+		Flux<ServerSentEvent<ProductChangeEvent>> heartbeat = Flux.interval(HEARTBEAT)
+				.map(tick -> ServerSentEvent.<ProductChangeEvent>builder().comment("heartbeat").build());
+		return Flux.merge(changes, heartbeat);
+	}
+
+}
@@ -0,0 +1,129 @@
+package com.egui.gabo.webflux.api.facet;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.stereotype.Component;
+
+import com.egui.gabo.webflux.api.models.document.Product;
+import com.egui.gabo.webflux.api.resilience.Deadline;
+import com.egui.gabo.webflux.api.service.ProductFilter;
+
+import jakarta.annotation.PostConstruct;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link FacetEngine} running one Mongo aggregation per request: a
+ * {@code $match} on the filters followed by a {@code $facet} with the product
+ * page, the total, a {@code $group} by category and a {@code $bucket} by price.
+ * Products without a price are left out of the price buckets, as in the
+ * {@link BitmapFacetEngine}.
+ * <p>
+ * Always consistent with the database, at the cost of a full scan of the
+ * filtered documents on every request.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+@Component
+@ConditionalOnProperty(name = "config.facets.strategy", havingValue = "aggregation")
+public class AggregationFacetEngine implements FacetEngine {
+
+	private static final String OVER_LAST_BOUND = "over";
+
+	@Value("${config.facets.price-buckets:100,300,500,1000}")
+	private double[] priceBuckets;
+
+	@Autowired
+	private ReactiveMongoTemplate mongoTemplate;
+
+	private PriceBuckets buckets;
+
+	@PostConstruct
+	void init() {
+		buckets = new PriceBuckets(priceBuckets);
+	}
+
+	@Override
+	public Mono<FacetResult> facet(ProductFilter filter, int limit) {
+		long[] lower = buckets.lowerBounds();
+		Object[] boundaries = new Object[lower.length];
+		for (int i = 0; i < lower.length; i++) {
+			boundaries[i] = lower[i];
+		}
+
+		// Mongo rejects $limit 0: an empty page matches no document instead
+		AggregationOperation page = limit > 0 ? limit(limit) : match(where("id").exists(false));
+
+		TypedAggregation<Product> aggregation = newAggregation(Product.class,
+				match(filter.toCriteria()),
+				Aggregation.facet(sort(Sort.by("id")), page).as("products")
+						.and(count().as("total")).as("total")
+						.and(group("category.id").first("category.name").as("name").count().as("count"),
+								sort(Sort.by(Sort.Direction.DESC, "count").and(Sort.by("_id"))))
+						.as("categories")
+						.and(match(where("priceMinor").ne(null)),
+								bucket("priceMinor").withBoundaries(boundaries).withDefaultBucket(OVER_LAST_BOUND)
+										.andOutputCount().as("count"))
+						.as("prices"));
+
+		return Mono.deferContextual(ctx -> {
+			// same bound as Deadline.applyTo for finds, never 0 ("no limit")
+			TypedAggregation<Product> bounded = ctx.<Deadline>getOrEmpty(Deadline.CONTEXT_KEY)
+					.map(deadline -> aggregation.withOptions(AggregationOptions.builder()
+							.maxTime(Duration.ofMillis(Math.max(1, deadline.remaining().toMillis()))).build()))
+					.orElse(aggregation);
+			return mongoTemplate.aggregate(bounded, Document.class).next();
+		}).map(this::toResult);
+	}
+
+	private FacetResult toResult(Document document) {
+		List<Product> products = new ArrayList<>();
+		for (Document product : document.getList("products", Document.class)) {
+			products.add(mongoTemplate.getConverter().read(Product.class, product));
+		}
+
+		List<Document> total = document.getList("total", Document.class);
+		long count = total.isEmpty() ? 0 : ((Number) total.get(0).get("total")).longValue();
+
+		List<FacetResult.Count> categories = new ArrayList<>();
+		for (Document category : document.getList("categories", Document.class)) {
+			Object id = category.get("_id");
+			if (id != null) {
+				categories.add(new FacetResult.Count(id.toString(), category.getString("name"),
+						((Number) category.get("count")).longValue()));
+			}
+		}
+
+		// $bucket omits empty buckets; report every configured bucket
+		long[] bucketCounts = new long[buckets.size()];
+		long[] lower = buckets.lowerBounds();
+		for (Document bucket : document.getList("prices", Document.class)) {
+			Object id = bucket.get("_id");
+			int index = id instanceof Number bound ? buckets.indexOf(bound.longValue()) : lower.length - 1;
+			bucketCounts[index] += ((Number) bucket.get("count")).longValue();
+		}
+		List<FacetResult.Count> prices = new ArrayList<>(bucketCounts.length);
+		for (int i = 0; i < bucketCounts.length; i++) {
+			String key = buckets.key(i);
+			prices.add(new FacetResult.Count(key, key, bucketCounts[i]));
+		}
+
+		return new FacetResult(count, products, categories, prices);
+	}
+
+}
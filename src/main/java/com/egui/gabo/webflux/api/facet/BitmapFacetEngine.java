@@ -0,0 +1,140 @@
+package com.egui.gabo.webflux.api.facet;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.egui.gabo.webflux.api.events.CatalogChangeListener;
+import com.egui.gabo.webflux.api.models.document.Category;
+import com.egui.gabo.webflux.api.models.document.Product;
+import com.egui.gabo.webflux.api.models.repository.ProductRepository;
+import com.egui.gabo.webflux.api.service.ProductFilter;
+
+import jakarta.annotation.PostConstruct;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link FacetEngine} answering from a {@link FacetBitmapIndex}, built from
+ * Mongo once the application is ready and updated incrementally by catalog
+ * change events.
+ * <p>
+ * Products saved or deleted while the bitmaps are built are skipped by the
+ * scan, which may hold an older version of them, and categories renamed
+ * meanwhile are renamed again once the scan is over.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+@Component
+@ConditionalOnProperty(name = "config.facets.strategy", havingValue = "bitmap", matchIfMissing = true)
+public class BitmapFacetEngine implements FacetEngine, CatalogChangeListener {
+
+	private static final Logger log = LoggerFactory.getLogger(BitmapFacetEngine.class);
+
+	@Value("${config.facets.price-buckets:100,300,500,1000}")
+	private double[] priceBuckets;
+
+	@Autowired
+	private ProductRepository productDao;
+
+	private FacetBitmapIndex index;
+
+	// whether a scan is running, and the products changed and categories renamed since it started
+	private boolean building;
+
+	private final Set<String> changedWhileBuilding = new HashSet<>();
+
+	private final Map<String, Category> renamedWhileBuilding = new HashMap<>();
+
+	@PostConstruct
+	void init() {
+		index = new FacetBitmapIndex(new PriceBuckets(priceBuckets));
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void onReady() {
+		rebuild().subscribe();
+	}
+
+	/**
+	 * Indexes every product stored in Mongo.
+	 *
+	 * @return a Mono that completes when the bitmaps are built
+	 */
+	public Mono<Void> rebuild() {
+		return Mono.defer(() -> {
+			long start = System.nanoTime();
+			synchronized (this) {
+				if (building) {
+					return Mono.empty();
+				}
+				building = true;
+				changedWhileBuilding.clear();
+				renamedWhileBuilding.clear();
+			}
+			return productDao.exportAll()
+					.doOnNext(product -> {
+						synchronized (this) {
+							// neither resurrect a deleted product nor overwrite a newer version
+							if (!changedWhileBuilding.contains(product.getId())) {
+								index.put(product);
+							}
+						}
+					})
+					.then()
+					.doFinally(signal -> {
+						synchronized (this) {
+							// the scan may have read products of a renamed category before the rename
+							renamedWhileBuilding.values().forEach(index::renameCategory);
+							building = false;
+							changedWhileBuilding.clear();
+							renamedWhileBuilding.clear();
+						}
+					})
+					.doOnSuccess(done -> log.info("Facet bitmaps built with {} products in {} ms", index.size(),
+							(System.nanoTime() - start) / 1_000_000))
+					.doOnError(e -> log.warn("Could not build the facet bitmaps", e))
+					.onErrorResume(e -> Mono.empty());
+		});
+	}
+
+	@Override
+	public Mono<FacetResult> facet(ProductFilter filter, int limit) {
+		return Mono.fromSupplier(() -> index.facet(filter, limit));
+	}
+
+	@Override
+	public synchronized void productSaved(Product product) {
+		index.put(product);
+		if (building) {
+			changedWhileBuilding.add(product.getId());
+		}
+	}
+
+	@Override
+	public synchronized void productDeleted(String id) {
+		index.remove(id);
+		if (building) {
+			changedWhileBuilding.add(id);
+		}
+	}
+
+	@Override
+	public synchronized void categoryRenamed(Category category) {
+		index.renameCategory(category);
+		if (building) {
+			renamedWhileBuilding.put(category.getId(), category);
+		}
+	}
+
+}
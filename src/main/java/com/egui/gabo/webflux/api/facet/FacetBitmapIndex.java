@@ -0,0 +1,249 @@
+package com.egui.gabo.webflux.api.facet;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import com.egui.gabo.webflux.api.models.document.Category;
+import com.egui.gabo.webflux.api.models.document.Product;
+import com.egui.gabo.webflux.api.service.ProductFilter;
+
+/**
+ * In-memory bitmaps for faceted filtering.
+ * <p>
+ * Products get dense int document ids (freed ids are reused). Each category
+ * and each price bucket keeps a {@link BitSet} of its documents, so a filter
+ * is a few bitwise ORs/ANDs and every facet count is the cardinality of an
+ * intersection with the filtered set. Price ranges only check individual
+ * prices in the buckets that straddle a range bound. Only the returned page
+ * of products is sorted, not the whole filtered set.
+ * </p>
+ * <p>
+ * All operations are synchronized; they are in-memory and never block.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+public class FacetBitmapIndex {
+
+	// ObjectId hex strings sort by creation time, matching the natural order of findAll()
+	private static final Comparator<Product> BY_ID = Comparator.comparing(Product::getId);
+
+	private final PriceBuckets buckets;
+
+	private final Map<String, Integer> docIds = new HashMap<>();
+	private final List<Product> docs = new ArrayList<>();
+	private long[] prices = new long[16];
+	private final Deque<Integer> freeIds = new ArrayDeque<>();
+	private final BitSet live = new BitSet();
+
+	private final Map<String, BitSet> categories = new HashMap<>();
+	private final Map<String, String> categoryNames = new HashMap<>();
+	private final BitSet[] priceBits;
+
+	public FacetBitmapIndex(PriceBuckets buckets) {
+		this.buckets = buckets;
+		this.priceBits = new BitSet[buckets.size()];
+		for (int i = 0; i < priceBits.length; i++) {
+			priceBits[i] = new BitSet();
+		}
+	}
+
+	/**
+	 * Indexes (or re-indexes) a product.
+	 *
+	 * @param product the product, with id, price and category
+	 */
+	public synchronized void put(Product product) {
+		remove(product.getId());
+
+		int doc = freeIds.isEmpty() ? docs.size() : freeIds.pop();
+		if (doc == docs.size()) {
+			docs.add(null);
+			if (doc == prices.length) {
+				prices = Arrays.copyOf(prices, doc * 2);
+			}
+		}
+
+		if (product.getCategory() != null && product.getCategory().getId() != null) {
+			String categoryId = product.getCategory().getId();
+			categories.computeIfAbsent(categoryId, c -> new BitSet()).set(doc);
+			categoryNames.put(categoryId, product.getCategory().getName());
+		}
+		prices[doc] = product.getPriceMinor();
+		if (product.hasPrice()) {
+			priceBits[buckets.indexOf(product.getPriceMinor())].set(doc);
+		}
+
+		docs.set(doc, product);
+		live.set(doc);
+		docIds.put(product.getId(), doc);
+	}
+
+	/**
+	 * Removes a product from the index.
+	 *
+	 * @param id the product id
+	 */
+	public synchronized void remove(String id) {
+		Integer doc = docIds.remove(id);
+		if (doc == null) {
+			return;
+		}
+		categories.values().removeIf(members -> {
+			members.clear(doc);
+			return members.isEmpty();
+		});
+		categoryNames.keySet().retainAll(categories.keySet());
+		for (BitSet members : priceBits) {
+			members.clear(doc);
+		}
+		live.clear(doc);
+		docs.set(doc, null);
+		freeIds.push(doc);
+	}
+
+	/**
+	 * Applies the new name of a category to its facet and to the copies
+	 * embedded in its products.
+	 *
+	 * @param category the renamed category
+	 */
+	public synchronized void renameCategory(Category category) {
+		BitSet members = categories.get(category.getId());
+		if (members == null) {
+			return;
+		}
+		categoryNames.put(category.getId(), category.getName());
+		for (int doc = members.nextSetBit(0); doc >= 0; doc = members.nextSetBit(doc + 1)) {
+			docs.set(doc, docs.get(doc).copyWithCategory(category));
+		}
+	}
+
+	public synchronized void clear() {
+		docIds.clear();
+		docs.clear();
+		freeIds.clear();
+		live.clear();
+		categories.clear();
+		categoryNames.clear();
+		for (BitSet members : priceBits) {
+			members.clear();
+		}
+	}
+
+	public synchronized int size() {
+		return docIds.size();
+	}
+
+	/**
+	 * Filters the products and counts them per category and price bucket.
+	 *
+	 * @param filter the list filters (sort and page are ignored)
+	 * @param limit  maximum number of products returned, in id order
+	 * @return the filtered products and facet counts
+	 */
+	public synchronized FacetResult facet(ProductFilter filter, int limit) {
+		BitSet matching = (BitSet) live.clone();
+
+		if (!filter.getCategoryIds().isEmpty()) {
+			BitSet inCategories = new BitSet();
+			for (String categoryId : filter.getCategoryIds()) {
+				BitSet members = categories.get(categoryId);
+				if (members != null) {
+					inCategories.or(members);
+				}
+			}
+			matching.and(inCategories);
+		}
+		if (filter.getMinPrice() != null || filter.getMaxPrice() != null) {
+			matching.and(priceRange(filter.getMinPrice() == null ? Long.MIN_VALUE : filter.getMinPriceMinor(),
+					filter.getMaxPrice() == null ? Long.MAX_VALUE : filter.getMaxPriceMinor()));
+		}
+		if (filter.getCreatedFrom() != null || filter.getCreatedTo() != null) {
+			// no bitmap per date: check the remaining candidates one by one
+			for (int doc = matching.nextSetBit(0); doc >= 0; doc = matching.nextSetBit(doc + 1)) {
+				if (!filter.matches(docs.get(doc))) {
+					matching.clear(doc);
+				}
+			}
+		}
+
+		List<FacetResult.Count> categoryCounts = new ArrayList<>();
+		categories.forEach((categoryId, members) -> {
+			long count = intersectionSize(matching, members);
+			if (count > 0) {
+				categoryCounts.add(new FacetResult.Count(categoryId, categoryNames.get(categoryId), count));
+			}
+		});
+		categoryCounts.sort(Comparator.comparingLong(FacetResult.Count::getCount).reversed()
+				.thenComparing(FacetResult.Count::getKey));
+
+		List<FacetResult.Count> priceCounts = new ArrayList<>(priceBits.length);
+		for (int i = 0; i < priceBits.length; i++) {
+			String key = buckets.key(i);
+			priceCounts.add(new FacetResult.Count(key, key, intersectionSize(matching, priceBits[i])));
+		}
+
+		long total = matching.cardinality();
+		// the lowest ids, kept in a max-heap bounded to the limit, so only the page is sorted
+		PriorityQueue<Product> first = new PriorityQueue<>(Math.max(1, (int) Math.min(limit, total)),
+				BY_ID.reversed());
+		for (int doc = matching.nextSetBit(0); doc >= 0 && limit > 0; doc = matching.nextSetBit(doc + 1)) {
+			Product product = docs.get(doc);
+			if (first.size() < limit) {
+				first.add(product);
+			} else if (BY_ID.compare(product, first.peek()) < 0) {
+				first.poll();
+				first.add(product);
+			}
+		}
+		List<Product> page = new ArrayList<>(first);
+		page.sort(BY_ID);
+
+		return new FacetResult(total, page, categoryCounts, priceCounts);
+	}
+
+	/**
+	 * Documents priced within [from, to] (minor units): whole buckets inside the
+	 * range are taken as-is, the buckets holding a bound are checked price by
+	 * price.
+	 */
+	private BitSet priceRange(long from, long to) {
+		long[] lower = buckets.lowerBounds();
+
+		BitSet inRange = new BitSet();
+		for (int i = 0; i < priceBits.length; i++) {
+			long bucketFrom = i == 0 ? Long.MIN_VALUE : lower[i];
+			long bucketTo = i + 1 < lower.length ? lower[i + 1] : Long.MAX_VALUE; // exclusive
+			if (bucketTo <= from || bucketFrom > to) {
+				continue;
+			}
+			if (bucketFrom >= from && bucketTo <= to) {
+				inRange.or(priceBits[i]);
+				continue;
+			}
+			BitSet members = priceBits[i];
+			for (int doc = members.nextSetBit(0); doc >= 0; doc = members.nextSetBit(doc + 1)) {
+				if (prices[doc] >= from && prices[doc] <= to) {
+					inRange.set(doc);
+				}
+			}
+		}
+		return inRange;
+	}
+
+	private static long intersectionSize(BitSet a, BitSet b) {
+		BitSet both = (BitSet) a.clone();
+		both.and(b);
+		return both.cardinality();
+	}
+
+}
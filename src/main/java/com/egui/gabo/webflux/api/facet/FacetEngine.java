@@ -0,0 +1,27 @@
+package com.egui.gabo.webflux.api.facet;
+
+import com.egui.gabo.webflux.api.service.ProductFilter;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Computes filtered products and facet counts (by category and by price
+ * bucket).
+ * <p>
+ * Selected with {@code config.facets.strategy}: {@code aggregation} runs a
+ * single Mongo {@code $facet} pipeline per request, {@code bitmap} answers from
+ * in-memory bitsets kept up to date by catalog change events.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+public interface FacetEngine {
+
+	/**
+	 * @param filter the list filters
+	 * @param limit  maximum number of products returned with the counts
+	 * @return the products and counts
+	 */
+	Mono<FacetResult> facet(ProductFilter filter, int limit);
+
+}
@@ -0,0 +1,82 @@
+package com.egui.gabo.webflux.api.facet;
+
+import java.util.List;
+
+import com.egui.gabo.webflux.api.models.document.Product;
+
+/**
+ * Filtered products plus the facet counts shown next to them.
+ *
+ * @author Gabriel Eguiguren P.
+ */
+public class FacetResult {
+
+	/**
+	 * Number of filtered products falling into one facet value.
+	 */
+	public static class Count {
+
+		private final String key;
+		private final String label;
+		private final long count;
+
+		public Count(String key, String label, long count) {
+			this.key = key;
+			this.label = label;
+			this.count = count;
+		}
+
+		/**
+		 * @return the facet value: a category id or a price bucket key
+		 */
+		public String getKey() {
+			return key;
+		}
+
+		/**
+		 * @return a display label: the category name or the price range
+		 */
+		public String getLabel() {
+			return label;
+		}
+
+		public long getCount() {
+			return count;
+		}
+	}
+
+	private final long total;
+	private final List<Product> products;
+	private final List<Count> categories;
+	private final List<Count> prices;
+
+	public FacetResult(long total, List<Product> products, List<Count> categories, List<Count> prices) {
+		this.total = total;
+		this.products = products;
+		this.categories = categories;
+		this.prices = prices;
+	}
+
+	/**
+	 * @return the number of products passing the filters
+	 */
+	public long getTotal() {
+		return total;
+	}
+
+	/**
+	 * @return the first filtered products, up to the requested limit
+	 */
+	public List<Product> getProducts() {
+		return products;
+	}
+
+	public List<Count> getCategories() {
+		return categories;
+	}
+
+	public List<Count> getPrices() {
+		return prices;
+	}
+
+}
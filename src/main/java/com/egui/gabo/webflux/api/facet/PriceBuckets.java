@@ -0,0 +1,69 @@
+package com.egui.gabo.webflux.api.facet;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+
+import com.egui.gabo.webflux.api.models.document.Product;
+
+/**
+ * Price ranges used for the price facet.
+ * <p>
+ * Upper bounds {@code 100,300} define the buckets {@code [0,100)},
+ * {@code [100,300)} and {@code [300,+inf)}. Bounds are kept in minor units,
+ * like {@link Product#getPriceMinor()}.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+public class PriceBuckets {
+
+	private final long[] bounds;
+
+	/**
+	 * @param upperBounds ascending, positive bucket upper bounds, in major units
+	 */
+	public PriceBuckets(double[] upperBounds) {
+		this.bounds = new long[upperBounds.length];
+		for (int i = 0; i < upperBounds.length; i++) {
+			bounds[i] = Product.toMinor(BigDecimal.valueOf(upperBounds[i]), RoundingMode.HALF_UP);
+		}
+		Arrays.sort(this.bounds);
+	}
+
+	public int size() {
+		return bounds.length + 1;
+	}
+
+	/**
+	 * @return the lower bound of each bucket in minor units, starting at 0
+	 */
+	public long[] lowerBounds() {
+		long[] lower = new long[size()];
+		System.arraycopy(bounds, 0, lower, 1, bounds.length);
+		return lower;
+	}
+
+	/**
+	 * @param priceMinor a product price, in minor units
+	 * @return the index of the bucket holding that price
+	 */
+	public int indexOf(long priceMinor) {
+		int at = Arrays.binarySearch(bounds, priceMinor);
+		return at >= 0 ? at + 1 : -at - 1;
+	}
+
+	/**
+	 * @param index bucket index
+	 * @return a key such as {@code 100-300} or {@code 300+}
+	 */
+	public String key(int index) {
+		String from = format(index == 0 ? 0 : bounds[index - 1]);
+		return index == bounds.length ? from + "+" : from + "-" + format(bounds[index]);
+	}
+
+	private static String format(long minor) {
+		return BigDecimal.valueOf(minor, Product.PRICE_SCALE).stripTrailingZeros().toPlainString();
+	}
+
+}
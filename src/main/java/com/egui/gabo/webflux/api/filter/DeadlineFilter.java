@@ -0,0 +1,116 @@
+package com.egui.gabo.webflux.api.filter;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import com.egui.gabo.webflux.api.resilience.Deadline;
+
+import jakarta.annotation.PostConstruct;
+import reactor.core.publisher.Mono;
+
+/**
+ * Applies a deadline to every request and cancels the work when it expires.
+ * <p>
+ * The deadline comes from the client timeout header, or from the per-route
+ * default of {@link DeadlineProperties}; writes without either get none
+ * unless {@code config.deadline.write-timeout} is set. It is stored in the Reactor
+ * {@code Context}, where the repositories turn it into {@code maxTimeMS}, and
+ * the whole handler chain is cancelled once it expires, which also stops file
+ * transfers and saves still in progress. The client then gets 504.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@EnableConfigurationProperties(DeadlineProperties.class)
+public class DeadlineFilter implements WebFilter {
+
+	private static final Logger log = LoggerFactory.getLogger(DeadlineFilter.class);
+
+	@Autowired
+	private DeadlineProperties properties;
+
+	private final Map<PathPattern, Duration> routes = new LinkedHashMap<>();
+
+	@PostConstruct
+	void init() {
+		properties.getRoutes().forEach(
+				(pattern, timeout) -> routes.put(PathPatternParser.defaultInstance.parse(pattern), timeout));
+	}
+
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+		if (!properties.isEnabled() || StreamingRequests.isStreaming(exchange.getRequest())) {
+			return chain.filter(exchange);
+		}
+
+		Duration timeout = timeoutOf(exchange);
+		if (timeout == null) {
+			return chain.filter(exchange);
+		}
+		Deadline deadline = Deadline.after(timeout);
+
+		return chain.filter(exchange)
+				.timeout(timeout)
+				.onErrorResume(TimeoutException.class, e -> {
+					log.debug("Deadline of {} ms expired for {}", timeout.toMillis(), exchange.getRequest().getPath());
+					if (exchange.getResponse().isCommitted()) {
+						return Mono.error(e);
+					}
+					exchange.getResponse().setStatusCode(HttpStatus.GATEWAY_TIMEOUT);
+					return exchange.getResponse().setComplete();
+				})
+				.contextWrite(context -> context.put(Deadline.CONTEXT_KEY, deadline));
+	}
+
+	/**
+	 * @return the deadline of the request, or null for a write without one
+	 */
+	private Duration timeoutOf(ServerWebExchange exchange) {
+		String header = exchange.getRequest().getHeaders().getFirst(properties.getHeader());
+		if (header != null) {
+			try {
+				long millis = Long.parseLong(header.trim());
+				if (millis > 0) {
+					return Duration.ofMillis(Math.min(millis, properties.getMaxTimeout().toMillis()));
+				}
+			} catch (NumberFormatException e) {
+				log.debug("Ignoring invalid {} header: {}", properties.getHeader(), header);
+			}
+		}
+
+		PathContainer path = exchange.getRequest().getPath().pathWithinApplication();
+		for (Map.Entry<PathPattern, Duration> route : routes.entrySet()) {
+			if (route.getKey().matches(path)) {
+				return route.getValue();
+			}
+		}
+		return isWrite(exchange.getRequest().getMethod()) ? properties.getWriteTimeout()
+				: properties.getDefaultTimeout();
+	}
+
+	private static boolean isWrite(HttpMethod method) {
+		return HttpMethod.POST.equals(method) || HttpMethod.PUT.equals(method) || HttpMethod.PATCH.equals(method)
+				|| HttpMethod.DELETE.equals(method);
+	}
+
+}
@@ -0,0 +1,93 @@
+package com.egui.gabo.webflux.api.filter;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Request deadline settings ({@code config.deadline.*}).
+ * <p>
+ * Route keys are path patterns, e.g.
+ * {@code config.deadline.routes.[/api/v2/products/upload/**]=10s}; the first
+ * matching pattern wins, otherwise {@code default-timeout} applies to reads and
+ * {@code write-timeout} to writes.
+ * </p>
+ * <p>
+ * Writes ({@code POST}, {@code PUT}, {@code PATCH}, {@code DELETE}) are not
+ * bound by {@code default-timeout}: cancelling a write after Mongo applied it
+ * would answer 504 for a stored change, and a retry could apply it twice. They
+ * get no deadline unless {@code write-timeout} is set, a route matches or the
+ * client sends the timeout header.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+@ConfigurationProperties(prefix = "config.deadline")
+public class DeadlineProperties {
+
+	private boolean enabled = true;
+
+	/** Name of the request header carrying the client timeout in milliseconds. */
+	private String header = "X-Request-Timeout-Ms";
+
+	private Duration defaultTimeout = Duration.ofMillis(800);
+
+	/** Deadline of writes without header or matching route; null for none. */
+	private Duration writeTimeout;
+
+	/** Upper bound for timeouts requested by clients. */
+	private Duration maxTimeout = Duration.ofSeconds(60);
+
+	private Map<String, Duration> routes = new LinkedHashMap<>();
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public String getHeader() {
+		return header;
+	}
+
+	public void setHeader(String header) {
+		this.header = header;
+	}
+
+	public Duration getDefaultTimeout() {
+		return defaultTimeout;
+	}
+
+	public void setDefaultTimeout(Duration defaultTimeout) {
+		this.defaultTimeout = defaultTimeout;
+	}
+
+	public Duration getWriteTimeout() {
+		return writeTimeout;
+	}
+
+	public void setWriteTimeout(Duration writeTimeout) {
+		this.writeTimeout = writeTimeout;
+	}
+
+	public Duration getMaxTimeout() {
+		return maxTimeout;
+	}
+
+	public void setMaxTimeout(Duration maxTimeout) {
+		this.maxTimeout = maxTimeout;
+	}
+
+	public Map<String, Duration> getRoutes() {
+		return routes;
+	}
+
+	public void setRoutes(Map<String, Duration> routes) {
+		this.routes = routes;
+	}
+
+}
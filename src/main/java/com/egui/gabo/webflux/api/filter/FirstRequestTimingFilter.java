@@ -0,0 +1,66 @@
+package com.egui.gabo.webflux.api.filter;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.annotation.PostConstruct;
+import reactor.core.publisher.Mono;
+
+/**
+ * Measures the cold start as seen by clients: the time from JVM start until
+ * the first request is answered.
+ * <p>
+ * Logged once and exposed as the {@code application.first.request.time}
+ * gauge, next to Spring Boot's {@code application.started.time} and
+ * {@code application.ready.time}, so AOT/CDS builds and the deferred Eureka
+ * registration can be compared on the same scale.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class FirstRequestTimingFilter implements WebFilter {
+
+	private static final Logger log = LoggerFactory.getLogger(FirstRequestTimingFilter.class);
+
+	@Autowired
+	private MeterRegistry registry;
+
+	private final AtomicBoolean first = new AtomicBoolean(true);
+
+	private volatile long firstRequestMillis = -1;
+
+	@PostConstruct
+	void init() {
+		TimeGauge.builder("application.first.request.time", this, TimeUnit.MILLISECONDS,
+				filter -> filter.firstRequestMillis < 0 ? Double.NaN : filter.firstRequestMillis)
+				.description("Time from JVM start until the first request was answered").register(registry);
+	}
+
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+		if (firstRequestMillis >= 0 || !first.compareAndSet(true, false)) {
+			return chain.filter(exchange);
+		}
+		return chain.filter(exchange).doFinally(signal -> {
+			firstRequestMillis = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+			log.info("First request ({} {}) answered {} ms after JVM start", exchange.getRequest().getMethod(),
+					exchange.getRequest().getPath(), firstRequestMillis);
+		});
+	}
+
+}
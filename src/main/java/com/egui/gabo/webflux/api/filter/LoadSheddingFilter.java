@@ -0,0 +1,132 @@
+package com.egui.gabo.webflux.api.filter;
+
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import com.egui.gabo.webflux.api.resilience.AdaptiveConcurrencyLimiter;
+import com.egui.gabo.webflux.api.resilience.AdaptiveConcurrencyLimiter.Priority;
+import com.egui.gabo.webflux.api.resilience.EventLoopLagMonitor;
+import com.egui.gabo.webflux.api.resilience.MongoPoolMonitor;
+
+import jakarta.annotation.PostConstruct;
+import reactor.core.publisher.Mono;
+
+/**
+ * Rejects excess requests early with 503 instead of letting every request time
+ * out under overload.
+ * <p>
+ * Admission is decided by an {@link AdaptiveConcurrencyLimiter} whose limit
+ * follows the event-loop lag and Mongo pool wait time. Requests are classified
+ * by {@link Priority}, so uploads and multipart creation are rejected before
+ * listings, and listings before single product reads.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class LoadSheddingFilter implements WebFilter {
+
+	private static final Logger log = LoggerFactory.getLogger(LoadSheddingFilter.class);
+
+	// routes under /products/ that scan or multi-get rather than read one product
+	private static final Set<String> PRODUCT_SUB_RESOURCES = Set.of("search", "suggest", "facets", "batch",
+			"changes");
+
+	@Value("${config.shedding.enabled:true}")
+	private boolean enabled;
+
+	@Value("${config.shedding.initial-limit:200}")
+	private int initialLimit;
+
+	@Value("${config.shedding.min-limit:20}")
+	private int minLimit;
+
+	@Value("${config.shedding.max-limit:2000}")
+	private int maxLimit;
+
+	@Value("${config.shedding.backoff-ratio:0.9}")
+	private double backoffRatio;
+
+	@Value("${config.shedding.event-loop-lag-threshold-ms:50}")
+	private long lagThresholdMillis;
+
+	@Value("${config.shedding.mongo-pool-wait-threshold-ms:100}")
+	private long poolWaitThresholdMillis;
+
+	@Autowired
+	private EventLoopLagMonitor lagMonitor;
+
+	@Autowired
+	private MongoPoolMonitor poolMonitor;
+
+	private AdaptiveConcurrencyLimiter limiter;
+
+	@PostConstruct
+	void init() {
+		limiter = new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, backoffRatio);
+	}
+
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+		// long-lived streams would hold a slot for their whole lifetime
+		if (!enabled || StreamingRequests.isStreaming(exchange.getRequest())) {
+			return chain.filter(exchange);
+		}
+
+		Priority priority = classify(exchange.getRequest());
+		if (!limiter.tryAcquire(priority)) {
+			log.debug("Shedding {} request {} (limit {})", priority, exchange.getRequest().getPath(),
+					limiter.getLimit());
+			exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+			exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+			return exchange.getResponse().setComplete();
+		}
+
+		return chain.filter(exchange).doFinally(signal -> limiter.release(isCongested()));
+	}
+
+	private boolean isCongested() {
+		return lagMonitor.getLagMillis() > lagThresholdMillis || poolMonitor.getWaitMillis() > poolWaitThresholdMillis;
+	}
+
+	/**
+	 * Maps a request to its shedding priority: single product reads are critical,
+	 * uploads and multipart bodies are bulk, everything else (including search,
+	 * suggest, facets and batch reads) is normal.
+	 */
+	static Priority classify(ServerHttpRequest request) {
+		String path = request.getPath().pathWithinApplication().value();
+		MediaType contentType = request.getHeaders().getContentType();
+
+		if (path.contains("/upload/") || path.endsWith("/createWithPic")
+				|| (contentType != null && MediaType.MULTIPART_FORM_DATA.isCompatibleWith(contentType))) {
+			return Priority.BULK;
+		}
+		if (HttpMethod.GET.equals(request.getMethod()) && path.matches("/api(/v2)?/products/[^/]+")
+				&& !PRODUCT_SUB_RESOURCES.contains(path.substring(path.lastIndexOf('/') + 1))) {
+			return Priority.CRITICAL;
+		}
+		return Priority.NORMAL;
+	}
+
+	public AdaptiveConcurrencyLimiter getLimiter() {
+		return limiter;
+	}
+
+}
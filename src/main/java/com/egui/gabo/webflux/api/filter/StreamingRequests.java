@@ -0,0 +1,29 @@
+package com.egui.gabo.webflux.api.filter;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+
+/**
+ * Recognizes long-lived streaming requests (Server-Sent Events), which must
+ * not be subject to concurrency limits or request deadlines.
+ * <p>
+ * Decided by route only, the change feed: an {@code Accept:
+ * text/event-stream} header on another endpoint must not exempt it from
+ * shedding and deadlines.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+final class StreamingRequests {
+
+	static final String CHANGE_FEED_PATH = "/api/v2/products/changes";
+
+	private StreamingRequests() {
+	}
+
+	static boolean isStreaming(ServerHttpRequest request) {
+		return HttpMethod.GET.equals(request.getMethod())
+				&& request.getPath().pathWithinApplication().value().equals(CHANGE_FEED_PATH);
+	}
+
+}
@@ -0,0 +1,113 @@
+package com.egui.gabo.webflux.api.handler;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import com.egui.gabo.webflux.api.catalog.CategoryCache;
+import com.egui.gabo.webflux.api.catalog.CategoryListingIndex;
+import com.egui.gabo.webflux.api.catalog.CategoryListings;
+import com.egui.gabo.webflux.api.catalog.CategoryStatsTracker;
+import com.egui.gabo.webflux.api.codec.ContentNegotiation;
+import com.egui.gabo.webflux.api.models.document.CategoryStats;
+import com.egui.gabo.webflux.api.service.ProductFilter;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Handler for the category endpoints routed via
+ * {@link com.egui.gabo.webflux.api.RouterFunctionConfig}.
+ * 
+ * @author Gabriel Eguiguren P.
+ */
+@Component
+public class CategoryHandler {
+
+	public static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
+	@Autowired
+	private CategoryStatsTracker categoryStats;
+
+	@Autowired
+	private CategoryListings listings;
+
+	@Autowired
+	private CategoryCache categories;
+
+	/**
+	 * Lists the product count and min/avg/max price of every category.
+	 * 
+	 * @param request the incoming server request
+	 * @return a ServerResponse containing the stats of all categories
+	 */
+	public Mono<ServerResponse> listStats(ServerRequest request) {
+		return ServerResponse.ok().contentType(ContentNegotiation.negotiate(request, ContentNegotiation.JACKSON))
+				.body(categoryStats.findAll(), CategoryStats.class);
+	}
+
+	/**
+	 * Gets the product count and min/avg/max price of a category.
+	 * 
+	 * @param request the incoming server request containing path variable 'id'
+	 * @return a ServerResponse containing the stats or 404 Not Found when the
+	 *         category has no products
+	 */
+	public Mono<ServerResponse> seeStats(ServerRequest request) {
+		return categoryStats.findById(request.pathVariable("id"))
+				.flatMap(stats -> ServerResponse.ok()
+						.contentType(ContentNegotiation.negotiate(request, ContentNegotiation.JACKSON)).bodyValue(stats))
+				.switchIfEmpty(ServerResponse.notFound().build());
+	}
+
+	/**
+	 * Lists the products of a category (id, name and price) from the
+	 * materialized {@link CategoryListings}, without querying the products.
+	 * A full page carries the cursor of the next one in the
+	 * {@value ProductHandler#NEXT_CURSOR_HEADER} header and every page the
+	 * number of products of the category in {@value #TOTAL_COUNT_HEADER}.
+	 * 
+	 * @param request the incoming server request containing path variable 'id'
+	 *                and the optional query params 'sort' (id, price or name),
+	 *                'dir' (asc or desc), 'after' and 'size'
+	 * @return a ServerResponse containing the page, 404 Not Found for an
+	 *         unknown category or 400 Bad Request on malformed parameters
+	 */
+	public Mono<ServerResponse> listProducts(ServerRequest request) {
+		String categoryId = request.pathVariable("id");
+		CategoryListingIndex.Order order;
+		boolean descending;
+		int size;
+		try {
+			order = CategoryListingIndex.Order.parse(request.queryParam("sort").orElse(null));
+			String dir = request.queryParam("dir").orElse("asc");
+			if (!dir.equalsIgnoreCase("asc") && !dir.equalsIgnoreCase("desc")) {
+				throw new IllegalArgumentException("dir must be asc or desc");
+			}
+			descending = dir.equalsIgnoreCase("desc");
+			size = Math.max(1, Math.min(SearchHandler.intParam(request, "size", ProductFilter.DEFAULT_SIZE),
+					ProductFilter.MAX_SIZE));
+		} catch (IllegalArgumentException e) {
+			return ServerResponse.badRequest().bodyValue(List.of(e.getMessage()));
+		}
+		String after = request.queryParam("after").filter(value -> !value.isBlank()).orElse(null);
+
+		return categories.findById(categoryId)
+				.flatMap(category -> listings.page(categoryId, order, descending, after, size))
+				.flatMap(page -> {
+					ServerResponse.BodyBuilder response = ServerResponse.ok()
+							.contentType(ContentNegotiation.negotiate(request, ContentNegotiation.JACKSON))
+							.header(TOTAL_COUNT_HEADER, String.valueOf(page.getTotal()));
+					if (page.getNextCursor() != null) {
+						response.header(ProductHandler.NEXT_CURSOR_HEADER, page.getNextCursor());
+					}
+					return response.bodyValue(page.getItems());
+				})
+				.switchIfEmpty(ServerResponse.notFound().build())
+				.onErrorResume(IllegalArgumentException.class,
+						e -> ServerResponse.badRequest().bodyValue(List.of(e.getMessage())));
+	}
+
+}
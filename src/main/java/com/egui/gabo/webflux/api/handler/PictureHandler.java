@@ -0,0 +1,60 @@
+package com.egui.gabo.webflux.api.handler;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import com.egui.gabo.webflux.api.picture.PictureStore;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Handler for the picture endpoint routed via
+ * {@link com.egui.gabo.webflux.api.RouterFunctionConfig}.
+ *
+ * @author Gabriel Eguiguren P.
+ */
+@Component
+public class PictureHandler {
+
+	/** Picture names are unique per upload, so their content never changes. */
+	private static final CacheControl IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365)).cachePublic()
+			.immutable();
+
+	@Autowired
+	private PictureStore pictures;
+
+	/**
+	 * Gets a product picture by the name in {@code Product.picture}.
+	 *
+	 * @param request the incoming server request containing path variable 'name'
+	 * @return a ServerResponse streaming the picture or 404 Not Found
+	 */
+	public Mono<ServerResponse> seePicture(ServerRequest request) {
+		String name = request.pathVariable("name");
+		if (name.startsWith(".") || name.contains("/") || name.contains("\\")) {
+			return ServerResponse.notFound().build();
+		}
+		MediaType type = MediaTypeFactory.getMediaType(name).orElse(MediaType.APPLICATION_OCTET_STREAM);
+
+		// the first buffer tells whether the picture exists before the status is sent
+		return pictures.read(name).switchOnFirst((first, content) -> {
+			if (first.isOnError()) {
+				return Mono.error(first.getThrowable());
+			}
+			if (!first.hasValue()) {
+				return ServerResponse.notFound().build();
+			}
+			return ServerResponse.ok().contentType(type).cacheControl(IMMUTABLE)
+					.body(BodyInserters.fromDataBuffers(content));
+		}, false).singleOrEmpty();
+	}
+
+}
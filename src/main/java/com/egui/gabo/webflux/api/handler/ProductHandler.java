@@ -1,13 +1,20 @@
 package com.egui.gabo.webflux.api.handler;
 
-import java.io.File;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.net.URI;
-import java.util.Date;
+import java.time.Instant;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.http.codec.multipart.FilePart;
 import org.springframework.http.codec.multipart.FormFieldPart;
 import org.springframework.stereotype.Component;
@@ -16,8 +23,22 @@ import org.springframework.validation.Errors;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
 
+import com.egui.gabo.webflux.api.catalog.CatalogSnapshot;
+import com.egui.gabo.webflux.api.catalog.PriceWriteBuffer;
+import com.egui.gabo.webflux.api.catalog.ProductReadCache;
+import com.egui.gabo.webflux.api.codec.ContentNegotiation;
+import com.egui.gabo.webflux.api.events.ProductChangeEvent;
+import com.egui.gabo.webflux.api.facet.FacetEngine;
+import com.egui.gabo.webflux.api.idempotency.IdempotencyStore;
+import com.egui.gabo.webflux.api.catalog.CategoryCache.UnknownCategoryException;
+import com.egui.gabo.webflux.api.idempotency.IdempotencyStore.KeyInUseException;
+import com.egui.gabo.webflux.api.events.ProductChangeFeed;
 import com.egui.gabo.webflux.api.models.document.Category;
 import com.egui.gabo.webflux.api.models.document.Product;
+import com.egui.gabo.webflux.api.picture.PictureUploads;
+import com.egui.gabo.webflux.api.resilience.StaleWhileRevalidate.CircuitOpenException;
+import com.egui.gabo.webflux.api.resilience.StaleWhileRevalidate.Result;
+import com.egui.gabo.webflux.api.service.ProductFilter;
 import com.egui.gabo.webflux.api.service.ProductService;
 
 import org.springframework.validation.Validator;
@@ -38,9 +59,16 @@ import reactor.core.publisher.Mono;
 @Component
 public class ProductHandler {
 
-	// loads from application.properties
-	@Value("${config.upload.path}")
-	String uploadDirectory;
+	public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+	private static final int DEFAULT_FACET_LIMIT = 20;
+
+	private static final int MAX_FACET_LIMIT = 100;
+
+	private static final int MAX_BATCH_IDS = 100;
+
+	@Autowired
+	private PictureUploads uploads;
 
 	@Autowired
 	private ProductService service;
@@ -48,18 +76,127 @@ public class ProductHandler {
 	@Autowired
 	private Validator validator;
 
+	@Autowired
+	private CatalogSnapshot catalogSnapshot;
+
+	@Autowired
+	private ProductChangeFeed changeFeed;
+
+	@Autowired
+	private ProductReadCache readCache;
+
+	@Autowired
+	private FacetEngine facetEngine;
+
+	@Autowired
+	private IdempotencyStore idempotency;
+
+	@Autowired
+	private PriceWriteBuffer priceBuffer;
 	/**
-	 * Lists all products.
+	 * Lists all products, or one keyset page of the products matching the
+	 * filters in the query (see {@link ProductFilter}).
+	 * <p>
+	 * Unfiltered JSON requests are served from the pre-encoded
+	 * {@link CatalogSnapshot}. A full filtered page carries the cursor of the
+	 * next one in the {@value #NEXT_CURSOR_HEADER} header.
+	 * </p>
 	 * 
 	 * @param request the incoming server request
-	 * @return a ServerResponse containing all products
+	 * @return a ServerResponse containing the products, or 400 Bad Request on a
+	 *         malformed filter
 	 */
 	public Mono<ServerResponse> listProduct(ServerRequest request) {
-		return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).body(service.findAll(), Product.class);
+		MediaType contentType = ContentNegotiation.negotiate(request);
+		if (request.queryParams().isEmpty() && MediaType.APPLICATION_JSON.equals(contentType)) {
+			return catalogSnapshot.current().flatMap(snapshot -> fromSnapshot(request, snapshot));
+		}
+
+		ProductFilter filter;
+		try {
+			filter = ProductFilter.fromQueryParams(request.queryParams());
+		} catch (IllegalArgumentException e) {
+			return ServerResponse.badRequest().bodyValue(List.of(e.getMessage()));
+		}
+		Mono<List<Product>> source = filter.isEmpty() ? service.findAll().collectList()
+				: service.findByFilter(filter).collectList();
+
+		String key = request.uri().getRawQuery() == null ? "" : request.uri().getRawQuery();
+		return readCache.list(key, source)
+				.flatMap(result -> {
+					List<Product> page = result.getValue();
+					ServerResponse.BodyBuilder response = staleAware(ServerResponse.ok(), result)
+							.contentType(contentType);
+					if (!filter.isEmpty() && page.size() == filter.getSize()) {
+						response.header(NEXT_CURSOR_HEADER, filter.cursorAfter(page.get(page.size() - 1)));
+					}
+					return response.bodyValue(page);
+				})
+				.onErrorResume(CircuitOpenException.class, e -> ServerResponse.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+	}
+
+	/**
+	 * Writes the pre-encoded catalog, honouring If-None-Match and gzip
+	 * Accept-Encoding without serializing any product.
+	 */
+	private Mono<ServerResponse> fromSnapshot(ServerRequest request, CatalogSnapshot.Encoded snapshot) {
+		if (request.headers().header(HttpHeaders.IF_NONE_MATCH).contains(snapshot.getEtag())) {
+			return ServerResponse.status(HttpStatus.NOT_MODIFIED).eTag(snapshot.getEtag()).build();
+		}
+
+		boolean gzip = CatalogSnapshot.acceptsGzip(request.headers().header(HttpHeaders.ACCEPT_ENCODING));
+
+		ServerResponse.BodyBuilder response = ServerResponse.ok().contentType(MediaType.APPLICATION_JSON)
+				.eTag(snapshot.getEtag()).header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+		if (gzip) {
+			return snapshot.getGzip().flatMap(body -> response.header(HttpHeaders.CONTENT_ENCODING, "gzip").bodyValue(body));
+		}
+		return response.bodyValue(snapshot.getJson());
+	}
+
+	/**
+	 * Lists filtered products with facet counts by category and price bucket.
+	 * 
+	 * @param request the incoming server request with optional query params
+	 *                'category' (category id, repeatable), 'minPrice', 'maxPrice',
+	 *                'createdFrom', 'createdTo' and 'limit'
+	 * @return a ServerResponse with the total, the first products and the
+	 *         category and price counts of the filtered set
+	 */
+	public Mono<ServerResponse> facets(ServerRequest request) {
+		ProductFilter filter;
+		try {
+			filter = ProductFilter.fromQueryParams(request.queryParams());
+		} catch (IllegalArgumentException e) {
+			return ServerResponse.badRequest().bodyValue(List.of(e.getMessage()));
+		}
+		int limit = Math.min(SearchHandler.intParam(request, "limit", DEFAULT_FACET_LIMIT), MAX_FACET_LIMIT);
+
+		return facetEngine.facet(filter, Math.max(0, limit))
+				.flatMap(result -> ServerResponse.ok()
+						.contentType(ContentNegotiation.negotiate(request, ContentNegotiation.JACKSON)).bodyValue(result));
+	}
+
+	/**
+	 * Streams product changes as Server-Sent Events, so downstream services can
+	 * follow the catalog instead of polling the list endpoint.
+	 * 
+	 * @param request the incoming server request
+	 * @return a ServerResponse with an infinite text/event-stream body
+	 */
+	public Mono<ServerResponse> productChanges(ServerRequest request) {
+		return ServerResponse.ok().contentType(MediaType.TEXT_EVENT_STREAM).body(changeFeed.stream(),
+				new ParameterizedTypeReference<ServerSentEvent<ProductChangeEvent>>() {
+				});
 	}
 
 	/**
 	 * Gets a single product by ID.
+	 * <p>
+	 * When Mongo exceeds the latency budget or fails, the last known value is
+	 * served with Warning/Age headers while the query completes in the
+	 * background.
+	 * </p>
 	 * 
 	 * @param request the incoming server request containing path variable 'id'
 	 * @return a ServerResponse containing the product or 404 Not Found
@@ -67,8 +204,51 @@ public class ProductHandler {
 	public Mono<ServerResponse> seeProduct(ServerRequest request) {
 		String id = request.pathVariable("id");
 
-		return service.findById(id).flatMap(prod -> ServerResponse.ok().bodyValue(prod))
-				.switchIfEmpty(ServerResponse.notFound().build());
+		return readCache.detail(id, service.findById(id))
+				.flatMap(result -> staleAware(ServerResponse.ok(), result)
+						.contentType(ContentNegotiation.negotiate(request)).bodyValue(result.getValue()))
+				.switchIfEmpty(ServerResponse.notFound().build())
+				.onErrorResume(CircuitOpenException.class, e -> ServerResponse.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+	}
+
+	/**
+	 * Gets several products with one query, for clients batching their detail
+	 * reads.
+	 * 
+	 * @param request the incoming server request with the 'ids' query
+	 *                parameter (comma separated or repeated, at most 100)
+	 * @return a ServerResponse containing the products found, in no particular
+	 *         order; unknown ids are left out
+	 */
+	public Mono<ServerResponse> batchProducts(ServerRequest request) {
+		Set<String> ids = new LinkedHashSet<>();
+		for (String value : request.queryParams().getOrDefault("ids", List.of())) {
+			for (String id : value.split(",")) {
+				if (!id.isBlank()) {
+					ids.add(id.trim());
+				}
+			}
+		}
+		if (ids.isEmpty() || ids.size() > MAX_BATCH_IDS) {
+			return ServerResponse.badRequest()
+					.bodyValue(List.of("The parameter ids must hold 1 to " + MAX_BATCH_IDS + " product ids"));
+		}
+		return service.findAllById(ids).collectList()
+				.flatMap(products -> ServerResponse.ok().contentType(ContentNegotiation.negotiate(request))
+						.bodyValue(products));
+	}
+
+	/**
+	 * Adds the Warning and Age headers (RFC 7234) when a cached value is served
+	 * because Mongo was slow, failing or behind an open circuit breaker.
+	 */
+	private static ServerResponse.BodyBuilder staleAware(ServerResponse.BodyBuilder response, Result<?> result) {
+		if (result.isStale()) {
+			response.header(HttpHeaders.WARNING,
+					result.isRevalidationFailed() ? "111 - \"Revalidation Failed\"" : "110 - \"Response is Stale\"")
+					.header(HttpHeaders.AGE, String.valueOf(result.getAgeSeconds()));
+		}
+		return response;
 	}
 
 	/**
@@ -77,6 +257,7 @@ public class ProductHandler {
 	 * This method performs validation on the product object.
 	 * If invalid, it returns a 400 Bad Request with error details.
 	 * If valid, it saves the product and returns 201 Created.
+	 * Retries sent with the same Idempotency-Key header get the first result.
 	 * </p>
 	 * 
 	 * @param request the incoming server request containing the product JSON
@@ -98,11 +279,10 @@ public class ProductHandler {
 						.flatMap(list -> ServerResponse.badRequest().bodyValue(list));
 			} else {
 				if (p.getCreateAt() == null) {
-					p.setCreateAt(new Date());
+					p.setCreateAt(Instant.now());
 				}
 
-				return service.save(p).flatMap(pdb -> ServerResponse
-						.created(URI.create("/api/v2/products/".concat(pdb.getId()))).bodyValue(pdb));
+				return createdOnce(request, service.save(p));
 			}
 		});
 	}
@@ -112,7 +292,8 @@ public class ProductHandler {
 	 * 
 	 * @param request the incoming server request containing path variable 'id' and
 	 *                product JSON
-	 * @return a ServerResponse with the updated product
+	 * @return a ServerResponse with the updated product, 400 Bad Request if its
+	 *         category is unknown, or 404 Not Found
 	 */
 	public Mono<ServerResponse> updateProduct(ServerRequest request) {
 
@@ -123,15 +304,44 @@ public class ProductHandler {
 
 		return productDb.zipWith(product, (prodDb, prodReq) -> {
 			prodDb.setName(prodReq.getName());
-			prodDb.setPrice(prodReq.getPrice());
+			prodDb.setPriceMinor(prodReq.getPriceMinor());
 			prodDb.setCategory(prodReq.getCategory());
 			return prodDb;
-		}).flatMap(p -> ServerResponse.created(URI.create("/api/v2/products/".concat(p.getId())))
-				.body(service.save(p), Product.class).switchIfEmpty(ServerResponse.notFound().build()));
+		}).flatMap(service::save)
+				.flatMap(p -> ServerResponse.created(URI.create("/api/v2/products/".concat(p.getId())))
+						.contentType(ContentNegotiation.negotiate(request))
+						.bodyValue(p))
+				.onErrorResume(UnknownCategoryException.class,
+						e -> ServerResponse.badRequest().bodyValue(List.of(e.getMessage())))
+				.switchIfEmpty(ServerResponse.notFound().build());
 	}
 
 	/**
-	 * Creates a new product including an initial image upload.
+	 * Buffers a price change, to be written with the next coalesced flush (see
+	 * {@link PriceWriteBuffer}) without reading the product first; the flush
+	 * drops the prices of unknown ids. A price of zero is valid (free products).
+	 * 
+	 * @param request the incoming server request containing path variable 'id'
+	 *                and a JSON body with the new 'price'
+	 * @return a ServerResponse with 202 Accepted, or 400 Bad Request when the
+	 *         price is missing or negative
+	 */
+	public Mono<ServerResponse> updatePrice(ServerRequest request) {
+		String id = request.pathVariable("id");
+		List<String> invalidPrice = List.of("The field price must be zero or greater");
+
+		return request.bodyToMono(Product.class).flatMap(body -> {
+			if (!body.hasPrice() || body.getPriceMinor() < 0) {
+				return ServerResponse.badRequest().bodyValue(invalidPrice);
+			}
+			priceBuffer.submit(id, body.getPriceMinor());
+			return ServerResponse.accepted().build();
+		}).switchIfEmpty(ServerResponse.badRequest().bodyValue(invalidPrice));
+	}
+
+	/**
+	 * Creates a new product including an initial image upload, at most once per
+	 * Idempotency-Key header.
 	 * 
 	 * @param request the incoming server request (multipart)
 	 * @return a ServerResponse with the created product
@@ -145,25 +355,33 @@ public class ProductHandler {
 			FormFieldPart categoryId = (FormFieldPart) multipart.toSingleValueMap().get("category.id");
 			FormFieldPart categoryName = (FormFieldPart) multipart.toSingleValueMap().get("category.name");
 
-			Category cat = new Category(categoryName.value());
-			cat.setId(categoryId.value());
-			return new Product(name.value(), Double.parseDouble(price.value()), cat);
+			// either field identifies the category, the stored one is embedded
+			Category cat = new Category(categoryName == null ? null : categoryName.value());
+			cat.setId(categoryId == null ? null : categoryId.value());
+			Product product = new Product(name.value(), null, cat);
+			product.setPriceMinor(Product.toMinor(new BigDecimal(price.value().trim()), RoundingMode.HALF_UP));
+			return product;
 		});
 
 		// the the file from form and transfer to upload directory
-		return request.multipartData().map(multipart -> multipart.toSingleValueMap().get("file")).cast(FilePart.class)
-				.flatMap(file -> productMono.flatMap(prod -> {
+		Mono<Product> created = request.multipartData().map(multipart -> multipart.toSingleValueMap().get("file"))
+				.cast(FilePart.class)
+				.flatMap(file -> productMono.flatMap(prod -> service.resolveCategory(prod.getCategory()).flatMap(cat -> {
+					// resolved before the transfer, so an unknown category leaves no file behind
+					prod.setCategory(cat);
 					prod.setPicture(UUID.randomUUID().toString()
 							.concat(file.filename().replace(" ", "").replace(":", "").replace("\\", "")));
-					prod.setCreateAt(new Date());
+					prod.setCreateAt(Instant.now());
+
+					return uploads.transferThen(file, prod.getPicture(), service.save(prod));
+				})));
 
-					return file.transferTo(new File(uploadDirectory + prod.getPicture())).then(service.save(prod));
-				}))
-				.flatMap(p -> ServerResponse.created(URI.create("/api/v2/products/".concat(p.getId()))).bodyValue(p));
+		return createdOnce(request, created);
 	}
 
 	/**
-	 * Uploads an image to an existing product.
+	 * Uploads an image to an existing product, at most once per Idempotency-Key
+	 * header.
 	 * 
 	 * @param request the incoming server request containing 'id' and file
 	 * @return a ServerResponse with the updated product
@@ -172,13 +390,17 @@ public class ProductHandler {
 
 		String id = request.pathVariable("id");
 
-		return request.multipartData().map(multipart -> multipart.toSingleValueMap().get("file")).cast(FilePart.class)
+		Mono<Product> updated = request.multipartData().map(multipart -> multipart.toSingleValueMap().get("file"))
+				.cast(FilePart.class)
 				.flatMap(file -> service.findById(id).flatMap(prod -> {
+					String previous = prod.getPicture();
 					prod.setPicture(UUID.randomUUID().toString()
 							.concat(file.filename().replace(" ", "").replace(":", "").replace("\\", "")));
-					return file.transferTo(new File(uploadDirectory + prod.getPicture())).then(service.save(prod));
-				})).flatMap(p -> ServerResponse.created(URI.create("/api/v2/products/".concat(p.getId()))).bodyValue(p))
-				.switchIfEmpty(ServerResponse.notFound().build());
+					return uploads.transferThen(file, prod.getPicture(), service.save(prod))
+							.flatMap(saved -> uploads.discard(previous).thenReturn(saved));
+				}));
+
+		return createdOnce(request, updated).switchIfEmpty(ServerResponse.notFound().build());
 
 	}
 
@@ -193,8 +415,35 @@ public class ProductHandler {
 		String id = request.pathVariable("id");
 		Mono<Product> productDb = service.findById(id);
 
-		return productDb.flatMap(p -> service.delete(p).then(ServerResponse.noContent().build()))
+		return productDb.flatMap(p -> service.delete(p).then(uploads.discard(p.getPicture()))
+				.then(ServerResponse.noContent().build()))
 				.switchIfEmpty(ServerResponse.notFound().build());
 	}
 
+	/**
+	 * Runs a creation (or upload) at most once per Idempotency-Key header and
+	 * answers 201 Created, flagging replayed results; a key still being
+	 * processed by another instance gets 409 Conflict and an unknown category
+	 * 400 Bad Request.
+	 * 
+	 * @param request the incoming server request
+	 * @param work    the creation to run
+	 * @return a ServerResponse with the created (or replayed) product
+	 */
+	private Mono<ServerResponse> createdOnce(ServerRequest request, Mono<Product> work) {
+		String scope = request.method().name() + " " + request.path();
+		String key = request.headers().firstHeader(IdempotencyStore.KEY_HEADER);
+
+		return idempotency.execute(scope, key, work)
+				.flatMap(outcome -> ServerResponse
+						.created(URI.create("/api/v2/products/".concat(outcome.getProduct().getId())))
+						.header(IdempotencyStore.REPLAYED_HEADER, String.valueOf(outcome.isReplayed()))
+						.contentType(ContentNegotiation.negotiate(request))
+						.bodyValue(outcome.getProduct()))
+				.onErrorResume(KeyInUseException.class, e -> ServerResponse.status(HttpStatus.CONFLICT)
+						.header(HttpHeaders.RETRY_AFTER, "1").bodyValue(List.of(e.getMessage())))
+				.onErrorResume(UnknownCategoryException.class,
+						e -> ServerResponse.badRequest().bodyValue(List.of(e.getMessage())));
+	}
+
 }
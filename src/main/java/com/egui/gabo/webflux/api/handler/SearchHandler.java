@@ -0,0 +1,77 @@
+package com.egui.gabo.webflux.api.handler;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import com.egui.gabo.webflux.api.codec.ContentNegotiation;
+import com.egui.gabo.webflux.api.search.ProductSearchIndex;
+import com.egui.gabo.webflux.api.search.ProductSuggestIndex;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Handler for the product discovery endpoints (suggestions, search) routed via
+ * {@link com.egui.gabo.webflux.api.RouterFunctionConfig}.
+ * <p>
+ * These endpoints are answered from in-memory indexes and never query Mongo.
+ * </p>
+ * 
+ * @author Gabriel Eguiguren P.
+ */
+@Component
+public class SearchHandler {
+
+	private static final int DEFAULT_LIMIT = 10;
+
+	private static final int MAX_LIMIT = 100;
+
+	@Autowired
+	private ProductSuggestIndex suggestIndex;
+
+	@Autowired
+	private ProductSearchIndex searchIndex;
+
+	/**
+	 * Suggests product names starting with the typed prefix.
+	 * 
+	 * @param request the incoming server request with query params 'q' and
+	 *                optional 'limit'
+	 * @return a ServerResponse with the ranked suggestions (id, name, score)
+	 */
+	public Mono<ServerResponse> suggest(ServerRequest request) {
+		String q = request.queryParam("q").orElse("");
+		int limit = intParam(request, "limit", DEFAULT_LIMIT);
+
+		return ServerResponse.ok().contentType(ContentNegotiation.negotiate(request, ContentNegotiation.JACKSON))
+				.bodyValue(suggestIndex.suggest(q, limit));
+	}
+
+	/**
+	 * Full-text, typo-tolerant search over product and category names.
+	 * 
+	 * @param request the incoming server request with query params 'q', optional
+	 *                'category' (category id, repeatable) and 'limit'
+	 * @return a ServerResponse with the hits (product and BM25 score), best first
+	 */
+	public Mono<ServerResponse> search(ServerRequest request) {
+		String q = request.queryParam("q").orElse("");
+		List<String> categories = request.queryParams().getOrDefault("category", List.of());
+		int limit = Math.min(intParam(request, "limit", DEFAULT_LIMIT), MAX_LIMIT);
+
+		return ServerResponse.ok().contentType(ContentNegotiation.negotiate(request, ContentNegotiation.JACKSON))
+				.bodyValue(searchIndex.search(q, categories, limit));
+	}
+
+	static int intParam(ServerRequest request, String name, int defaultValue) {
+		try {
+			return request.queryParam(name).map(Integer::parseInt).orElse(defaultValue);
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+}
@@ -0,0 +1,229 @@
+package com.egui.gabo.webflux.api.idempotency;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import com.egui.gabo.webflux.api.models.document.IdempotencyRecord;
+import com.egui.gabo.webflux.api.models.document.Product;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Runs product creations and uploads at most once per {@code Idempotency-Key}.
+ * <p>
+ * The first successful result is stored in {@code idempotency_keys} (TTL
+ * indexed) and in a bounded in-memory front cache; retries with the same key
+ * get it back without inserting a product or writing a file again. Concurrent
+ * duplicates on this instance wait for the in-flight work and share its
+ * result. A duplicate arriving at another instance while the work is still
+ * running is rejected with {@link KeyInUseException}; a pending key left by a
+ * crashed instance is taken over after
+ * {@code config.idempotency.pending-timeout}.
+ * </p>
+ * <p>
+ * Failed work is not stored, so the client can retry it with the same key.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+@Component
+public class IdempotencyStore {
+
+	private static final Logger log = LoggerFactory.getLogger(IdempotencyStore.class);
+
+	public static final String KEY_HEADER = "Idempotency-Key";
+
+	public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+	/**
+	 * The product of a request and whether it was replayed from an earlier
+	 * request with the same key.
+	 */
+	public static final class Outcome {
+
+		private final Product product;
+		private final boolean replayed;
+
+		Outcome(Product product, boolean replayed) {
+			this.product = product;
+			this.replayed = replayed;
+		}
+
+		public Product getProduct() {
+			return product;
+		}
+
+		public boolean isReplayed() {
+			return replayed;
+		}
+	}
+
+	/**
+	 * Signals that the key is being processed by another instance.
+	 */
+	public static class KeyInUseException extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		public KeyInUseException(String key) {
+			super("A request with Idempotency-Key " + key + " is still in progress");
+		}
+	}
+
+	private static final class Cached {
+
+		final Product product;
+		final long expiresAt;
+
+		Cached(Product product, long expiresAt) {
+			this.product = product;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	@Value("${config.idempotency.enabled:true}")
+	private boolean enabled;
+
+	@Value("${config.idempotency.cache-ttl:PT10M}")
+	private Duration cacheTtl;
+
+	@Value("${config.idempotency.cache-max-entries:10000}")
+	private int cacheMaxEntries;
+
+	@Value("${config.idempotency.pending-timeout:PT1M}")
+	private Duration pendingTimeout;
+
+	@Autowired
+	private ReactiveMongoTemplate mongoTemplate;
+
+	private final Map<String, Mono<Outcome>> inFlight = new ConcurrentHashMap<>();
+
+	// access-ordered, so the least recently replayed keys are evicted first
+	private final Map<String, Cached> frontCache = new LinkedHashMap<>(256, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest) {
+			return size() > cacheMaxEntries;
+		}
+	};
+
+	/**
+	 * Runs the work unless a request with the same scope and key already did.
+	 *
+	 * @param scope identifies the endpoint, e.g. {@code POST /api/v2/products}
+	 * @param key   the client key, null or blank to run the work unconditionally
+	 * @param work  the creation to run at most once
+	 * @return the new or replayed product; {@link KeyInUseException} if another
+	 *         instance is processing the key
+	 */
+	public Mono<Outcome> execute(String scope, String key, Mono<Product> work) {
+		if (!enabled || key == null || key.isBlank()) {
+			return work.map(product -> new Outcome(product, false));
+		}
+
+		String id = scope + " " + key.trim();
+		Product cached = cached(id);
+		if (cached != null) {
+			return Mono.just(new Outcome(cached, true));
+		}
+
+		Mono<Outcome> run = runOnce(id, key, work).doFinally(signal -> inFlight.remove(id)).cache();
+		Mono<Outcome> existing = inFlight.putIfAbsent(id, run);
+		if (existing != null) {
+			return existing.map(outcome -> new Outcome(outcome.getProduct(), true));
+		}
+		return run;
+	}
+
+	private Mono<Outcome> runOnce(String id, String key, Mono<Product> work) {
+		return mongoTemplate.insert(new IdempotencyRecord(id))
+				.then(Mono.defer(() -> complete(id, work)))
+				.onErrorResume(DuplicateKeyException.class, e -> mongoTemplate.findById(id, IdempotencyRecord.class)
+						.flatMap(record -> existing(record, key, work))
+						// removed by the TTL monitor in between: claim it again
+						.switchIfEmpty(Mono.defer(() -> runOnce(id, key, work))));
+	}
+
+	private Mono<Outcome> existing(IdempotencyRecord record, String key, Mono<Product> work) {
+		if (record.isCompleted()) {
+			remember(record.getId(), record.getProduct());
+			return Mono.just(new Outcome(record.getProduct(), true));
+		}
+		Date staleBefore = new Date(System.currentTimeMillis() - pendingTimeout.toMillis());
+		if (!record.getCreateAt().before(staleBefore)) {
+			return Mono.error(new KeyInUseException(key));
+		}
+		// the owner died before completing: take the key over, once
+		Query stale = Query.query(where("id").is(record.getId()).and("completed").is(false).and("createAt")
+				.is(record.getCreateAt()));
+		return mongoTemplate.updateFirst(stale, Update.update("createAt", new Date()), IdempotencyRecord.class)
+				.flatMap(result -> {
+					if (result.getModifiedCount() == 0) {
+						return Mono.error(new KeyInUseException(key));
+					}
+					log.warn("Taking over stale Idempotency-Key {}", record.getId());
+					return complete(record.getId(), work);
+				});
+	}
+
+	private Mono<Outcome> complete(String id, Mono<Product> work) {
+		return work
+				.onErrorResume(e -> release(id).then(Mono.error(e)))
+				.flatMap(product -> {
+					IdempotencyRecord record = new IdempotencyRecord(id);
+					record.setCompleted(true);
+					record.setProduct(product);
+					remember(id, product);
+					return mongoTemplate.save(record).thenReturn(new Outcome(product, false));
+				})
+				// nothing was created (e.g. not found): let the key be used again
+				.switchIfEmpty(Mono.defer(() -> release(id).then(Mono.empty())));
+	}
+
+	private Mono<Void> release(String id) {
+		return mongoTemplate.remove(Query.query(where("id").is(id)), IdempotencyRecord.class)
+				.onErrorResume(e -> {
+					log.warn("Could not release Idempotency-Key {}", id, e);
+					return Mono.empty();
+				})
+				.then();
+	}
+
+	private Product cached(String id) {
+		synchronized (frontCache) {
+			Cached cached = frontCache.get(id);
+			if (cached == null) {
+				return null;
+			}
+			if (cached.expiresAt < System.currentTimeMillis()) {
+				frontCache.remove(id);
+				return null;
+			}
+			return cached.product;
+		}
+	}
+
+	private void remember(String id, Product product) {
+		synchronized (frontCache) {
+			frontCache.put(id, new Cached(product, System.currentTimeMillis() + cacheTtl.toMillis()));
+		}
+	}
+
+}
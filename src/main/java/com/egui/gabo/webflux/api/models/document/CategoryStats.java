@@ -0,0 +1,141 @@
+package com.egui.gabo.webflux.api.models.document;
+
+import java.util.Date;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * Product count and price aggregates of a category.
+ * <p>
+ * Maintained incrementally on every product write and recomputed periodically
+ * from {@code products}, so dashboards never scan the catalog.
+ * </p>
+ * <p>
+ * Prices are aggregated in minor units, like {@link Product#getPriceMinor()},
+ * and exposed in major units.
+ * </p>
+ * 
+ * @author Gabriel Eguiguren P.
+ */
+@Document(collection = "category_stats")
+@JsonPropertyOrder({ "id", "name", "count", "sum", "min", "max", "updateAt", "average" })
+public class CategoryStats {
+
+	/** Id of the category. */
+	@Id
+	private String id;
+
+	private String name;
+
+	private long count;
+
+	/** Sum of the prices, kept to derive the average. */
+	@Field("sum")
+	private long sumMinor;
+
+	@Field("min")
+	private Long minMinor;
+
+	@Field("max")
+	private Long maxMinor;
+
+	private Date updateAt;
+
+	/** Default constructor. */
+	public CategoryStats() {
+	}
+
+	public CategoryStats(String id, String name, long count, long sumMinor, Long minMinor, Long maxMinor) {
+		this.id = id;
+		this.name = name;
+		this.count = count;
+		this.sumMinor = sumMinor;
+		this.minMinor = minMinor;
+		this.maxMinor = maxMinor;
+		this.updateAt = new Date();
+	}
+
+	/**
+	 * @return the average price, or null without products
+	 */
+	public Double getAverage() {
+		return count > 0 ? Product.toMajor(sumMinor) / count : null;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public void setCount(long count) {
+		this.count = count;
+	}
+
+	public double getSum() {
+		return Product.toMajor(sumMinor);
+	}
+
+	public Double getMin() {
+		return minMinor == null ? null : Product.toMajor(minMinor);
+	}
+
+	public Double getMax() {
+		return maxMinor == null ? null : Product.toMajor(maxMinor);
+	}
+
+	@JsonIgnore
+	public long getSumMinor() {
+		return sumMinor;
+	}
+
+	public void setSumMinor(long sumMinor) {
+		this.sumMinor = sumMinor;
+	}
+
+	@JsonIgnore
+	public Long getMinMinor() {
+		return minMinor;
+	}
+
+	public void setMinMinor(Long minMinor) {
+		this.minMinor = minMinor;
+	}
+
+	@JsonIgnore
+	public Long getMaxMinor() {
+		return maxMinor;
+	}
+
+	public void setMaxMinor(Long maxMinor) {
+		this.maxMinor = maxMinor;
+	}
+
+	public Date getUpdateAt() {
+		return updateAt;
+	}
+
+	public void setUpdateAt(Date updateAt) {
+		this.updateAt = updateAt;
+	}
+
+}
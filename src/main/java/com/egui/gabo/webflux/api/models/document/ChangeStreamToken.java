@@ -0,0 +1,63 @@
+package com.egui.gabo.webflux.api.models.document;
+
+import java.util.Date;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Last processed change stream resume token of a watched collection.
+ * <p>
+ * Persisted so a restarted instance resumes the change stream where it
+ * stopped instead of missing the writes made in between.
+ * </p>
+ * 
+ * @author Gabriel Eguiguren P.
+ */
+@Document(collection = "change_stream_tokens")
+public class ChangeStreamToken {
+
+	/** Name of the watched collection. */
+	@Id
+	private String id;
+
+	/** Resume token as extended JSON. */
+	private String token;
+
+	private Date updateAt;
+
+	/** Default constructor. */
+	public ChangeStreamToken() {
+	}
+
+	public ChangeStreamToken(String id, String token) {
+		this.id = id;
+		this.token = token;
+		this.updateAt = new Date();
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getToken() {
+		return token;
+	}
+
+	public void setToken(String token) {
+		this.token = token;
+	}
+
+	public Date getUpdateAt() {
+		return updateAt;
+	}
+
+	public void setUpdateAt(Date updateAt) {
+		this.updateAt = updateAt;
+	}
+
+}
@@ -0,0 +1,74 @@
+package com.egui.gabo.webflux.api.models.document;
+
+import java.util.Date;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Outcome of a request sent with an {@code Idempotency-Key} header.
+ * <p>
+ * Inserted as pending before the work starts, so the unique id makes a single
+ * instance own the key, then completed with the created product. Mongo
+ * removes records a day after they were created.
+ * </p>
+ * 
+ * @author Gabriel Eguiguren P.
+ */
+@Document(collection = "idempotency_keys")
+public class IdempotencyRecord {
+
+	/** Request scope (method and path) followed by the client key. */
+	@Id
+	private String id;
+
+	private boolean completed;
+
+	private Product product;
+
+	@Indexed(expireAfter = "1d")
+	private Date createAt;
+
+	/** Default constructor. */
+	public IdempotencyRecord() {
+	}
+
+	public IdempotencyRecord(String id) {
+		this.id = id;
+		this.createAt = new Date();
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public boolean isCompleted() {
+		return completed;
+	}
+
+	public void setCompleted(boolean completed) {
+		this.completed = completed;
+	}
+
+	public Product getProduct() {
+		return product;
+	}
+
+	public void setProduct(Product product) {
+		this.product = product;
+	}
+
+	public Date getCreateAt() {
+		return createAt;
+	}
+
+	public void setCreateAt(Date createAt) {
+		this.createAt = createAt;
+	}
+
+}
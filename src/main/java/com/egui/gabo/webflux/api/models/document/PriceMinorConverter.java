@@ -0,0 +1,46 @@
+package com.egui.gabo.webflux.api.models.document;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import org.bson.types.Decimal128;
+import org.springframework.data.mongodb.core.convert.MongoConversionContext;
+import org.springframework.data.mongodb.core.convert.MongoValueConverter;
+
+/**
+ * Maps {@link Product#getPriceMinor()} to the {@code price} field:
+ * {@link Product#NO_PRICE} is left out of the document and read back from a
+ * missing or null field, and legacy decimal prices are read rounded to the
+ * nearest cent.
+ * <p>
+ * A top-level class rather than nested in {@link Product}, so that Spring
+ * AOT, which walks the types reachable from documents, does not reach the
+ * converter API (and through it the synchronous driver).
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+public class PriceMinorConverter implements MongoValueConverter<Long, Object> {
+
+	@Override
+	public Long read(Object value, MongoConversionContext context) {
+		if (value instanceof Long || value instanceof Integer) {
+			return ((Number) value).longValue();
+		}
+		if (value instanceof Number number) {
+			return Product.toMinor(new BigDecimal(number.toString()), RoundingMode.HALF_UP);
+		}
+		return Product.toMinor(((Decimal128) value).bigDecimalValue(), RoundingMode.HALF_UP);
+	}
+
+	@Override
+	public Long readNull(MongoConversionContext context) {
+		return Product.NO_PRICE;
+	}
+
+	@Override
+	public Object write(Long value, MongoConversionContext context) {
+		return value == null || value == Product.NO_PRICE ? null : value;
+	}
+
+}
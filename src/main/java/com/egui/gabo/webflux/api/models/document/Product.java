@@ -1,10 +1,22 @@
 package com.egui.gabo.webflux.api.models.document;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
 import java.util.Date;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.convert.ValueConverter;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
-import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.util.StdConverter;
 
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotEmpty;
@@ -13,11 +25,43 @@ import jakarta.validation.constraints.NotNull;
 /**
  * Product entity/document for MongoDB.
  * Represents a product with name, price, and creation timestamp.
+ * <p>
+ * The compound indexes back the filtered, keyset-paged list (see
+ * {@link com.egui.gabo.webflux.api.service.ProductFilter}): category equality,
+ * then the sort key, then {@code _id}. The embedded category id is stored as
+ * {@code category._id}.
+ * </p>
+ * <p>
+ * The price is kept as a fixed-point {@code long} of minor units (cents),
+ * stored as an int64 in the {@code price} field, and the creation time as an
+ * {@link Instant} (a BSON date), so filters, sorts and aggregates compare
+ * primitives and money is never rounded by floating point. A product without
+ * price holds {@link #NO_PRICE}, which is never written to Mongo; prices
+ * still stored as decimals are read (see {@link PriceMinorConverter}) until
+ * migrated. The JSON
+ * representation is unchanged: {@code price} is a decimal number and
+ * {@code createAt} is read and written like a {@link Date}.
+ * </p>
  * 
  * @author Gabriel Eguiguren P.
  */
 @Document(collection = "products")
+@CompoundIndexes({
+		@CompoundIndex(name = "category_id", def = "{'category._id': 1, '_id': 1}"),
+		@CompoundIndex(name = "category_price_id", def = "{'category._id': 1, 'price': 1, '_id': 1}"),
+		@CompoundIndex(name = "category_createAt_id", def = "{'category._id': 1, 'createAt': 1, '_id': 1}"),
+		@CompoundIndex(name = "price_id", def = "{'price': 1, '_id': 1}"),
+		@CompoundIndex(name = "createAt_id", def = "{'createAt': 1, '_id': 1}") })
+@JsonPropertyOrder({ "id", "name", "price", "createAt", "category", "picture" })
 public class Product {
+
+	/** {@link #getPriceMinor()} of a product without price. */
+	public static final long NO_PRICE = Long.MIN_VALUE;
+
+	/** Decimal places of the minor unit: prices are stored in cents. */
+	public static final int PRICE_SCALE = 2;
+
+	private static final double MINOR_PER_UNIT = 100.0;
 	
 	@Id
 	private String id;
@@ -25,11 +69,11 @@ public class Product {
 	@NotEmpty
 	private String name;
 	
-	@NotNull	
-	private Double price;
+	@Field("price")
+	@ValueConverter(PriceMinorConverter.class)
+	private long priceMinor = NO_PRICE;
 	
-	@DateTimeFormat(pattern = "yyyy-MM-dd")
-	private Date createAt;
+	private Instant createAt;
 	
 	@Valid
 	@NotNull
@@ -49,7 +93,7 @@ public class Product {
 	 */
 	public Product(String name, Double price) {
 		this.name = name;
-		this.price = price;
+		setPrice(price);
 	}
 	
 	public Product(String name, Double price, Category cat) {
@@ -81,22 +125,59 @@ public class Product {
 		this.name = name;
 	}
 
+	/**
+	 * @return the price in minor units, or {@link #NO_PRICE}
+	 */
+	@JsonIgnore
+	public long getPriceMinor() {
+		return priceMinor;
+	}
+
+	@JsonIgnore
+	public void setPriceMinor(long priceMinor) {
+		this.priceMinor = priceMinor;
+	}
+
+	@JsonIgnore
+	public boolean hasPrice() {
+		return priceMinor != NO_PRICE;
+	}
+
+	/**
+	 * @return the price in major units, or null without price
+	 */
+	@NotNull
 	public Double getPrice() {
-		return price;
+		return priceMinor == NO_PRICE ? null : toMajor(priceMinor);
 	}
 
+	/**
+	 * @param price the price in major units, rounded half up to the minor unit;
+	 *              null for no price
+	 */
 	public void setPrice(Double price) {
-		this.price = price;
+		this.priceMinor = price == null ? NO_PRICE : toMinor(BigDecimal.valueOf(price), RoundingMode.HALF_UP);
 	}
 
-	public Date getCreateAt() {
+	@JsonSerialize(converter = InstantToDate.class)
+	public Instant getCreateAt() {
 		return createAt;
 	}
 
-	public void setCreateAt(Date createAt) {
+	@JsonDeserialize(converter = DateToInstant.class)
+	public void setCreateAt(Instant createAt) {
 		this.createAt = createAt;
 	}
 
+	/**
+	 * @return the creation time in epoch millis, or {@link Long#MIN_VALUE} if
+	 *         unknown
+	 */
+	@JsonIgnore
+	public long getCreateAtMillis() {
+		return createAt == null ? Long.MIN_VALUE : createAt.toEpochMilli();
+	}
+
 	public String getPicture() {
 		return picture;
 	}
@@ -104,6 +185,61 @@ public class Product {
 	public void setPicture(String picture) {
 		this.picture = picture;
 	}
-	
-	
+
+	/**
+	 * Copies this product with another category, e.g. after the category was
+	 * renamed, leaving this instance untouched for its concurrent readers.
+	 *
+	 * @param category the category to embed
+	 * @return the copy
+	 */
+	public Product copyWithCategory(Category category) {
+		Product copy = new Product();
+		copy.id = id;
+		copy.name = name;
+		copy.priceMinor = priceMinor;
+		copy.createAt = createAt;
+		copy.category = category;
+		copy.picture = picture;
+		return copy;
+	}
+
+	/**
+	 * Converts a price to minor units.
+	 *
+	 * @param price    the price in major units
+	 * @param rounding how to round digits beyond {@link #PRICE_SCALE}
+	 * @return the price in minor units
+	 * @throws ArithmeticException if the price does not fit in a long
+	 */
+	public static long toMinor(BigDecimal price, RoundingMode rounding) {
+		return price.setScale(PRICE_SCALE, rounding).unscaledValue().longValueExact();
+	}
+
+	/**
+	 * @param priceMinor a price in minor units
+	 * @return the nearest double in major units
+	 */
+	public static double toMajor(long priceMinor) {
+		return priceMinor / MINOR_PER_UNIT;
+	}
+
+	/** Writes {@code createAt} in JSON exactly as the former {@link Date} field. */
+	public static class InstantToDate extends StdConverter<Instant, Date> {
+
+		@Override
+		public Date convert(Instant value) {
+			return Date.from(value);
+		}
+	}
+
+	/** Reads {@code createAt} from JSON with the (lenient) {@link Date} rules. */
+	public static class DateToInstant extends StdConverter<Date, Instant> {
+
+		@Override
+		public Instant convert(Date value) {
+			return value.toInstant();
+		}
+	}
+
 }
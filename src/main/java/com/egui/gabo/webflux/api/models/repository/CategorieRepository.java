@@ -15,7 +15,7 @@ import reactor.core.publisher.Mono;
  * 
  * @author Gabriel Eguiguren P.
  */
-public interface CategorieRepository extends ReactiveMongoRepository<Category, String> {
+public interface CategorieRepository extends ReactiveMongoRepository<Category, String>, CategorieRepositoryCustom {
 	
 	Mono<Category> findByName(String name);
 
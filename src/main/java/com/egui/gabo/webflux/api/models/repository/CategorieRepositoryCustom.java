@@ -0,0 +1,29 @@
+package com.egui.gabo.webflux.api.models.repository;
+
+import com.egui.gabo.webflux.api.models.document.Category;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Custom repository fragment for Category queries bounded by the request
+ * deadline.
+ * <p>
+ * When the subscriber context carries a
+ * {@link com.egui.gabo.webflux.api.resilience.Deadline}, the remaining time is
+ * sent to Mongo as {@code maxTimeMS}, so the server stops working on queries
+ * whose client is gone. Without a deadline they behave like the derived
+ * methods.
+ * </p>
+ * 
+ * @author Gabriel Eguiguren P.
+ */
+public interface CategorieRepositoryCustom {
+
+	Flux<Category> findAllWithinDeadline();
+
+	Mono<Category> findByIdWithinDeadline(String id);
+
+	Mono<Category> findByNameWithinDeadline(String name);
+
+}
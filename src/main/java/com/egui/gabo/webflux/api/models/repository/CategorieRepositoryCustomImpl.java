@@ -0,0 +1,43 @@
+package com.egui.gabo.webflux.api.models.repository;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.egui.gabo.webflux.api.models.document.Category;
+import com.egui.gabo.webflux.api.resilience.Deadline;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Implementation of {@link CategorieRepositoryCustom}, picked up by Spring Data
+ * through the {@code Impl} suffix.
+ * 
+ * @author Gabriel Eguiguren P.
+ */
+class CategorieRepositoryCustomImpl implements CategorieRepositoryCustom {
+
+	@Autowired
+	private ReactiveMongoTemplate mongoTemplate;
+
+	@Override
+	public Flux<Category> findAllWithinDeadline() {
+		return Flux.deferContextual(ctx -> mongoTemplate.find(Deadline.applyTo(new Query(), ctx), Category.class));
+	}
+
+	@Override
+	public Mono<Category> findByIdWithinDeadline(String id) {
+		return Mono.deferContextual(ctx -> mongoTemplate
+				.findOne(Deadline.applyTo(Query.query(where("id").is(id)), ctx), Category.class));
+	}
+
+	@Override
+	public Mono<Category> findByNameWithinDeadline(String name) {
+		return Mono.deferContextual(ctx -> mongoTemplate
+				.findOne(Deadline.applyTo(Query.query(where("name").is(name)), ctx), Category.class));
+	}
+
+}
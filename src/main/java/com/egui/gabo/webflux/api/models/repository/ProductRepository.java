@@ -5,6 +5,7 @@ import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 
 import com.egui.gabo.webflux.api.models.document.Product;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 /**
@@ -29,9 +30,11 @@ import reactor.core.publisher.Mono;
  * 
  * @author Gabriel Eguiguren P.
  */
-public interface ProductRepository extends ReactiveMongoRepository<Product, String> {
+public interface ProductRepository extends ReactiveMongoRepository<Product, String>, ProductRepositoryCustom {
 
 	Mono<Product> findByName(String name);
+
+	Flux<Product> findByCategoryId(String categoryId);
 	
 	// alternative using native mongo query
 	@Query("{'name':?0}") 		
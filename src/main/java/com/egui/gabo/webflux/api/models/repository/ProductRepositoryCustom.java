@@ -0,0 +1,80 @@
+package com.egui.gabo.webflux.api.models.repository;
+
+import java.util.Collection;
+
+import com.egui.gabo.webflux.api.models.document.Product;
+import com.egui.gabo.webflux.api.service.ProductFilter;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Custom repository fragment for Product queries bounded by the request
+ * deadline.
+ * <p>
+ * When the subscriber context carries a
+ * {@link com.egui.gabo.webflux.api.resilience.Deadline}, the remaining time is
+ * sent to Mongo as {@code maxTimeMS}, so the server stops working on queries
+ * whose client is gone. Without a deadline they behave like the derived
+ * methods.
+ * </p>
+ * 
+ * @author Gabriel Eguiguren P.
+ */
+public interface ProductRepositoryCustom {
+
+	Flux<Product> findAllWithinDeadline();
+
+	/**
+	 * Streams the whole collection for the in-memory views, read as
+	 * {@link com.egui.gabo.webflux.api.routing.ReadOperation#EXPORT}. Not
+	 * bounded by a request deadline.
+	 * 
+	 * @return every product
+	 */
+	Flux<Product> exportAll();
+
+	Mono<Product> findByIdWithinDeadline(String id);
+
+	Mono<Product> findByNameWithinDeadline(String name);
+
+	/**
+	 * Multi-get read as a
+	 * {@link com.egui.gabo.webflux.api.routing.ReadOperation#DETAIL}, bounded by
+	 * the request deadline.
+	 * 
+	 * @param ids the product ids
+	 * @return the products found, in no particular order
+	 */
+	Flux<Product> findAllByIdWithinDeadline(Collection<String> ids);
+
+	/**
+	 * Returns one keyset page of the products matching the filter, in the
+	 * requested sort order (ties broken by id).
+	 * 
+	 * @param filter filters, sort, cursor and page size
+	 * @return at most {@code filter.getSize()} products
+	 */
+	Flux<Product> findByFilter(ProductFilter filter);
+
+	/**
+	 * Replaces a stored product, or inserts it under its id, with a single
+	 * {@code findAndReplace} that returns the document it replaced.
+	 * 
+	 * @param product the product, with its id
+	 * @return the previous version, or empty if there was none
+	 */
+	Mono<Product> replaceReturningPrevious(Product product);
+
+	/**
+	 * Renames the category embedded in every product of that category, with a
+	 * single {@code updateMany}. Products already carrying the name are left
+	 * untouched.
+	 * 
+	 * @param categoryId the category id
+	 * @param name       the new category name
+	 * @return the number of products changed
+	 */
+	Mono<Long> renameCategory(String categoryId, String name);
+
+}
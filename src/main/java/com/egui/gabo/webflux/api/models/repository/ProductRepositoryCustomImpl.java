@@ -0,0 +1,121 @@
+package com.egui.gabo.webflux.api.models.repository;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+import java.util.Collection;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.egui.gabo.webflux.api.models.document.Product;
+import com.egui.gabo.webflux.api.resilience.Deadline;
+import com.egui.gabo.webflux.api.routing.ReadOperation;
+import com.egui.gabo.webflux.api.routing.ReadRouting;
+import com.egui.gabo.webflux.api.service.ProductFilter;
+import com.egui.gabo.webflux.api.service.ProductFilter.SortKey;
+import com.mongodb.client.result.UpdateResult;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Implementation of {@link ProductRepositoryCustom}, picked up by Spring Data
+ * through the {@code Impl} suffix.
+ * <p>
+ * Reads are sent through {@link ReadRouting}, which picks the replica set
+ * member per kind of read.
+ * </p>
+ * 
+ * @author Gabriel Eguiguren P.
+ */
+class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+
+	@Autowired
+	private ReactiveMongoTemplate mongoTemplate;
+
+	@Autowired
+	private ReadRouting routing;
+
+	@Override
+	public Flux<Product> findAllWithinDeadline() {
+		return Flux.deferContextual(
+				ctx -> routing.find(ReadOperation.LIST, Deadline.applyTo(new Query(), ctx), Product.class));
+	}
+
+	@Override
+	public Flux<Product> exportAll() {
+		return routing.find(ReadOperation.EXPORT, new Query(), Product.class);
+	}
+
+	@Override
+	public Mono<Product> findByIdWithinDeadline(String id) {
+		return Mono.deferContextual(ctx -> routing.findOne(ReadOperation.DETAIL,
+				Deadline.applyTo(Query.query(where("id").is(id)), ctx), Product.class));
+	}
+
+	@Override
+	public Mono<Product> findByNameWithinDeadline(String name) {
+		return Mono.deferContextual(ctx -> routing.findOne(ReadOperation.DETAIL,
+				Deadline.applyTo(Query.query(where("name").is(name)), ctx), Product.class));
+	}
+
+	@Override
+	public Flux<Product> findAllByIdWithinDeadline(Collection<String> ids) {
+		return Flux.deferContextual(ctx -> routing.find(ReadOperation.DETAIL,
+				Deadline.applyTo(Query.query(where("id").in(ids)), ctx), Product.class));
+	}
+
+	@Override
+	public Flux<Product> findByFilter(ProductFilter filter) {
+		String property = filter.getSort().getProperty();
+		Sort.Direction direction = filter.getDirection();
+
+		Query query = new Query(filter.toCriteria());
+		Object[] cursor = filter.decodeCursor();
+		if (cursor != null) {
+			query.addCriteria(keyset(filter.getSort(), direction, cursor[0], (String) cursor[1]));
+		}
+		Sort sort = filter.getSort() == SortKey.ID ? Sort.by(direction, "id")
+				: Sort.by(direction, property).and(Sort.by(direction, "id"));
+		query.with(sort).limit(filter.getSize());
+
+		return Flux.deferContextual(
+				ctx -> routing.find(ReadOperation.LIST, Deadline.applyTo(query, ctx), Product.class));
+	}
+
+	@Override
+	public Mono<Product> replaceReturningPrevious(Product product) {
+		// returnNew stays false: the answer is the replaced version
+		return mongoTemplate.findAndReplace(Query.query(where("id").is(product.getId())), product,
+				FindAndReplaceOptions.options().upsert());
+	}
+
+	@Override
+	public Mono<Long> renameCategory(String categoryId, String name) {
+		Query query = Query.query(where("category.id").is(categoryId).and("category.name").ne(name));
+		return mongoTemplate.updateMulti(query, Update.update("category.name", name), Product.class)
+				.map(UpdateResult::getModifiedCount);
+	}
+
+	/**
+	 * Seeks past the last product of the previous page: a greater (or, in
+	 * descending order, lower) sort value, or the same value and a greater id.
+	 */
+	private static Criteria keyset(SortKey key, Sort.Direction direction, Object value, String id) {
+		boolean asc = direction.isAscending();
+		Criteria afterId = asc ? where("id").gt(id) : where("id").lt(id);
+		if (key == SortKey.ID) {
+			return afterId;
+		}
+		String property = key.getProperty();
+		Criteria afterValue = asc ? where(property).gt(value) : where(property).lt(value);
+		Criteria sameValue = new Criteria().andOperator(where(property).is(value), afterId);
+		return new Criteria().orOperator(afterValue, sameValue);
+	}
+
+}
@@ -0,0 +1,63 @@
+package com.egui.gabo.webflux.api.picture;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.stereotype.Component;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * {@link PictureStore} writing each picture to its own file under
+ * {@code config.upload.path}.
+ * <p>
+ * Always available: {@link PackedPictureStore} keeps pictures too large for
+ * its segments here.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+@Component
+public class FilePictureStore implements PictureStore {
+
+	private static final int READ_BUFFER_SIZE = 16 * 1024;
+
+	@Value("${config.upload.path}")
+	private String uploadDirectory;
+
+	@Override
+	public Mono<Void> write(String name, Flux<DataBuffer> content) {
+		Path target = path(name);
+		// the partial file is removed when the request deadline cancels the transfer
+		return DataBufferUtils.write(content, target)
+				.doOnCancel(() -> delete(name).subscribe())
+				.onErrorResume(e -> delete(name).then(Mono.error(e)));
+	}
+
+	@Override
+	public Flux<DataBuffer> read(String name) {
+		Path source = path(name);
+		return Mono.fromCallable(() -> Files.isRegularFile(source)).subscribeOn(Schedulers.boundedElastic())
+				.filter(exists -> exists)
+				.flatMapMany(exists -> DataBufferUtils.read(source, DefaultDataBufferFactory.sharedInstance,
+						READ_BUFFER_SIZE));
+	}
+
+	@Override
+	public Mono<Void> delete(String name) {
+		Path target = path(name);
+		return Mono.fromCallable(() -> Files.deleteIfExists(target)).subscribeOn(Schedulers.boundedElastic()).then();
+	}
+
+	private Path path(String name) {
+		return Paths.get(uploadDirectory + name);
+	}
+
+}
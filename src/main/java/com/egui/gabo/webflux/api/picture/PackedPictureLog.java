@@ -0,0 +1,508 @@
+package com.egui.gabo.webflux.api.picture;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Append-only log of small pictures in memory-mapped segment files, with an
+ * in-memory offset index.
+ * <p>
+ * Each segment ({@code segment-000001.dat}) is mapped once at its full size
+ * and holds records {@code [magic][type][name length][value length][name][value]}.
+ * A put appends the picture, a delete appends a tombstone naming the segment
+ * and offset of the record it deletes, so the index can always be rebuilt by
+ * replaying the segments in order. The magic is written last: a record torn
+ * by a crash reads as the end of the segment. Only one segment, the newest,
+ * takes appends.
+ * </p>
+ * <p>
+ * Reads return read-only slices of the mapping, without copying or system
+ * calls. The index is persisted to {@code index.dat} by {@link #flushIndex()}
+ * together with the end of each segment; on {@link #open} it is loaded and
+ * only the records appended after it are replayed (all of them when there is
+ * no usable index file).
+ * </p>
+ * <p>
+ * {@link #compact()} copies the live records of segments whose dead share
+ * reached the threshold to the newest segment and removes them. Slices handed
+ * out before stay readable: the mapping outlives the deleted file.
+ * </p>
+ * <p>
+ * Writes are serialized; reads run concurrently with them.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+public class PackedPictureLog implements Closeable {
+
+	private static final int MAGIC = 0x50494331; // "PIC1"
+	private static final int INDEX_MAGIC = 0x50494958; // "PIIX"
+
+	private static final byte PUT = 1;
+	private static final byte DELETE = 2;
+
+	/** magic, type, name length, value length */
+	static final int HEADER_SIZE = 4 + 1 + 2 + 4;
+
+	private static final int TOMBSTONE_SIZE = 8;
+
+	private static final String INDEX_FILE = "index.dat";
+	private static final Pattern SEGMENT_FILE = Pattern.compile("segment-(\\d{6})\\.dat");
+
+	/**
+	 * A mapped segment file; {@code end} and {@code liveBytes} change under the
+	 * write lock only.
+	 */
+	private static final class Segment {
+
+		private final int id;
+		private final Path path;
+		private final MappedByteBuffer buffer;
+		private int end;
+		private long liveBytes;
+		private boolean dirty;
+
+		private Segment(int id, Path path, MappedByteBuffer buffer) {
+			this.id = id;
+			this.path = path;
+			this.buffer = buffer;
+		}
+
+		private double deadShare() {
+			return end == 0 ? 0 : 1 - (double) liveBytes / end;
+		}
+	}
+
+	/**
+	 * Where the latest version of a picture is.
+	 */
+	private static final class Location {
+
+		private final Segment segment;
+		private final int offset;
+		private final int valueOffset;
+		private final int length;
+
+		private Location(Segment segment, int offset, int valueOffset, int length) {
+			this.segment = segment;
+			this.offset = offset;
+			this.valueOffset = valueOffset;
+			this.length = length;
+		}
+
+		private int recordSize() {
+			return valueOffset + length - offset;
+		}
+	}
+
+	/**
+	 * A record read back from a segment.
+	 */
+	private static final class Record {
+
+		private final byte type;
+		private final String name;
+		private final int valueOffset;
+		private final int length;
+		private final int next;
+
+		private Record(byte type, String name, int valueOffset, int length, int next) {
+			this.type = type;
+			this.name = name;
+			this.valueOffset = valueOffset;
+			this.length = length;
+			this.next = next;
+		}
+	}
+
+	private final Path directory;
+	private final int segmentSize;
+	private final double compactionThreshold;
+
+	private final Map<String, Location> index = new ConcurrentHashMap<>();
+	private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+	private Segment active;
+	private boolean indexDirty;
+
+	private PackedPictureLog(Path directory, int segmentSize, double compactionThreshold) {
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		this.compactionThreshold = compactionThreshold;
+	}
+
+	/**
+	 * Opens (or creates) the log in a directory and rebuilds its index.
+	 *
+	 * @param directory           the directory of the segment files
+	 * @param segmentSize         size of new segments, at most 2 GB
+	 * @param compactionThreshold share of dead bytes making a segment eligible
+	 *                            for compaction
+	 * @return the opened log
+	 * @throws IOException if the segments cannot be mapped
+	 */
+	public static PackedPictureLog open(Path directory, int segmentSize, double compactionThreshold)
+			throws IOException {
+		Files.createDirectories(directory);
+		PackedPictureLog log = new PackedPictureLog(directory, segmentSize, compactionThreshold);
+		log.load();
+		return log;
+	}
+
+	/**
+	 * @param name the picture name
+	 * @return a read-only view of the picture bytes, or null if there is no
+	 *         such picture
+	 */
+	public ByteBuffer get(String name) {
+		Location location = index.get(name);
+		if (location == null) {
+			return null;
+		}
+		return location.segment.buffer.slice(location.valueOffset, location.length).asReadOnlyBuffer();
+	}
+
+	/**
+	 * @param name the picture name
+	 * @return whether the log holds the picture
+	 */
+	public boolean contains(String name) {
+		return index.containsKey(name);
+	}
+
+	/**
+	 * Appends a picture, replacing a previous one with the same name.
+	 *
+	 * @param name the picture name
+	 * @param data the picture bytes
+	 * @throws IOException if a new segment cannot be created
+	 */
+	public synchronized void put(String name, byte[] data) throws IOException {
+		Location previous = index.get(name);
+		index.put(name, append(PUT, name, data));
+		if (previous != null) {
+			previous.segment.liveBytes -= previous.recordSize();
+		}
+		indexDirty = true;
+	}
+
+	/**
+	 * Deletes a picture.
+	 *
+	 * @param name the picture name
+	 * @return whether the log held the picture
+	 * @throws IOException if a new segment cannot be created
+	 */
+	public synchronized boolean delete(String name) throws IOException {
+		Location location = index.get(name);
+		if (location == null) {
+			return false;
+		}
+		append(DELETE, name, tombstone(location.segment.id, location.offset));
+		index.remove(name);
+		location.segment.liveBytes -= location.recordSize();
+		indexDirty = true;
+		return true;
+	}
+
+	/**
+	 * Rewrites the segments whose dead share reached the threshold.
+	 *
+	 * @return the number of segments removed
+	 * @throws IOException if records cannot be copied or the index written
+	 */
+	public synchronized int compact() throws IOException {
+		List<Segment> candidates = new ArrayList<>();
+		for (Segment segment : segments.values()) {
+			if (segment != active && segment.deadShare() >= compactionThreshold) {
+				candidates.add(segment);
+			}
+		}
+		for (Segment segment : candidates) {
+			Record record;
+			for (int position = 0; position < segment.end && (record = read(segment, position)) != null;) {
+				if (record.type == PUT) {
+					Location location = index.get(record.name);
+					if (location != null && location.segment == segment && location.offset == position) {
+						byte[] data = new byte[record.length];
+						segment.buffer.get(record.valueOffset, data);
+						index.put(record.name, append(PUT, record.name, data));
+					}
+				} else {
+					// a tombstone is needed while the record it deletes can be replayed
+					int deletedSegment = segment.buffer.getInt(record.valueOffset);
+					if (deletedSegment != segment.id && segments.containsKey(deletedSegment)) {
+						append(DELETE, record.name,
+								tombstone(deletedSegment, segment.buffer.getInt(record.valueOffset + 4)));
+					}
+				}
+				position = record.next;
+			}
+			segments.remove(segment.id);
+		}
+		if (!candidates.isEmpty()) {
+			indexDirty = true;
+			// the index must no longer point into a segment before it is deleted
+			flushIndex();
+			for (Segment segment : candidates) {
+				try {
+					Files.deleteIfExists(segment.path);
+				} catch (IOException e) {
+					// still mapped on Windows: removed by the next open
+				}
+			}
+		}
+		return candidates.size();
+	}
+
+	/**
+	 * Forces the segments to disk and persists the index.
+	 *
+	 * @throws IOException if the index cannot be written
+	 */
+	public synchronized void flushIndex() throws IOException {
+		if (!indexDirty) {
+			return;
+		}
+		for (Segment segment : segments.values()) {
+			if (segment.dirty) {
+				segment.buffer.force();
+				segment.dirty = false;
+			}
+		}
+		Path temp = directory.resolve(INDEX_FILE + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+			out.writeInt(INDEX_MAGIC);
+			out.writeInt(segments.size());
+			for (Segment segment : segments.values()) {
+				out.writeInt(segment.id);
+				out.writeInt(segment.end);
+			}
+			out.writeInt(index.size());
+			for (Map.Entry<String, Location> entry : index.entrySet()) {
+				out.writeUTF(entry.getKey());
+				out.writeInt(entry.getValue().segment.id);
+				out.writeInt(entry.getValue().offset);
+			}
+		}
+		Files.move(temp, directory.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+		indexDirty = false;
+	}
+
+	/**
+	 * @return the number of pictures held
+	 */
+	public int size() {
+		return index.size();
+	}
+
+	/**
+	 * @return the number of segment files
+	 */
+	public synchronized int segmentCount() {
+		return segments.size();
+	}
+
+	/**
+	 * @return the bytes appended to all segments, live or dead
+	 */
+	public synchronized long usedBytes() {
+		return segments.values().stream().mapToLong(segment -> segment.end).sum();
+	}
+
+	/**
+	 * @return the bytes of the records still referenced by the index
+	 */
+	public synchronized long liveBytes() {
+		return segments.values().stream().mapToLong(segment -> segment.liveBytes).sum();
+	}
+
+	/**
+	 * Persists the index; the mappings are released by the garbage collector.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		flushIndex();
+	}
+
+	private Location append(byte type, String name, byte[] value) throws IOException {
+		byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+		if (nameBytes.length > Short.MAX_VALUE) {
+			throw new IllegalArgumentException("Picture name too long: " + name);
+		}
+		int size = HEADER_SIZE + nameBytes.length + value.length;
+		if (size > segmentSize) {
+			throw new IllegalArgumentException(
+					"Picture " + name + " of " + value.length + " bytes does not fit in a segment");
+		}
+		if (active == null || active.end + size > active.buffer.capacity()) {
+			active = createSegment(segments.isEmpty() ? 1 : segments.lastKey() + 1);
+		}
+		MappedByteBuffer buffer = active.buffer;
+		int offset = active.end;
+		buffer.put(offset + 4, type);
+		buffer.putShort(offset + 5, (short) nameBytes.length);
+		buffer.putInt(offset + 7, value.length);
+		buffer.put(offset + HEADER_SIZE, nameBytes);
+		buffer.put(offset + HEADER_SIZE + nameBytes.length, value);
+		buffer.putInt(offset, MAGIC);
+		active.end += size;
+		active.dirty = true;
+		if (type == PUT) {
+			active.liveBytes += size;
+		}
+		return new Location(active, offset, offset + HEADER_SIZE + nameBytes.length, value.length);
+	}
+
+	private static byte[] tombstone(int segment, int offset) {
+		return ByteBuffer.allocate(TOMBSTONE_SIZE).putInt(segment).putInt(offset).array();
+	}
+
+	/**
+	 * @return the record at the position, or null at the end of the segment
+	 */
+	private static Record read(Segment segment, int position) {
+		MappedByteBuffer buffer = segment.buffer;
+		if (position + HEADER_SIZE > buffer.capacity() || buffer.getInt(position) != MAGIC) {
+			return null;
+		}
+		byte type = buffer.get(position + 4);
+		int nameLength = buffer.getShort(position + 5);
+		int length = buffer.getInt(position + 7);
+		int valueOffset = position + HEADER_SIZE + nameLength;
+		if ((type != PUT && type != DELETE) || nameLength < 0 || length < 0
+				|| (long) valueOffset + length > buffer.capacity()) {
+			return null;
+		}
+		byte[] name = new byte[nameLength];
+		buffer.get(position + HEADER_SIZE, name);
+		return new Record(type, new String(name, StandardCharsets.UTF_8), valueOffset, length,
+				valueOffset + length);
+	}
+
+	private void load() throws IOException {
+		PersistedIndex persisted = readIndex();
+		int lastIndexed = persisted.ends.keySet().stream().mapToInt(Integer::intValue).max().orElse(0);
+		try (Stream<Path> files = Files.list(directory)) {
+			for (Path file : (Iterable<Path>) files::iterator) {
+				Matcher matcher = SEGMENT_FILE.matcher(file.getFileName().toString());
+				if (!matcher.matches()) {
+					continue;
+				}
+				int id = Integer.parseInt(matcher.group(1));
+				if (id <= lastIndexed && !persisted.ends.containsKey(id)) {
+					// compacted, but could not be deleted then: its records were copied
+					Files.deleteIfExists(file);
+				} else {
+					segments.put(id, new Segment(id, file, map(file, Files.size(file))));
+				}
+			}
+		}
+		for (Map.Entry<String, long[]> entry : persisted.entries.entrySet()) {
+			Segment segment = segments.get((int) entry.getValue()[0]);
+			int offset = (int) entry.getValue()[1];
+			Record record = segment == null ? null : read(segment, offset);
+			if (record != null && record.type == PUT && record.name.equals(entry.getKey())) {
+				index.put(entry.getKey(), new Location(segment, offset, record.valueOffset, record.length));
+			}
+		}
+		// only records appended after the index was written are replayed, in order
+		for (Segment segment : segments.values()) {
+			replay(segment, persisted.ends.getOrDefault(segment.id, 0));
+		}
+		// live bytes follow from the final index, whichever way it was built
+		for (Location location : index.values()) {
+			location.segment.liveBytes += location.recordSize();
+		}
+		active = segments.isEmpty() ? null : segments.lastEntry().getValue();
+		indexDirty = true;
+	}
+
+	/**
+	 * The content of {@code index.dat}: segment ends and
+	 * {@code name -> [segment, offset]}.
+	 */
+	private static final class PersistedIndex {
+
+		private final Map<Integer, Integer> ends = new HashMap<>();
+		private final Map<String, long[]> entries = new HashMap<>();
+	}
+
+	/**
+	 * @return the persisted index, empty when there is no usable one
+	 */
+	private PersistedIndex readIndex() {
+		PersistedIndex persisted = new PersistedIndex();
+		Path file = directory.resolve(INDEX_FILE);
+		if (!Files.exists(file)) {
+			return persisted;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (in.readInt() != INDEX_MAGIC) {
+				return new PersistedIndex();
+			}
+			for (int i = in.readInt(); i > 0; i--) {
+				persisted.ends.put(in.readInt(), in.readInt());
+			}
+			for (int i = in.readInt(); i > 0; i--) {
+				persisted.entries.put(in.readUTF(), new long[] { in.readInt(), in.readInt() });
+			}
+			return persisted;
+		} catch (IOException e) {
+			// truncated or corrupt: every segment is replayed
+			return new PersistedIndex();
+		}
+	}
+
+	private void replay(Segment segment, int from) {
+		int position = from;
+		for (Record record; (record = read(segment, position)) != null; position = record.next) {
+			if (record.type == PUT) {
+				index.put(record.name, new Location(segment, position, record.valueOffset, record.length));
+			} else {
+				Location location = index.get(record.name);
+				if (location != null && location.segment.id == segment.buffer.getInt(record.valueOffset)
+						&& location.offset == segment.buffer.getInt(record.valueOffset + 4)) {
+					index.remove(record.name);
+				}
+			}
+		}
+		segment.end = position;
+	}
+
+	private Segment createSegment(int id) throws IOException {
+		Path file = directory.resolve(String.format("segment-%06d.dat", id));
+		Segment segment = new Segment(id, file, map(file, segmentSize));
+		segments.put(id, segment);
+		return segment;
+	}
+
+	private static MappedByteBuffer map(Path file, long size) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+			return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+		}
+	}
+
+}
@@ -0,0 +1,173 @@
+package com.egui.gabo.webflux.api.picture;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * {@link PictureStore} packing pictures of at most
+ * {@code config.picture-store.packed.max-picture-size} into a
+ * {@link PackedPictureLog}, which saves an inode and a file open per picture
+ * and serves reads from the page cache.
+ * <p>
+ * Larger pictures, and pictures written before the store was switched to
+ * {@code packed}, stay in {@link FilePictureStore}. Appends, compaction and
+ * index writes run off the event loop; the index is persisted every
+ * {@code index-flush-interval} and on shutdown, segments are compacted every
+ * {@code compaction-interval}. Sizes are exposed as the
+ * {@code pictures.packed.*} gauges.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+@Primary
+@Component
+@ConditionalOnProperty(name = "config.picture-store.type", havingValue = "packed")
+public class PackedPictureStore implements PictureStore {
+
+	private static final Logger log = LoggerFactory.getLogger(PackedPictureStore.class);
+
+	@Value("${config.picture-store.packed.path}")
+	private String path;
+
+	@Value("${config.picture-store.packed.segment-size:64MB}")
+	private DataSize segmentSize;
+
+	@Value("${config.picture-store.packed.max-picture-size:256KB}")
+	private DataSize maxPictureSize;
+
+	@Value("${config.picture-store.packed.compaction-threshold:0.5}")
+	private double compactionThreshold;
+
+	@Autowired
+	private FilePictureStore files;
+
+	@Autowired
+	private MeterRegistry registry;
+
+	private PackedPictureLog pictures;
+
+	@PostConstruct
+	void open() throws IOException {
+		if (segmentSize.toBytes() > Integer.MAX_VALUE
+				|| maxPictureSize.toBytes() + PackedPictureLog.HEADER_SIZE + Short.MAX_VALUE > segmentSize.toBytes()) {
+			throw new IllegalStateException("config.picture-store.packed.segment-size must be at most 2GB and hold "
+					+ "a picture of config.picture-store.packed.max-picture-size");
+		}
+		long start = System.nanoTime();
+		pictures = PackedPictureLog.open(Paths.get(path), (int) segmentSize.toBytes(), compactionThreshold);
+		log.info("Opened {} packed pictures in {} segments ({} of {} bytes live) in {} ms", pictures.size(),
+				pictures.segmentCount(), pictures.liveBytes(), pictures.usedBytes(),
+				(System.nanoTime() - start) / 1_000_000);
+
+		Gauge.builder("pictures.packed.count", pictures, PackedPictureLog::size)
+				.description("Pictures held in packed segments").register(registry);
+		Gauge.builder("pictures.packed.segments", pictures, PackedPictureLog::segmentCount)
+				.description("Packed segment files").register(registry);
+		Gauge.builder("pictures.packed.bytes", pictures, PackedPictureLog::liveBytes).tag("state", "live")
+				.baseUnit("bytes").description("Bytes of packed pictures").register(registry);
+		Gauge.builder("pictures.packed.bytes", pictures, PackedPictureLog::usedBytes).tag("state", "used")
+				.baseUnit("bytes").description("Bytes of packed pictures").register(registry);
+	}
+
+	@PreDestroy
+	void close() throws IOException {
+		pictures.close();
+	}
+
+	@Override
+	public Mono<Void> write(String name, Flux<DataBuffer> content) {
+		long max = maxPictureSize.toBytes();
+		// buffered until the picture turns out too large, which streams the rest to a file
+		Flux<List<DataBuffer>> chunks = Flux.defer(() -> {
+			long[] size = { 0 };
+			return content.bufferUntil(buffer -> (size[0] += buffer.readableByteCount()) > max);
+		});
+		return chunks.switchOnFirst((first, all) -> {
+			if (first.hasValue() && size(first.get()) > max) {
+				return files.write(name, all.concatMapIterable(buffers -> buffers));
+			}
+			return all.next().defaultIfEmpty(List.of())
+					.map(PackedPictureStore::join)
+					.publishOn(Schedulers.boundedElastic())
+					.doOnNext(bytes -> {
+						try {
+							pictures.put(name, bytes);
+						} catch (IOException e) {
+							throw new UncheckedIOException(e);
+						}
+					});
+		}).doOnDiscard(DataBuffer.class, DataBufferUtils::release).then();
+	}
+
+	@Override
+	public Flux<DataBuffer> read(String name) {
+		return Mono.fromSupplier(() -> pictures.get(name))
+				.map(DefaultDataBufferFactory.sharedInstance::wrap)
+				.cast(DataBuffer.class)
+				.flux()
+				.switchIfEmpty(files.read(name));
+	}
+
+	@Override
+	public Mono<Void> delete(String name) {
+		return Mono.fromCallable(() -> pictures.delete(name)).subscribeOn(Schedulers.boundedElastic())
+				.filter(deleted -> !deleted)
+				.flatMap(notPacked -> files.delete(name));
+	}
+
+	@Scheduled(fixedDelayString = "${config.picture-store.packed.compaction-interval:PT1M}")
+	void compact() throws IOException {
+		long start = System.nanoTime();
+		long before = pictures.usedBytes();
+		int removed = pictures.compact();
+		if (removed > 0) {
+			log.info("Compacted {} picture segments, {} bytes reclaimed in {} ms", removed,
+					before - pictures.usedBytes(), (System.nanoTime() - start) / 1_000_000);
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${config.picture-store.packed.index-flush-interval:PT30S}")
+	void flushIndex() throws IOException {
+		pictures.flushIndex();
+	}
+
+	private static long size(List<DataBuffer> buffers) {
+		return buffers.stream().mapToLong(DataBuffer::readableByteCount).sum();
+	}
+
+	private static byte[] join(List<DataBuffer> buffers) {
+		byte[] bytes = new byte[(int) size(buffers)];
+		int position = 0;
+		for (DataBuffer buffer : buffers) {
+			int length = buffer.readableByteCount();
+			buffer.read(bytes, position, length);
+			position += length;
+			DataBufferUtils.release(buffer);
+		}
+		return bytes;
+	}
+
+}
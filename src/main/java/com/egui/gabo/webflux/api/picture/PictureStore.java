@@ -0,0 +1,42 @@
+package com.egui.gabo.webflux.api.picture;
+
+import org.springframework.core.io.buffer.DataBuffer;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Stores the product pictures under the names kept in
+ * {@code Product.picture}.
+ * <p>
+ * Selected with {@code config.picture-store.type}: {@code file} writes each
+ * picture to its own file under {@code config.upload.path}, {@code packed}
+ * appends small pictures to memory-mapped segment files (see
+ * {@link PackedPictureStore}).
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+public interface PictureStore {
+
+	/**
+	 * @param name    the picture name
+	 * @param content the picture bytes, released by the store
+	 * @return a Mono that completes when the picture is stored; nothing is kept
+	 *         when the write fails or is cancelled
+	 */
+	Mono<Void> write(String name, Flux<DataBuffer> content);
+
+	/**
+	 * @param name the picture name
+	 * @return the picture bytes, or empty if there is no such picture
+	 */
+	Flux<DataBuffer> read(String name);
+
+	/**
+	 * @param name the picture name
+	 * @return a Mono that completes when the picture is gone
+	 */
+	Mono<Void> delete(String name);
+
+}
@@ -0,0 +1,59 @@
+package com.egui.gabo.webflux.api.picture;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.stereotype.Component;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Stores uploaded product pictures in the {@link PictureStore} for the
+ * annotated and the functional endpoints, so that an upload whose product
+ * write fails or is cancelled leaves no file behind.
+ *
+ * @author Gabriel Eguiguren P.
+ */
+@Component
+public class PictureUploads {
+
+	@Autowired
+	private PictureStore pictures;
+
+	/**
+	 * Stores a picture, then runs the write referencing it. If the write fails or
+	 * the request is cancelled before it completes, the picture is deleted again
+	 * so an abandoned upload leaves no file behind.
+	 *
+	 * @param file    the uploaded file
+	 * @param picture the picture name
+	 * @param write   the save of the product referencing the picture
+	 * @return the result of the write
+	 */
+	public <T> Mono<T> transferThen(FilePart file, String picture, Mono<T> write) {
+		return Mono.usingWhen(Mono.just(picture), stored -> transfer(file, stored).then(write),
+				stored -> Mono.empty(), (stored, e) -> discard(stored), stored -> discard(stored));
+	}
+
+	/**
+	 * Removes the picture a product no longer references; a failure leaves an
+	 * orphan behind but does not fail the request.
+	 *
+	 * @param picture the picture name, may be null
+	 * @return a Mono that completes when the picture is gone
+	 */
+	public Mono<Void> discard(String picture) {
+		if (picture == null || picture.isEmpty()) {
+			return Mono.empty();
+		}
+		return pictures.delete(picture).onErrorResume(e -> Mono.empty());
+	}
+
+	/**
+	 * Stores an uploaded picture; nothing is kept when the request deadline
+	 * cancels the transfer.
+	 */
+	private Mono<Void> transfer(FilePart file, String picture) {
+		return pictures.write(picture, file.content());
+	}
+
+}
@@ -0,0 +1,115 @@
+package com.egui.gabo.webflux.api.resilience;
+
+/**
+ * AIMD (additive increase, multiplicative decrease) concurrency limiter.
+ * <p>
+ * The limit grows by {@code 1/limit} per healthy completion while the
+ * in-flight count is close to the limit, i.e. by about one per round trip of
+ * the whole limit rather than one per request, and shrinks by {@code backoffRatio} whenever a
+ * congestion signal (event-loop lag, Mongo pool wait) is observed. Each
+ * {@link Priority} may only use a share of the current limit, so bulk work is
+ * shed first and single product reads last.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+	/** Request classes, ordered from most to least important. */
+	public enum Priority {
+		/** Single product reads, e.g. {@code GET /api/v2/products/{id}}. */
+		CRITICAL(1.0),
+		/** Listings, searches, facets, batch reads and single product writes. */
+		NORMAL(0.8),
+		/** Uploads, multipart creation and imports. */
+		BULK(0.5);
+
+		private final double share;
+
+		Priority(double share) {
+			this.share = share;
+		}
+
+		public double getShare() {
+			return share;
+		}
+	}
+
+	// at most one multiplicative decrease per window, otherwise a burst of
+	// completions observed during the same congestion collapses the limit
+	private static final long DECREASE_WINDOW_NANOS = 100_000_000L;
+
+	private final int minLimit;
+	private final int maxLimit;
+	private final double backoffRatio;
+
+	private double limit;
+	private int inFlight;
+	private long lastDecreaseNanos;
+
+	/**
+	 * Creates a limiter.
+	 *
+	 * @param initialLimit starting concurrency limit
+	 * @param minLimit     lower bound the limit never drops below
+	 * @param maxLimit     upper bound the limit never grows above
+	 * @param backoffRatio multiplicative factor (0..1) applied on congestion
+	 */
+	public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio) {
+		if (minLimit < 1 || maxLimit < minLimit || backoffRatio <= 0 || backoffRatio >= 1) {
+			throw new IllegalArgumentException("Invalid limiter configuration");
+		}
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.backoffRatio = backoffRatio;
+		this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+		this.lastDecreaseNanos = System.nanoTime() - DECREASE_WINDOW_NANOS;
+	}
+
+	/**
+	 * Tries to admit a request of the given priority.
+	 *
+	 * @param priority the request class
+	 * @return true if the request was admitted and {@link #release} must be
+	 *         called once it completes
+	 */
+	public synchronized boolean tryAcquire(Priority priority) {
+		if (inFlight >= Math.max(1, (int) (limit * priority.getShare()))) {
+			return false;
+		}
+		inFlight++;
+		return true;
+	}
+
+	/**
+	 * Releases a previously admitted request and feeds the congestion signal
+	 * observed at completion time back into the limit.
+	 *
+	 * @param congested true if the system was congested when the request finished
+	 */
+	public synchronized void release(boolean congested) {
+		int wasInFlight = inFlight;
+		inFlight = Math.max(0, inFlight - 1);
+
+		long now = System.nanoTime();
+		if (congested) {
+			if (now - lastDecreaseNanos >= DECREASE_WINDOW_NANOS) {
+				limit = Math.max(minLimit, limit * backoffRatio);
+				lastDecreaseNanos = now;
+			}
+		} else if (wasInFlight * 2 >= limit) {
+			// only probe upwards when the current limit is actually being used; one
+			// more slot once a whole limit of requests completed without congestion
+			limit = Math.min(maxLimit, limit + 1 / limit);
+		}
+	}
+
+	public synchronized int getLimit() {
+		return (int) limit;
+	}
+
+	public synchronized int getInFlight() {
+		return inFlight;
+	}
+
+}
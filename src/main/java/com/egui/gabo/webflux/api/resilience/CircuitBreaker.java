@@ -0,0 +1,74 @@
+package com.egui.gabo.webflux.api.resilience;
+
+/**
+ * Minimal consecutive-failure circuit breaker.
+ * <p>
+ * After {@code failureThreshold} consecutive failures the breaker opens and
+ * rejects calls for {@code openMillis}. It then lets a single probe through
+ * (half-open): a success closes it again, a failure re-opens it.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+public class CircuitBreaker {
+
+	/** Breaker states. */
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	private final int failureThreshold;
+	private final long openNanos;
+
+	private State state = State.CLOSED;
+	private int failures;
+	private long openedAt;
+	private boolean probing;
+
+	/**
+	 * @param failureThreshold consecutive failures that open the breaker
+	 * @param openMillis       time the breaker stays open before probing
+	 */
+	public CircuitBreaker(int failureThreshold, long openMillis) {
+		this.failureThreshold = failureThreshold;
+		this.openNanos = openMillis * 1_000_000L;
+	}
+
+	/**
+	 * @return true if the protected call may be attempted
+	 */
+	public synchronized boolean allowRequest() {
+		if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+			state = State.HALF_OPEN;
+			probing = false;
+		}
+		if (state == State.HALF_OPEN) {
+			if (probing) {
+				return false;
+			}
+			probing = true;
+			return true;
+		}
+		return state == State.CLOSED;
+	}
+
+	public synchronized void onSuccess() {
+		state = State.CLOSED;
+		failures = 0;
+		probing = false;
+	}
+
+	public synchronized void onFailure() {
+		failures++;
+		if (state == State.HALF_OPEN || failures >= failureThreshold) {
+			state = State.OPEN;
+			openedAt = System.nanoTime();
+			probing = false;
+		}
+	}
+
+	public synchronized State getState() {
+		return state;
+	}
+
+}
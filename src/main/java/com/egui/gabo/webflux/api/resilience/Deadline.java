@@ -0,0 +1,65 @@
+package com.egui.gabo.webflux.api.resilience;
+
+import java.time.Duration;
+
+import org.springframework.data.mongodb.core.query.Query;
+
+import reactor.util.context.ContextView;
+
+/**
+ * Point in time after which the client is no longer waiting for a response.
+ * <p>
+ * Set by {@link com.egui.gabo.webflux.api.filter.DeadlineFilter} in the Reactor
+ * {@code Context} of each request, and read by the repositories to bound
+ * Mongo queries with {@code maxTimeMS}.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+public final class Deadline {
+
+	/** Reactor Context key holding the request deadline. */
+	public static final String CONTEXT_KEY = Deadline.class.getName();
+
+	private final long expiresAtNanos;
+
+	private Deadline(long expiresAtNanos) {
+		this.expiresAtNanos = expiresAtNanos;
+	}
+
+	/**
+	 * @param timeout time left from now
+	 * @return a deadline expiring after the given timeout
+	 */
+	public static Deadline after(Duration timeout) {
+		return new Deadline(System.nanoTime() + timeout.toNanos());
+	}
+
+	/**
+	 * @return the time left, never negative
+	 */
+	public Duration remaining() {
+		return Duration.ofNanos(Math.max(0, expiresAtNanos - System.nanoTime()));
+	}
+
+	public boolean isExpired() {
+		return expiresAtNanos - System.nanoTime() <= 0;
+	}
+
+	/**
+	 * Bounds the server-side execution time of a query by the deadline found in
+	 * the given context, if any.
+	 *
+	 * @param query   the query to bound
+	 * @param context the subscriber context
+	 * @return the same query
+	 */
+	public static Query applyTo(Query query, ContextView context) {
+		context.<Deadline>getOrEmpty(CONTEXT_KEY).ifPresent(deadline -> {
+			// maxTimeMS of 0 means "no limit" for Mongo, so always keep at least 1 ms
+			query.maxTime(Duration.ofMillis(Math.max(1, deadline.remaining().toMillis())));
+		});
+		return query;
+	}
+
+}
@@ -0,0 +1,76 @@
+package com.egui.gabo.webflux.api.resilience;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.client.ReactorResourceFactory;
+import org.springframework.stereotype.Component;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+import jakarta.annotation.PreDestroy;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+/**
+ * Measures the scheduling lag of the Netty server event loops.
+ * <p>
+ * Every probe interval a no-op task is submitted to each event loop and the
+ * time until it actually runs is recorded. A loop that is busy with blocking or
+ * CPU heavy work shows up as a growing lag long before requests time out.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+@Component
+public class EventLoopLagMonitor {
+
+	private static final Duration PROBE_INTERVAL = Duration.ofMillis(100);
+
+	// absent when no embedded server is started (e.g. MOCK web environment tests)
+	@Autowired
+	private ObjectProvider<ReactorResourceFactory> resourceFactory;
+
+	private volatile long lagNanos;
+
+	private Disposable probe;
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() {
+		ReactorResourceFactory resources = resourceFactory.getIfAvailable();
+		if (resources == null) {
+			return;
+		}
+		EventLoopGroup group = resources.getLoopResources().onServer(true);
+		probe = Flux.interval(PROBE_INTERVAL).subscribe(tick -> {
+			for (EventExecutor loop : group) {
+				long submitted = System.nanoTime();
+				loop.execute(() -> record(System.nanoTime() - submitted));
+			}
+		});
+	}
+
+	private void record(long sample) {
+		// exponentially weighted, but jump straight up on a spike
+		long current = lagNanos;
+		lagNanos = sample > current ? sample : (current * 7 + sample) / 8;
+	}
+
+	/**
+	 * @return the smoothed worst event-loop lag in milliseconds
+	 */
+	public long getLagMillis() {
+		return lagNanos / 1_000_000L;
+	}
+
+	@PreDestroy
+	public void stop() {
+		if (probe != null) {
+			probe.dispose();
+		}
+	}
+
+}
@@ -0,0 +1,65 @@
+package com.egui.gabo.webflux.api.resilience;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.stereotype.Component;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionPoolListener;
+
+/**
+ * Tracks how long operations wait to check out a connection from the Mongo
+ * driver pool.
+ * <p>
+ * Registered on the auto-configured {@code MongoClient} as a
+ * {@link MongoClientSettingsBuilderCustomizer}. A saturated pool is the first
+ * sign that the database can not keep up with the admitted concurrency.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+@Component
+public class MongoPoolMonitor implements ConnectionPoolListener, MongoClientSettingsBuilderCustomizer {
+
+	// a sample older than this no longer describes the pool
+	private static final long STALE_AFTER_NANOS = 1_000_000_000L;
+
+	private volatile long waitMicros;
+
+	private volatile long lastSampleNanos;
+
+	@Override
+	public void customize(MongoClientSettings.Builder builder) {
+		builder.applyToConnectionPoolSettings(pool -> pool.addConnectionPoolListener(this));
+	}
+
+	@Override
+	public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+		record(event.getElapsedTime(TimeUnit.MICROSECONDS));
+	}
+
+	@Override
+	public void connectionCheckOutFailed(ConnectionCheckOutFailedEvent event) {
+		record(event.getElapsedTime(TimeUnit.MICROSECONDS));
+	}
+
+	private void record(long sample) {
+		long current = waitMicros;
+		waitMicros = sample > current ? sample : (current * 7 + sample) / 8;
+		lastSampleNanos = System.nanoTime();
+	}
+
+	/**
+	 * @return the smoothed connection checkout wait in milliseconds
+	 */
+	public long getWaitMillis() {
+		if (System.nanoTime() - lastSampleNanos > STALE_AFTER_NANOS) {
+			return 0;
+		}
+		return waitMicros / 1_000L;
+	}
+
+}
@@ -0,0 +1,226 @@
+package com.egui.gabo.webflux.api.resilience;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Last-known-value cache that answers within a latency budget.
+ * <p>
+ * Every read runs the backing query. If it answers within the budget the fresh
+ * value is returned and remembered. If it is slower, fails, or the
+ * {@link CircuitBreaker} is open, the last known value is returned marked as
+ * stale, while a slow query keeps running in the background and refreshes the
+ * cache when it completes. Concurrent reads of the same key share one query.
+ * </p>
+ * <p>
+ * The budget only applies when a stale value can be served: on a miss the read
+ * waits for the query, up to the request deadline. The query runs with the
+ * Reactor {@code Context} of the read that started it, so the deadline also
+ * bounds it in Mongo (see {@link Deadline}).
+ * </p>
+ * <p>
+ * A query only stores its answer if the key was not written ({@link #put},
+ * {@link #evict}, {@link #clear}) since it started, so a slow query never
+ * overwrites a fresher value stored by a write.
+ * </p>
+ *
+ * @param <K> key type
+ * @param <V> value type
+ * @author Gabriel Eguiguren P.
+ */
+public class StaleWhileRevalidate<K, V> {
+
+	/**
+	 * A value and whether it came from the cache instead of the backing query.
+	 *
+	 * @param <V> value type
+	 */
+	public static final class Result<V> {
+
+		private final V value;
+		private final boolean stale;
+		private final boolean revalidationFailed;
+		private final long ageSeconds;
+
+		Result(V value, boolean stale, boolean revalidationFailed, long ageSeconds) {
+			this.value = value;
+			this.stale = stale;
+			this.revalidationFailed = revalidationFailed;
+			this.ageSeconds = ageSeconds;
+		}
+
+		public V getValue() {
+			return value;
+		}
+
+		public boolean isStale() {
+			return stale;
+		}
+
+		/**
+		 * @return true if the backing query failed (rather than being slow)
+		 */
+		public boolean isRevalidationFailed() {
+			return revalidationFailed;
+		}
+
+		public long getAgeSeconds() {
+			return ageSeconds;
+		}
+	}
+
+	private static final class Entry<V> {
+		final V value;
+		final long storedAt = System.currentTimeMillis();
+
+		Entry(V value) {
+			this.value = value;
+		}
+	}
+
+	private final Duration latencyBudget;
+	private final CircuitBreaker breaker;
+	private final int maxEntries;
+
+	private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+	private final Map<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+
+	// bumped by every write, so queries can tell whether the cache changed since they started
+	private final AtomicLong writes = new AtomicLong();
+
+	public StaleWhileRevalidate(Duration latencyBudget, CircuitBreaker breaker, int maxEntries) {
+		this.latencyBudget = latencyBudget;
+		this.breaker = breaker;
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * Reads a value, falling back to the last known one when the source is slow,
+	 * failing, or the breaker is open. Without a last known value, waits for the
+	 * source however slow.
+	 *
+	 * @param key    cache key
+	 * @param source the backing query, subscribed at most once per key at a time
+	 * @return the fresh or stale result; empty if the source is empty; an error if
+	 *         the source failed and nothing is cached
+	 */
+	public Mono<Result<V>> get(K key, Mono<V> source) {
+		return Mono.deferContextual(ctx -> {
+			if (!breaker.allowRequest()) {
+				return fallback(key, new CircuitOpenException(), false);
+			}
+
+			Mono<V> created = revalidate(key, source);
+			Mono<V> query = inFlight.putIfAbsent(key, created);
+			if (query == null) {
+				query = created;
+				// keep the query running after the caller stopped waiting for it, with the
+				// caller's context so the request deadline still bounds it in Mongo
+				query.contextWrite(ctx).doFinally(signal -> inFlight.remove(key, created)).subscribe(value -> {
+				}, error -> {
+				});
+			}
+			// with nothing to fall back to, a slow answer still beats an error: wait for
+			// it, bounded by the request deadline rather than by the budget
+			Mono<V> answer = entries.containsKey(key) ? query.timeout(latencyBudget) : query;
+			return answer.map(value -> new Result<>(value, false, false, 0))
+					.onErrorResume(e -> fallback(key, e, !(e instanceof TimeoutException)));
+		});
+	}
+
+	private Mono<V> revalidate(K key, Mono<V> source) {
+		return Mono.defer(() -> {
+			long start = System.nanoTime();
+			long writesAtStart = writes.get();
+			Entry<V> seen = entries.get(key);
+			return source
+					.doOnSuccess(value -> {
+						store(key, value, writesAtStart, seen);
+						// a slow answer is still a sign of an unhealthy database
+						if (System.nanoTime() - start > latencyBudget.toNanos()) {
+							breaker.onFailure();
+						} else {
+							breaker.onSuccess();
+						}
+					})
+					.doOnError(e -> breaker.onFailure());
+		}).cache();
+	}
+
+	/**
+	 * Stores the answer of a query unless a write changed the key since the
+	 * query started: without any write it is stored; otherwise only over the
+	 * entry the query started from, still in place.
+	 */
+	private void store(K key, V value, long writesAtStart, Entry<V> seen) {
+		if (writes.get() == writesAtStart) {
+			if (value != null) {
+				putEntry(key, new Entry<>(value));
+			} else {
+				entries.remove(key);
+			}
+		} else if (seen != null) {
+			if (value != null) {
+				entries.replace(key, seen, new Entry<>(value));
+			} else {
+				entries.remove(key, seen);
+			}
+		}
+	}
+
+	private Mono<Result<V>> fallback(K key, Throwable cause, boolean failed) {
+		Entry<V> entry = entries.get(key);
+		if (entry == null) {
+			return Mono.error(cause);
+		}
+		long age = (System.currentTimeMillis() - entry.storedAt) / 1000;
+		return Mono.just(new Result<>(entry.value, true, failed, age));
+	}
+
+	/**
+	 * Stores a known-fresh value, e.g. right after a write.
+	 */
+	public void put(K key, V value) {
+		writes.incrementAndGet();
+		putEntry(key, new Entry<>(value));
+	}
+
+	public void evict(K key) {
+		writes.incrementAndGet();
+		entries.remove(key);
+	}
+
+	public void clear() {
+		writes.incrementAndGet();
+		entries.clear();
+	}
+
+	private void putEntry(K key, Entry<V> entry) {
+		if (entries.size() >= maxEntries && !entries.containsKey(key)) {
+			Iterator<K> victims = entries.keySet().iterator();
+			if (victims.hasNext()) {
+				entries.remove(victims.next());
+			}
+		}
+		entries.put(key, entry);
+	}
+
+	/**
+	 * Raised when the breaker is open and no stale value is available.
+	 */
+	public static class CircuitOpenException extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		public CircuitOpenException() {
+			super("Circuit breaker is open");
+		}
+	}
+
+}
@@ -0,0 +1,23 @@
+package com.egui.gabo.webflux.api.routing;
+
+/**
+ * Kinds of product reads, each routed with its own read preference (see
+ * {@link ReadRouting}).
+ *
+ * @author Gabriel Eguiguren P.
+ */
+public enum ReadOperation {
+
+	/** Filtered and unfiltered product list pages. */
+	LIST,
+
+	/** Single product lookups by id or name. */
+	DETAIL,
+
+	/**
+	 * Full collection scans feeding the in-memory views (list snapshot,
+	 * search and suggest indexes, facet bitmaps).
+	 */
+	EXPORT
+
+}
@@ -0,0 +1,218 @@
+package com.egui.gabo.webflux.api.routing;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import org.bson.BsonDocument;
+import org.bson.BsonTimestamp;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.ReadPreference;
+import com.mongodb.reactivestreams.client.MongoClient;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import jakarta.annotation.PostConstruct;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Runs product reads with a read preference chosen per {@link ReadOperation}.
+ * <p>
+ * By default lists go to secondaries no more than {@code max-staleness}
+ * behind the primary, which takes them off the primary, while the full scans
+ * building the in-memory views read the primary. Detail reads go to
+ * secondaries too. But within {@code causal-window} after a write
+ * of this instance, they run in a causally consistent session advanced to
+ * that write (see {@link WriteTimeTracker}), so a client reading back what it
+ * just wrote never sees an older version.
+ * </p>
+ * <p>
+ * Hedged operations send the same query to another member when the first
+ * attempt is slower than the configured latency percentile of that
+ * operation: to the primary when the first went to a secondary, and the
+ * other way round. The first answer wins and the other query is cancelled.
+ * Hedging starts once {@code min-samples} reads were timed and never waits
+ * less than {@code min-delay}. Latencies and hedge counts are exposed as
+ * {@code products.read} and {@code products.read.hedged}.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+@Component
+@EnableConfigurationProperties(ReadRoutingProperties.class)
+public class ReadRouting {
+
+	private static final long THRESHOLD_REFRESH_NANOS = 1_000_000_000L;
+
+	/**
+	 * Hedging delay of one operation, taken from its latency histogram at most
+	 * once per second.
+	 */
+	private static final class Threshold {
+
+		private volatile long delayNanos = -1;
+		private volatile long refreshedAt;
+	}
+
+	@Autowired
+	private ReadRoutingProperties properties;
+
+	@Autowired
+	private ReactiveMongoTemplate mongoTemplate;
+
+	@Autowired
+	private MongoClient mongoClient;
+
+	@Autowired
+	private WriteTimeTracker writes;
+
+	@Autowired
+	private MeterRegistry registry;
+
+	private final Map<ReadOperation, ReadPreference> preferences = new EnumMap<>(ReadOperation.class);
+	private final Map<ReadOperation, Timer> timers = new EnumMap<>(ReadOperation.class);
+	private final Map<ReadOperation, Counter> hedges = new EnumMap<>(ReadOperation.class);
+	private final Map<ReadOperation, Threshold> thresholds = new EnumMap<>(ReadOperation.class);
+
+	@PostConstruct
+	void init() {
+		for (ReadOperation operation : ReadOperation.values()) {
+			String tag = operation.name().toLowerCase();
+			preferences.put(operation, preference(properties.getOperations().getOrDefault(operation, "primary")));
+			timers.put(operation, Timer.builder("products.read").tag("operation", tag)
+					.publishPercentiles(properties.getHedge().getPercentile())
+					.description("Time to answer a product read (first attempt)").register(registry));
+			hedges.put(operation, Counter.builder("products.read.hedged").tag("operation", tag)
+					.description("Product reads duplicated to another member").register(registry));
+			thresholds.put(operation, new Threshold());
+		}
+	}
+
+	/**
+	 * @param operation the kind of read
+	 * @param query     the query, with the request deadline already applied
+	 * @param type      the document type
+	 * @return the matching documents
+	 */
+	public <T> Flux<T> find(ReadOperation operation, Query query, Class<T> type) {
+		return execute(operation, query, (operations, routed) -> operations.find(routed, type));
+	}
+
+	/**
+	 * @param operation the kind of read
+	 * @param query     the query, with the request deadline already applied
+	 * @param type      the document type
+	 * @return the first matching document, or empty
+	 */
+	public <T> Mono<T> findOne(ReadOperation operation, Query query, Class<T> type) {
+		return execute(operation, query, (operations, routed) -> operations.findOne(routed, type).flux()).next();
+	}
+
+	/**
+	 * @param operation the kind of read
+	 * @return the read preference the operation is sent with
+	 */
+	public ReadPreference preferenceFor(ReadOperation operation) {
+		return preferences.get(operation);
+	}
+
+	private <T> Flux<T> execute(ReadOperation operation, Query query,
+			BiFunction<ReactiveMongoOperations, Query, Flux<T>> read) {
+		if (!properties.isEnabled()) {
+			return read.apply(mongoTemplate, query);
+		}
+		ReadPreference preference = preferences.get(operation);
+		Flux<T> first = timed(operation, attempt(operation, query, preference, read));
+
+		Duration delay = hedgeDelay(operation);
+		if (delay == null) {
+			return first;
+		}
+		Flux<T> hedge = Mono.delay(delay).thenMany(Flux.defer(() -> {
+			hedges.get(operation).increment();
+			return attempt(operation, query, hedgePreference(preference), read);
+		}));
+		return Flux.firstWithSignal(first, hedge);
+	}
+
+	private <T> Flux<T> attempt(ReadOperation operation, Query query, ReadPreference preference,
+			BiFunction<ReactiveMongoOperations, Query, Flux<T>> read) {
+		Query routed = Query.of(query).withReadPreference(preference);
+		if (operation != ReadOperation.DETAIL || !writes.wroteWithin(properties.getCausalWindow().toNanos())) {
+			return read.apply(mongoTemplate, routed);
+		}
+		BsonTimestamp operationTime = writes.getOperationTime();
+		BsonDocument clusterTime = writes.getClusterTime();
+		return Flux.usingWhen(mongoClient.startSession(ClientSessionOptions.builder().causallyConsistent(true).build()),
+				session -> {
+					if (clusterTime != null) {
+						session.advanceClusterTime(clusterTime);
+					}
+					session.advanceOperationTime(operationTime);
+					return read.apply(mongoTemplate.withSession(session), routed);
+				}, session -> Mono.fromRunnable(session::close));
+	}
+
+	private <T> Flux<T> timed(ReadOperation operation, Flux<T> read) {
+		Timer timer = timers.get(operation);
+		// also recorded when cancelled by a faster hedge: the time spent is a lower bound
+		return Flux.defer(() -> {
+			long start = System.nanoTime();
+			return read.doFinally(signal -> timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+		});
+	}
+
+	/**
+	 * @return the delay after which a duplicate read is sent, or null when the
+	 *         operation is not hedged (yet)
+	 */
+	Duration hedgeDelay(ReadOperation operation) {
+		ReadRoutingProperties.Hedge hedge = properties.getHedge();
+		if (!hedge.isEnabled() || !hedge.getOperations().contains(operation)) {
+			return null;
+		}
+		Timer timer = timers.get(operation);
+		if (timer.count() < hedge.getMinSamples()) {
+			return null;
+		}
+		Threshold threshold = thresholds.get(operation);
+		long now = System.nanoTime();
+		if (threshold.delayNanos < 0 || now - threshold.refreshedAt > THRESHOLD_REFRESH_NANOS) {
+			threshold.refreshedAt = now;
+			for (ValueAtPercentile value : timer.takeSnapshot().percentileValues()) {
+				if (value.percentile() == hedge.getPercentile()) {
+					threshold.delayNanos = Math.max(hedge.getMinDelay().toNanos(),
+							(long) value.value(TimeUnit.NANOSECONDS));
+				}
+			}
+		}
+		return threshold.delayNanos < 0 ? null : Duration.ofNanos(threshold.delayNanos);
+	}
+
+	private ReadPreference preference(String name) {
+		if ("primary".equalsIgnoreCase(name)) {
+			return ReadPreference.primary(); // takes no staleness bound
+		}
+		return ReadPreference.valueOf(name, List.of(), properties.getMaxStaleness().toSeconds(), TimeUnit.SECONDS);
+	}
+
+	private ReadPreference hedgePreference(ReadPreference first) {
+		String name = first.getName();
+		return "primary".equals(name) || "primaryPreferred".equals(name) ? preference("secondaryPreferred")
+				: ReadPreference.primary();
+	}
+
+}
@@ -0,0 +1,137 @@
+package com.egui.gabo.webflux.api.routing;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Read routing settings ({@code config.read-routing.*}).
+ * <p>
+ * Read preferences are given by name ({@code primary},
+ * {@code primaryPreferred}, {@code secondary}, {@code secondaryPreferred},
+ * {@code nearest}) per {@link ReadOperation}, e.g.
+ * {@code config.read-routing.operations.list=secondaryPreferred}. Exports
+ * default to {@code primary}: the views they build replace the in-memory
+ * state and then follow change events, so a scan of a lagging secondary
+ * would drop writes the change events already delivered.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+@ConfigurationProperties(prefix = "config.read-routing")
+public class ReadRoutingProperties {
+
+	private boolean enabled = true;
+
+	/** Secondaries lagging more than this are not read from (at least 90 s). */
+	private Duration maxStaleness = Duration.ofSeconds(90);
+
+	/** Detail reads this long after a write of this instance use a causally consistent session. */
+	private Duration causalWindow = Duration.ofSeconds(90);
+
+	private Map<ReadOperation, String> operations = new EnumMap<>(Map.of(ReadOperation.LIST, "secondaryPreferred",
+			ReadOperation.DETAIL, "secondaryPreferred", ReadOperation.EXPORT, "primary"));
+
+	private final Hedge hedge = new Hedge();
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public Duration getMaxStaleness() {
+		return maxStaleness;
+	}
+
+	public void setMaxStaleness(Duration maxStaleness) {
+		this.maxStaleness = maxStaleness;
+	}
+
+	public Duration getCausalWindow() {
+		return causalWindow;
+	}
+
+	public void setCausalWindow(Duration causalWindow) {
+		this.causalWindow = causalWindow;
+	}
+
+	public Map<ReadOperation, String> getOperations() {
+		return operations;
+	}
+
+	public void setOperations(Map<ReadOperation, String> operations) {
+		this.operations = operations;
+	}
+
+	public Hedge getHedge() {
+		return hedge;
+	}
+
+	/**
+	 * Duplicate reads sent to another member when the first one is slow.
+	 */
+	public static class Hedge {
+
+		private boolean enabled = true;
+
+		private Set<ReadOperation> operations = EnumSet.of(ReadOperation.LIST, ReadOperation.DETAIL);
+
+		/** Latency percentile of the operation after which the duplicate is sent. */
+		private double percentile = 0.95;
+
+		/** Lower bound of the hedging delay, so a fast database is not hit twice. */
+		private Duration minDelay = Duration.ofMillis(5);
+
+		/** Reads observed before an operation is hedged. */
+		private long minSamples = 100;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public Set<ReadOperation> getOperations() {
+			return operations;
+		}
+
+		public void setOperations(Set<ReadOperation> operations) {
+			this.operations = operations;
+		}
+
+		public double getPercentile() {
+			return percentile;
+		}
+
+		public void setPercentile(double percentile) {
+			this.percentile = percentile;
+		}
+
+		public Duration getMinDelay() {
+			return minDelay;
+		}
+
+		public void setMinDelay(Duration minDelay) {
+			this.minDelay = minDelay;
+		}
+
+		public long getMinSamples() {
+			return minSamples;
+		}
+
+		public void setMinSamples(long minSamples) {
+			this.minSamples = minSamples;
+		}
+
+	}
+
+}
@@ -0,0 +1,93 @@
+package com.egui.gabo.webflux.api.routing;
+
+import java.util.Set;
+
+import org.bson.BsonDocument;
+import org.bson.BsonTimestamp;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.stereotype.Component;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandSucceededEvent;
+
+/**
+ * Remembers the operation and cluster time of the latest write acknowledged
+ * to this instance.
+ * <p>
+ * Registered on the auto-configured {@code MongoClient} as a
+ * {@link CommandListener}, so no write path has to run in a session: the
+ * times are read from the replies of {@code insert}, {@code update},
+ * {@code delete} and {@code findAndModify}. {@link ReadRouting} advances a
+ * causally consistent session to them, so a read sent to a secondary waits
+ * until that secondary has applied the write. Standalone servers report no
+ * operation time, and nothing is tracked.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+@Component
+public class WriteTimeTracker implements CommandListener, MongoClientSettingsBuilderCustomizer {
+
+	private static final Set<String> WRITE_COMMANDS = Set.of("insert", "update", "delete", "findAndModify");
+
+	private BsonTimestamp operationTime;
+
+	private BsonDocument clusterTime;
+
+	private volatile long lastWriteNanos;
+
+	@Override
+	public void customize(MongoClientSettings.Builder builder) {
+		builder.addCommandListener(this);
+	}
+
+	@Override
+	public void commandSucceeded(CommandSucceededEvent event) {
+		if (!WRITE_COMMANDS.contains(event.getCommandName())) {
+			return;
+		}
+		BsonDocument response = event.getResponse();
+		if (response == null || !response.isTimestamp("operationTime")) {
+			return;
+		}
+		BsonDocument cluster = response.isDocument("$clusterTime") ? response.getDocument("$clusterTime") : null;
+		record(response.getTimestamp("operationTime"), cluster);
+	}
+
+	synchronized void record(BsonTimestamp operation, BsonDocument cluster) {
+		if (operationTime == null || operation.compareTo(operationTime) > 0) {
+			operationTime = operation;
+		}
+		if (cluster != null && (clusterTime == null
+				|| cluster.getTimestamp("clusterTime").compareTo(clusterTime.getTimestamp("clusterTime")) > 0)) {
+			clusterTime = cluster;
+		}
+		lastWriteNanos = System.nanoTime();
+	}
+
+	/**
+	 * @return the operation time of the latest write, or null if none was seen
+	 */
+	public synchronized BsonTimestamp getOperationTime() {
+		return operationTime;
+	}
+
+	/**
+	 * @return the signed cluster time of the latest write, or null if none was
+	 *         seen
+	 */
+	public synchronized BsonDocument getClusterTime() {
+		return clusterTime;
+	}
+
+	/**
+	 * @param windowNanos the window length
+	 * @return whether a write was acknowledged within the window
+	 */
+	public boolean wroteWithin(long windowNanos) {
+		long last = lastWriteNanos;
+		return last != 0 && System.nanoTime() - last < windowNanos;
+	}
+
+}
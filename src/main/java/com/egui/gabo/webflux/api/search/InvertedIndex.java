@@ -0,0 +1,462 @@
+package com.egui.gabo.webflux.api.search;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.egui.gabo.webflux.api.models.document.Category;
+import com.egui.gabo.webflux.api.models.document.Product;
+
+/**
+ * In-process inverted index over product and category names, ranked by BM25.
+ * <p>
+ * Products get dense int document ids (freed ids are reused). Each term keeps
+ * a postings list of sorted primitive {@code int} doc ids with a parallel
+ * {@code byte} term frequency, and each category keeps a {@link BitSet} of its
+ * documents, so category filters are a single bit test per candidate.
+ * </p>
+ * <p>
+ * Queries are tokenized like {@link NameRadixTree#normalize(String)}. Each
+ * query token matches its exact term, terms within an edit distance of one
+ * (two for tokens of eight characters or more) with a reduced weight, and, for
+ * the last token, terms it is a prefix of, so partially typed words match.
+ * Name matches weigh twice as much as category name matches. Completions are
+ * read from a sorted vocabulary and typo candidates only among the terms of a
+ * close enough length, so a query never scans the whole vocabulary. Scores
+ * are summed in a reused primitive array and only the best {@code limit} hits
+ * are kept in a bounded heap and sorted.
+ * </p>
+ * <p>
+ * Searches share a read lock and run concurrently; writes take the write
+ * lock. All operations are in-memory and never block for long.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+public class InvertedIndex {
+
+	/**
+	 * A matching product and its BM25 score.
+	 */
+	public static final class Hit {
+
+		private final Product product;
+		private final double score;
+
+		Hit(Product product, double score) {
+			this.product = product;
+			this.score = score;
+		}
+
+		public Product getProduct() {
+			return product;
+		}
+
+		public double getScore() {
+			return score;
+		}
+	}
+
+	private static final double K1 = 1.2;
+	private static final double B = 0.75;
+	private static final int NAME_WEIGHT = 2;
+	private static final int CATEGORY_WEIGHT = 1;
+	private static final double FUZZY_WEIGHT = 0.5;
+	private static final double PREFIX_WEIGHT = 0.7;
+
+	// best score first, then by name (products without name last) and id
+	private static final Comparator<Hit> RANKING = Comparator.comparingDouble(Hit::getScore).reversed()
+			.thenComparing(hit -> hit.getProduct().getName(), Comparator.nullsLast(Comparator.naturalOrder()))
+			.thenComparing(hit -> hit.getProduct().getId());
+
+	/**
+	 * Per-thread score accumulator indexed by doc id, with the list of the docs
+	 * it touched, so a search allocates no boxed scores and resets only those.
+	 */
+	private static final class Scores {
+
+		double[] values = new double[16];
+		int[] touched = new int[16];
+		int size;
+
+		void ensureCapacity(int docs) {
+			if (values.length < docs) {
+				values = new double[Math.max(docs, values.length * 2)];
+			}
+		}
+
+		void add(int doc, double score) {
+			if (values[doc] == 0) {
+				if (size == touched.length) {
+					touched = Arrays.copyOf(touched, size * 2);
+				}
+				touched[size++] = doc;
+			}
+			values[doc] += score;
+		}
+
+		void reset() {
+			for (int i = 0; i < size; i++) {
+				values[touched[i]] = 0;
+			}
+			size = 0;
+		}
+	}
+
+	/** Sorted doc ids with their (weighted) term frequency. */
+	private static final class Postings {
+
+		int[] docs = new int[4];
+		byte[] tfs = new byte[4];
+		int size;
+
+		void add(int doc, int tf) {
+			int at = Arrays.binarySearch(docs, 0, size, doc);
+			if (at >= 0) {
+				tfs[at] = (byte) Math.min(127, tfs[at] + tf);
+				return;
+			}
+			at = -at - 1;
+			if (size == docs.length) {
+				docs = Arrays.copyOf(docs, size * 2);
+				tfs = Arrays.copyOf(tfs, size * 2);
+			}
+			System.arraycopy(docs, at, docs, at + 1, size - at);
+			System.arraycopy(tfs, at, tfs, at + 1, size - at);
+			docs[at] = doc;
+			tfs[at] = (byte) Math.min(127, tf);
+			size++;
+		}
+
+		void remove(int doc) {
+			int at = Arrays.binarySearch(docs, 0, size, doc);
+			if (at >= 0) {
+				System.arraycopy(docs, at + 1, docs, at, size - at - 1);
+				System.arraycopy(tfs, at + 1, tfs, at, size - at - 1);
+				size--;
+			}
+		}
+	}
+
+	private final Map<String, Integer> docIds = new HashMap<>();
+	private final List<Product> docs = new ArrayList<>();
+	// terms of each document, to remove it from its postings lists
+	private final List<String[]> docTerms = new ArrayList<>();
+	private int[] docLengths = new int[16];
+	private final Deque<Integer> freeIds = new ArrayDeque<>();
+	private long totalLength;
+
+	private final Map<String, Postings> postings = new HashMap<>();
+	private final Map<String, BitSet> categories = new HashMap<>();
+
+	// the terms of the postings, sorted for completions and by length for typos
+	private final NavigableSet<String> vocabulary = new TreeSet<>();
+	private final Map<Integer, Set<String>> termsByLength = new HashMap<>();
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private final ThreadLocal<Scores> scores = ThreadLocal.withInitial(Scores::new);
+
+	/**
+	 * Indexes (or re-indexes) a product.
+	 *
+	 * @param product the product, with id, name and category
+	 */
+	public void put(Product product) {
+		lock.writeLock().lock();
+		try {
+			index(product);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void index(Product product) {
+		unindex(product.getId());
+
+		int doc = freeIds.isEmpty() ? docs.size() : freeIds.pop();
+		if (doc == docs.size()) {
+			docs.add(null);
+			docTerms.add(null);
+			if (doc == docLengths.length) {
+				docLengths = Arrays.copyOf(docLengths, doc * 2);
+			}
+		}
+
+		Map<String, Integer> tfs = new LinkedHashMap<>();
+		int length = addTokens(tfs, product.getName(), NAME_WEIGHT);
+		String categoryId = null;
+		if (product.getCategory() != null) {
+			length += addTokens(tfs, product.getCategory().getName(), CATEGORY_WEIGHT);
+			categoryId = product.getCategory().getId();
+		}
+
+		tfs.forEach((term, tf) -> postings.computeIfAbsent(term, this::newTerm).add(doc, tf));
+		if (categoryId != null) {
+			categories.computeIfAbsent(categoryId, c -> new BitSet()).set(doc);
+		}
+
+		docs.set(doc, product);
+		docTerms.set(doc, tfs.keySet().toArray(new String[0]));
+		docLengths[doc] = length;
+		totalLength += length;
+		docIds.put(product.getId(), doc);
+	}
+
+	/**
+	 * Removes a product from the index.
+	 *
+	 * @param id the product id
+	 */
+	public void remove(String id) {
+		lock.writeLock().lock();
+		try {
+			unindex(id);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Re-indexes the products of a category under its new name.
+	 *
+	 * @param category the renamed category
+	 */
+	public void renameCategory(Category category) {
+		lock.writeLock().lock();
+		try {
+			BitSet members = categories.get(category.getId());
+			if (members == null) {
+				return;
+			}
+			List<Product> renamed = new ArrayList<>(members.cardinality());
+			for (int doc = members.nextSetBit(0); doc >= 0; doc = members.nextSetBit(doc + 1)) {
+				renamed.add(docs.get(doc).copyWithCategory(category));
+			}
+			renamed.forEach(this::index);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void unindex(String id) {
+		Integer doc = docIds.remove(id);
+		if (doc == null) {
+			return;
+		}
+		for (String term : docTerms.get(doc)) {
+			Postings list = postings.get(term);
+			if (list != null) {
+				list.remove(doc);
+				if (list.size == 0) {
+					postings.remove(term);
+					vocabulary.remove(term);
+					termsByLength.get(term.length()).remove(term);
+				}
+			}
+		}
+		for (BitSet members : categories.values()) {
+			members.clear(doc);
+		}
+		totalLength -= docLengths[doc];
+		docLengths[doc] = 0;
+		docs.set(doc, null);
+		docTerms.set(doc, null);
+		freeIds.push(doc);
+	}
+
+	private Postings newTerm(String term) {
+		vocabulary.add(term);
+		termsByLength.computeIfAbsent(term.length(), length -> new HashSet<>()).add(term);
+		return new Postings();
+	}
+
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return docIds.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Searches the index.
+	 *
+	 * @param query       free text typed by the user
+	 * @param categoryIds restrict results to these categories (empty for all)
+	 * @param limit       maximum number of hits
+	 * @return hits, best first
+	 */
+	public List<Hit> search(String query, Collection<String> categoryIds, int limit) {
+		String[] tokens = tokenize(query);
+		if (tokens.length == 0 || limit <= 0) {
+			return List.of();
+		}
+		lock.readLock().lock();
+		try {
+			return docIds.isEmpty() ? List.of() : search(tokens, categoryIds, limit);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private List<Hit> search(String[] tokens, Collection<String> categoryIds, int limit) {
+		BitSet allowed = null;
+		if (categoryIds != null && !categoryIds.isEmpty()) {
+			allowed = new BitSet();
+			for (String categoryId : categoryIds) {
+				BitSet members = categories.get(categoryId);
+				if (members != null) {
+					allowed.or(members);
+				}
+			}
+		}
+
+		int n = docIds.size();
+		double avgLength = Math.max(1.0, (double) totalLength / n);
+		Scores scores = this.scores.get();
+		scores.ensureCapacity(docs.size());
+
+		for (int i = 0; i < tokens.length; i++) {
+			boolean last = i == tokens.length - 1;
+			for (Map.Entry<String, Double> match : expand(tokens[i], last).entrySet()) {
+				Postings list = postings.get(match.getKey());
+				double idf = Math.log(1 + (n - list.size + 0.5) / (list.size + 0.5));
+				for (int p = 0; p < list.size; p++) {
+					int doc = list.docs[p];
+					if (allowed != null && !allowed.get(doc)) {
+						continue;
+					}
+					double tf = list.tfs[p];
+					double norm = tf + K1 * (1 - B + B * docLengths[doc] / avgLength);
+					double score = match.getValue() * idf * tf * (K1 + 1) / norm;
+					scores.add(doc, score);
+				}
+			}
+		}
+
+		try {
+			return top(scores, limit);
+		} finally {
+			scores.reset();
+		}
+	}
+
+	/**
+	 * Keeps the best {@code limit} hits in a bounded heap, worst on top, so only
+	 * those are built and sorted rather than every candidate.
+	 */
+	private List<Hit> top(Scores scores, int limit) {
+		PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1, RANKING.reversed());
+		for (int i = 0; i < scores.size; i++) {
+			int doc = scores.touched[i];
+			double score = scores.values[doc];
+			if (best.size() == limit && score < best.peek().getScore()) {
+				continue;
+			}
+			best.offer(new Hit(docs.get(doc), score));
+			if (best.size() > limit) {
+				best.poll();
+			}
+		}
+		List<Hit> hits = new ArrayList<>(best);
+		hits.sort(RANKING);
+		return hits;
+	}
+
+	/**
+	 * Maps a query token to the indexed terms it matches and their weight: the
+	 * exact term, close misspellings and, for the last token, completions.
+	 */
+	private Map<String, Double> expand(String token, boolean last) {
+		Map<String, Double> matches = new HashMap<>();
+		if (postings.containsKey(token)) {
+			matches.put(token, 1.0);
+		}
+		if (last) {
+			// the terms starting with the token sort right after it
+			for (String term : vocabulary.tailSet(token, false)) {
+				if (!term.startsWith(token)) {
+					break;
+				}
+				matches.put(term, PREFIX_WEIGHT);
+			}
+		}
+		int maxEdits = token.length() >= 8 ? 2 : token.length() >= 4 ? 1 : 0;
+		// an edit changes the length by one at most
+		for (int length = token.length() - maxEdits; maxEdits > 0 && length <= token.length() + maxEdits; length++) {
+			for (String term : termsByLength.getOrDefault(length, Set.of())) {
+				if (!matches.containsKey(term) && editDistance(token, term, maxEdits) <= maxEdits) {
+					matches.put(term, FUZZY_WEIGHT);
+				}
+			}
+		}
+		return matches;
+	}
+
+	private static int addTokens(Map<String, Integer> tfs, String text, int weight) {
+		String[] tokens = tokenize(text);
+		for (String token : tokens) {
+			tfs.merge(token, weight, Integer::sum);
+		}
+		return tokens.length;
+	}
+
+	static String[] tokenize(String text) {
+		if (text == null) {
+			return new String[0];
+		}
+		String normalized = NameRadixTree.normalize(text);
+		return normalized.isEmpty() ? new String[0] : normalized.split(" ");
+	}
+
+	/**
+	 * Damerau-Levenshtein (optimal string alignment) distance, abandoning early
+	 * once it exceeds {@code max}.
+	 */
+	static int editDistance(String a, String b, int max) {
+		int[] prev2 = new int[b.length() + 1];
+		int[] prev = new int[b.length() + 1];
+		int[] current = new int[b.length() + 1];
+		for (int j = 0; j <= b.length(); j++) {
+			prev[j] = j;
+		}
+		for (int i = 1; i <= a.length(); i++) {
+			current[0] = i;
+			int rowMin = current[0];
+			for (int j = 1; j <= b.length(); j++) {
+				int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+				current[j] = Math.min(Math.min(current[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+				if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+					current[j] = Math.min(current[j], prev2[j - 2] + 1);
+				}
+				rowMin = Math.min(rowMin, current[j]);
+			}
+			if (rowMin > max) {
+				return max + 1;
+			}
+			int[] recycled = prev2;
+			prev2 = prev;
+			prev = current;
+			current = recycled;
+		}
+		return prev[b.length()];
+	}
+
+}
@@ -0,0 +1,279 @@
+package com.egui.gabo.webflux.api.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Case-folded radix tree of product names for prefix suggestions.
+ * <p>
+ * Every name is indexed under its full form and under each word it contains,
+ * so "nik" suggests "Camara Nikon". Keys are lower-cased with diacritics
+ * removed. Each node caches the top-K entries of its subtree; a write only
+ * invalidates the caches on its own path, so a lookup costs a walk down the
+ * prefix plus, at most, rebuilding the caches that write touched.
+ * </p>
+ * <p>
+ * All operations are synchronized; they are short, in-memory and never block.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+public class NameRadixTree {
+
+	/**
+	 * A suggestion: a product id and name, ranked by score (higher first).
+	 */
+	public static final class Entry {
+
+		private final String id;
+		private final String name;
+		private final double score;
+
+		public Entry(String id, String name, double score) {
+			this.id = id;
+			this.name = name;
+			this.score = score;
+		}
+
+		public String getId() {
+			return id;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public double getScore() {
+			return score;
+		}
+	}
+
+	private static final Comparator<Entry> RANKING = Comparator.comparingDouble(Entry::getScore).reversed()
+			.thenComparing(Entry::getName).thenComparing(Entry::getId);
+
+	private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+	private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+	private static final class Node {
+
+		String label;
+		final Map<Character, Node> children = new HashMap<>(4);
+		final Map<String, Entry> values = new HashMap<>(2);
+		List<Entry> topK; // null when invalidated
+
+		Node(String label) {
+			this.label = label;
+		}
+	}
+
+	private final int k;
+
+	private final Node root = new Node("");
+
+	// keys each product was indexed under, to remove them on update/delete
+	private final Map<String, List<String>> keysById = new HashMap<>();
+
+	/**
+	 * @param k the number of top entries cached per node, i.e. the maximum number
+	 *          of suggestions a lookup can return
+	 */
+	public NameRadixTree(int k) {
+		this.k = k;
+	}
+
+	/**
+	 * Case-folds a name or query: lower case, no diacritics, single spaces.
+	 *
+	 * @param text the raw text
+	 * @return the normalized text
+	 */
+	public static String normalize(String text) {
+		String folded = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+		return SEPARATORS.matcher(folded.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+	}
+
+	/**
+	 * Indexes (or re-indexes) a product name.
+	 *
+	 * @param id    the product id
+	 * @param name  the product name
+	 * @param score ranking score, higher is suggested first
+	 */
+	public synchronized void put(String id, String name, double score) {
+		remove(id);
+		String normalized = normalize(name);
+		if (normalized.isEmpty()) {
+			return;
+		}
+		Entry entry = new Entry(id, name, score);
+		List<String> keys = keysOf(normalized);
+		for (String key : keys) {
+			insert(key, entry);
+		}
+		keysById.put(id, keys);
+	}
+
+	/**
+	 * Removes a product from the tree.
+	 *
+	 * @param id the product id
+	 */
+	public synchronized void remove(String id) {
+		List<String> keys = keysById.remove(id);
+		if (keys != null) {
+			for (String key : keys) {
+				delete(root, key, id);
+			}
+		}
+	}
+
+	public synchronized void clear() {
+		root.children.clear();
+		root.values.clear();
+		root.topK = null;
+		keysById.clear();
+	}
+
+	public synchronized int size() {
+		return keysById.size();
+	}
+
+	/**
+	 * Returns the best ranked names starting with the given prefix (or having a
+	 * word starting with it).
+	 *
+	 * @param prefix the raw prefix typed by the user
+	 * @param limit  maximum number of suggestions, capped at K
+	 * @return suggestions, best first
+	 */
+	public synchronized List<Entry> suggest(String prefix, int limit) {
+		String remaining = normalize(prefix);
+		if (remaining.isEmpty() || limit <= 0) {
+			return Collections.emptyList();
+		}
+		Node node = root;
+		while (!remaining.isEmpty()) {
+			Node child = node.children.get(remaining.charAt(0));
+			if (child == null) {
+				return Collections.emptyList();
+			}
+			if (remaining.startsWith(child.label)) {
+				remaining = remaining.substring(child.label.length());
+				node = child;
+			} else if (child.label.startsWith(remaining)) {
+				node = child;
+				break;
+			} else {
+				return Collections.emptyList();
+			}
+		}
+		List<Entry> top = topK(node);
+		return top.size() <= limit ? top : top.subList(0, limit);
+	}
+
+	private static List<String> keysOf(String normalized) {
+		List<String> keys = new ArrayList<>();
+		keys.add(normalized);
+		for (int i = normalized.indexOf(' '); i >= 0; i = normalized.indexOf(' ', i + 1)) {
+			keys.add(normalized.substring(i + 1));
+		}
+		return keys;
+	}
+
+	private void insert(String key, Entry entry) {
+		Node node = root;
+		String remaining = key;
+		while (true) {
+			node.topK = null;
+			if (remaining.isEmpty()) {
+				node.values.put(entry.getId(), entry);
+				return;
+			}
+			Node child = node.children.get(remaining.charAt(0));
+			if (child == null) {
+				Node leaf = new Node(remaining);
+				leaf.values.put(entry.getId(), entry);
+				node.children.put(remaining.charAt(0), leaf);
+				return;
+			}
+			int common = commonPrefix(child.label, remaining);
+			if (common < child.label.length()) {
+				// split the edge: node -> middle -> child
+				Node middle = new Node(child.label.substring(0, common));
+				child.label = child.label.substring(common);
+				middle.children.put(child.label.charAt(0), child);
+				node.children.put(middle.label.charAt(0), middle);
+				child = middle;
+			}
+			remaining = remaining.substring(common);
+			node = child;
+		}
+	}
+
+	private boolean delete(Node node, String remaining, String id) {
+		node.topK = null;
+		if (remaining.isEmpty()) {
+			node.values.remove(id);
+		} else {
+			Node child = node.children.get(remaining.charAt(0));
+			if (child == null || !remaining.startsWith(child.label)) {
+				return false;
+			}
+			if (delete(child, remaining.substring(child.label.length()), id)) {
+				node.children.remove(child.label.charAt(0));
+			}
+		}
+		if (node == root) {
+			return false;
+		}
+		if (node.values.isEmpty() && node.children.isEmpty()) {
+			return true; // prune
+		}
+		if (node.values.isEmpty() && node.children.size() == 1) {
+			// merge a pass-through node with its only child
+			Node only = node.children.values().iterator().next();
+			node.label = node.label + only.label;
+			node.children.clear();
+			node.children.putAll(only.children);
+			node.values.putAll(only.values);
+		}
+		return false;
+	}
+
+	private List<Entry> topK(Node node) {
+		if (node.topK == null) {
+			Map<String, Entry> best = new LinkedHashMap<>();
+			for (Entry entry : node.values.values()) {
+				best.put(entry.getId(), entry);
+			}
+			for (Node child : node.children.values()) {
+				for (Entry entry : topK(child)) {
+					best.putIfAbsent(entry.getId(), entry);
+				}
+			}
+			List<Entry> ranked = new ArrayList<>(best.values());
+			ranked.sort(RANKING);
+			node.topK = ranked.size() > k ? List.copyOf(ranked.subList(0, k)) : List.copyOf(ranked);
+		}
+		return node.topK;
+	}
+
+	private static int commonPrefix(String a, String b) {
+		int max = Math.min(a.length(), b.length());
+		int i = 0;
+		while (i < max && a.charAt(i) == b.charAt(i)) {
+			i++;
+		}
+		return i;
+	}
+
+}
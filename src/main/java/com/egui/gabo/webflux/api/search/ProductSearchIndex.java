@@ -0,0 +1,138 @@
+package com.egui.gabo.webflux.api.search;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.egui.gabo.webflux.api.events.CatalogChangeListener;
+import com.egui.gabo.webflux.api.models.document.Category;
+import com.egui.gabo.webflux.api.models.document.Product;
+import com.egui.gabo.webflux.api.models.repository.ProductRepository;
+import com.egui.gabo.webflux.api.search.InvertedIndex.Hit;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Full-text product search for {@code GET /api/v2/products/search}.
+ * <p>
+ * Keeps an {@link InvertedIndex} over product and category names, built from
+ * Mongo once the application is ready and updated incrementally by catalog
+ * change events, instead of running regex queries against Mongo.
+ * </p>
+ * <p>
+ * Products saved or deleted while the index is built are skipped by the scan,
+ * which may hold an older version of them, and categories renamed meanwhile
+ * are renamed again once the scan is over.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+@Component
+public class ProductSearchIndex implements CatalogChangeListener {
+
+	private static final Logger log = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+	@Autowired
+	private ProductRepository productDao;
+
+	private final InvertedIndex index = new InvertedIndex();
+
+	// whether a scan is running, and the products changed and categories renamed since it started
+	private boolean building;
+
+	private final Set<String> changedWhileBuilding = new HashSet<>();
+
+	private final Map<String, Category> renamedWhileBuilding = new HashMap<>();
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void onReady() {
+		rebuild().subscribe();
+	}
+
+	/**
+	 * Indexes every product stored in Mongo.
+	 *
+	 * @return a Mono that completes when the index is built
+	 */
+	public Mono<Void> rebuild() {
+		return Mono.defer(() -> {
+			long start = System.nanoTime();
+			synchronized (this) {
+				if (building) {
+					return Mono.empty();
+				}
+				building = true;
+				changedWhileBuilding.clear();
+				renamedWhileBuilding.clear();
+			}
+			return productDao.exportAll()
+					.doOnNext(product -> {
+						synchronized (this) {
+							// neither resurrect a deleted product nor overwrite a newer version
+							if (!changedWhileBuilding.contains(product.getId())) {
+								index.put(product);
+							}
+						}
+					})
+					.then()
+					.doFinally(signal -> {
+						synchronized (this) {
+							// the scan may have read products of a renamed category before the rename
+							renamedWhileBuilding.values().forEach(index::renameCategory);
+							building = false;
+							changedWhileBuilding.clear();
+							renamedWhileBuilding.clear();
+						}
+					})
+					.doOnSuccess(done -> log.info("Search index built with {} products in {} ms", index.size(),
+							(System.nanoTime() - start) / 1_000_000))
+					.doOnError(e -> log.warn("Could not build the search index", e))
+					.onErrorResume(e -> Mono.empty());
+		});
+	}
+
+	/**
+	 * @param query       free text
+	 * @param categoryIds optional category filter
+	 * @param limit       maximum number of hits
+	 * @return hits ranked by BM25
+	 */
+	public List<Hit> search(String query, Collection<String> categoryIds, int limit) {
+		return index.search(query, categoryIds, limit);
+	}
+
+	@Override
+	public synchronized void productSaved(Product product) {
+		index.put(product);
+		if (building) {
+			changedWhileBuilding.add(product.getId());
+		}
+	}
+
+	@Override
+	public synchronized void productDeleted(String id) {
+		index.remove(id);
+		if (building) {
+			changedWhileBuilding.add(id);
+		}
+	}
+
+	@Override
+	public synchronized void categoryRenamed(Category category) {
+		index.renameCategory(category);
+		if (building) {
+			renamedWhileBuilding.put(category.getId(), category);
+		}
+	}
+
+}
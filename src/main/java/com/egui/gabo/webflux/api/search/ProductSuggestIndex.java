@@ -0,0 +1,149 @@
+package com.egui.gabo.webflux.api.search;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.egui.gabo.webflux.api.events.CatalogChangeListener;
+import com.egui.gabo.webflux.api.models.document.Product;
+import com.egui.gabo.webflux.api.models.repository.ProductRepository;
+import com.egui.gabo.webflux.api.search.NameRadixTree.Entry;
+
+import jakarta.annotation.PostConstruct;
+import reactor.core.publisher.Mono;
+
+/**
+ * In-memory name autocomplete for {@code GET /api/v2/products/suggest}.
+ * <p>
+ * The {@link NameRadixTree} is built from Mongo once the application is ready
+ * and then kept up to date by catalog change events, so a keystroke never
+ * reaches the database. Ranking is chosen with {@code config.suggest.rank}:
+ * {@code shortest} (default), {@code newest} or {@code cheapest}.
+ * </p>
+ * <p>
+ * Products saved or deleted while the tree is built are skipped by the scan,
+ * which may hold an older version of them.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+@Component
+public class ProductSuggestIndex implements CatalogChangeListener {
+
+	private static final Logger log = LoggerFactory.getLogger(ProductSuggestIndex.class);
+
+	@Value("${config.suggest.max-results:10}")
+	private int maxResults;
+
+	@Value("${config.suggest.rank:shortest}")
+	private String rank;
+
+	@Autowired
+	private ProductRepository productDao;
+
+	private NameRadixTree tree;
+
+	// whether a scan is running, and the products changed since it started
+	private boolean building;
+
+	private final Set<String> changedWhileBuilding = new HashSet<>();
+
+	@PostConstruct
+	void init() {
+		tree = new NameRadixTree(maxResults);
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void onReady() {
+		rebuild().subscribe();
+	}
+
+	/**
+	 * Loads every product name into the tree.
+	 *
+	 * @return a Mono that completes when the tree is built
+	 */
+	public Mono<Void> rebuild() {
+		return Mono.defer(() -> {
+			long start = System.nanoTime();
+			synchronized (this) {
+				if (building) {
+					return Mono.empty();
+				}
+				building = true;
+				changedWhileBuilding.clear();
+			}
+			return productDao.exportAll()
+					.doOnNext(product -> {
+						synchronized (this) {
+							// neither resurrect a deleted product nor overwrite a newer version
+							if (!changedWhileBuilding.contains(product.getId())) {
+								put(product);
+							}
+						}
+					})
+					.then()
+					.doFinally(signal -> {
+						synchronized (this) {
+							building = false;
+							changedWhileBuilding.clear();
+						}
+					})
+					.doOnSuccess(done -> log.info("Suggest index built with {} products in {} ms", tree.size(),
+							(System.nanoTime() - start) / 1_000_000))
+					.doOnError(e -> log.warn("Could not build the suggest index", e))
+					.onErrorResume(e -> Mono.empty());
+		});
+	}
+
+	/**
+	 * @param prefix the text typed so far
+	 * @param limit  maximum number of suggestions
+	 * @return the best ranked matching names
+	 */
+	public List<Entry> suggest(String prefix, int limit) {
+		return tree.suggest(prefix, Math.min(limit, maxResults));
+	}
+
+	@Override
+	public synchronized void productSaved(Product product) {
+		put(product);
+		if (building) {
+			changedWhileBuilding.add(product.getId());
+		}
+	}
+
+	@Override
+	public synchronized void productDeleted(String id) {
+		tree.remove(id);
+		if (building) {
+			changedWhileBuilding.add(id);
+		}
+	}
+
+	private void put(Product product) {
+		if (product.getName() != null) {
+			tree.put(product.getId(), product.getName(), score(product));
+		}
+	}
+
+	private double score(Product product) {
+		switch (rank) {
+		case "newest":
+			return product.getCreateAt() == null ? 0 : product.getCreateAtMillis();
+		case "cheapest":
+			return product.hasPrice() ? -product.getPriceMinor() : -Double.MAX_VALUE;
+		default:
+			return -product.getName().length();
+		}
+	}
+
+}
@@ -0,0 +1,136 @@
+package com.egui.gabo.webflux.api.server;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Reactor Netty transport settings ({@code config.netty.*}) not covered by
+ * Spring Boot's {@code server.netty.*}.
+ * <p>
+ * Zero or negative values keep the Reactor Netty defaults.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+@ConfigurationProperties(prefix = "config.netty")
+public class NettyProperties {
+
+	/** Event loop threads shared by the server and WebClients; 0 uses one per core (at least 4). */
+	private int eventLoopThreads;
+
+	private final Http2 http2 = new Http2();
+
+	private final Client client = new Client();
+
+	public int getEventLoopThreads() {
+		return eventLoopThreads;
+	}
+
+	public void setEventLoopThreads(int eventLoopThreads) {
+		this.eventLoopThreads = eventLoopThreads;
+	}
+
+	public Http2 getHttp2() {
+		return http2;
+	}
+
+	public Client getClient() {
+		return client;
+	}
+
+	/**
+	 * SETTINGS advertised to HTTP/2 clients ({@code server.http2.enabled}).
+	 */
+	public static class Http2 {
+
+		/** Streams a single connection may have open at once. */
+		private long maxConcurrentStreams = 256;
+
+		/** Per-stream flow control window for request bodies. */
+		private DataSize initialWindowSize = DataSize.ofKilobytes(64);
+
+		public long getMaxConcurrentStreams() {
+			return maxConcurrentStreams;
+		}
+
+		public void setMaxConcurrentStreams(long maxConcurrentStreams) {
+			this.maxConcurrentStreams = maxConcurrentStreams;
+		}
+
+		public DataSize getInitialWindowSize() {
+			return initialWindowSize;
+		}
+
+		public void setInitialWindowSize(DataSize initialWindowSize) {
+			this.initialWindowSize = initialWindowSize;
+		}
+
+	}
+
+	/**
+	 * Connection pool of the WebClients built from the auto-configured
+	 * builder.
+	 */
+	public static class Client {
+
+		private int maxConnections = 500;
+
+		/**
+		 * Requests allowed to wait for a connection; twice max-connections when
+		 * unset, -1 for no limit.
+		 */
+		private Integer pendingAcquireMaxCount;
+
+		private Duration pendingAcquireTimeout = Duration.ofSeconds(45);
+
+		/** Idle connections are closed after this time; 0 keeps them. */
+		private Duration maxIdleTime = Duration.ofSeconds(30);
+
+		/** Connections are closed after this age (e.g. to follow DNS changes); 0 keeps them. */
+		private Duration maxLifeTime = Duration.ZERO;
+
+		public int getMaxConnections() {
+			return maxConnections;
+		}
+
+		public void setMaxConnections(int maxConnections) {
+			this.maxConnections = maxConnections;
+		}
+
+		public Integer getPendingAcquireMaxCount() {
+			return pendingAcquireMaxCount;
+		}
+
+		public void setPendingAcquireMaxCount(Integer pendingAcquireMaxCount) {
+			this.pendingAcquireMaxCount = pendingAcquireMaxCount;
+		}
+
+		public Duration getPendingAcquireTimeout() {
+			return pendingAcquireTimeout;
+		}
+
+		public void setPendingAcquireTimeout(Duration pendingAcquireTimeout) {
+			this.pendingAcquireTimeout = pendingAcquireTimeout;
+		}
+
+		public Duration getMaxIdleTime() {
+			return maxIdleTime;
+		}
+
+		public void setMaxIdleTime(Duration maxIdleTime) {
+			this.maxIdleTime = maxIdleTime;
+		}
+
+		public Duration getMaxLifeTime() {
+			return maxLifeTime;
+		}
+
+		public void setMaxLifeTime(Duration maxLifeTime) {
+			this.maxLifeTime = maxLifeTime;
+		}
+
+	}
+
+}
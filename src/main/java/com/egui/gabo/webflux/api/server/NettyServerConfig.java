@@ -0,0 +1,130 @@
+package com.egui.gabo.webflux.api.server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.reactor.netty.ReactorNettyProperties;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.http.client.ReactorResourceFactory;
+
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+/**
+ * Tunes the Reactor Netty transport shared by the server and WebClients.
+ * <p>
+ * HTTP/2 is switched on with Spring Boot's {@code server.http2.enabled}: h2
+ * over TLS when {@code server.ssl} is configured, otherwise cleartext h2c
+ * (prior knowledge, as service meshes use, or {@code Upgrade: h2c}) next to
+ * HTTP/1.1 on the same port. A client fetching many products then
+ * multiplexes them as streams of one connection instead of opening a
+ * connection per concurrent request.
+ * </p>
+ * <p>
+ * The native epoll transport is used when its library matches the platform
+ * (x86_64 and aarch64 Linux are on the classpath); {@code -Dreactor.netty.native=false}
+ * falls back to NIO. The transport and event-loop count are logged at
+ * startup.
+ * </p>
+ * <p>
+ * Header size, initial line length, idle timeout and keep-alive limits stay
+ * with {@code server.max-http-request-header-size} and
+ * {@code server.netty.*}; request bodies are bounded by
+ * {@code spring.codec.max-in-memory-size} and the multipart limits.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+@Configuration
+@EnableConfigurationProperties(NettyProperties.class)
+public class NettyServerConfig {
+
+	private static final Logger log = LoggerFactory.getLogger(NettyServerConfig.class);
+
+	/**
+	 * Replaces Spring Boot's factory so that the server, the
+	 * {@link com.egui.gabo.webflux.api.resilience.EventLoopLagMonitor} and
+	 * WebClients share the configured event loops and connection pool.
+	 */
+	@Bean
+	ReactorResourceFactory reactorResourceFactory(NettyProperties properties, ReactorNettyProperties reactorNetty) {
+		int threads = properties.getEventLoopThreads() > 0 ? properties.getEventLoopThreads()
+				: LoopResources.DEFAULT_IO_WORKER_COUNT;
+		NettyProperties.Client client = properties.getClient();
+
+		ReactorResourceFactory factory = new ReactorResourceFactory();
+		factory.setUseGlobalResources(false);
+		factory.setLoopResourcesSupplier(() -> LoopResources.create("reactor-http", threads, true));
+		factory.setConnectionProviderSupplier(() -> {
+			ConnectionProvider.Builder pool = ConnectionProvider.builder("http")
+					.maxConnections(client.getMaxConnections())
+					// Reactor Netty takes -1 as an unbounded queue
+					.pendingAcquireMaxCount(client.getPendingAcquireMaxCount() != null
+							? client.getPendingAcquireMaxCount()
+							: 2 * client.getMaxConnections())
+					.pendingAcquireTimeout(client.getPendingAcquireTimeout());
+			if (!client.getMaxIdleTime().isZero()) {
+				pool.maxIdleTime(client.getMaxIdleTime());
+			}
+			if (!client.getMaxLifeTime().isZero()) {
+				pool.maxLifeTime(client.getMaxLifeTime());
+			}
+			return pool.build();
+		});
+		if (reactorNetty.getShutdownQuietPeriod() != null) {
+			factory.setShutdownQuietPeriod(reactorNetty.getShutdownQuietPeriod());
+		}
+
+		log.info("Reactor Netty: {} transport, {} event loop threads",
+				LoopResources.DEFAULT_NATIVE && LoopResources.hasNativeSupport() ? "native" : "NIO", threads);
+		return factory;
+	}
+
+	@Bean
+	Http2SettingsCustomizer http2SettingsCustomizer(NettyProperties properties, ServerProperties server) {
+		return new Http2SettingsCustomizer(properties.getHttp2(), server);
+	}
+
+	/**
+	 * HTTP/2 SETTINGS. Reactor Netty replaces (does not merge) the settings
+	 * on each call, so this runs after Spring Boot's customizer and carries
+	 * its header limit over.
+	 */
+	static class Http2SettingsCustomizer implements WebServerFactoryCustomizer<NettyReactiveWebServerFactory>, Ordered {
+
+		private final NettyProperties.Http2 http2;
+
+		private final ServerProperties server;
+
+		Http2SettingsCustomizer(NettyProperties.Http2 http2, ServerProperties server) {
+			this.http2 = http2;
+			this.server = server;
+		}
+
+		@Override
+		public void customize(NettyReactiveWebServerFactory factory) {
+			if (server.getHttp2() == null || !server.getHttp2().isEnabled()) {
+				return;
+			}
+			factory.addServerCustomizers(httpServer -> httpServer.http2Settings(settings -> {
+				settings.maxConcurrentStreams(http2.getMaxConcurrentStreams());
+				settings.initialWindowSize(Math.toIntExact(http2.getInitialWindowSize().toBytes()));
+				if (server.getMaxHttpRequestHeaderSize() != null) {
+					settings.maxHeaderListSize(server.getMaxHttpRequestHeaderSize().toBytes());
+				}
+			}));
+		}
+
+		@Override
+		public int getOrder() {
+			return Ordered.LOWEST_PRECEDENCE;
+		}
+
+	}
+
+}
@@ -0,0 +1,377 @@
+package com.egui.gabo.webflux.api.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.util.MultiValueMap;
+
+import com.egui.gabo.webflux.api.models.document.Product;
+
+/**
+ * Filters, sort and keyset page accepted by the product list and facet
+ * endpoints.
+ * <p>
+ * Built from query parameters: {@code category} (category id, repeatable),
+ * {@code minPrice} and {@code maxPrice} (inclusive), {@code createdFrom} and
+ * {@code createdTo} (inclusive {@code yyyy-MM-dd} dates, UTC), {@code sort}
+ * ({@code id}, {@code price} or {@code createAt}), {@code dir} ({@code asc} or
+ * {@code desc}), {@code after} (the cursor returned with the previous page)
+ * and {@code size}.
+ * </p>
+ * <p>
+ * Queries follow the compound indexes declared on {@link Product}: equality on
+ * category first, then the sort key (which also takes the range on that key),
+ * then {@code _id} as the tie-breaker keyset paging seeks on. A range on the
+ * other key (e.g. a date range sorted by price) is bounded by the sort index
+ * and filtered on the fetched documents.
+ * </p>
+ * <p>
+ * Price bounds are compared in minor units (see {@link Product#getPriceMinor()}):
+ * the minimum rounds up and the maximum down to the nearest cent.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+public class ProductFilter {
+
+	public static final int DEFAULT_SIZE = 50;
+
+	public static final int MAX_SIZE = 500;
+
+	/**
+	 * Supported sort keys and the property they sort on.
+	 */
+	public enum SortKey {
+
+		ID("id", "id"), PRICE("price", "priceMinor"), CREATE_AT("createAt", "createAt");
+
+		private final String param;
+
+		private final String property;
+
+		SortKey(String param, String property) {
+			this.param = param;
+			this.property = property;
+		}
+
+		/**
+		 * @return the {@link Product} property sorted on
+		 */
+		public String getProperty() {
+			return property;
+		}
+
+		static SortKey parse(String value) {
+			for (SortKey key : values()) {
+				if (key.param.equalsIgnoreCase(value)) {
+					return key;
+				}
+			}
+			throw new IllegalArgumentException("sort must be one of id, price, createAt");
+		}
+	}
+
+	private List<String> categoryIds = List.of();
+
+	private Double minPrice;
+
+	private Double maxPrice;
+
+	private LocalDate createdFrom;
+
+	private LocalDate createdTo;
+
+	private SortKey sort;
+
+	private Sort.Direction direction = Sort.Direction.ASC;
+
+	private String after;
+
+	private Integer size;
+
+	/**
+	 * Parses the query parameters.
+	 *
+	 * @param params request query parameters
+	 * @return the filter, possibly empty
+	 * @throws IllegalArgumentException if a parameter is malformed
+	 */
+	public static ProductFilter fromQueryParams(MultiValueMap<String, String> params) {
+		ProductFilter filter = new ProductFilter();
+		filter.setCategoryIds(params.getOrDefault("category", List.of()));
+		filter.setMinPrice(parsePrice("minPrice", params.getFirst("minPrice")));
+		filter.setMaxPrice(parsePrice("maxPrice", params.getFirst("maxPrice")));
+		filter.setCreatedFrom(parseDate("createdFrom", params.getFirst("createdFrom")));
+		filter.setCreatedTo(parseDate("createdTo", params.getFirst("createdTo")));
+		if (params.getFirst("sort") != null) {
+			filter.setSort(SortKey.parse(params.getFirst("sort")));
+		}
+		if (params.getFirst("dir") != null) {
+			filter.setDirection(Sort.Direction.fromString(params.getFirst("dir")));
+		}
+		filter.setAfter(params.getFirst("after"));
+		if (filter.getAfter() != null) {
+			filter.decodeCursor(); // fail early on a malformed cursor
+		}
+		if (params.getFirst("size") != null) {
+			try {
+				filter.setSize(Integer.valueOf(params.getFirst("size")));
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("size must be an integer");
+			}
+		}
+		return filter;
+	}
+
+	private static Double parsePrice(String name, String value) {
+		if (value == null || value.isBlank()) {
+			return null;
+		}
+		try {
+			Double price = Double.valueOf(value.trim());
+			Product.toMinor(BigDecimal.valueOf(price), RoundingMode.HALF_UP); // must fit in minor units
+			return price;
+		} catch (NumberFormatException | ArithmeticException e) {
+			throw new IllegalArgumentException(name + " must be a number");
+		}
+	}
+
+	private static LocalDate parseDate(String name, String value) {
+		if (value == null || value.isBlank()) {
+			return null;
+		}
+		try {
+			return LocalDate.parse(value.trim());
+		} catch (DateTimeParseException e) {
+			throw new IllegalArgumentException(name + " must be a yyyy-MM-dd date");
+		}
+	}
+
+	/**
+	 * @return true if no filter, sort or page is requested, i.e. the plain list
+	 */
+	public boolean isEmpty() {
+		return !hasFilters() && sort == null && after == null && size == null;
+	}
+
+	/**
+	 * @return true if any category, price or date filter is set
+	 */
+	public boolean hasFilters() {
+		return !categoryIds.isEmpty() || minPrice != null || maxPrice != null || createdFrom != null
+				|| createdTo != null;
+	}
+
+	/**
+	 * Evaluates the filters (not the page) in memory.
+	 *
+	 * @param product the product to test
+	 * @return true if the product passes every filter
+	 */
+	public boolean matches(Product product) {
+		if (!categoryIds.isEmpty()
+				&& (product.getCategory() == null || !categoryIds.contains(product.getCategory().getId()))) {
+			return false;
+		}
+		long price = product.getPriceMinor();
+		if ((minPrice != null && (!product.hasPrice() || price < getMinPriceMinor()))
+				|| (maxPrice != null && (!product.hasPrice() || price > getMaxPriceMinor()))) {
+			return false;
+		}
+		Instant createAt = product.getCreateAt();
+		if (createdFrom != null && (createAt == null || createAt.isBefore(createdFromInstant()))) {
+			return false;
+		}
+		return createdTo == null || (createAt != null && createAt.isBefore(createdToExclusiveInstant()));
+	}
+
+	/**
+	 * @return the Mongo criteria for the filters (not the page)
+	 */
+	public Criteria toCriteria() {
+		Criteria criteria = new Criteria();
+		if (!categoryIds.isEmpty()) {
+			criteria.and("category.id").in(categoryIds);
+		}
+		if (minPrice != null || maxPrice != null) {
+			Criteria price = criteria.and("priceMinor");
+			if (minPrice != null) {
+				price.gte(getMinPriceMinor());
+			}
+			if (maxPrice != null) {
+				price.lte(getMaxPriceMinor());
+			}
+		}
+		if (createdFrom != null || createdTo != null) {
+			Criteria createAt = criteria.and("createAt");
+			if (createdFrom != null) {
+				createAt.gte(createdFromInstant());
+			}
+			if (createdTo != null) {
+				createAt.lt(createdToExclusiveInstant());
+			}
+		}
+		return criteria;
+	}
+
+	private Instant createdFromInstant() {
+		return createdFrom.atStartOfDay(ZoneOffset.UTC).toInstant();
+	}
+
+	private Instant createdToExclusiveInstant() {
+		return createdTo.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+	}
+
+	/**
+	 * @return {@code minPrice} in minor units, rounded up; only meaningful if
+	 *         {@code minPrice} is set
+	 */
+	public long getMinPriceMinor() {
+		return Product.toMinor(BigDecimal.valueOf(minPrice), RoundingMode.CEILING);
+	}
+
+	/**
+	 * @return {@code maxPrice} in minor units, rounded down; only meaningful if
+	 *         {@code maxPrice} is set
+	 */
+	public long getMaxPriceMinor() {
+		return Product.toMinor(BigDecimal.valueOf(maxPrice), RoundingMode.FLOOR);
+	}
+
+	/**
+	 * Encodes the position after the given product, to be sent back as
+	 * {@code after} for the next page.
+	 *
+	 * @param last the last product of the current page
+	 * @return an opaque URL-safe cursor
+	 */
+	public String cursorAfter(Product last) {
+		String value = switch (getSort()) {
+		case ID -> "";
+		case PRICE -> String.valueOf(last.getPriceMinor());
+		case CREATE_AT -> String.valueOf(last.getCreateAt() == null ? 0 : last.getCreateAt().toEpochMilli());
+		};
+		return Base64.getUrlEncoder().withoutPadding()
+				.encodeToString((value + "|" + last.getId()).getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Decodes {@code after} into the sort value (a price in minor units, an
+	 * Instant or null for the id sort) and the id of the last product of the
+	 * previous page.
+	 *
+	 * @return a two-element array, or null if there is no cursor
+	 * @throws IllegalArgumentException if the cursor is malformed
+	 */
+	public Object[] decodeCursor() {
+		if (after == null) {
+			return null;
+		}
+		try {
+			String decoded = new String(Base64.getUrlDecoder().decode(after), StandardCharsets.UTF_8);
+			int separator = decoded.lastIndexOf('|');
+			String value = decoded.substring(0, separator);
+			String id = decoded.substring(separator + 1);
+			Object sortValue = switch (getSort()) {
+			case ID -> null;
+			// cursors issued before prices were stored in minor units hold a decimal
+			case PRICE -> value.indexOf('.') >= 0 ? Product.toMinor(new BigDecimal(value), RoundingMode.HALF_UP)
+					: Long.parseLong(value);
+			case CREATE_AT -> Instant.ofEpochMilli(Long.parseLong(value));
+			};
+			return new Object[] { sortValue, id };
+		} catch (IllegalArgumentException | StringIndexOutOfBoundsException | ArithmeticException e) {
+			throw new IllegalArgumentException("after is not a valid cursor for sort " + getSort().name().toLowerCase(Locale.ROOT));
+		}
+	}
+
+	public List<String> getCategoryIds() {
+		return categoryIds;
+	}
+
+	public void setCategoryIds(List<String> categoryIds) {
+		this.categoryIds = categoryIds == null ? List.of() : categoryIds;
+	}
+
+	public Double getMinPrice() {
+		return minPrice;
+	}
+
+	public void setMinPrice(Double minPrice) {
+		this.minPrice = minPrice;
+	}
+
+	public Double getMaxPrice() {
+		return maxPrice;
+	}
+
+	public void setMaxPrice(Double maxPrice) {
+		this.maxPrice = maxPrice;
+	}
+
+	public LocalDate getCreatedFrom() {
+		return createdFrom;
+	}
+
+	public void setCreatedFrom(LocalDate createdFrom) {
+		this.createdFrom = createdFrom;
+	}
+
+	public LocalDate getCreatedTo() {
+		return createdTo;
+	}
+
+	public void setCreatedTo(LocalDate createdTo) {
+		this.createdTo = createdTo;
+	}
+
+	/**
+	 * @return the sort key, {@link SortKey#ID} when none was requested
+	 */
+	public SortKey getSort() {
+		return sort == null ? SortKey.ID : sort;
+	}
+
+	public void setSort(SortKey sort) {
+		this.sort = sort;
+	}
+
+	public Sort.Direction getDirection() {
+		return direction;
+	}
+
+	public void setDirection(Sort.Direction direction) {
+		this.direction = direction == null ? Sort.Direction.ASC : direction;
+	}
+
+	public String getAfter() {
+		return after;
+	}
+
+	public void setAfter(String after) {
+		this.after = after == null || after.isBlank() ? null : after;
+	}
+
+	/**
+	 * @return the page size, {@link #DEFAULT_SIZE} when none was requested and
+	 *         never more than {@link #MAX_SIZE}
+	 */
+	public int getSize() {
+		return size == null ? DEFAULT_SIZE : Math.max(1, Math.min(size, MAX_SIZE));
+	}
+
+	public void setSize(Integer size) {
+		this.size = size;
+	}
+
+}
@@ -1,5 +1,7 @@
 package com.egui.gabo.webflux.api.service;
 
+import java.util.Collection;
+
 import com.egui.gabo.webflux.api.models.document.Category;
 import com.egui.gabo.webflux.api.models.document.Product;
 
@@ -28,6 +30,15 @@ public interface ProductService {
 	 */
 	public Flux<Product> findAllNameUppercase();
 
+	/**
+	 * Retrieve one page of the products matching the filters, sorted and paged
+	 * by key (see {@link ProductFilter}).
+	 * 
+	 * @param filter the filters, sort, cursor and page size
+	 * @return a Flux with at most {@code filter.getSize()} products
+	 */
+	public Flux<Product> findByFilter(ProductFilter filter);
+
 	/**
 	 * Find a product by its ID.
 	 * 
@@ -35,6 +46,14 @@ public interface ProductService {
 	 * @return a Mono containing the product if found, or empty
 	 */
 	public Mono<Product> findById(String id);
+
+	/**
+	 * Find several products by their IDs with a single query.
+	 * 
+	 * @param ids the product IDs
+	 * @return a Flux of the products found, in no particular order
+	 */
+	public Flux<Product> findAllById(Collection<String> ids);
 	
 	/**
 	 * Find a product by its name.
@@ -46,10 +65,13 @@ public interface ProductService {
 	
 
 	/**
-	 * Save a product.
+	 * Save a product. Its category is resolved first (see
+	 * {@link #resolveCategory(Category)}) and replaced by the stored one.
 	 * 
 	 * @param p the product to save
-	 * @return a Mono containing the saved product
+	 * @return a Mono containing the saved product, or an error with
+	 *         {@link com.egui.gabo.webflux.api.catalog.CategoryCache.UnknownCategoryException}
+	 *         if its category does not exist
 	 */
 	public Mono<Product> save(Product p);
 
@@ -87,7 +109,19 @@ public interface ProductService {
 	
 
 	/**
-	 * Save a category.
+	 * Resolve the category a product refers to, by id or else by name, without
+	 * a database round-trip.
+	 * 
+	 * @param category the category as sent by the client
+	 * @return a Mono containing the stored category, or an error with
+	 *         {@link com.egui.gabo.webflux.api.catalog.CategoryCache.UnknownCategoryException}
+	 *         if there is none
+	 */
+	public Mono<Category> resolveCategory(Category category);
+
+	/**
+	 * Save a category. A new name is applied to the products of the category
+	 * in the background.
 	 * 
 	 * @param c the category to save
 	 * @return a Mono containing the saved category
@@ -1,8 +1,19 @@
 package com.egui.gabo.webflux.api.service;
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import com.egui.gabo.webflux.api.catalog.CategoryCache;
+import com.egui.gabo.webflux.api.catalog.CategoryStatsTracker;
+import com.egui.gabo.webflux.api.catalog.ProductInsertBatcher;
+import com.egui.gabo.webflux.api.events.CatalogEvents;
 import com.egui.gabo.webflux.api.models.document.Category;
 import com.egui.gabo.webflux.api.models.document.Product;
 import com.egui.gabo.webflux.api.models.repository.CategorieRepository;
@@ -10,6 +21,7 @@ import com.egui.gabo.webflux.api.models.repository.ProductRepository;
 
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
 /**
  * Implementation of ProductService using ReactiveMongoRepository.
@@ -19,26 +31,61 @@ import reactor.core.publisher.Mono;
  * It is annotated with @Service to be discovered by Spring's component
  * scanning.
  * </p>
+ * <p>
+ * Reads use the deadline-aware repository methods, so queries issued on behalf
+ * of a request carry the request deadline as {@code maxTimeMS}.
+ * </p>
+ * <p>
+ * New products are inserted through the {@link ProductInsertBatcher} when it
+ * is enabled, so concurrent creates share a bulk insert. Updates replace the
+ * stored product and get its previous version in the same round trip. The
+ * category stats are updated in the background, not before answering.
+ * </p>
+ * <p>
+ * Categories are read from the {@link CategoryCache}. Product writes resolve
+ * their category there and embed the stored copy; renaming a category
+ * updates those copies with one background {@code updateMany} and one
+ * category-renamed event, instead of republishing every product.
+ * </p>
  * 
  * @author Gabriel Eguiguren P.
  */
 @Service
 public class ProductServiceImpl implements ProductService {
 
+	private static final Logger log = LoggerFactory.getLogger(ProductServiceImpl.class);
+
 	@Autowired
 	private ProductRepository productDao;
 
 	@Autowired
 	private CategorieRepository categorieDao;
 
+	@Autowired
+	private CatalogEvents events;
+
+	@Autowired
+	private CategoryStatsTracker categoryStats;
+
+	@Autowired
+	private ProductInsertBatcher insertBatcher;
+
+	@Autowired
+	private CategoryCache categoryCache;
+
 	@Override
 	public Flux<Product> findAll() {
-		return productDao.findAll();
+		return productDao.findAllWithinDeadline();
+	}
+
+	@Override
+	public Flux<Product> findByFilter(ProductFilter filter) {
+		return productDao.findByFilter(filter);
 	}
 
 	@Override
 	public Flux<Product> findAllNameUppercase() {
-		return productDao.findAll()
+		return productDao.findAllWithinDeadline()
 				.map(product -> {
 					product.setName(product.getName().toUpperCase());
 					return product;
@@ -47,47 +94,103 @@ public class ProductServiceImpl implements ProductService {
 
 	@Override
 	public Mono<Product> findById(String id) {
-		return productDao.findById(id);
+		return productDao.findByIdWithinDeadline(id);
+	}
+
+	@Override
+	public Flux<Product> findAllById(Collection<String> ids) {
+		return productDao.findAllByIdWithinDeadline(ids);
 	}
 
 	@Override
 	public Mono<Product> save(Product p) {
-		return productDao.save(p);
+		return categoryCache.resolve(p.getCategory()).flatMap(category -> {
+			p.setCategory(category);
+			return write(p);
+		});
+	}
+
+	private Mono<Product> write(Product p) {
+		if (p.getId() == null && insertBatcher.isEnabled()) {
+			return insertBatcher.insert(p).doOnNext(events::productSaved); // the batcher updates the stats
+		}
+		// the replaced version is needed to move an updated product out of its old stats
+		Mono<Optional<Product>> write = p.getId() == null ? productDao.save(p).thenReturn(Optional.empty())
+				: productDao.replaceReturningPrevious(p).map(Optional::of).defaultIfEmpty(Optional.empty());
+
+		return write.map(previous -> {
+			// off the response path: a failed stats update is logged and left to the recompute
+			categoryStats.productSaved(previous.orElse(null), p).subscribe(null,
+					e -> log.warn("Could not update the category stats of product {}", p.getId(), e));
+			return p;
+		}).doOnNext(events::productSaved);
 	}
 
 	@Override
 	public Mono<Void> delete(Product p) {
-		return productDao.delete(p);
+		return productDao.delete(p).then(categoryStats.productDeleted(p))
+				.then(Mono.fromRunnable(() -> events.productDeleted(p.getId())));
 	}
 
 	@Override
 	public Flux<Category> findAllCategories() {
 
-		return categorieDao.findAll();
+		return categoryCache.findAll();
 	}
 
 	@Override
 	public Mono<Category> findCategoryById(String id) {
 
-		return categorieDao.findById(id);
+		return categoryCache.findById(id);
+	}
+
+	@Override
+	public Mono<Category> resolveCategory(Category category) {
+
+		return categoryCache.resolve(category);
 	}
 
 	@Override
 	public Mono<Category> saveCategory(Category c) {
+		// the cache may not be loaded yet: the stored category holds the previous name then
+		Mono<Category> previous = Mono.justOrEmpty(categoryCache.get(c.getId()))
+				.switchIfEmpty(Mono.defer(() -> c.getId() == null ? Mono.empty() : categorieDao.findById(c.getId())));
+
+		return previous.map(Optional::of).defaultIfEmpty(Optional.empty())
+				.flatMap(before -> categorieDao.save(c).doOnNext(events::categorySaved).doOnNext(saved -> {
+					if (before.isPresent() && !Objects.equals(before.get().getName(), saved.getName())) {
+						renameInProducts(saved);
+					}
+				}));
+	}
 
-		return categorieDao.save(c);
+	/**
+	 * Applies the current name of a category to the copies embedded in its
+	 * products, in the background, and publishes one category-renamed event
+	 * for the in-memory views. The name is read when the update runs, so a
+	 * later rename is never overwritten by an earlier one.
+	 */
+	private void renameInProducts(Category saved) {
+		Mono<Long> rename = Mono.defer(() -> {
+			Category current = Objects.requireNonNullElse(categoryCache.get(saved.getId()), saved);
+			return productDao.renameCategory(current.getId(), current.getName())
+					.doOnNext(modified -> events.categoryRenamed(current));
+		});
+		rename.retryWhen(Retry.backoff(3, Duration.ofSeconds(1)))
+				.subscribe(count -> log.info("Renamed category {} in {} products", saved.getId(), count),
+						e -> log.warn("Could not rename category {} in its products", saved.getId(), e));
 	}
 
 	@Override
 	public Mono<Product> findByName(String name) {
 		
-		return productDao.findByName(name);
+		return productDao.findByNameWithinDeadline(name);
 	}
 
 	@Override
 	public Mono<Category> findCategoryByName(String name) {
 		
-		return categorieDao.findByName(name);
+		return categoryCache.findByName(name);
 	}
 
 }
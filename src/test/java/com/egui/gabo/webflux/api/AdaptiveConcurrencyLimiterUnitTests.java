@@ -0,0 +1,66 @@
+package com.egui.gabo.webflux.api;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.egui.gabo.webflux.api.resilience.AdaptiveConcurrencyLimiter;
+import com.egui.gabo.webflux.api.resilience.AdaptiveConcurrencyLimiter.Priority;
+
+/**
+ * Unit tests for @AdaptiveConcurrencyLimiter
+ *
+ * @author Gabriel Eguiguren P.
+ */
+class AdaptiveConcurrencyLimiterUnitTests {
+
+	@Test
+	void bulkIsShedBeforeCriticalTest() {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 10, 0.5);
+
+		for (int i = 0; i < 5; i++) {
+			Assertions.assertTrue(limiter.tryAcquire(Priority.BULK));
+		}
+		Assertions.assertFalse(limiter.tryAcquire(Priority.BULK)); // bulk share is half the limit
+		Assertions.assertTrue(limiter.tryAcquire(Priority.NORMAL));
+		Assertions.assertTrue(limiter.tryAcquire(Priority.CRITICAL));
+		Assertions.assertEquals(7, limiter.getInFlight());
+	}
+
+	@Test
+	void congestionDecreasesLimitTest() {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(100, 10, 200, 0.5);
+
+		Assertions.assertTrue(limiter.tryAcquire(Priority.CRITICAL));
+		limiter.release(true);
+		Assertions.assertEquals(50, limiter.getLimit());
+
+		// several congested completions inside the same window only back off once
+		Assertions.assertTrue(limiter.tryAcquire(Priority.CRITICAL));
+		limiter.release(true);
+		Assertions.assertEquals(50, limiter.getLimit());
+	}
+
+	@Test
+	void healthyLoadIncreasesLimitTest() {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 10, 0.5);
+
+		Assertions.assertTrue(limiter.tryAcquire(Priority.CRITICAL));
+		Assertions.assertTrue(limiter.tryAcquire(Priority.CRITICAL));
+		// about one more slot per limit of completions, not one per completion
+		for (int i = 0; i < 4; i++) {
+			Assertions.assertTrue(limiter.tryAcquire(Priority.CRITICAL));
+			limiter.release(false);
+		}
+		Assertions.assertEquals(4, limiter.getLimit());
+		Assertions.assertTrue(limiter.tryAcquire(Priority.CRITICAL));
+		limiter.release(false);
+		Assertions.assertEquals(5, limiter.getLimit());
+
+		// an idle limiter does not grow
+		for (int i = 0; i < 10; i++) {
+			limiter.release(false);
+		}
+		Assertions.assertEquals(5, limiter.getLimit());
+	}
+
+}
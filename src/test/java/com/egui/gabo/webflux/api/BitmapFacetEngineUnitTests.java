@@ -0,0 +1,87 @@
+package com.egui.gabo.webflux.api;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.egui.gabo.webflux.api.facet.BitmapFacetEngine;
+import com.egui.gabo.webflux.api.facet.FacetResult;
+import com.egui.gabo.webflux.api.models.document.Category;
+import com.egui.gabo.webflux.api.models.document.Product;
+import com.egui.gabo.webflux.api.models.repository.ProductRepository;
+import com.egui.gabo.webflux.api.service.ProductFilter;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Unit tests for @BitmapFacetEngine, building from a stub repository whose
+ * scan the test drives
+ *
+ * @author Gabriel Eguiguren P.
+ */
+class BitmapFacetEngineUnitTests {
+
+	private Sinks.Many<Product> scan;
+
+	private BitmapFacetEngine engine;
+
+	private static Category category(String id, String name) {
+		Category category = new Category(name);
+		category.setId(id);
+		return category;
+	}
+
+	private static Product product(String id, String name, Category category) {
+		Product product = new Product(name, 10.0, category);
+		product.setId(id);
+		return product;
+	}
+
+	@BeforeEach
+	void setUp() {
+		scan = Sinks.many().unicast().onBackpressureBuffer();
+		ProductRepository repository = (ProductRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { ProductRepository.class }, (proxy, method, args) -> {
+					if (method.getName().equals("exportAll")) {
+						return scan.asFlux();
+					}
+					throw new UnsupportedOperationException(method.getName());
+				});
+		engine = new BitmapFacetEngine();
+		ReflectionTestUtils.setField(engine, "productDao", repository);
+		ReflectionTestUtils.setField(engine, "priceBuckets", new double[] { 100, 300 });
+		ReflectionTestUtils.invokeMethod(engine, "init");
+	}
+
+	@Test
+	void keepsChangesMadeWhileBuildingTest() {
+		Category electronic = category("c1", "Electronic");
+		Mono<Void> rebuild = engine.rebuild().cache();
+		rebuild.subscribe();
+
+		scan.tryEmitNext(product("p1", "Sony TV", electronic));
+		// deleted, updated and renamed while the scan is still running, with older versions still to come
+		engine.productDeleted("p2");
+		engine.productSaved(product("p3", "Samsung Monitor", electronic));
+		engine.categoryRenamed(category("c1", "Gadgets"));
+		scan.tryEmitNext(product("p2", "Sony Radio", electronic));
+		scan.tryEmitNext(product("p3", "Samsung TV", electronic));
+		scan.tryEmitComplete();
+		rebuild.block(Duration.ofSeconds(5));
+
+		FacetResult result = engine.facet(new ProductFilter(), 10).block(Duration.ofSeconds(5));
+		Assertions.assertEquals(2, result.getTotal());
+		Assertions.assertEquals(List.of("Sony TV", "Samsung Monitor"),
+				result.getProducts().stream().map(Product::getName).collect(Collectors.toList()));
+		Assertions.assertEquals("Gadgets", result.getCategories().get(0).getLabel());
+		Assertions.assertEquals(2, result.getCategories().get(0).getCount());
+	}
+
+}
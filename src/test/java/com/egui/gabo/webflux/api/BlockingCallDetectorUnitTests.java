@@ -0,0 +1,66 @@
+package com.egui.gabo.webflux.api;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import com.egui.gabo.webflux.api.blocking.BlockingCallDetector;
+import com.egui.gabo.webflux.api.blocking.BlockingCallDetector.Violation;
+import com.egui.gabo.webflux.api.blocking.BlockingRouteFilter;
+
+import reactor.blockhound.BlockingOperationError;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+/**
+ * Unit tests for @BlockingCallDetector
+ *
+ * Run with mvn -Pblockhound test, skipped otherwise
+ *
+ * @author Gabriel Eguiguren P.
+ */
+class BlockingCallDetectorUnitTests {
+
+	private static void sleep() {
+		try {
+			Thread.sleep(1);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Test
+	void reportsTheRouteAndCallerOfABlockingCall() {
+		Assumptions.assumeTrue(BlockingCallDetector.isInstalled(), "BlockHound is not installed");
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v2/products"));
+
+		Mono<Void> request = new BlockingRouteFilter().filter(exchange,
+				e -> Mono.fromRunnable(BlockingCallDetectorUnitTests::sleep).subscribeOn(Schedulers.parallel()).then());
+
+		StepVerifier.create(request).expectError(BlockingOperationError.class).verify();
+
+		List<Violation> violations = BlockingCallDetector.drainViolations();
+		Assertions.assertEquals(1, violations.size());
+		Violation violation = violations.get(0);
+		Assertions.assertEquals("GET /api/v2/products", violation.getRoute());
+		Assertions.assertEquals("sleep", violation.getMethod().getName());
+		Assertions.assertEquals(BlockingCallDetectorUnitTests.class.getName(), violation.getCaller().getClassName());
+		Assertions.assertTrue(violation.getThread().startsWith("parallel-"));
+	}
+
+	@Test
+	void ignoresBlockingCallsOnBlockingThreads() {
+		Assumptions.assumeTrue(BlockingCallDetector.isInstalled(), "BlockHound is not installed");
+
+		StepVerifier.create(Mono.fromRunnable(BlockingCallDetectorUnitTests::sleep)
+				.subscribeOn(Schedulers.boundedElastic()).then()).verifyComplete();
+
+		Assertions.assertTrue(BlockingCallDetector.drainViolations().isEmpty());
+	}
+
+}
@@ -0,0 +1,35 @@
+package com.egui.gabo.webflux.api;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import com.egui.gabo.webflux.api.blocking.BlockingCallDetector;
+import com.egui.gabo.webflux.api.blocking.BlockingCallDetector.Violation;
+
+/**
+ * Fails a test when a blocking call ran on a non-blocking thread while it
+ * ran, even if the resulting error was swallowed by the reactive pipeline.
+ * <p>
+ * Registered for every test by {@code mvn -Pblockhound test}, which also
+ * installs BlockHound; otherwise nothing is ever reported.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+public class BlockingCallsExtension implements AfterEachCallback {
+
+	@Override
+	public void afterEach(ExtensionContext context) {
+		List<Violation> violations = BlockingCallDetector.drainViolations();
+		if (!violations.isEmpty()) {
+			AssertionError error = new AssertionError(violations.stream().map(Violation::toString)
+					.collect(Collectors.joining("\n", violations.size() + " blocking call(s):\n", "")));
+			violations.forEach(violation -> error.addSuppressed(violation.getStack()));
+			throw error;
+		}
+	}
+
+}
@@ -0,0 +1,174 @@
+package com.egui.gabo.webflux.api;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.DecoderHttpMessageReader;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import com.egui.gabo.webflux.api.codec.CatalogCodecsConfig;
+import com.egui.gabo.webflux.api.codec.CatalogJsonDecoder;
+import com.egui.gabo.webflux.api.codec.ContentNegotiation;
+import com.egui.gabo.webflux.api.models.document.Category;
+import com.egui.gabo.webflux.api.models.document.Product;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+/**
+ * Unit tests for @CatalogCodecsConfig, serving functional and annotated
+ * endpoints with the customized codecs
+ *
+ * @author Gabriel Eguiguren P.
+ */
+class CatalogCodecsConfigUnitTests {
+
+	private static final MediaType SMILE = ContentNegotiation.APPLICATION_SMILE;
+
+	private static Product sampleProduct() {
+		Category category = new Category("TV");
+		category.setId("c1");
+		Product product = new Product("Sony TV", 46.89, category);
+		product.setId("p1");
+		return product;
+	}
+
+	@RestController
+	static class AnnotatedEndpoints {
+
+		@GetMapping("/annotated/product")
+		Mono<Product> product() {
+			return Mono.just(sampleProduct());
+		}
+
+		@GetMapping("/annotated/map")
+		Mono<Map<String, Object>> map() {
+			return Mono.just(Map.of("name", "TV"));
+		}
+	}
+
+	private static CodecCustomizer customizer() {
+		CatalogCodecsConfig config = new CatalogCodecsConfig();
+		ReflectionTestUtils.setField(config, "streamingJson", true);
+		return ReflectionTestUtils.invokeMethod(config, "binaryCodecsCustomizer", Jackson2ObjectMapperBuilder.json());
+	}
+
+	private static WebTestClient functional() {
+		RouterFunction<ServerResponse> routes = RouterFunctions
+				.route(GET("/product"), request -> ServerResponse.ok()
+						.contentType(ContentNegotiation.negotiate(request)).bodyValue(sampleProduct()))
+				.andRoute(GET("/map"), request -> ServerResponse.ok()
+						.contentType(ContentNegotiation.negotiate(request, ContentNegotiation.JACKSON))
+						.bodyValue(Map.of("name", "TV")))
+				.andRoute(GET("/maps"), request -> ServerResponse.ok()
+						.contentType(ContentNegotiation.negotiate(request, ContentNegotiation.JACKSON))
+						.body(Flux.just(Map.of("name", "TV"), Map.of("name", "Radio")), Map.class))
+				.andRoute(GET("/invalid"), request -> ServerResponse.badRequest().bodyValue(List.of("invalid")));
+		return WebTestClient.bindToRouterFunction(routes)
+				.handlerStrategies(HandlerStrategies.builder().codecs(customizer()::customize).build())
+				.build();
+	}
+
+	private static WebTestClient annotated() {
+		return WebTestClient.bindToController(new AnnotatedEndpoints())
+				.httpMessageCodecs(customizer()::customize)
+				.build();
+	}
+
+	private static byte[] get(WebTestClient client, String uri, MediaType accept, MediaType expected) {
+		WebTestClient.RequestHeadersSpec<?> request = client.get().uri(uri);
+		if (accept != null) {
+			request = request.accept(accept);
+		}
+		return request.exchange()
+				.expectStatus().isOk()
+				.expectHeader().contentTypeCompatibleWith(expected)
+				.expectBody().returnResult().getResponseBody();
+	}
+
+	@Test
+	void servesJsonByDefault() throws Exception {
+		ObjectMapper json = new ObjectMapper();
+		WebTestClient client = functional();
+		Assertions.assertEquals("Sony TV",
+				json.readTree(get(client, "/product", null, MediaType.APPLICATION_JSON)).get("name").asText());
+		Assertions.assertEquals("TV",
+				json.readTree(get(client, "/map", MediaType.APPLICATION_JSON, MediaType.APPLICATION_JSON)).get("name").asText());
+		Assertions.assertEquals(2,
+				json.readTree(get(client, "/maps", MediaType.ALL, MediaType.APPLICATION_JSON)).size());
+		client.get().uri("/invalid").exchange()
+				.expectStatus().isBadRequest()
+				.expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+				.expectBody().json("[\"invalid\"]");
+
+		WebTestClient controllers = annotated();
+		Assertions.assertEquals("Sony TV",
+				json.readTree(get(controllers, "/annotated/product", null, MediaType.APPLICATION_JSON)).get("name").asText());
+		Assertions.assertEquals("TV",
+				json.readTree(get(controllers, "/annotated/map", null, MediaType.APPLICATION_JSON)).get("name").asText());
+	}
+
+	@Test
+	void servesCborWhenAsked() throws Exception {
+		ObjectMapper cbor = new ObjectMapper(new CBORFactory());
+		Assertions.assertEquals("Sony TV", cbor.readTree(
+				get(functional(), "/product", MediaType.APPLICATION_CBOR, MediaType.APPLICATION_CBOR)).get("name").asText());
+		Assertions.assertEquals("TV", cbor.readTree(
+				get(functional(), "/map", MediaType.APPLICATION_CBOR, MediaType.APPLICATION_CBOR)).get("name").asText());
+		Assertions.assertEquals("TV", cbor.readTree(
+				get(annotated(), "/annotated/map", MediaType.APPLICATION_CBOR, MediaType.APPLICATION_CBOR)).get("name").asText());
+	}
+
+	@Test
+	void servesSmileWhenAsked() throws Exception {
+		ObjectMapper smile = new ObjectMapper(new SmileFactory());
+		Assertions.assertEquals("Sony TV",
+				smile.readTree(get(functional(), "/product", SMILE, SMILE)).get("name").asText());
+		Assertions.assertEquals(2, smile.readTree(get(functional(), "/maps", SMILE, SMILE)).size());
+		Assertions.assertEquals("TV",
+				smile.readTree(get(annotated(), "/annotated/map", SMILE, SMILE)).get("name").asText());
+	}
+
+	@Test
+	void limitsTheStreamingJsonDecoderLikeTheDefaultOnes() {
+		ServerCodecConfigurer configurer = ServerCodecConfigurer.create();
+		configurer.defaultCodecs().maxInMemorySize(64);
+		customizer().customize(configurer);
+		CatalogJsonDecoder decoder = configurer.getReaders().stream()
+				.filter(DecoderHttpMessageReader.class::isInstance)
+				.map(reader -> ((DecoderHttpMessageReader<?>) reader).getDecoder())
+				.filter(CatalogJsonDecoder.class::isInstance)
+				.map(CatalogJsonDecoder.class::cast)
+				.findFirst().orElseThrow();
+
+		byte[] body = "{\"name\":\"Sony TV with a name long enough to go past the sixty-four bytes limit\"}"
+				.getBytes(StandardCharsets.UTF_8);
+		StepVerifier.create(decoder.decodeToMono(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(body)),
+				ResolvableType.forClass(Product.class), MediaType.APPLICATION_JSON, Map.of()))
+				.verifyError(DataBufferLimitException.class);
+	}
+
+}
@@ -0,0 +1,137 @@
+package com.egui.gabo.webflux.api;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.egui.gabo.webflux.api.codec.CatalogJsonDecoder;
+import com.egui.gabo.webflux.api.codec.CatalogJsonEncoder;
+import com.egui.gabo.webflux.api.models.document.Category;
+import com.egui.gabo.webflux.api.models.document.Product;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Unit tests for @CatalogJsonEncoder and @CatalogJsonDecoder
+ *
+ * @author Gabriel Eguiguren P.
+ */
+class CatalogJsonCodecUnitTests {
+
+	// configured like Spring Boot's auto-configured mapper
+	private final ObjectMapper mapper = Jackson2ObjectMapperBuilder.json()
+			.featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+
+	private final CatalogJsonEncoder encoder = new CatalogJsonEncoder();
+	private final CatalogJsonDecoder decoder = new CatalogJsonDecoder();
+	private final DefaultDataBufferFactory buffers = DefaultDataBufferFactory.sharedInstance;
+	private final ResolvableType productType = ResolvableType.forClass(Product.class);
+
+	private static Product product(String name, Double price, long createAt) {
+		Category category = new Category("Electrónica \"TV\"");
+		category.setId("c1");
+		Product product = new Product(name, price, category);
+		product.setId("64b7f0c2a1b2c3d4e5f60001");
+		product.setCreateAt(Instant.ofEpochMilli(createAt));
+		return product;
+	}
+
+	private String encode(Object value, ResolvableType type) {
+		DataBuffer buffer = encoder.encodeValue(value, buffers, type, MediaType.APPLICATION_JSON, Map.of());
+		return buffer.toString(StandardCharsets.UTF_8);
+	}
+
+	private static DataBuffer json(String json) {
+		return DefaultDataBufferFactory.sharedInstance.wrap(json.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void encodesLikeTheDefaultObjectMapper() throws Exception {
+		List<Product> products = List.of(
+				product("Sony Cámara\tHD \\ 4K \u0001", 123.45, 1_700_000_000_123L),
+				product("Apple iPod", 10.0, 0L),
+				product("Huge", 12_345_678.0, -86_400_001L),
+				product("Negative", -0.5, 951_782_400_000L), // 2000-02-29
+				new Product("Bare", null));
+
+		for (Product product : products) {
+			Assertions.assertEquals(mapper.writeValueAsString(product), encode(product, productType));
+		}
+		Assertions.assertEquals(mapper.writeValueAsString(products),
+				encode(products, ResolvableType.forClassWithGenerics(List.class, Product.class)));
+	}
+
+	@Test
+	void encodesFluxAsJsonArray() throws Exception {
+		List<Product> products = List.of(product("A", 1.0, 1L), product("B", 2.5, 2L));
+
+		String body = DataBufferUtils.join(encoder.encode(Flux.fromIterable(products), buffers, productType,
+				MediaType.APPLICATION_JSON, Map.of())).map(buffer -> buffer.toString(StandardCharsets.UTF_8)).block();
+		String empty = DataBufferUtils.join(encoder.encode(Flux.empty(), buffers, productType,
+				MediaType.APPLICATION_JSON, Map.of())).map(buffer -> buffer.toString(StandardCharsets.UTF_8)).block();
+
+		Assertions.assertEquals(mapper.writeValueAsString(products), body);
+		Assertions.assertEquals("[]", empty);
+	}
+
+	@Test
+	void onlyHandlesCatalogTypesAsPlainJson() {
+		Assertions.assertTrue(encoder.canEncode(productType, MediaType.APPLICATION_JSON));
+		Assertions.assertTrue(encoder.canEncode(ResolvableType.forClassWithGenerics(List.class, Category.class), null));
+		Assertions.assertFalse(encoder.canEncode(ResolvableType.forClass(String.class), MediaType.APPLICATION_JSON));
+		Assertions.assertFalse(encoder.canEncode(productType, MediaType.APPLICATION_NDJSON));
+		Assertions.assertFalse(decoder.canDecode(ResolvableType.forClass(Map.class), MediaType.APPLICATION_JSON));
+	}
+
+	@Test
+	void decodesWhatItEncodes() {
+		Product product = product("Sony \"Cámara\"\n", 123.45, 1_700_000_000_123L);
+
+		Product decoded = (Product) decoder.decodeToMono(Mono.just(json(encode(product, productType))), productType,
+				MediaType.APPLICATION_JSON, Map.of()).block();
+
+		Assertions.assertEquals(product.getId(), decoded.getId());
+		Assertions.assertEquals(product.getName(), decoded.getName());
+		Assertions.assertEquals(product.getPrice(), decoded.getPrice());
+		Assertions.assertEquals(product.getCreateAt(), decoded.getCreateAt());
+		Assertions.assertEquals("c1", decoded.getCategory().getId());
+		Assertions.assertEquals(product.getCategory().getName(), decoded.getCategory().getName());
+		Assertions.assertNull(decoded.getPicture());
+	}
+
+	@Test
+	void decodesLenientlyLikeJackson() {
+		String body = "{\"name\":\"TV\",\"price\":\"99.5\",\"createAt\":\"2024-01-31\",\"stock\":{\"a\":[1,2]},"
+				+ "\"category\":{\"id\":\"c1\",\"name\":\"Home\",\"extra\":true}}";
+
+		Product decoded = (Product) decoder.decode(json(body), productType, MediaType.APPLICATION_JSON, Map.of());
+		@SuppressWarnings("unchecked")
+		List<Object> list = (List<Object>) decoder.decode(json("[{\"createAt\":1000},{\"name\":\"B\"}]"),
+				ResolvableType.forClassWithGenerics(List.class, Product.class), MediaType.APPLICATION_JSON, Map.of());
+
+		Assertions.assertEquals(99.5, decoded.getPrice());
+		Assertions.assertEquals(1_706_659_200_000L, decoded.getCreateAtMillis());
+		Assertions.assertEquals("Home", decoded.getCategory().getName());
+		Assertions.assertEquals(2, list.size());
+		Assertions.assertEquals(1000L, ((Product) list.get(0)).getCreateAtMillis());
+		Assertions.assertThrows(DecodingException.class,
+				() -> decoder.decode(json("{\"price\":true}"), productType, MediaType.APPLICATION_JSON, Map.of()));
+		Assertions.assertThrows(DecodingException.class,
+				() -> decoder.decode(json("{\"name\":"), productType, MediaType.APPLICATION_JSON, Map.of()));
+	}
+
+}
@@ -0,0 +1,82 @@
+package com.egui.gabo.webflux.api;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+
+import com.egui.gabo.webflux.api.codec.CatalogProtobufEncoder;
+import com.egui.gabo.webflux.api.models.document.Category;
+import com.egui.gabo.webflux.api.models.document.Product;
+
+/**
+ * Unit tests for @CatalogProtobufEncoder
+ *
+ * @author Gabriel Eguiguren P.
+ */
+class CatalogProtobufEncoderUnitTests {
+
+	private final CatalogProtobufEncoder encoder = new CatalogProtobufEncoder();
+
+	private static Category category() {
+		Category category = new Category("TV");
+		category.setId("c1");
+		return category;
+	}
+
+	@Test
+	void encodesCategoryFields() {
+		Assertions.assertArrayEquals(new byte[] { 0x0A, 2, 'c', '1', 0x12, 2, 'T', 'V' },
+				CatalogProtobufEncoder.encode(category()));
+	}
+
+	@Test
+	void encodesProductFieldsAndSkipsDefaults() {
+		Product product = new Product("A", 1.0, category());
+		product.setCreateAt(Instant.ofEpochMilli(300));
+
+		byte[] bytes = CatalogProtobufEncoder.encode(product);
+
+		// no id (field 1) or picture (field 6): name, price, create_at, category, price_minor
+		Assertions.assertEquals(0x12, bytes[0]);
+		Assertions.assertEquals(0x19, bytes[3]); // field 3, fixed64
+		Assertions.assertEquals(0x3F, bytes[11]); // 1.0 little endian ends with 0xF0 0x3F
+		Assertions.assertEquals(0x20, bytes[12]); // field 4, varint
+		Assertions.assertEquals((byte) 0xAC, bytes[13]); // 300 = 0xAC 0x02
+		Assertions.assertEquals(0x02, bytes[14]);
+		Assertions.assertEquals(0x2A, bytes[15]); // field 5, nested category
+		Assertions.assertEquals(0x38, bytes[25]); // field 7, varint
+		Assertions.assertEquals(100, bytes[26]);
+		Assertions.assertEquals(17 + 8 + 2, bytes.length);
+	}
+
+	@Test
+	void encodesListsAsRepeatedEntries() {
+		DataBuffer buffer = encoder.encodeValue(List.of(category(), category()), DefaultDataBufferFactory.sharedInstance,
+				ResolvableType.forClassWithGenerics(List.class, Category.class), null, null);
+
+		byte[] bytes = new byte[buffer.readableByteCount()];
+		buffer.read(bytes);
+		Assertions.assertArrayEquals(new byte[] { 0x0A, 8, 0x0A, 2, 'c', '1', 0x12, 2, 'T', 'V', 0x0A, 8, 0x0A, 2,
+				'c', '1', 0x12, 2, 'T', 'V' }, bytes);
+	}
+
+	@Test
+	void onlyEncodesCatalogTypesAsProtobuf() {
+		MediaType protobuf = CatalogProtobufEncoder.APPLICATION_PROTOBUF;
+
+		Assertions.assertTrue(encoder.canEncode(ResolvableType.forClass(Product.class), protobuf));
+		Assertions.assertTrue(
+				encoder.canEncode(ResolvableType.forClassWithGenerics(List.class, Product.class), protobuf));
+		Assertions.assertFalse(encoder.canEncode(ResolvableType.forClass(String.class), protobuf));
+		Assertions.assertFalse(
+				encoder.canEncode(ResolvableType.forClass(Product.class), MediaType.APPLICATION_JSON));
+		Assertions.assertFalse(encoder.canEncode(ResolvableType.forClass(Product.class), null));
+	}
+
+}
@@ -0,0 +1,169 @@
+package com.egui.gabo.webflux.api;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.egui.gabo.webflux.api.catalog.CatalogSnapshot;
+import com.egui.gabo.webflux.api.models.document.Category;
+import com.egui.gabo.webflux.api.models.document.Product;
+import com.egui.gabo.webflux.api.models.repository.ProductRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Unit tests for @CatalogSnapshot, loading from a stub repository whose scan
+ * the test drives
+ *
+ * @author Gabriel Eguiguren P.
+ */
+class CatalogSnapshotUnitTests {
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	private Sinks.Many<Product> scan;
+
+	private CatalogSnapshot snapshot;
+
+	private static Product product(String id, String name) {
+		Product product = new Product(name, 10.0, null);
+		product.setId(id);
+		return product;
+	}
+
+	@BeforeEach
+	void setUp() {
+		scan = Sinks.many().unicast().onBackpressureBuffer();
+		ProductRepository repository = (ProductRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { ProductRepository.class }, (proxy, method, args) -> {
+					if (method.getName().equals("exportAll")) {
+						return scan.asFlux();
+					}
+					throw new UnsupportedOperationException(method.getName());
+				});
+		snapshot = new CatalogSnapshot();
+		ReflectionTestUtils.setField(snapshot, "productDao", repository);
+		ReflectionTestUtils.setField(snapshot, "mapper", mapper);
+	}
+
+	private List<String> names(CatalogSnapshot.Encoded encoded) throws Exception {
+		JsonNode list = mapper.readTree(encoded.getJson());
+		return StreamSupport.stream(list.spliterator(), false).map(node -> node.get("name").asText())
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Waits for the background rebuild to catch up with the changes made so far.
+	 */
+	private CatalogSnapshot.Encoded latest() throws InterruptedException {
+		long target = ((AtomicLong) ReflectionTestUtils.getField(snapshot, "version")).get();
+		CatalogSnapshot.Encoded encoded = snapshot.current().block(Duration.ofSeconds(5));
+		for (int i = 0; i < 100 && encoded.getVersion() != target; i++) {
+			Thread.sleep(50);
+			encoded = snapshot.current().block(Duration.ofSeconds(5));
+		}
+		return encoded;
+	}
+
+	@Test
+	void keepsChangesMadeWhileLoadingTest() throws Exception {
+		Mono<CatalogSnapshot.Encoded> current = snapshot.current().cache();
+		current.subscribe();
+
+		scan.tryEmitNext(product("p1", "Sony TV"));
+		// deleted and renamed while the scan is still running, with older versions still to come
+		snapshot.productDeleted("p2");
+		snapshot.productSaved(product("p3", "Samsung TV 2"));
+		scan.tryEmitNext(product("p2", "Deleted Radio"));
+		scan.tryEmitNext(product("p3", "Samsung TV"));
+		scan.tryEmitComplete();
+
+		CatalogSnapshot.Encoded loaded = current.block(Duration.ofSeconds(5));
+		Assertions.assertEquals(List.of("Sony TV", "Samsung TV 2"), names(loaded));
+
+		// once loaded, changes apply as they come; the previous snapshot is served while they are encoded
+		snapshot.productDeleted("p1");
+		snapshot.productSaved(product("p2", "Radio"));
+		Assertions.assertSame(loaded, snapshot.current().block(Duration.ofSeconds(5)));
+		Assertions.assertEquals(List.of("Radio", "Samsung TV 2"), names(latest()));
+	}
+
+	@Test
+	void compressesOnFirstUseTest() throws Exception {
+		Mono<CatalogSnapshot.Encoded> current = snapshot.current().cache();
+		current.subscribe();
+		scan.tryEmitNext(product("p1", "Sony TV"));
+		scan.tryEmitComplete();
+
+		CatalogSnapshot.Encoded encoded = current.block(Duration.ofSeconds(5));
+		byte[] gzip = encoded.getGzip().block(Duration.ofSeconds(5));
+		Assertions.assertSame(gzip, encoded.getGzip().block(Duration.ofSeconds(5)));
+		try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+			Assertions.assertArrayEquals(encoded.getJson(), in.readAllBytes());
+		}
+	}
+
+	private static Category category(String id, String name) {
+		Category category = new Category(name);
+		category.setId(id);
+		return category;
+	}
+
+	private List<String> categoryNames(CatalogSnapshot.Encoded encoded) throws Exception {
+		JsonNode list = mapper.readTree(encoded.getJson());
+		return StreamSupport.stream(list.spliterator(), false).map(node -> node.get("category").get("name").asText())
+				.collect(Collectors.toList());
+	}
+
+	@Test
+	void renamesTheProductsOfTheCategoryTest() throws Exception {
+		Mono<CatalogSnapshot.Encoded> current = snapshot.current().cache();
+		current.subscribe();
+
+		Product tv = product("p1", "Sony TV");
+		tv.setCategory(category("c1", "Electronic"));
+		scan.tryEmitNext(tv);
+		// renamed while the scan is running: applies to the products read before and after
+		snapshot.categoryRenamed(category("c1", "Electronics"));
+		Product radio = product("p2", "Radio");
+		radio.setCategory(category("c1", "Electronic"));
+		scan.tryEmitNext(radio);
+		Product laptop = product("p3", "Laptop");
+		laptop.setCategory(category("c2", "Computers"));
+		scan.tryEmitNext(laptop);
+		scan.tryEmitComplete();
+
+		Assertions.assertEquals(List.of("Electronics", "Electronics", "Computers"),
+				categoryNames(current.block(Duration.ofSeconds(5))));
+
+		snapshot.categoryRenamed(category("c2", "Laptops"));
+		CatalogSnapshot.Encoded renamed = latest();
+		Assertions.assertEquals(List.of("Electronics", "Electronics", "Laptops"), categoryNames(renamed));
+		Assertions.assertEquals(List.of("Sony TV", "Radio", "Laptop"), names(renamed));
+	}
+
+	@Test
+	void honoursGzipQualitiesTest() {
+		Assertions.assertTrue(CatalogSnapshot.acceptsGzip(List.of("gzip, deflate, br")));
+		Assertions.assertTrue(CatalogSnapshot.acceptsGzip(List.of("br;q=1.0, GZIP;q=0.5")));
+		Assertions.assertTrue(CatalogSnapshot.acceptsGzip(List.of("*")));
+		Assertions.assertFalse(CatalogSnapshot.acceptsGzip(List.of("gzip;q=0", "deflate")));
+		Assertions.assertFalse(CatalogSnapshot.acceptsGzip(List.of("gzip; q=0.0, *")));
+		Assertions.assertFalse(CatalogSnapshot.acceptsGzip(List.of("identity")));
+		Assertions.assertFalse(CatalogSnapshot.acceptsGzip(List.of()));
+	}
+
+}
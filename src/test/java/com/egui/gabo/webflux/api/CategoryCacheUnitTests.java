@@ -0,0 +1,82 @@
+package com.egui.gabo.webflux.api;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.egui.gabo.webflux.api.catalog.CategoryCache;
+import com.egui.gabo.webflux.api.catalog.CategoryCache.UnknownCategoryException;
+import com.egui.gabo.webflux.api.models.document.Category;
+
+import reactor.test.StepVerifier;
+
+/**
+ * Unit tests for @CategoryCache
+ *
+ * @author Gabriel Eguiguren P.
+ */
+class CategoryCacheUnitTests {
+
+	private static Category category(String id, String name) {
+		Category category = new Category(name);
+		category.setId(id);
+		return category;
+	}
+
+	private static CategoryCache loaded() {
+		CategoryCache cache = new CategoryCache();
+		cache.replaceAll(List.of(category("c1", "Electronic"), category("c2", "Computers")));
+		return cache;
+	}
+
+	@Test
+	void resolvesToTheStoredCategory() {
+		CategoryCache cache = loaded();
+
+		// the id wins over a stale or forged name
+		StepVerifier.create(cache.resolve(category("c1", "Whatever")))
+				.assertNext(resolved -> {
+					Assertions.assertEquals("c1", resolved.getId());
+					Assertions.assertEquals("Electronic", resolved.getName());
+				})
+				.verifyComplete();
+		StepVerifier.create(cache.resolve(category(null, "Computers")))
+				.assertNext(resolved -> Assertions.assertEquals("c2", resolved.getId()))
+				.verifyComplete();
+	}
+
+	@Test
+	void rejectsUnknownCategories() {
+		CategoryCache cache = loaded();
+
+		StepVerifier.create(cache.resolve(category("c9", "Electronic")))
+				.expectError(UnknownCategoryException.class).verify();
+		StepVerifier.create(cache.resolve(category(null, "Toys")))
+				.expectError(UnknownCategoryException.class).verify();
+		StepVerifier.create(cache.resolve(null))
+				.expectError(UnknownCategoryException.class).verify();
+	}
+
+	@Test
+	void followsCategoryChanges() {
+		CategoryCache cache = loaded();
+
+		cache.categorySaved(category("c1", "Electronics"));
+		cache.categorySaved(category("c3", "Toys"));
+		cache.categoryDeleted("c2");
+
+		Assertions.assertEquals("Electronics", cache.get("c1").getName());
+		StepVerifier.create(cache.findByName("Electronic")).verifyComplete();
+		StepVerifier.create(cache.findByName("Toys"))
+				.assertNext(found -> Assertions.assertEquals("c3", found.getId()))
+				.verifyComplete();
+		StepVerifier.create(cache.resolve(category("c2", "Computers")))
+				.expectError(UnknownCategoryException.class).verify();
+
+		// callers get copies, the cache is not changed through them
+		cache.findById("c1").block().setName("Changed");
+		Assertions.assertEquals("Electronics", cache.get("c1").getName());
+	}
+
+}
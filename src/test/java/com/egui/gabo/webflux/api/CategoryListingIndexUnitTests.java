@@ -0,0 +1,128 @@
+package com.egui.gabo.webflux.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.egui.gabo.webflux.api.catalog.CategoryListingIndex;
+import com.egui.gabo.webflux.api.catalog.CategoryListingIndex.Order;
+import com.egui.gabo.webflux.api.catalog.CategoryListingIndex.Page;
+import com.egui.gabo.webflux.api.models.document.Category;
+import com.egui.gabo.webflux.api.models.document.Product;
+
+/**
+ * Unit tests for @CategoryListingIndex
+ *
+ * @author Gabriel Eguiguren P.
+ */
+class CategoryListingIndexUnitTests {
+
+	private CategoryListingIndex index;
+
+	private Category electronic;
+
+	private Category computers;
+
+	private static Product product(String id, String name, double price, Category category) {
+		Product product = new Product(name, price, category);
+		product.setId(id);
+		return product;
+	}
+
+	private static List<String> ids(Page page) {
+		return page.getItems().stream().map(CategoryListingIndex.Item::getId).collect(Collectors.toList());
+	}
+
+	/**
+	 * Reads a whole listing page by page, following the cursors.
+	 */
+	private List<String> readAll(String categoryId, Order order, boolean descending, int size) {
+		List<String> all = new ArrayList<>();
+		String after = null;
+		do {
+			Page page = index.page(categoryId, order, descending, after, size);
+			Assertions.assertTrue(page.getItems().size() <= size);
+			all.addAll(ids(page));
+			after = page.getNextCursor();
+		} while (after != null);
+		return all;
+	}
+
+	@BeforeEach
+	void setUp() {
+		index = new CategoryListingIndex();
+		electronic = new Category("Electronic");
+		electronic.setId("c1");
+		computers = new Category("Computers");
+		computers.setId("c2");
+
+		index.put(product("p1", "Sony Camera", 177.89, electronic));
+		index.put(product("p2", "apple iPod", 46.89, electronic));
+		index.put(product("p3", "Sony Notebook", 846.89, computers));
+		index.put(product("p4", "Hewlett Packard", 46.89, electronic));
+		index.put(product("p5", "Bianchi Bicycle", 70.89, electronic));
+	}
+
+	@Test
+	void listsACategoryInEveryOrder() {
+		Assertions.assertEquals(List.of("p1", "p2", "p4", "p5"), ids(index.page("c1", Order.ID, false, null, 10)));
+		Assertions.assertEquals(List.of("p2", "p4", "p5", "p1"), ids(index.page("c1", Order.PRICE, false, null, 10)));
+		Assertions.assertEquals(List.of("p2", "p5", "p4", "p1"), ids(index.page("c1", Order.NAME, false, null, 10)));
+		Assertions.assertEquals(List.of("p1", "p5", "p4", "p2"), ids(index.page("c1", Order.PRICE, true, null, 10)));
+
+		Page page = index.page("c1", Order.PRICE, false, null, 10);
+		Assertions.assertEquals(4, page.getTotal());
+		Assertions.assertEquals(46.89, page.getItems().get(0).getPrice());
+		Assertions.assertEquals("apple iPod", page.getItems().get(0).getName());
+		Assertions.assertNull(page.getNextCursor());
+		Assertions.assertEquals(0, index.page("unknown", Order.ID, false, null, 10).getTotal());
+	}
+
+	@Test
+	void pagesWithCursors() {
+		for (int i = 10; i < 60; i++) {
+			index.put(product("p" + i, "Product " + (i % 7), i % 5, computers));
+		}
+		for (Order order : Order.values()) {
+			for (boolean descending : new boolean[] { false, true }) {
+				List<String> whole = ids(index.page("c2", order, descending, null, 100));
+				Assertions.assertEquals(51, whole.size());
+				Assertions.assertEquals(whole, readAll("c2", order, descending, 7), order + " " + descending);
+				Assertions.assertEquals(whole, readAll("c2", order, descending, 51), order + " " + descending);
+			}
+		}
+	}
+
+	@Test
+	void followsSavesAndDeletes() {
+		String cursor = index.page("c1", Order.PRICE, false, null, 2).getNextCursor();
+
+		// moved to another category, repriced, and the product of the cursor deleted
+		index.put(product("p1", "Sony Camera", 177.89, computers));
+		index.put(product("p5", "Bianchi Bicycle", 10.5, electronic));
+		index.remove("p4");
+		index.put(product("p6", "Samsung TV", 60.0, electronic));
+
+		Assertions.assertEquals(List.of("p5", "p2", "p6"), ids(index.page("c1", Order.PRICE, false, null, 10)));
+		Assertions.assertEquals(List.of("p3", "p1"), ids(index.page("c2", Order.PRICE, true, null, 10)));
+		// the cursor still points between the prices it was issued for
+		Assertions.assertEquals(List.of("p6"), ids(index.page("c1", Order.PRICE, false, cursor, 10)));
+		Assertions.assertEquals(5, index.size());
+
+		index.remove("p3");
+		index.remove("p1");
+		Assertions.assertEquals(0, index.page("c2", Order.ID, false, null, 10).getTotal());
+	}
+
+	@Test
+	void rejectsMalformedCursors() {
+		Assertions.assertThrows(IllegalArgumentException.class, () -> index.page("c1", Order.PRICE, false, "bm9wZQ", 10));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> index.page("c1", Order.ID, false, "%%%", 10));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> Order.parse("createAt"));
+	}
+
+}
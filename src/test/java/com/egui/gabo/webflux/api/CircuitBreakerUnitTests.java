@@ -0,0 +1,58 @@
+package com.egui.gabo.webflux.api;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.egui.gabo.webflux.api.resilience.CircuitBreaker;
+import com.egui.gabo.webflux.api.resilience.CircuitBreaker.State;
+
+/**
+ * Unit tests for @CircuitBreaker
+ *
+ * @author Gabriel Eguiguren P.
+ */
+class CircuitBreakerUnitTests {
+
+	@Test
+	void opensAfterConsecutiveFailuresTest() {
+		CircuitBreaker breaker = new CircuitBreaker(2, 60_000);
+
+		breaker.onFailure();
+		Assertions.assertTrue(breaker.allowRequest());
+		breaker.onFailure();
+
+		Assertions.assertEquals(State.OPEN, breaker.getState());
+		Assertions.assertFalse(breaker.allowRequest());
+	}
+
+	@Test
+	void halfOpenAllowsSingleProbeTest() throws InterruptedException {
+		CircuitBreaker breaker = new CircuitBreaker(1, 10);
+
+		breaker.onFailure();
+		Thread.sleep(20);
+
+		Assertions.assertTrue(breaker.allowRequest()); // the probe
+		Assertions.assertFalse(breaker.allowRequest());
+		Assertions.assertEquals(State.HALF_OPEN, breaker.getState());
+
+		breaker.onSuccess();
+		Assertions.assertEquals(State.CLOSED, breaker.getState());
+		Assertions.assertTrue(breaker.allowRequest());
+	}
+
+	@Test
+	void failedProbeReopensTest() throws InterruptedException {
+		CircuitBreaker breaker = new CircuitBreaker(3, 10);
+
+		breaker.onFailure();
+		breaker.onFailure();
+		breaker.onFailure();
+		Thread.sleep(20);
+
+		Assertions.assertTrue(breaker.allowRequest());
+		breaker.onFailure();
+		Assertions.assertEquals(State.OPEN, breaker.getState());
+	}
+
+}
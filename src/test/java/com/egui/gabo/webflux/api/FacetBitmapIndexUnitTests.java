@@ -0,0 +1,124 @@
+package com.egui.gabo.webflux.api;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.egui.gabo.webflux.api.facet.FacetBitmapIndex;
+import com.egui.gabo.webflux.api.facet.FacetResult;
+import com.egui.gabo.webflux.api.facet.PriceBuckets;
+import com.egui.gabo.webflux.api.models.document.Category;
+import com.egui.gabo.webflux.api.models.document.Product;
+import com.egui.gabo.webflux.api.service.ProductFilter;
+
+/**
+ * Unit tests for @FacetBitmapIndex
+ *
+ * @author Gabriel Eguiguren P.
+ */
+class FacetBitmapIndexUnitTests {
+
+	private FacetBitmapIndex index;
+
+	private Category electronic;
+
+	private static Product product(String id, double price, Category category) {
+		Product product = new Product("Product " + id, price, category);
+		product.setId(id);
+		return product;
+	}
+
+	private static Map<String, Long> counts(List<FacetResult.Count> counts) {
+		return counts.stream().collect(Collectors.toMap(FacetResult.Count::getKey, FacetResult.Count::getCount));
+	}
+
+	private static ProductFilter filter(List<String> categories, Double min, Double max) {
+		ProductFilter filter = new ProductFilter();
+		filter.setCategoryIds(categories);
+		filter.setMinPrice(min);
+		filter.setMaxPrice(max);
+		return filter;
+	}
+
+	@BeforeEach
+	void setUp() {
+		electronic = new Category("Electronic");
+		electronic.setId("c1");
+		Category computers = new Category("Computers");
+		computers.setId("c2");
+
+		index = new FacetBitmapIndex(new PriceBuckets(new double[] { 100, 500 }));
+		index.put(product("1", 50, electronic));
+		index.put(product("2", 150, electronic));
+		index.put(product("3", 499.99, computers));
+		index.put(product("4", 500, computers));
+		index.put(product("5", 2000, computers));
+	}
+
+	@Test
+	void countsEveryProductWithoutFilters() {
+		FacetResult result = index.facet(new ProductFilter(), 10);
+
+		Assertions.assertEquals(5, result.getTotal());
+		Assertions.assertEquals(Map.of("c1", 2L, "c2", 3L), counts(result.getCategories()));
+		Assertions.assertEquals(Map.of("0-100", 1L, "100-500", 2L, "500+", 2L), counts(result.getPrices()));
+	}
+
+	@Test
+	void countsOnlyTheFilteredProducts() {
+		FacetResult result = index.facet(filter(List.of("c2"), null, null), 10);
+
+		Assertions.assertEquals(3, result.getTotal());
+		Assertions.assertEquals(Map.of("c2", 3L), counts(result.getCategories()));
+		Assertions.assertEquals(Map.of("0-100", 0L, "100-500", 1L, "500+", 2L), counts(result.getPrices()));
+	}
+
+	@Test
+	void checksPricesInBucketsStraddlingTheRange() {
+		FacetResult result = index.facet(filter(List.of(), 120.0, 500.0), 10);
+
+		Assertions.assertEquals(List.of("2", "3", "4"),
+				result.getProducts().stream().map(Product::getId).collect(Collectors.toList()));
+	}
+
+	@Test
+	void limitsProductsButNotTheTotal() {
+		FacetResult result = index.facet(new ProductFilter(), 2);
+
+		Assertions.assertEquals(5, result.getTotal());
+		Assertions.assertEquals(2, result.getProducts().size());
+	}
+
+	@Test
+	void returnsTheLowestIdsWhateverTheirDocumentIds() {
+		// the new products take over the freed document ids, out of id order
+		index.remove("1");
+		index.remove("2");
+		index.put(product("9", 10, electronic));
+		index.put(product("0", 20, electronic));
+
+		Assertions.assertEquals(List.of("0", "3"), index.facet(new ProductFilter(), 2).getProducts().stream()
+				.map(Product::getId).collect(Collectors.toList()));
+		Assertions.assertEquals(List.of("0", "3", "4", "5", "9"), index.facet(new ProductFilter(), 10).getProducts()
+				.stream().map(Product::getId).collect(Collectors.toList()));
+		FacetResult none = index.facet(new ProductFilter(), 0);
+		Assertions.assertEquals(5, none.getTotal());
+		Assertions.assertTrue(none.getProducts().isEmpty());
+	}
+
+	@Test
+	void reindexesMovedAndRemovedProducts() {
+		index.put(product("1", 700, electronic));
+		index.remove("2");
+
+		FacetResult result = index.facet(filter(List.of("c1"), null, null), 10);
+
+		Assertions.assertEquals(1, result.getTotal());
+		Assertions.assertEquals(Map.of("0-100", 0L, "100-500", 0L, "500+", 1L), counts(result.getPrices()));
+	}
+
+}
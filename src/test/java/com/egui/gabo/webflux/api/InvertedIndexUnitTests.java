@@ -0,0 +1,126 @@
+package com.egui.gabo.webflux.api;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.egui.gabo.webflux.api.models.document.Category;
+import com.egui.gabo.webflux.api.models.document.Product;
+import com.egui.gabo.webflux.api.search.InvertedIndex;
+import com.egui.gabo.webflux.api.search.InvertedIndex.Hit;
+
+/**
+ * Unit tests for @InvertedIndex
+ *
+ * @author Gabriel Eguiguren P.
+ */
+class InvertedIndexUnitTests {
+
+	private InvertedIndex index;
+
+	private static Product product(String id, String name, Category category) {
+		Product product = new Product(name, 100.0, category);
+		product.setId(id);
+		return product;
+	}
+
+	private static List<String> ids(List<Hit> hits) {
+		return hits.stream().map(hit -> hit.getProduct().getId()).collect(Collectors.toList());
+	}
+
+	@BeforeEach
+	void setUp() {
+		Category electronic = new Category("Electronic");
+		electronic.setId("c1");
+		Category computers = new Category("Computers");
+		computers.setId("c2");
+
+		index = new InvertedIndex();
+		index.put(product("1", "TV LG 4k 52in", electronic));
+		index.put(product("2", "Camara Sony", electronic));
+		index.put(product("3", "Laptop Lenovo", computers));
+		index.put(product("4", "Laptop Mac Book Pro", computers));
+	}
+
+	@Test
+	void matchesNameAndCategoryTest() {
+		Assertions.assertEquals(List.of("2"), ids(index.search("sony", null, 10)));
+		Assertions.assertEquals(2, index.search("computers", null, 10).size());
+	}
+
+	@Test
+	void toleratesTyposAndPartialWordsTest() {
+		Assertions.assertEquals(List.of("3"), ids(index.search("lenvoo", null, 10))); // transposition
+		Assertions.assertEquals(List.of("2"), ids(index.search("cam", null, 10))); // still typing
+	}
+
+	@Test
+	void expandsAmongTheTermsOfCloseLengthTest() {
+		Assertions.assertEquals(List.of("3"), ids(index.search("lenvo", null, 10))); // deletion
+		Assertions.assertEquals(List.of("3"), ids(index.search("lenovvo", null, 10))); // insertion
+		Assertions.assertEquals(List.of("3", "4"), ids(index.search("lap", null, 10)).stream().sorted().toList());
+
+		// removed terms are neither completions nor typo candidates anymore
+		index.remove("3");
+		index.remove("4");
+		Assertions.assertTrue(index.search("lenvo", null, 10).isEmpty());
+		Assertions.assertTrue(index.search("lap", null, 10).isEmpty());
+		index.put(product("5", "Lapicero", null));
+		Assertions.assertEquals(List.of("5"), ids(index.search("lap", null, 10)));
+	}
+
+	@Test
+	void ranksAndFiltersByCategoryTest() {
+		List<Hit> hits = index.search("laptop lenovo", null, 10);
+		Assertions.assertEquals("3", hits.get(0).getProduct().getId());
+		Assertions.assertTrue(hits.get(0).getScore() > hits.get(1).getScore());
+
+		Assertions.assertTrue(index.search("laptop", List.of("c1"), 10).isEmpty());
+	}
+
+	@Test
+	void updatesIncrementallyTest() {
+		index.put(product("2", "Camara Nikon", null));
+		Assertions.assertTrue(index.search("sony", null, 10).isEmpty());
+		Assertions.assertEquals(List.of("2"), ids(index.search("nikon", null, 10)));
+
+		index.remove("2");
+		Assertions.assertTrue(index.search("nikon", null, 10).isEmpty());
+		Assertions.assertEquals(3, index.size());
+	}
+
+	@Test
+	void keepsTheBestHitsUpToTheLimitTest() {
+		Category computers = new Category("Computers");
+		computers.setId("c2");
+		index.put(product("6", null, computers));
+		index.put(product("5", null, computers));
+
+		// products without name tie on score and are ordered by id instead of failing the sort
+		List<Hit> all = index.search("computers", null, 10);
+		Assertions.assertEquals(List.of("5", "6"), ids(all).subList(0, 2));
+		Assertions.assertEquals(4, all.size());
+
+		List<Hit> best = index.search("laptop lenovo", null, 1);
+		Assertions.assertEquals(List.of("3"), ids(best));
+		Assertions.assertEquals(ids(index.search("l", null, 10)).subList(0, 2), ids(index.search("l", null, 2)));
+	}
+
+	@Test
+	void renamesTheCategoryOfItsProductsTest() {
+		Category laptops = new Category("Notebooks");
+		laptops.setId("c2");
+		index.renameCategory(laptops);
+
+		Assertions.assertTrue(index.search("computers", null, 10).isEmpty());
+		List<Hit> hits = index.search("notebooks", null, 10);
+		Assertions.assertEquals(List.of("3", "4"), ids(hits).stream().sorted().toList());
+		Assertions.assertEquals("Notebooks", hits.get(0).getProduct().getCategory().getName());
+		Assertions.assertEquals(List.of("3", "4"), ids(index.search("laptop", List.of("c2"), 10)).stream().sorted().toList());
+		Assertions.assertEquals(4, index.size());
+	}
+
+}
@@ -0,0 +1,61 @@
+package com.egui.gabo.webflux.api;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.egui.gabo.webflux.api.search.NameRadixTree;
+import com.egui.gabo.webflux.api.search.NameRadixTree.Entry;
+
+/**
+ * Unit tests for @NameRadixTree
+ *
+ * @author Gabriel Eguiguren P.
+ */
+class NameRadixTreeUnitTests {
+
+	private static List<String> names(List<Entry> entries) {
+		return entries.stream().map(Entry::getName).collect(Collectors.toList());
+	}
+
+	@Test
+	void prefixIsCaseAndAccentInsensitiveTest() {
+		NameRadixTree tree = new NameRadixTree(10);
+		tree.put("1", "Cámara Sony", 1);
+		tree.put("2", "Camara Nikon", 2);
+		tree.put("3", "Laptop Lenovo", 3);
+
+		Assertions.assertEquals(List.of("Camara Nikon", "Cámara Sony"), names(tree.suggest("CAM", 10)));
+		Assertions.assertEquals(List.of("Camara Nikon"), names(tree.suggest("nik", 10))); // word prefix
+		Assertions.assertTrue(tree.suggest("xyz", 10).isEmpty());
+	}
+
+	@Test
+	void topKIsRankedAndDeduplicatedTest() {
+		NameRadixTree tree = new NameRadixTree(2);
+		tree.put("1", "TV LG", 1);
+		tree.put("2", "TV TV Haisen", 5); // matches "tv" through two keys
+		tree.put("3", "TV Samsung", 3);
+
+		Assertions.assertEquals(List.of("TV TV Haisen", "TV Samsung"), names(tree.suggest("tv", 5)));
+		Assertions.assertEquals(List.of("TV TV Haisen"), names(tree.suggest("tv", 1)));
+	}
+
+	@Test
+	void updateAndRemoveAreIncrementalTest() {
+		NameRadixTree tree = new NameRadixTree(10);
+		tree.put("1", "Apple watch", 1);
+		tree.put("2", "Apple TV", 1);
+
+		tree.put("1", "Garmin watch", 1);
+		Assertions.assertEquals(List.of("Apple TV"), names(tree.suggest("app", 10)));
+		Assertions.assertEquals(List.of("Garmin watch"), names(tree.suggest("wat", 10)));
+
+		tree.remove("2");
+		Assertions.assertTrue(tree.suggest("app", 10).isEmpty());
+		Assertions.assertEquals(1, tree.size());
+	}
+
+}
@@ -0,0 +1,112 @@
+package com.egui.gabo.webflux.api;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.egui.gabo.webflux.api.picture.PackedPictureLog;
+
+/**
+ * Unit tests for @PackedPictureLog
+ *
+ * @author Gabriel Eguiguren P.
+ */
+class PackedPictureLogUnitTests {
+
+	private static final int SEGMENT_SIZE = 8 * 1024;
+
+	@TempDir
+	Path directory;
+
+	private static byte[] picture(int seed, int size) {
+		byte[] bytes = new byte[size];
+		Arrays.fill(bytes, (byte) seed);
+		bytes[0] = (byte) (seed >> 8);
+		return bytes;
+	}
+
+	private static byte[] bytes(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+		return bytes;
+	}
+
+	@Test
+	void readsWhatWasWritten() throws IOException {
+		PackedPictureLog log = PackedPictureLog.open(directory, SEGMENT_SIZE, 0.5);
+
+		log.put("a.jpg", picture(1, 1000));
+		log.put("b.png", picture(2, 2000));
+		log.put("a.jpg", picture(3, 500)); // replaced
+
+		Assertions.assertArrayEquals(picture(3, 500), bytes(log.get("a.jpg")));
+		Assertions.assertArrayEquals(picture(2, 2000), bytes(log.get("b.png")));
+		Assertions.assertTrue(log.get("b.png").isReadOnly());
+		Assertions.assertTrue(log.delete("b.png"));
+		Assertions.assertFalse(log.delete("b.png"));
+		Assertions.assertNull(log.get("b.png"));
+		Assertions.assertEquals(1, log.size());
+	}
+
+	@Test
+	void rebuildsTheIndexOnOpen() throws IOException {
+		PackedPictureLog log = PackedPictureLog.open(directory, SEGMENT_SIZE, 0.5);
+		for (int i = 0; i < 20; i++) {
+			log.put("p" + i, picture(i, 1000));
+		}
+		log.flushIndex();
+		// appended after the index was written, then no clean shutdown
+		log.delete("p3");
+		log.put("p4", picture(40, 100));
+		log.put("p20", picture(20, 1000));
+
+		PackedPictureLog fromIndex = PackedPictureLog.open(directory, SEGMENT_SIZE, 0.5);
+		Files.delete(directory.resolve("index.dat"));
+		PackedPictureLog fromSegments = PackedPictureLog.open(directory, SEGMENT_SIZE, 0.5);
+
+		for (PackedPictureLog reopened : new PackedPictureLog[] { fromIndex, fromSegments }) {
+			Assertions.assertEquals(20, reopened.size());
+			Assertions.assertNull(reopened.get("p3"));
+			Assertions.assertArrayEquals(picture(40, 100), bytes(reopened.get("p4")));
+			Assertions.assertArrayEquals(picture(19, 1000), bytes(reopened.get("p19")));
+			Assertions.assertArrayEquals(picture(20, 1000), bytes(reopened.get("p20")));
+			Assertions.assertEquals(log.liveBytes(), reopened.liveBytes());
+		}
+	}
+
+	@Test
+	void compactsSegmentsOfDeletedPictures() throws IOException {
+		PackedPictureLog log = PackedPictureLog.open(directory, SEGMENT_SIZE, 0.5);
+		for (int i = 0; i < 40; i++) {
+			log.put("p" + i, picture(i, 1000));
+		}
+		ByteBuffer handedOut = log.get("p1");
+		for (int i = 0; i < 30; i++) {
+			if (i % 5 != 0) {
+				log.delete("p" + i);
+			}
+		}
+		int segmentsBefore = log.segmentCount();
+		long usedBefore = log.usedBytes();
+
+		Assertions.assertTrue(log.compact() > 0);
+		Assertions.assertTrue(log.segmentCount() < segmentsBefore);
+		Assertions.assertTrue(log.usedBytes() < usedBefore);
+		Assertions.assertArrayEquals(picture(1, 1000), bytes(handedOut)); // still mapped
+
+		PackedPictureLog reopened = PackedPictureLog.open(directory, SEGMENT_SIZE, 0.5);
+		for (PackedPictureLog current : new PackedPictureLog[] { log, reopened }) {
+			Assertions.assertEquals(16, current.size());
+			Assertions.assertNull(current.get("p1"));
+			Assertions.assertArrayEquals(picture(5, 1000), bytes(current.get("p5")));
+			Assertions.assertArrayEquals(picture(39, 1000), bytes(current.get("p39")));
+		}
+	}
+
+}
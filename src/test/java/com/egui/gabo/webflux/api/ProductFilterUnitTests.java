@@ -0,0 +1,103 @@
+package com.egui.gabo.webflux.api;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import com.egui.gabo.webflux.api.models.document.Category;
+import com.egui.gabo.webflux.api.models.document.Product;
+import com.egui.gabo.webflux.api.service.ProductFilter;
+import com.egui.gabo.webflux.api.service.ProductFilter.SortKey;
+
+/**
+ * Unit tests for @ProductFilter
+ *
+ * @author Gabriel Eguiguren P.
+ */
+class ProductFilterUnitTests {
+
+	private static MultiValueMap<String, String> params(String... pairs) {
+		MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
+		for (int i = 0; i < pairs.length; i += 2) {
+			params.add(pairs[i], pairs[i + 1]);
+		}
+		return params;
+	}
+
+	@Test
+	void parsesFiltersSortAndPage() {
+		ProductFilter filter = ProductFilter.fromQueryParams(params("category", "c1", "category", "c2", "maxPrice",
+				"300", "createdFrom", "2026-01-01", "sort", "createAt", "dir", "desc", "size", "20"));
+
+		Assertions.assertEquals(List.of("c1", "c2"), filter.getCategoryIds());
+		Assertions.assertEquals(300.0, filter.getMaxPrice());
+		Assertions.assertEquals(LocalDate.of(2026, 1, 1), filter.getCreatedFrom());
+		Assertions.assertEquals(SortKey.CREATE_AT, filter.getSort());
+		Assertions.assertFalse(filter.getDirection().isAscending());
+		Assertions.assertEquals(20, filter.getSize());
+		Assertions.assertFalse(filter.isEmpty());
+	}
+
+	@Test
+	void emptyWithoutParams() {
+		ProductFilter filter = ProductFilter.fromQueryParams(params());
+
+		Assertions.assertTrue(filter.isEmpty());
+		Assertions.assertEquals(SortKey.ID, filter.getSort());
+		Assertions.assertEquals(ProductFilter.DEFAULT_SIZE, filter.getSize());
+	}
+
+	@Test
+	void rejectsMalformedParams() {
+		Assertions.assertThrows(IllegalArgumentException.class,
+				() -> ProductFilter.fromQueryParams(params("minPrice", "cheap")));
+		Assertions.assertThrows(IllegalArgumentException.class,
+				() -> ProductFilter.fromQueryParams(params("sort", "name")));
+		Assertions.assertThrows(IllegalArgumentException.class,
+				() -> ProductFilter.fromQueryParams(params("sort", "price", "after", "bm90LWEtY3Vyc29y")));
+	}
+
+	@Test
+	void cursorRoundTrips() {
+		Product last = new Product("Laptop", 299.5, new Category("Computers"));
+		last.setId("64b7f0c2a1b2c3d4e5f60718");
+		ProductFilter filter = ProductFilter.fromQueryParams(params("sort", "price"));
+
+		filter.setAfter(filter.cursorAfter(last));
+		Object[] cursor = filter.decodeCursor();
+
+		Assertions.assertEquals(29950L, cursor[0]);
+		Assertions.assertEquals(last.getId(), cursor[1]);
+	}
+
+	@Test
+	void acceptsDecimalPriceCursors() {
+		ProductFilter filter = ProductFilter.fromQueryParams(params("sort", "price"));
+		// cursor issued when prices were decimals: "299.5|<id>"
+		filter.setAfter(Base64.getUrlEncoder().withoutPadding()
+				.encodeToString("299.5|64b7f0c2a1b2c3d4e5f60718".getBytes(StandardCharsets.UTF_8)));
+
+		Assertions.assertEquals(29950L, filter.decodeCursor()[0]);
+	}
+
+	@Test
+	void matchesInclusiveDateRange() {
+		ProductFilter filter = ProductFilter
+				.fromQueryParams(params("createdFrom", "2026-03-01", "createdTo", "2026-03-01"));
+		Product product = new Product("Laptop", 100.0);
+
+		product.setCreateAt(LocalDate.of(2026, 3, 1).atTime(23, 59).toInstant(ZoneOffset.UTC));
+		Assertions.assertTrue(filter.matches(product));
+
+		product.setCreateAt(LocalDate.of(2026, 3, 2).atStartOfDay().toInstant(ZoneOffset.UTC));
+		Assertions.assertFalse(filter.matches(product));
+	}
+
+}
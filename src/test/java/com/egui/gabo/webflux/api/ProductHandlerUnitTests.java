@@ -2,6 +2,7 @@ package com.egui.gabo.webflux.api;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -123,6 +124,26 @@ class ProductHandlerUnitTests {
 			
 	}
 	
+	@Test
+	void updatePriceTest() {
+		
+		client.put()
+			.uri(URL_ENDPOINT.concat("/{id}/price"), Collections.singletonMap("id", "unknown"))
+			.contentType(MediaType.APPLICATION_JSON)
+			.bodyValue(Map.of("price", 10.5))
+			.exchange()
+			.expectStatus().isAccepted(); // dropped by the flush
+		
+		client.put()
+			.uri(URL_ENDPOINT.concat("/{id}/price"), Collections.singletonMap("id", "unknown"))
+			.contentType(MediaType.APPLICATION_JSON)
+			.bodyValue(Map.of("price", -1))
+			.exchange()
+			.expectStatus().isBadRequest()
+			.expectBody()
+			.jsonPath("$[0]").isEqualTo("The field price must be zero or greater");
+	}
+
 	@Test
 	void deleteTest() {
 		
@@ -0,0 +1,189 @@
+package com.egui.gabo.webflux.api;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.egui.gabo.webflux.api.catalog.CategoryStatsTracker;
+import com.egui.gabo.webflux.api.catalog.ProductInsertBatcher;
+import com.egui.gabo.webflux.api.models.document.Product;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Unit tests for @ProductInsertBatcher, against a stub bulk write (no Mongo
+ * is contacted)
+ *
+ * @author Gabriel Eguiguren P.
+ */
+class ProductInsertBatcherUnitTests {
+
+	// never connected to: bulk writes are answered by the stub
+	private final MongoClient client = MongoClients.create("mongodb://localhost:1");
+
+	// products passed to the category stats
+	private final List<Product> counted = new CopyOnWriteArrayList<>();
+
+	// makes the category stats update fail
+	private volatile boolean statsDown;
+
+	@AfterEach
+	void closeClient() {
+		client.close();
+	}
+
+	/**
+	 * Builds a batcher whose bulk inserts are answered by the given function of
+	 * the inserted products.
+	 */
+	private ProductInsertBatcher batcher(Function<List<Product>, Mono<BulkWriteResult>> bulkWrite) {
+		ReactiveMongoTemplate template = new ReactiveMongoTemplate(client, "test") {
+			@Override
+			public ReactiveBulkOperations bulkOps(BulkMode mode, Class<?> entityClass) {
+				List<Product> inserted = new ArrayList<>();
+				return (ReactiveBulkOperations) Proxy.newProxyInstance(getClass().getClassLoader(),
+						new Class<?>[] { ReactiveBulkOperations.class }, (proxy, method, args) -> {
+							if (method.getName().equals("insert")) {
+								@SuppressWarnings("unchecked")
+								List<Product> products = (List<Product>) args[0];
+								inserted.addAll(products);
+								return proxy;
+							}
+							return method.getName().equals("execute") ? bulkWrite.apply(inserted) : null;
+						});
+			}
+		};
+		CategoryStatsTracker stats = new CategoryStatsTracker() {
+			@Override
+			public Mono<Void> productsInserted(Collection<Product> inserted) {
+				if (statsDown) {
+					return Mono.error(new IllegalStateException("stats unavailable"));
+				}
+				counted.addAll(inserted);
+				return Mono.empty();
+			}
+		};
+
+		ProductInsertBatcher batcher = new ProductInsertBatcher();
+		ReflectionTestUtils.setField(batcher, "enabled", true);
+		ReflectionTestUtils.setField(batcher, "maxSize", 3);
+		ReflectionTestUtils.setField(batcher, "maxWait", Duration.ofMillis(50));
+		ReflectionTestUtils.setField(batcher, "concurrency", 1);
+		ReflectionTestUtils.setField(batcher, "shutdownTimeout", Duration.ofSeconds(5));
+		ReflectionTestUtils.setField(batcher, "mongoTemplate", template);
+		ReflectionTestUtils.setField(batcher, "categoryStats", stats);
+		ReflectionTestUtils.setField(batcher, "registry", new SimpleMeterRegistry());
+		ReflectionTestUtils.invokeMethod(batcher, "start");
+		return batcher;
+	}
+
+	/**
+	 * Fails the documents named "duplicate" with a duplicate key and those named
+	 * "invalid" with a validation error, as an unordered bulk insert reports them.
+	 */
+	private static Mono<BulkWriteResult> rejectSome(List<Product> products) {
+		List<BulkWriteError> errors = new ArrayList<>();
+		for (int i = 0; i < products.size(); i++) {
+			String name = products.get(i).getName();
+			if (name.equals("duplicate")) {
+				errors.add(new BulkWriteError(11000, "E11000 duplicate key", new BsonDocument(), i));
+			} else if (name.equals("invalid")) {
+				errors.add(new BulkWriteError(121, "Document failed validation", new BsonDocument(), i));
+			}
+		}
+		return Mono.error(new MongoBulkWriteException(BulkWriteResult.unacknowledged(), errors, null,
+				new ServerAddress(), Set.of()));
+	}
+
+	/**
+	 * Inserts the products concurrently, so they share a batch, and maps each
+	 * name to the product or error its caller got.
+	 */
+	private static Map<String, Object> insertAll(ProductInsertBatcher batcher, String... names) {
+		return Flux.fromArray(names)
+				.flatMap(name -> batcher.insert(new Product(name, 10.0, null)).<Object>map(product -> product)
+						.onErrorResume(e -> Mono.just(e))
+						.map(outcome -> Map.entry(name, outcome)))
+				.collectMap(Map.Entry::getKey, Map.Entry::getValue)
+				.block(Duration.ofSeconds(5));
+	}
+
+	@Test
+	void answersEachCallerWithItsOwnOutcomeTest() {
+		ProductInsertBatcher batcher = batcher(ProductInsertBatcherUnitTests::rejectSome);
+
+		Map<String, Object> outcomes = insertAll(batcher, "duplicate", "tv", "invalid");
+
+		Assertions.assertInstanceOf(DuplicateKeyException.class, outcomes.get("duplicate"));
+		Assertions.assertInstanceOf(DataIntegrityViolationException.class, outcomes.get("invalid"));
+		Product inserted = Assertions.assertInstanceOf(Product.class, outcomes.get("tv"));
+		Assertions.assertNotNull(inserted.getId());
+		// only the inserted product is counted in the category stats
+		Assertions.assertEquals(List.of("tv"), counted.stream().map(Product::getName).collect(Collectors.toList()));
+	}
+
+	@Test
+	void failsTheWholeBatchOnOtherErrorsTest() {
+		IllegalStateException down = new IllegalStateException("write concern error");
+		ProductInsertBatcher batcher = batcher(products -> Mono.error(down));
+
+		Map<String, Object> outcomes = insertAll(batcher, "tv", "radio");
+
+		Assertions.assertSame(down, outcomes.get("tv"));
+		Assertions.assertSame(down, outcomes.get("radio"));
+		Assertions.assertTrue(counted.isEmpty());
+	}
+
+	@Test
+	void answersStoredProductsWhenTheStatsFailTest() {
+		statsDown = true;
+		ProductInsertBatcher batcher = batcher(products -> Mono.just(BulkWriteResult.unacknowledged()));
+
+		Map<String, Object> outcomes = insertAll(batcher, "tv", "radio");
+
+		Assertions.assertInstanceOf(Product.class, outcomes.get("tv"));
+		Assertions.assertInstanceOf(Product.class, outcomes.get("radio"));
+	}
+
+	@Test
+	void writesTheQueuedProductsBeforeStoppingTest() {
+		ProductInsertBatcher batcher = batcher(
+				products -> Mono.delay(Duration.ofMillis(300)).then(Mono.just(BulkWriteResult.unacknowledged())));
+		List<Object> outcomes = new CopyOnWriteArrayList<>();
+		batcher.insert(new Product("tv", 10.0, null)).subscribe(outcomes::add, outcomes::add);
+
+		ReflectionTestUtils.invokeMethod(batcher, "stop");
+
+		Assertions.assertEquals(1, outcomes.size());
+		Assertions.assertInstanceOf(Product.class, outcomes.get(0));
+		Assertions.assertThrows(IllegalStateException.class,
+				() -> batcher.insert(new Product("radio", 10.0, null)).block(Duration.ofSeconds(1)));
+	}
+
+}
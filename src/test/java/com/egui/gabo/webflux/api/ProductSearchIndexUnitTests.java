@@ -0,0 +1,88 @@
+package com.egui.gabo.webflux.api;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.egui.gabo.webflux.api.models.document.Category;
+import com.egui.gabo.webflux.api.models.document.Product;
+import com.egui.gabo.webflux.api.models.repository.ProductRepository;
+import com.egui.gabo.webflux.api.search.ProductSearchIndex;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Unit tests for @ProductSearchIndex, building from a stub repository whose
+ * scan the test drives
+ *
+ * @author Gabriel Eguiguren P.
+ */
+class ProductSearchIndexUnitTests {
+
+	private Sinks.Many<Product> scan;
+
+	private ProductSearchIndex index;
+
+	private static Category category(String id, String name) {
+		Category category = new Category(name);
+		category.setId(id);
+		return category;
+	}
+
+	private static Product product(String id, String name, Category category) {
+		Product product = new Product(name, 10.0, category);
+		product.setId(id);
+		return product;
+	}
+
+	@BeforeEach
+	void setUp() {
+		scan = Sinks.many().unicast().onBackpressureBuffer();
+		ProductRepository repository = (ProductRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { ProductRepository.class }, (proxy, method, args) -> {
+					if (method.getName().equals("exportAll")) {
+						return scan.asFlux();
+					}
+					throw new UnsupportedOperationException(method.getName());
+				});
+		index = new ProductSearchIndex();
+		ReflectionTestUtils.setField(index, "productDao", repository);
+	}
+
+	private List<String> search(String query) {
+		return index.search(query, null, 10).stream().map(hit -> hit.getProduct().getId()).sorted()
+				.collect(Collectors.toList());
+	}
+
+	@Test
+	void keepsChangesMadeWhileBuildingTest() {
+		Category electronic = category("c1", "Electronic");
+		Mono<Void> rebuild = index.rebuild().cache();
+		rebuild.subscribe();
+
+		scan.tryEmitNext(product("p1", "Sony TV", electronic));
+		// deleted, updated and renamed while the scan is still running, with older versions still to come
+		index.productDeleted("p2");
+		index.productSaved(product("p3", "Samsung Monitor", electronic));
+		index.categoryRenamed(category("c1", "Gadgets"));
+		scan.tryEmitNext(product("p2", "Sony Radio", electronic));
+		scan.tryEmitNext(product("p3", "Samsung TV", electronic));
+		scan.tryEmitNext(product("p4", "LG TV", electronic));
+		scan.tryEmitComplete();
+		rebuild.block(Duration.ofSeconds(5));
+
+		Assertions.assertEquals(List.of("p1"), search("sony"));
+		Assertions.assertEquals(List.of("p3"), search("monitor"));
+		Assertions.assertEquals(List.of("p1", "p4"), search("tv"));
+		Assertions.assertEquals(List.of("p1", "p3", "p4"), search("gadgets"));
+		Assertions.assertTrue(search("electronic").isEmpty());
+	}
+
+}
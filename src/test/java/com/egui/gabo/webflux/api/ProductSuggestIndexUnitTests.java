@@ -0,0 +1,82 @@
+package com.egui.gabo.webflux.api;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.egui.gabo.webflux.api.models.document.Product;
+import com.egui.gabo.webflux.api.models.repository.ProductRepository;
+import com.egui.gabo.webflux.api.search.NameRadixTree.Entry;
+import com.egui.gabo.webflux.api.search.ProductSuggestIndex;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Unit tests for @ProductSuggestIndex, building from a stub repository whose
+ * scan the test drives
+ *
+ * @author Gabriel Eguiguren P.
+ */
+class ProductSuggestIndexUnitTests {
+
+	private Sinks.Many<Product> scan;
+
+	private ProductSuggestIndex index;
+
+	private static Product product(String id, String name) {
+		Product product = new Product(name, 10.0, null);
+		product.setId(id);
+		return product;
+	}
+
+	@BeforeEach
+	void setUp() {
+		scan = Sinks.many().unicast().onBackpressureBuffer();
+		ProductRepository repository = (ProductRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { ProductRepository.class }, (proxy, method, args) -> {
+					if (method.getName().equals("exportAll")) {
+						return scan.asFlux();
+					}
+					throw new UnsupportedOperationException(method.getName());
+				});
+		index = new ProductSuggestIndex();
+		ReflectionTestUtils.setField(index, "productDao", repository);
+		ReflectionTestUtils.setField(index, "maxResults", 10);
+		ReflectionTestUtils.setField(index, "rank", "shortest");
+		ReflectionTestUtils.invokeMethod(index, "init");
+	}
+
+	private List<String> suggest(String prefix) {
+		return index.suggest(prefix, 10).stream().map(Entry::getName).sorted().collect(Collectors.toList());
+	}
+
+	@Test
+	void keepsChangesMadeWhileBuildingTest() {
+		Mono<Void> rebuild = index.rebuild().cache();
+		rebuild.subscribe();
+
+		scan.tryEmitNext(product("p1", "Sony TV"));
+		// deleted and renamed while the scan is still running, with older versions still to come
+		index.productDeleted("p2");
+		index.productSaved(product("p3", "Samsung Monitor"));
+		scan.tryEmitNext(product("p2", "Sony Radio"));
+		scan.tryEmitNext(product("p3", "Samsung TV"));
+		scan.tryEmitComplete();
+		rebuild.block(Duration.ofSeconds(5));
+
+		Assertions.assertEquals(List.of("Sony TV"), suggest("sony"));
+		Assertions.assertEquals(List.of("Samsung Monitor"), suggest("samsung"));
+
+		// once built, changes apply as they come
+		index.productSaved(product("p2", "Sony Radio"));
+		Assertions.assertEquals(List.of("Sony Radio", "Sony TV"), suggest("sony"));
+	}
+
+}
@@ -0,0 +1,66 @@
+package com.egui.gabo.webflux.api;
+
+import java.time.Instant;
+
+import org.bson.types.Decimal128;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.egui.gabo.webflux.api.models.document.PriceMinorConverter;
+import com.egui.gabo.webflux.api.models.document.Product;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Unit tests for @Product
+ *
+ * @author Gabriel Eguiguren P.
+ */
+class ProductUnitTests {
+
+	private final ObjectMapper mapper = Jackson2ObjectMapperBuilder.json()
+			.featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+
+	private final PriceMinorConverter converter = new PriceMinorConverter();
+
+	@Test
+	void keepsPricesInMinorUnits() {
+		Product product = new Product("TV", 0.29);
+
+		Assertions.assertEquals(29L, product.getPriceMinor());
+		Assertions.assertEquals(0.29, product.getPrice());
+
+		product.setPrice(10.005);
+		Assertions.assertEquals(1001L, product.getPriceMinor());
+
+		product.setPrice(null);
+		Assertions.assertFalse(product.hasPrice());
+		Assertions.assertNull(product.getPrice());
+	}
+
+	@Test
+	void serializesLikeTheFormerDoubleAndDateFields() throws Exception {
+		Product product = new Product("TV", 500.99);
+		product.setCreateAt(Instant.ofEpochMilli(1_700_000_000_123L));
+
+		String json = mapper.writeValueAsString(product);
+		Product read = mapper.readValue("{\"name\":\"TV\",\"price\":12,\"createAt\":\"2024-01-31\"}", Product.class);
+
+		Assertions.assertEquals("{\"id\":null,\"name\":\"TV\",\"price\":500.99,"
+				+ "\"createAt\":\"2023-11-14T22:13:20.123+00:00\",\"category\":null,\"picture\":null}", json);
+		Assertions.assertEquals(1200L, read.getPriceMinor());
+		Assertions.assertEquals(Instant.parse("2024-01-31T00:00:00Z"), read.getCreateAt());
+	}
+
+	@Test
+	void convertsStoredPrices() {
+		Assertions.assertEquals(1050L, converter.read(1050L, null));
+		Assertions.assertEquals(1051L, converter.read(10.505, null)); // legacy decimal
+		Assertions.assertEquals(29L, converter.read(Decimal128.parse("0.29"), null));
+		Assertions.assertEquals(Product.NO_PRICE, converter.readNull(null));
+		Assertions.assertEquals(1050L, converter.write(1050L, null));
+		Assertions.assertNull(converter.write(Product.NO_PRICE, null));
+	}
+
+}
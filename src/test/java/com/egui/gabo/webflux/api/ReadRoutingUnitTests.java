@@ -0,0 +1,126 @@
+package com.egui.gabo.webflux.api;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.egui.gabo.webflux.api.routing.ReadOperation;
+import com.egui.gabo.webflux.api.routing.ReadRouting;
+import com.egui.gabo.webflux.api.routing.ReadRoutingProperties;
+import com.egui.gabo.webflux.api.routing.WriteTimeTracker;
+import com.mongodb.ReadPreference;
+import com.mongodb.TaggableReadPreference;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Unit tests for @ReadRouting, covering the read preference and hedging
+ * decisions (no query is sent)
+ *
+ * @author Gabriel Eguiguren P.
+ */
+class ReadRoutingUnitTests {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	private ReadRouting routing(ReadRoutingProperties properties) {
+		ReadRouting routing = new ReadRouting();
+		ReflectionTestUtils.setField(routing, "properties", properties);
+		ReflectionTestUtils.setField(routing, "writes", new WriteTimeTracker());
+		ReflectionTestUtils.setField(routing, "registry", registry);
+		ReflectionTestUtils.invokeMethod(routing, "init");
+		return routing;
+	}
+
+	private Duration hedgeDelay(ReadRouting routing, ReadOperation operation) {
+		return ReflectionTestUtils.invokeMethod(routing, "hedgeDelay", operation);
+	}
+
+	private void recordReads(ReadOperation operation, int count, long millis) {
+		Timer timer = registry.get("products.read").tag("operation", operation.name().toLowerCase()).timer();
+		for (int i = 0; i < count; i++) {
+			timer.record(millis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@Test
+	void routesExportsToThePrimaryByDefaultTest() {
+		ReadRouting routing = routing(new ReadRoutingProperties());
+
+		Assertions.assertEquals(ReadPreference.primary(), routing.preferenceFor(ReadOperation.EXPORT));
+		ReadPreference list = routing.preferenceFor(ReadOperation.LIST);
+		Assertions.assertEquals("secondaryPreferred", list.getName());
+		Assertions.assertEquals(90, ((TaggableReadPreference) list).getMaxStaleness(TimeUnit.SECONDS));
+		Assertions.assertEquals("secondaryPreferred", routing.preferenceFor(ReadOperation.DETAIL).getName());
+	}
+
+	@Test
+	void routesConfiguredPreferencesTest() {
+		ReadRoutingProperties properties = new ReadRoutingProperties();
+		properties.setMaxStaleness(Duration.ofSeconds(120));
+		properties.getOperations().put(ReadOperation.LIST, "nearest");
+		properties.getOperations().remove(ReadOperation.DETAIL);
+		ReadRouting routing = routing(properties);
+
+		ReadPreference list = routing.preferenceFor(ReadOperation.LIST);
+		Assertions.assertEquals("nearest", list.getName());
+		Assertions.assertEquals(120, ((TaggableReadPreference) list).getMaxStaleness(TimeUnit.SECONDS));
+		// an operation without a preference reads the primary
+		Assertions.assertEquals(ReadPreference.primary(), routing.preferenceFor(ReadOperation.DETAIL));
+	}
+
+	@Test
+	void hedgesToTheOtherMemberTypeTest() {
+		ReadRouting routing = routing(new ReadRoutingProperties());
+
+		ReadPreference fromSecondary = ReflectionTestUtils.invokeMethod(routing, "hedgePreference",
+				routing.preferenceFor(ReadOperation.LIST));
+		Assertions.assertEquals(ReadPreference.primary(), fromSecondary);
+		ReadPreference fromPrimary = ReflectionTestUtils.invokeMethod(routing, "hedgePreference",
+				ReadPreference.primary());
+		Assertions.assertEquals("secondaryPreferred", fromPrimary.getName());
+	}
+
+	@Test
+	void hedgesOnceEnoughReadsWereTimedTest() {
+		ReadRouting routing = routing(new ReadRoutingProperties());
+
+		recordReads(ReadOperation.LIST, 99, 40);
+		Assertions.assertNull(hedgeDelay(routing, ReadOperation.LIST));
+
+		recordReads(ReadOperation.LIST, 1, 40);
+		Duration delay = hedgeDelay(routing, ReadOperation.LIST);
+		Assertions.assertNotNull(delay);
+		Assertions.assertTrue(delay.toMillis() >= 30 && delay.toMillis() <= 50, delay.toString());
+	}
+
+	@Test
+	void neverHedgesFasterThanTheMinimumDelayTest() {
+		ReadRouting routing = routing(new ReadRoutingProperties());
+
+		recordReads(ReadOperation.DETAIL, 100, 1);
+		Assertions.assertEquals(Duration.ofMillis(5), hedgeDelay(routing, ReadOperation.DETAIL));
+	}
+
+	@Test
+	void doesNotHedgeExcludedOperationsTest() {
+		ReadRoutingProperties properties = new ReadRoutingProperties();
+		properties.getHedge().setOperations(EnumSet.of(ReadOperation.DETAIL));
+		ReadRouting routing = routing(properties);
+
+		recordReads(ReadOperation.LIST, 200, 40);
+		recordReads(ReadOperation.EXPORT, 200, 40);
+		Assertions.assertNull(hedgeDelay(routing, ReadOperation.LIST));
+		Assertions.assertNull(hedgeDelay(routing, ReadOperation.EXPORT));
+
+		properties.getHedge().setEnabled(false);
+		recordReads(ReadOperation.DETAIL, 200, 40);
+		Assertions.assertNull(hedgeDelay(routing, ReadOperation.DETAIL));
+	}
+
+}
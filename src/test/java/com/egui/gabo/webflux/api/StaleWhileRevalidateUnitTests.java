@@ -0,0 +1,77 @@
+package com.egui.gabo.webflux.api;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import com.egui.gabo.webflux.api.resilience.CircuitBreaker;
+import com.egui.gabo.webflux.api.resilience.StaleWhileRevalidate;
+
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.util.context.Context;
+
+/**
+ * Unit tests for @StaleWhileRevalidate
+ *
+ * @author Gabriel Eguiguren P.
+ */
+class StaleWhileRevalidateUnitTests {
+
+	private final StaleWhileRevalidate<String, String> cache = new StaleWhileRevalidate<>(Duration.ofMillis(50),
+			new CircuitBreaker(5, 60_000), 10);
+
+	@Test
+	void waitsForASlowQueryWhenNothingIsCachedTest() {
+		StepVerifier.create(cache.get("k", Mono.just("fresh").delayElement(Duration.ofMillis(300))))
+				.expectNextMatches(result -> result.getValue().equals("fresh") && !result.isStale())
+				.verifyComplete();
+	}
+
+	@Test
+	void servesTheStaleValueWhenTheQueryIsSlowTest() throws InterruptedException {
+		cache.put("k", "old");
+
+		StepVerifier.create(cache.get("k", Mono.just("new").delayElement(Duration.ofMillis(300))))
+				.expectNextMatches(result -> result.getValue().equals("old") && result.isStale()
+						&& !result.isRevalidationFailed())
+				.verifyComplete();
+		// the slow query kept running and refreshed the cache
+		Thread.sleep(400);
+		StepVerifier.create(cache.get("k", Mono.just("newer").delayElement(Duration.ofMillis(300))))
+				.expectNextMatches(result -> result.getValue().equals("new") && result.isStale())
+				.verifyComplete();
+	}
+
+	@Test
+	void keepsAValueWrittenDuringTheQueryTest() throws InterruptedException {
+		cache.put("k", "old");
+
+		StepVerifier.create(cache.get("k", Mono.just("read before the write").delayElement(Duration.ofMillis(300))))
+				.expectNextMatches(result -> result.getValue().equals("old") && result.isStale())
+				.verifyComplete();
+		cache.put("k", "written");
+		// the slow query completes after the write and must not overwrite it
+		Thread.sleep(400);
+		StepVerifier.create(cache.get("k", Mono.just("newer").delayElement(Duration.ofMillis(300))))
+				.expectNextMatches(result -> result.getValue().equals("written") && result.isStale())
+				.verifyComplete();
+	}
+
+	@Test
+	void runsTheQueryWithTheCallersContextTest() {
+		Mono<String> source = Mono.deferContextual(ctx -> Mono.just(ctx.getOrDefault("tenant", "none")));
+
+		StepVerifier.create(cache.get("k", source).map(StaleWhileRevalidate.Result::getValue)
+				.contextWrite(Context.of("tenant", "shop")))
+				.expectNext("shop")
+				.verifyComplete();
+	}
+
+	@Test
+	void failsWhenTheQueryFailsAndNothingIsCachedTest() {
+		StepVerifier.create(cache.get("k", Mono.error(new IllegalStateException("down"))))
+				.verifyError(IllegalStateException.class);
+	}
+
+}
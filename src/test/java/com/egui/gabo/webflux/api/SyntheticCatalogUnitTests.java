@@ -0,0 +1,64 @@
+package com.egui.gabo.webflux.api;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.egui.gabo.webflux.api.catalog.SyntheticCatalog;
+import com.egui.gabo.webflux.api.models.document.Product;
+
+/**
+ * Unit tests for @SyntheticCatalog
+ *
+ * @author Gabriel Eguiguren P.
+ */
+class SyntheticCatalogUnitTests {
+
+	private static final Instant NOW = Instant.parse("2025-01-01T00:00:00Z");
+
+	@Test
+	void sameSeedSameCatalog() {
+		SyntheticCatalog first = new SyntheticCatalog(7, 30, NOW);
+		SyntheticCatalog second = new SyntheticCatalog(7, 30, NOW);
+
+		Assertions.assertEquals(30, first.getCategories().size());
+		Assertions.assertEquals("Electronic 2", first.getCategories().get(20).getName());
+		for (int i = 0; i < 100; i++) {
+			Product a = first.nextProduct();
+			Product b = second.nextProduct();
+			Assertions.assertEquals(a.getName(), b.getName());
+			Assertions.assertEquals(a.getPriceMinor(), b.getPriceMinor());
+			Assertions.assertEquals(a.getCreateAt(), b.getCreateAt());
+			Assertions.assertEquals(a.getCategory().getName(), b.getCategory().getName());
+		}
+	}
+
+	@Test
+	void generatesSkewedValidProducts() {
+		SyntheticCatalog catalog = new SyntheticCatalog(42, 20, NOW);
+		Map<String, Integer> perCategory = new HashMap<>();
+		int endingIn99 = 0;
+
+		for (int i = 0; i < 10_000; i++) {
+			Product product = catalog.nextProduct();
+			Assertions.assertNotNull(product.getId());
+			Assertions.assertNotNull(product.getCategory().getId());
+			Assertions.assertTrue(product.getPriceMinor() >= 99);
+			Assertions.assertFalse(product.getCreateAt().isAfter(NOW));
+			Assertions.assertTrue(product.getCreateAt().isAfter(NOW.minus(Duration.ofDays(731))));
+			perCategory.merge(product.getCategory().getName(), 1, Integer::sum);
+			if (product.getPriceMinor() % 100 == 99) {
+				endingIn99++;
+			}
+		}
+
+		// Zipf: the top category holds about 20 times the last one
+		Assertions.assertTrue(perCategory.get("Electronic") > 10 * perCategory.get("Automotive"));
+		Assertions.assertTrue(endingIn99 > 6_000);
+	}
+
+}
@@ -0,0 +1,61 @@
+package com.egui.gabo.webflux.api;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonDocument;
+import org.bson.BsonDouble;
+import org.bson.BsonInt32;
+import org.bson.BsonTimestamp;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.egui.gabo.webflux.api.routing.WriteTimeTracker;
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionDescription;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.CommandSucceededEvent;
+
+/**
+ * Unit tests for @WriteTimeTracker
+ *
+ * @author Gabriel Eguiguren P.
+ */
+class WriteTimeTrackerUnitTests {
+
+	private static final ConnectionDescription CONNECTION = new ConnectionDescription(
+			new ServerId(new ClusterId(), new ServerAddress()));
+
+	private static CommandSucceededEvent reply(String command, int seconds) {
+		BsonDocument response = new BsonDocument("ok", new BsonDouble(1))
+				.append("operationTime", new BsonTimestamp(seconds, 1))
+				.append("$clusterTime", new BsonDocument("clusterTime", new BsonTimestamp(seconds, 1)));
+		return new CommandSucceededEvent(null, 1, 1, CONNECTION, "product_db", command, response, 1000);
+	}
+
+	@Test
+	void keepsTheLatestWriteTime() {
+		WriteTimeTracker tracker = new WriteTimeTracker();
+		Assertions.assertFalse(tracker.wroteWithin(TimeUnit.SECONDS.toNanos(90)));
+
+		tracker.commandSucceeded(reply("insert", 20));
+		tracker.commandSucceeded(reply("update", 10)); // acknowledged late, older
+
+		Assertions.assertEquals(new BsonTimestamp(20, 1), tracker.getOperationTime());
+		Assertions.assertEquals(new BsonTimestamp(20, 1), tracker.getClusterTime().getTimestamp("clusterTime"));
+		Assertions.assertTrue(tracker.wroteWithin(TimeUnit.SECONDS.toNanos(90)));
+	}
+
+	@Test
+	void ignoresReadsAndStandaloneReplies() {
+		WriteTimeTracker tracker = new WriteTimeTracker();
+
+		tracker.commandSucceeded(reply("find", 30));
+		tracker.commandSucceeded(new CommandSucceededEvent(null, 1, 1, CONNECTION, "product_db", "insert",
+				new BsonDocument("n", new BsonInt32(1)), 1000));
+
+		Assertions.assertNull(tracker.getOperationTime());
+		Assertions.assertFalse(tracker.wroteWithin(TimeUnit.SECONDS.toNanos(90)));
+	}
+
+}
@@ -0,0 +1,172 @@
+package com.egui.gabo.webflux.api.benchmark;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.egui.gabo.webflux.api.models.document.Category;
+import com.egui.gabo.webflux.api.models.document.Product;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Time to fetch {@code fanout} product details concurrently, as the cart
+ * service does, over HTTP/1.1 (one pooled connection per in-flight request)
+ * versus h2c (all requests multiplexed over one connection). The number of
+ * connections each protocol opened is printed on teardown.
+ * <p>
+ * By default it runs against an in-process Reactor Netty server answering
+ * {@code GET /api/v2/products/{id}} with a fixed product, which isolates the
+ * transport. With {@code -Dbenchmark.url=http://host:8080} it fetches the
+ * products listed by a running instance (started with
+ * {@code server.http2.enabled=true}) instead.
+ * </p>
+ * <p>
+ * The pool keeps warm connections, so on loopback HTTP/1.1 pays no setup
+ * cost and h2c, serialized on one connection and event loop, can be slower
+ * per batch; the gain is in connections and in handshakes over real
+ * networks and TLS.
+ * </p>
+ * <p>
+ * Not a unit test: run {@code main} from the IDE or with {@code java -cp} on
+ * the test classpath ({@code mvn dependency:build-classpath
+ * -Dmdep.includeScope=test}); the forked JMH VM does not start under
+ * {@code exec:java}.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DetailFetchBenchmark {
+
+	@Param({ "HTTP11", "H2C" })
+	private HttpProtocol protocol;
+
+	@Param({ "20", "200" })
+	private int fanout;
+
+	private final ObjectMapper mapper = Jackson2ObjectMapperBuilder.json()
+			.featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+
+	private final AtomicInteger connections = new AtomicInteger();
+
+	private DisposableServer server;
+
+	private ConnectionProvider pool;
+
+	private HttpClient client;
+
+	private List<String> ids;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		String url = System.getProperty("benchmark.url");
+		if (url == null) {
+			server = startLocalServer();
+			url = "http://localhost:" + server.port();
+		}
+
+		// HTTP/1.1 needs a connection per in-flight request, h2c a single one
+		pool = ConnectionProvider.builder("benchmark").maxConnections(protocol == HttpProtocol.H2C ? 1 : fanout)
+				.pendingAcquireMaxCount(-1).build();
+		client = HttpClient.create(pool)
+				.baseUrl(url)
+				.protocol(protocol)
+				.http2Settings(settings -> settings.maxConcurrentStreams(fanout))
+				.doOnChannelInit((observer, channel, address) -> connections.incrementAndGet());
+		ids = productIds(url);
+	}
+
+	private DisposableServer startLocalServer() throws Exception {
+		Category category = new Category("Electronic");
+		category.setId("64b7f0c2a1b2c3d4e5f60000");
+		Product product = new Product("TV LG 4k 52in", 500.99, category);
+		product.setId("64b7f0c2a1b2c3d4e5f70000");
+		product.setCreateAt(Instant.ofEpochMilli(1_700_000_000_000L));
+		byte[] body = mapper.writeValueAsBytes(product);
+
+		return HttpServer.create()
+				.port(0)
+				.protocol(HttpProtocol.HTTP11, HttpProtocol.H2C)
+				.http2Settings(settings -> settings.maxConcurrentStreams(1000))
+				.route(routes -> routes.get("/api/v2/products/{id}", (request, response) -> response
+						.header("Content-Type", "application/json")
+						.sendByteArray(Mono.just(body))))
+				.bindNow();
+	}
+
+	private List<String> productIds(String url) throws Exception {
+		List<String> all = new ArrayList<>();
+		if (server != null) {
+			all.add("64b7f0c2a1b2c3d4e5f70000");
+		} else {
+			String json = HttpClient.create().get().uri(url + "/api/v2/products").responseContent().aggregate()
+					.asString().block();
+			for (JsonNode product : mapper.readTree(json)) {
+				all.add(product.get("id").asText());
+			}
+		}
+		List<String> result = new ArrayList<>(fanout);
+		for (int i = 0; i < fanout; i++) {
+			result.add(all.get(i % all.size()));
+		}
+		return result;
+	}
+
+	@Benchmark
+	public long fetchDetails() {
+		return Flux.fromIterable(ids)
+				.flatMap(id -> client.get().uri("/api/v2/products/" + id).responseSingle((response, bytes) -> bytes
+						.asByteArray().map(content -> (long) content.length)), fanout)
+				.reduce(0L, Long::sum)
+				.block();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		System.out.printf("%n%s, fanout %d: %d connections opened%n", protocol, fanout, connections.get());
+		pool.dispose();
+		if (server != null) {
+			server.disposeNow();
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(DetailFetchBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
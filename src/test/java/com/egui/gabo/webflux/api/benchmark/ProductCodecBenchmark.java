@@ -0,0 +1,147 @@
+package com.egui.gabo.webflux.api.benchmark;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.egui.gabo.webflux.api.codec.CatalogJsonEncoder;
+import com.egui.gabo.webflux.api.codec.CatalogProtobufEncoder;
+import com.egui.gabo.webflux.api.models.document.Category;
+import com.egui.gabo.webflux.api.models.document.Product;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import io.netty.buffer.PooledByteBufAllocator;
+
+/**
+ * Encode time of a product list as JSON, CBOR, Smile and protobuf; payload
+ * sizes are printed on setup.
+ * <p>
+ * {@code jacksonEncoder} and {@code catalogJsonEncoder} compare the two
+ * {@code application/json} encoders the server can use, writing into pooled
+ * Netty buffers as the response does; run with {@code -prof gc} to compare
+ * allocation rates too.
+ * </p>
+ * <p>
+ * Not a unit test: run it with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.egui.gabo.webflux.api.benchmark.ProductCodecBenchmark}
+ * or from the IDE.
+ * </p>
+ *
+ * @author Gabriel Eguiguren P.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductCodecBenchmark {
+
+	@Param({ "10", "1000" })
+	private int size;
+
+	private List<Product> products;
+
+	private final ObjectMapper json = new ObjectMapper();
+	private final ObjectMapper cbor = new ObjectMapper(new CBORFactory());
+	private final ObjectMapper smile = new ObjectMapper(new SmileFactory());
+	private final CatalogProtobufEncoder protobuf = new CatalogProtobufEncoder();
+	private final DefaultDataBufferFactory buffers = DefaultDataBufferFactory.sharedInstance;
+	private final ResolvableType listType = ResolvableType.forClassWithGenerics(List.class, Product.class);
+	private final NettyDataBufferFactory pooled = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+	private final Jackson2JsonEncoder jacksonEncoder = new Jackson2JsonEncoder(Jackson2ObjectMapperBuilder.json()
+			.featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build());
+	private final CatalogJsonEncoder catalogJsonEncoder = new CatalogJsonEncoder();
+
+	@Setup
+	public void setUp() throws JsonProcessingException {
+		products = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			Category category = new Category("Category " + (i % 8));
+			category.setId(String.format("64b7f0c2a1b2c3d4e5f6%04x", i % 8));
+			Product product = new Product("Product name number " + i, 10.5 + i, category);
+			product.setId(String.format("64b7f0c2a1b2c3d4e5f7%04x", i));
+			product.setCreateAt(Instant.ofEpochMilli(1_700_000_000_000L + i * 60_000L));
+			product.setPicture(i % 3 == 0 ? null : "picture-" + i + ".png");
+			products.add(product);
+		}
+		System.out.printf("%n%d products: json=%d cbor=%d smile=%d protobuf=%d bytes%n", size,
+				json.writeValueAsBytes(products).length, cbor.writeValueAsBytes(products).length,
+				smile.writeValueAsBytes(products).length, protobufBytes());
+	}
+
+	private int protobufBytes() {
+		return protobuf.encodeValue(products, buffers, listType, null, null).readableByteCount();
+	}
+
+	@Benchmark
+	public byte[] json() throws JsonProcessingException {
+		return json.writeValueAsBytes(products);
+	}
+
+	@Benchmark
+	public byte[] cbor() throws JsonProcessingException {
+		return cbor.writeValueAsBytes(products);
+	}
+
+	@Benchmark
+	public byte[] smile() throws JsonProcessingException {
+		return smile.writeValueAsBytes(products);
+	}
+
+	@Benchmark
+	public int protobuf() {
+		return protobufBytes();
+	}
+
+	@Benchmark
+	public int jacksonEncoder() {
+		return release(jacksonEncoder.encodeValue(products, pooled, listType, MediaType.APPLICATION_JSON, Map.of()));
+	}
+
+	@Benchmark
+	public int catalogJsonEncoder() {
+		return release(catalogJsonEncoder.encodeValue(products, pooled, listType, MediaType.APPLICATION_JSON, Map.of()));
+	}
+
+	private static int release(DataBuffer buffer) {
+		int size = buffer.readableByteCount();
+		DataBufferUtils.release(buffer);
+		return size;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(ProductCodecBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}